@@ -1,45 +1,110 @@
 package viettel.dac.promptservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Configuration for asynchronous task execution
+ * Configuration for asynchronous task execution.
+ * <p>
+ * With {@code spring.threads.virtual.enabled} both executors start a virtual thread per task
+ * instead of using a fixed pool, so concurrency is bounded by the provider rate limits and
+ * bulkheads rather than by thread counts. Request handling and the Reactor bounded elastic
+ * scheduler switch to virtual threads with the same property.
  */
 @Configuration
 @EnableAsync
+@Slf4j
 public class AsyncConfig {
 
+    private final boolean virtualThreads;
+
+    public AsyncConfig(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        if (virtualThreads) {
+            log.info("Running asynchronous tasks and LLM calls on virtual threads");
+        }
+    }
+
     /**
      * Thread pool for asynchronous tasks
      */
     @Bean(name = "taskExecutor")
-    public TaskExecutor taskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(25);
-        executor.setThreadNamePrefix("TaskExecutor-");
-        executor.initialize();
-        return executor;
+    public TaskExecutor taskExecutor(MeterRegistry meterRegistry) {
+        if (virtualThreads) {
+            return virtualExecutor("taskExecutor", "TaskExecutor-", meterRegistry);
+        }
+        return platformExecutor("taskExecutor", "TaskExecutor-", 5, 10, 25, meterRegistry);
     }
 
     /**
      * Dedicated thread pool for LLM operations
      */
     @Bean(name = "llmExecutor")
-    public Executor llmExecutor() {
+    public Executor llmExecutor(MeterRegistry meterRegistry) {
+        if (virtualThreads) {
+            return virtualExecutor("llmExecutor", "LlmExecutor-", meterRegistry);
+        }
+        return platformExecutor("llmExecutor", "LlmExecutor-", 10, 20, 50, meterRegistry);
+    }
+
+    /**
+     * Create a fixed pool of platform threads with metrics: the time each task waits in the
+     * queue as {@code executor.queue.wait}, and the pool size, active threads and queue depth
+     * gauges of {@link ExecutorServiceMetrics}, all tagged with the executor name
+     */
+    static ThreadPoolTaskExecutor platformExecutor(String name, String threadNamePrefix, int corePoolSize,
+                                                   int maxPoolSize, int queueCapacity,
+                                                   MeterRegistry meterRegistry) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(20);
-        executor.setQueueCapacity(50);
-        executor.setThreadNamePrefix("LlmExecutor-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setTaskDecorator(queueWait(name, meterRegistry));
         executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Create an executor that runs every task on a new virtual thread. Nothing is queued, so
+     * {@code executor.queue.wait} only measures the time until the thread starts.
+     */
+    static SimpleAsyncTaskExecutor virtualExecutor(String name, String threadNamePrefix,
+                                                   MeterRegistry meterRegistry) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(queueWait(name, meterRegistry));
         return executor;
     }
-}
\ No newline at end of file
+
+    private static TaskDecorator queueWait(String name, MeterRegistry meterRegistry) {
+        Timer queueWait = Timer.builder("executor.queue.wait")
+                .description("Time tasks spend queued before a thread runs them")
+                .tag("name", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        return task -> {
+            long submitted = System.nanoTime();
+            return () -> {
+                queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                task.run();
+            };
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package viettel.dac.promptservice.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Moves the Reactor bounded elastic scheduler, which runs the blocking JDBC and cache work of
+ * the reactive paths, to virtual threads when {@code spring.threads.virtual.enabled} is set.
+ * Reactor reads the switch once when its schedulers are first used, so it is set before any
+ * bean is created.
+ */
+public class VirtualThreadsEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String REACTOR_VIRTUAL_THREADS_PROPERTY = "reactor.schedulers.defaultBoundedElasticOnVirtualThreads";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (Threading.VIRTUAL.isActive(environment) && System.getProperty(REACTOR_VIRTUAL_THREADS_PROPERTY) == null) {
+            System.setProperty(REACTOR_VIRTUAL_THREADS_PROPERTY, "true");
+        }
+    }
+}
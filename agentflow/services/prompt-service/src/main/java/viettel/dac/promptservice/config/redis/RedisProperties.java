@@ -54,6 +54,7 @@ public class RedisProperties {
             ttls.put("promptParameters", Duration.ofHours(6));
             ttls.put("searchResults", Duration.ofMinutes(30));
             ttls.put("userPermissions", Duration.ofMinutes(15));
+            ttls.put("llmResponses", Duration.ofHours(24));
         }
     }
 }
\ No newline at end of file
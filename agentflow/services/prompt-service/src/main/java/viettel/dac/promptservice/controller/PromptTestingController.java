@@ -10,13 +10,17 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import viettel.dac.promptservice.dto.request.PromptBatchTestRequest;
 import viettel.dac.promptservice.dto.request.PromptTestRequest;
+import viettel.dac.promptservice.dto.response.PromptBatchItemResult;
 import viettel.dac.promptservice.dto.response.ErrorResponse;
 import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.dto.response.PromptStreamEvent;
 import viettel.dac.promptservice.dto.validation.ValidationResult;
 import viettel.dac.promptservice.service.preview.PromptTestingService;
 
@@ -52,6 +56,22 @@ public class PromptTestingController {
         return ResponseEntity.ok(result);
     }
 
+    @Operation(summary = "Test a prompt and stream the response as it is generated",
+            description = "Selected by Accept: text/event-stream or application/x-ndjson. Emits DELTA events " +
+                    "with text fragments followed by a single RESULT event carrying the execution result")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream started successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping(value = "/test", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAuthority('PROMPT_TEST')")
+    public Flux<PromptStreamEvent> testPromptStream(
+            @Valid @RequestBody PromptTestRequest request) {
+        log.debug("REST request to stream test of prompt version: {}", request.getVersionId());
+        return testingService.testPromptStream(request);
+    }
+
     @Operation(summary = "Execute batch testing of a prompt")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Batch test executed successfully"),
@@ -69,6 +89,22 @@ public class PromptTestingController {
         return ResponseEntity.ok(results);
     }
 
+    @Operation(summary = "Execute batch testing of a prompt and stream the results as they complete",
+            description = "Selected by Accept: application/x-ndjson. Emits one line per parameter set in " +
+                    "completion order, each carrying the index of its parameter set in the request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream started successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority('PROMPT_TEST')")
+    public Flux<PromptBatchItemResult> batchTestPromptStream(
+            @Valid @RequestBody PromptBatchTestRequest request) {
+        log.debug("REST request to stream batch test of prompt version: {}", request.getVersionId());
+        return testingService.batchTestPromptStream(request);
+    }
+
     @Operation(summary = "Validate a response against criteria")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Validation executed successfully"),
@@ -12,7 +12,7 @@ import java.util.Map;
  * DTO representing a request to an LLM provider
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class LlmRequest {
@@ -74,4 +74,37 @@ public class LlmRequest {
      */
     @Builder.Default
     private long timeoutMs = 30000;
-}
\ No newline at end of file
+
+    /**
+     * ID of the prompt version the prompt was rendered from, if any
+     */
+    private String versionId;
+
+    /**
+     * Hash of the parameter values applied to the prompt version, if any
+     */
+    private String parametersHash;
+
+    /**
+     * Whether the response may be cached even though sampling is not deterministic
+     */
+    private boolean cacheable;
+
+    /**
+     * Whether to send a hedged duplicate once the call is slower than usual;
+     * null uses the configured default
+     */
+    private Boolean hedge;
+
+    /**
+     * Length of the leading part of the prompt that is the same for every execution of the
+     * prompt version. Providers mark it and the system prompt for prompt caching; null
+     * disables prompt caching for the request.
+     */
+    private Integer promptPrefixLength;
+
+    /**
+     * How the "auto" provider chooses the provider and model; ignored by other providers
+     */
+    private RoutingPolicy routing;
+}
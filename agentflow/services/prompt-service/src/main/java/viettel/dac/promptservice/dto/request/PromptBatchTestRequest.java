@@ -79,4 +79,16 @@ public class PromptBatchTestRequest {
      */
     @Builder.Default
     private boolean storeResults = true;
+
+    /**
+     * Whether responses may be served from and stored in the response cache
+     * even when sampling is not deterministic
+     */
+    private boolean cache;
+
+    /**
+     * Whether to send a hedged duplicate request when the model is slower than usual;
+     * null uses the configured default
+     */
+    private Boolean hedge;
 }
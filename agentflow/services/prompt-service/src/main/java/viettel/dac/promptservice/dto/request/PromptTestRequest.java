@@ -63,4 +63,22 @@ public class PromptTestRequest {
      */
     @Builder.Default
     private boolean storeResult = true;
+
+    /**
+     * Whether the response may be served from and stored in the response cache
+     * even when sampling is not deterministic
+     */
+    private boolean cache;
+
+    /**
+     * Whether to send a hedged duplicate request when the model is slower than usual;
+     * null uses the configured default
+     */
+    private Boolean hedge;
+
+    /**
+     * How to choose the provider and model when the provider ID is "auto";
+     * null uses the cheapest healthy route
+     */
+    private RoutingPolicy routing;
 }
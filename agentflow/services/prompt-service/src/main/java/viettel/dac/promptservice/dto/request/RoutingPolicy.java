@@ -0,0 +1,72 @@
+package viettel.dac.promptservice.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import viettel.dac.promptservice.model.enums.RoutingObjective;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the "auto" provider chooses a provider and model for a request, e.g. the cheapest route
+ * under 2 s p95 latency, or the fastest route within a cost budget
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoutingPolicy {
+
+    /**
+     * What to optimise for among the routes within the limits
+     */
+    @Builder.Default
+    private RoutingObjective objective = RoutingObjective.CHEAPEST;
+
+    /**
+     * Highest acceptable 95th percentile latency in milliseconds; null for no limit.
+     * Routes above it are only used when no route meets it.
+     */
+    private Long maxP95LatencyMs;
+
+    /**
+     * Highest acceptable estimated cost of one request in USD; null for no limit.
+     * Routes above it are never used.
+     */
+    private Double maxCost;
+
+    /**
+     * Routes to choose from as "provider:model"; empty uses the request model or the configured candidates
+     */
+    @Builder.Default
+    private List<String> candidates = new ArrayList<>();
+
+    /**
+     * Read a policy from untyped job parameters
+     *
+     * @param values Map with the policy fields, e.g. {"objective": "FASTEST", "maxCost": 0.01}
+     * @return The policy, or null if no values are given
+     */
+    public static RoutingPolicy fromMap(Map<?, ?> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        RoutingPolicy policy = new RoutingPolicy();
+        if (values.get("objective") != null) {
+            policy.setObjective(RoutingObjective.valueOf(values.get("objective").toString().toUpperCase()));
+        }
+        if (values.get("maxP95LatencyMs") != null) {
+            policy.setMaxP95LatencyMs(Long.valueOf(values.get("maxP95LatencyMs").toString()));
+        }
+        if (values.get("maxCost") != null) {
+            policy.setMaxCost(Double.valueOf(values.get("maxCost").toString()));
+        }
+        if (values.get("candidates") instanceof List<?> candidates) {
+            candidates.forEach(candidate -> policy.getCandidates().add(candidate.toString()));
+        }
+        return policy;
+    }
+}
@@ -16,7 +16,7 @@ import java.util.Map;
  * DTO representing a response from an LLM provider
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class LlmResponse {
@@ -47,6 +47,16 @@ public class LlmResponse {
      */
     private Integer outputTokenCount;
 
+    /**
+     * Number of input tokens read from the provider's prompt cache, included in the input tokens
+     */
+    private Integer cacheReadTokenCount;
+
+    /**
+     * Number of input tokens written to the provider's prompt cache, included in the input tokens
+     */
+    private Integer cacheWriteTokenCount;
+
     /**
      * Total number of tokens (input + output)
      */
@@ -0,0 +1,51 @@
+package viettel.dac.promptservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO representing one element of a streamed LLM response
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmStreamChunk {
+
+    /**
+     * Text generated since the previous chunk
+     */
+    private String delta;
+
+    /**
+     * Whether this is the final chunk of the stream
+     */
+    private boolean last;
+
+    /**
+     * Fully assembled response (usage, cost, metadata), only present on the final chunk
+     */
+    private LlmResponse response;
+
+    /**
+     * Create an intermediate chunk carrying a text delta
+     */
+    public static LlmStreamChunk delta(String text) {
+        return LlmStreamChunk.builder()
+                .delta(text)
+                .last(false)
+                .build();
+    }
+
+    /**
+     * Create the final chunk carrying the assembled response
+     */
+    public static LlmStreamChunk completed(LlmResponse response) {
+        return LlmStreamChunk.builder()
+                .last(true)
+                .response(response)
+                .build();
+    }
+}
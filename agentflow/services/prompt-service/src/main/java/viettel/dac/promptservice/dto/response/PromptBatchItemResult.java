@@ -0,0 +1,26 @@
+package viettel.dac.promptservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a single result of a streamed batch test (NDJSON)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PromptBatchItemResult {
+
+    /**
+     * Index of the parameter set in the batch request
+     */
+    private int index;
+
+    /**
+     * Execution result for the parameter set
+     */
+    private PromptExecutionResult result;
+}
@@ -31,6 +31,8 @@ public class PromptExecutionResponse {
     private Integer tokenCount;
     private Integer inputTokens;
     private Integer outputTokens;
+    private Integer cacheReadTokens;
+    private Integer cacheWriteTokens;
     private BigDecimal cost;
     private Long responseTimeMs;
     private LocalDateTime executedAt;
@@ -70,6 +70,16 @@ public class PromptExecutionResult {
      */
     private Integer outputTokens;
 
+    /**
+     * Input tokens read from the provider's prompt cache
+     */
+    private Integer cacheReadTokens;
+
+    /**
+     * Input tokens written to the provider's prompt cache
+     */
+    private Integer cacheWriteTokens;
+
     /**
      * Estimated cost of the execution
      */
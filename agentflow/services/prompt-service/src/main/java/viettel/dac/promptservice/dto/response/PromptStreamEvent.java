@@ -0,0 +1,55 @@
+package viettel.dac.promptservice.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a single event of a streamed prompt test (SSE / NDJSON)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PromptStreamEvent {
+
+    /**
+     * Event type
+     */
+    private EventType type;
+
+    /**
+     * Text generated since the previous event (DELTA events)
+     */
+    private String delta;
+
+    /**
+     * Final execution result (RESULT events)
+     */
+    private PromptExecutionResult result;
+
+    public static PromptStreamEvent delta(String text) {
+        return PromptStreamEvent.builder()
+                .type(EventType.DELTA)
+                .delta(text)
+                .build();
+    }
+
+    public static PromptStreamEvent result(PromptExecutionResult result) {
+        return PromptStreamEvent.builder()
+                .type(EventType.RESULT)
+                .result(result)
+                .build();
+    }
+
+    /**
+     * Stream event types
+     */
+    public enum EventType {
+        DELTA,
+        RESULT
+    }
+}
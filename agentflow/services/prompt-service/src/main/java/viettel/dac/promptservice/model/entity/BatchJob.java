@@ -92,6 +92,12 @@ public class BatchJob extends BaseEntity {
     @Column(name = "completion_percentage")
     private Integer completionPercentage;
 
+    /**
+     * Until when a worker holds the job to check or collect its provider batch
+     */
+    @Column(name = "collect_lease_until")
+    private LocalDateTime collectLeaseUntil;
+
     /**
      * Reference to the prompt template for this job
      */
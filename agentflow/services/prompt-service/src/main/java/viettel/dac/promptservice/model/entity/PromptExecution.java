@@ -62,6 +62,12 @@ public class PromptExecution extends BaseEntity {
     @Column(name = "output_tokens")
     private Integer outputTokens;
 
+    @Column(name = "cache_read_tokens")
+    private Integer cacheReadTokens;
+
+    @Column(name = "cache_write_tokens")
+    private Integer cacheWriteTokens;
+
     @Column(precision = 10, scale = 6)
     private BigDecimal cost;
 
@@ -9,9 +9,9 @@ import lombok.experimental.SuperBuilder;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.annotation.CreatedBy;
 import viettel.dac.promptservice.model.enums.VersionStatus;
+import viettel.dac.promptservice.util.TemplateCompiler;
 
 import java.util.*;
-import java.util.regex.Matcher;
 
 /**
  * Prompt version entity with semantic versioning support
@@ -182,41 +182,37 @@ public class PromptVersion extends BaseEntity {
     }
 
     /**
-     * Apply parameter substitution to content
+     * Apply parameter substitution to content. The content is compiled once per version and
+     * content and rendered in a single pass.
      *
      * @param paramValues Map of parameter values to substitute
      * @return Content with parameters substituted
      * @throws IllegalArgumentException if required parameters are missing
      */
     public String applyParameters(Map<String, Object> paramValues) {
-        String result = content;
-        Set<String> missingRequired = new HashSet<>();
-
-        // Check for required parameters
+        Set<String> requiredNames = new HashSet<>();
         for (PromptParameter param : parameters) {
-            if (param.isRequired() &&
-                    (paramValues == null ||
-                            !paramValues.containsKey(param.getName()) ||
-                            paramValues.get(param.getName()) == null)) {
-                missingRequired.add(param.getName());
+            if (param.isRequired()) {
+                requiredNames.add(param.getName());
             }
         }
+        return TemplateCompiler.compile(getId(), content).render(paramValues, requiredNames);
+    }
 
-        if (!missingRequired.isEmpty()) {
-            throw new IllegalArgumentException("Missing required parameters: " + String.join(", ", missingRequired));
-        }
-
-        // Apply substitution
-        if (paramValues != null) {
-            for (Map.Entry<String, Object> entry : paramValues.entrySet()) {
-                String placeholder = "{{" + entry.getKey() + "}}";
-                if (result.contains(placeholder)) {
-                    result = result.replace(placeholder, String.valueOf(entry.getValue()));
-                }
-            }
+    /**
+     * Length of the part of a rendered prompt that every execution of this version shares:
+     * the content before the first parameter placeholder
+     *
+     * @param renderedPrompt Content with parameters substituted
+     * @return Length of the shared prefix, 0 if the prompt starts with a parameter
+     */
+    public int getStaticPrefixLength(String renderedPrompt) {
+        if (content == null || renderedPrompt == null) {
+            return 0;
         }
-
-        return result;
+        int placeholder = content.indexOf("{{");
+        String prefix = placeholder >= 0 ? content.substring(0, placeholder) : content;
+        return renderedPrompt.startsWith(prefix) ? prefix.length() : 0;
     }
 
     /**
@@ -225,14 +221,6 @@ public class PromptVersion extends BaseEntity {
      * @return Set of parameter names found in content
      */
     public Set<String> extractParametersFromContent() {
-        Set<String> parameters = new HashSet<>();
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\{\\{([^}]+)\\}\\}");
-        Matcher matcher = pattern.matcher(content);
-
-        while (matcher.find()) {
-            parameters.add(matcher.group(1));
-        }
-
-        return parameters;
+        return new HashSet<>(TemplateCompiler.compile(getId(), content).getParameterNames());
     }
-}
\ No newline at end of file
+}
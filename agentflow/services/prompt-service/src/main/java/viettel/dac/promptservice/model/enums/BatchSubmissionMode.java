@@ -0,0 +1,17 @@
+package viettel.dac.promptservice.model.enums;
+
+/**
+ * How a batch execution job sends its requests to the provider
+ */
+public enum BatchSubmissionMode {
+    /**
+     * One provider call per parameter set, run while the job executes
+     */
+    DIRECT,
+
+    /**
+     * All parameter sets submitted as one provider-side batch, collected when the provider
+     * has processed it
+     */
+    PROVIDER_BATCH
+}
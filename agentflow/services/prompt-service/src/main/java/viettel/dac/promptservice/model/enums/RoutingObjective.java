@@ -0,0 +1,16 @@
+package viettel.dac.promptservice.model.enums;
+
+/**
+ * What the model router optimises for among the routes that meet a policy's limits
+ */
+public enum RoutingObjective {
+    /**
+     * Lowest estimated cost of the request, ties broken by median latency
+     */
+    CHEAPEST,
+
+    /**
+     * Lowest observed 95th percentile latency, ties broken by cost
+     */
+    FASTEST
+}
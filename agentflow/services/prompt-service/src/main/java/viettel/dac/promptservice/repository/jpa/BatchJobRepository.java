@@ -1,11 +1,16 @@
 package viettel.dac.promptservice.repository.jpa;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import viettel.dac.promptservice.model.entity.BatchJob;
 import viettel.dac.promptservice.model.enums.BatchJobStatus;
 import viettel.dac.promptservice.model.enums.BatchJobType;
@@ -29,6 +34,17 @@ public interface BatchJobRepository extends JpaRepository<BatchJob, String> {
     @Query("SELECT j FROM BatchJob j LEFT JOIN FETCH j.executions WHERE j.id = :id")
     Optional<BatchJob> findByIdWithExecutions(@Param("id") String id);
 
+    /**
+     * Find job by ID and lock it until the end of the transaction, so that status changes of
+     * concurrent updates are not overwritten
+     *
+     * @param id Job ID
+     * @return Locked job
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM BatchJob j WHERE j.id = :id")
+    Optional<BatchJob> findByIdForUpdate(@Param("id") String id);
+
     /**
      * Find jobs by status
      *
@@ -82,6 +98,15 @@ public interface BatchJobRepository extends JpaRepository<BatchJob, String> {
      */
     List<BatchJob> findByStatusAndScheduledAtBefore(BatchJobStatus status, LocalDateTime time);
 
+    /**
+     * Find jobs of a type in a status
+     *
+     * @param status Job status
+     * @param jobType Job type
+     * @return List of jobs
+     */
+    List<BatchJob> findByStatusAndJobType(BatchJobStatus status, BatchJobType jobType);
+
     /**
      * Find jobs by name (partial match)
      *
@@ -124,4 +149,29 @@ public interface BatchJobRepository extends JpaRepository<BatchJob, String> {
      */
     @Query("SELECT j FROM BatchJob j WHERE j.status = 'RUNNING' AND j.startedAt < :cutoffTime")
     List<BatchJob> findStuckJobs(@Param("cutoffTime") LocalDateTime cutoffTime);
+
+    /**
+     * Claim a running job for checking and collecting its provider batch, unless another
+     * worker holds an unexpired lease on it. Commits on its own so the claim is visible at once.
+     *
+     * @param id Job ID
+     * @param now Current time
+     * @param until End of the lease
+     * @return 1 if the job was claimed, 0 otherwise
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE BatchJob j SET j.collectLeaseUntil = :until WHERE j.id = :id AND j.status = 'RUNNING' " +
+            "AND (j.collectLeaseUntil IS NULL OR j.collectLeaseUntil < :now)")
+    int claimCollection(@Param("id") String id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    /**
+     * Release the collection lease of a job
+     *
+     * @param id Job ID
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE BatchJob j SET j.collectLeaseUntil = NULL WHERE j.id = :id")
+    void releaseCollection(@Param("id") String id);
 }
\ No newline at end of file
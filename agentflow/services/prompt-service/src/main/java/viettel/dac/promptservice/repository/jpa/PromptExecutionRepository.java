@@ -133,4 +133,11 @@ public interface PromptExecutionRepository extends JpaRepository<PromptExecution
      */
     @Query("SELECT COUNT(e) FROM PromptExecution e WHERE e.status = :status")
     long countByStatus(@Param("status") ExecutionStatus status);
-}
\ No newline at end of file
+
+    /**
+     * Find executions of a version on one provider model with the given status, used to replay
+     * recorded responses
+     */
+    List<PromptExecution> findByVersionIdAndProviderIdAndModelIdAndStatus(String versionId, String providerId,
+                                                                         String modelId, ExecutionStatus status);
+}
@@ -17,6 +17,7 @@ import viettel.dac.promptservice.dto.optimization.SuggestionType;
 import viettel.dac.promptservice.dto.request.BatchJobRequest;
 import viettel.dac.promptservice.dto.request.BatchJobUpdateRequest;
 import viettel.dac.promptservice.dto.request.PromptTestRequest;
+import viettel.dac.promptservice.dto.request.RoutingPolicy;
 import viettel.dac.promptservice.dto.response.BatchJobResponse;
 import viettel.dac.promptservice.dto.response.PromptExecutionResult;
 import viettel.dac.promptservice.exception.ResourceNotFoundException;
@@ -26,6 +27,7 @@ import viettel.dac.promptservice.model.entity.BatchJobExecution;
 import viettel.dac.promptservice.model.entity.PromptVersion;
 import viettel.dac.promptservice.model.enums.BatchJobStatus;
 import viettel.dac.promptservice.model.enums.BatchJobType;
+import viettel.dac.promptservice.model.enums.BatchSubmissionMode;
 import viettel.dac.promptservice.repository.jpa.BatchJobExecutionRepository;
 import viettel.dac.promptservice.repository.jpa.BatchJobRepository;
 import viettel.dac.promptservice.repository.jpa.PromptTemplateRepository;
@@ -33,11 +35,13 @@ import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
 import viettel.dac.promptservice.security.SecurityUtils;
 import viettel.dac.promptservice.service.batch.BatchJobService;
 import viettel.dac.promptservice.service.impl.PromptTestingServiceImpl;
+import viettel.dac.promptservice.service.llm.routing.LlmModelRouter;
 import viettel.dac.promptservice.service.optimization.PromptOptimizationService;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -55,6 +59,7 @@ public class BatchJobServiceImpl implements BatchJobService {
     private final SecurityUtils securityUtils;
     private final PromptTestingServiceImpl testingService;
     private final PromptOptimizationService optimizationService;
+    private final ProviderBatchJobHandler providerBatchHandler;
 
     // Constants
     private static final int BATCH_SIZE = 10;
@@ -245,7 +250,8 @@ public class BatchJobServiceImpl implements BatchJobService {
     public BatchJobResponse cancelJob(String jobId) {
         log.debug("Cancelling batch job with ID: {}", jobId);
 
-        BatchJob job = jobRepository.findById(jobId)
+        // Locked, so a provider batch collection cannot write the job back as running
+        BatchJob job = jobRepository.findByIdForUpdate(jobId)
                 .orElseThrow(() -> new ResourceNotFoundException("Job not found with id: " + jobId));
 
         // Validate cancel
@@ -253,6 +259,9 @@ public class BatchJobServiceImpl implements BatchJobService {
             throw new ValidationException("Cannot cancel completed job");
         }
 
+        // Stop the provider-side batch, if one was submitted
+        providerBatchHandler.cancel(job);
+
         // Update status
         job.setStatus(BatchJobStatus.CANCELLED);
         job.setCompletedAt(LocalDateTime.now());
@@ -619,14 +628,30 @@ public class BatchJobServiceImpl implements BatchJobService {
             parameters = new HashMap<>();
         }
 
-        String providerId = (String) parameters.getOrDefault("providerId", "openai");
-        String modelId = (String) parameters.getOrDefault("modelId", "gpt-4");
+        String providerId = (String) parameters.getOrDefault("providerId", LlmModelRouter.AUTO);
+        String modelId = (String) parameters.getOrDefault("modelId", LlmModelRouter.AUTO);
         int batchSize = (int) parameters.getOrDefault("batchSize", BATCH_SIZE);
         int totalCount = (int) parameters.getOrDefault("totalCount", 100);
+        int samples = (int) parameters.getOrDefault("samples", 1);
 
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> parameterSets = (List<Map<String, Object>>) parameters.get("parameterSets");
 
+        // Submit everything as one provider-side batch and collect the results when it ends
+        if (ProviderBatchJobHandler.submissionMode(job) == BatchSubmissionMode.PROVIDER_BATCH) {
+            if (providerBatchHandler.supports(providerId)) {
+                if (parameterSets == null || parameterSets.isEmpty()) {
+                    parameterSets = new ArrayList<>();
+                    for (int i = 0; i < totalCount; i++) {
+                        parameterSets.add(generateRandomParameters(job.getVersion()));
+                    }
+                }
+                return providerBatchHandler.submit(job, providerId, modelId, parameterSets);
+            }
+            appendToLog(job.getLatestExecution(), "Provider " + providerId +
+                    " has no batch API, executing requests directly");
+        }
+
         // Create execution log
         StringBuilder executionLog = new StringBuilder();
         executionLog.append("Starting batch execution for version: ").append(job.getVersion().getVersionNumber()).append("\n");
@@ -664,58 +689,58 @@ public class BatchJobServiceImpl implements BatchJobService {
                         ((parameterSets.size() + batchSize - 1) / batchSize) +
                         " (" + i + "-" + (endIndex - 1) + ")");
 
-                // Process batch
+                // Dispatch the whole batch on the non-blocking provider path, then collect in order
+                List<CompletableFuture<List<PromptExecutionResult>>> futures = new ArrayList<>();
                 for (Map<String, Object> params : batch) {
-                    PromptTestRequest testRequest = PromptTestRequest.builder()
-                            .versionId(job.getVersion().getId())
-                            .providerId(providerId)
-                            .modelId(modelId)
-                            .parameters(params)
-                            .storeResult(true)
-                            .build();
-
-                    try {
-                        PromptExecutionResult result = testingService.testPrompt(testRequest);
-
-                        // Track metrics
-                        if (result.getStatus() != null && result.getStatus().name().equals("SUCCESS")) {
-                            successCount++;
-                        } else {
-                            failureCount++;
-                        }
-
-                        if (result.getTokenCount() != null) {
-                            totalTokens += result.getTokenCount();
-                        }
+                    futures.add(dispatchBatchTest(job, providerId, modelId, params, samples));
+                }
 
-                        if (result.getCost() != null) {
-                            totalCost += result.getCost().doubleValue();
-                        }
+                // Process batch
+                for (int k = 0; k < batch.size(); k++) {
+                    Map<String, Object> params = batch.get(k);
 
-                        if (result.getResponseTimeMs() != null) {
-                            totalResponseTime += result.getResponseTimeMs();
+                    try {
+                        for (PromptExecutionResult result : futures.get(k).join()) {
+                            // Track metrics
+                            if (result.getStatus() != null && result.getStatus().name().equals("SUCCESS")) {
+                                successCount++;
+                            } else {
+                                failureCount++;
+                            }
+
+                            if (result.getTokenCount() != null) {
+                                totalTokens += result.getTokenCount();
+                            }
+
+                            if (result.getCost() != null) {
+                                totalCost += result.getCost().doubleValue();
+                            }
+
+                            if (result.getResponseTimeMs() != null) {
+                                totalResponseTime += result.getResponseTimeMs();
+                            }
+
+                            // Store result
+                            Map<String, Object> resultMap = new HashMap<>();
+                            resultMap.put("executionId", result.getExecutionId());
+                            resultMap.put("status", result.getStatus().name());
+                            resultMap.put("parameters", result.getParameters());
+                            resultMap.put("tokenCount", result.getTokenCount());
+                            resultMap.put("responseTimeMs", result.getResponseTimeMs());
+                            resultMap.put("cost", result.getCost());
+
+                            results.add(resultMap);
                         }
-
-                        // Store result
-                        Map<String, Object> resultMap = new HashMap<>();
-                        resultMap.put("executionId", result.getExecutionId());
-                        resultMap.put("status", result.getStatus().name());
-                        resultMap.put("parameters", result.getParameters());
-                        resultMap.put("tokenCount", result.getTokenCount());
-                        resultMap.put("responseTimeMs", result.getResponseTimeMs());
-                        resultMap.put("cost", result.getCost());
-
-                        results.add(resultMap);
-
                     } catch (Exception e) {
-                        log.error("Error executing prompt test: {}", e.getMessage());
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("Error executing prompt test: {}", cause.getMessage());
                         failureCount++;
 
                         // Store error
                         Map<String, Object> errorMap = new HashMap<>();
                         errorMap.put("status", "ERROR");
                         errorMap.put("parameters", params);
-                        errorMap.put("error", e.getMessage());
+                        errorMap.put("error", cause.getMessage());
 
                         results.add(errorMap);
                     }
@@ -726,14 +751,6 @@ public class BatchJobServiceImpl implements BatchJobService {
                 // Update progress
                 int progress = (int) ((processedCount * 100.0) / parameterSets.size());
                 job.updateProgress(progress);
-
-                // Avoid rate limiting
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
             }
         } else {
             // Generate random test cases
@@ -750,60 +767,61 @@ public class BatchJobServiceImpl implements BatchJobService {
                         ((totalCount + batchSize - 1) / batchSize) +
                         " (" + i + "-" + (endIndex - 1) + ")");
 
-                // Generate and process batch
+                // Generate the batch and dispatch it on the non-blocking provider path
+                List<Map<String, Object>> batch = new ArrayList<>();
+                List<CompletableFuture<List<PromptExecutionResult>>> futures = new ArrayList<>();
                 for (int j = 0; j < batchCount; j++) {
                     Map<String, Object> params = generateRandomParameters(job.getVersion());
+                    batch.add(params);
+                    futures.add(dispatchBatchTest(job, providerId, modelId, params, samples));
+                }
 
-                    PromptTestRequest testRequest = PromptTestRequest.builder()
-                            .versionId(job.getVersion().getId())
-                            .providerId(providerId)
-                            .modelId(modelId)
-                            .parameters(params)
-                            .storeResult(true)
-                            .build();
+                // Process batch
+                for (int j = 0; j < batchCount; j++) {
+                    Map<String, Object> params = batch.get(j);
 
                     try {
-                        PromptExecutionResult result = testingService.testPrompt(testRequest);
-
-                        // Track metrics
-                        if (result.getStatus() != null && result.getStatus().name().equals("SUCCESS")) {
-                            successCount++;
-                        } else {
-                            failureCount++;
-                        }
-
-                        if (result.getTokenCount() != null) {
-                            totalTokens += result.getTokenCount();
-                        }
-
-                        if (result.getCost() != null) {
-                            totalCost += result.getCost().doubleValue();
-                        }
-
-                        if (result.getResponseTimeMs() != null) {
-                            totalResponseTime += result.getResponseTimeMs();
+                        for (PromptExecutionResult result : futures.get(j).join()) {
+                            // Track metrics
+                            if (result.getStatus() != null && result.getStatus().name().equals("SUCCESS")) {
+                                successCount++;
+                            } else {
+                                failureCount++;
+                            }
+
+                            if (result.getTokenCount() != null) {
+                                totalTokens += result.getTokenCount();
+                            }
+
+                            if (result.getCost() != null) {
+                                totalCost += result.getCost().doubleValue();
+                            }
+
+                            if (result.getResponseTimeMs() != null) {
+                                totalResponseTime += result.getResponseTimeMs();
+                            }
+
+                            // Store result
+                            Map<String, Object> resultMap = new HashMap<>();
+                            resultMap.put("executionId", result.getExecutionId());
+                            resultMap.put("status", result.getStatus().name());
+                            resultMap.put("parameters", result.getParameters());
+                            resultMap.put("tokenCount", result.getTokenCount());
+                            resultMap.put("responseTimeMs", result.getResponseTimeMs());
+                            resultMap.put("cost", result.getCost());
+
+                            results.add(resultMap);
                         }
-
-                        // Store result
-                        Map<String, Object> resultMap = new HashMap<>();
-                        resultMap.put("executionId", result.getExecutionId());
-                        resultMap.put("status", result.getStatus().name());
-                        resultMap.put("parameters", result.getParameters());
-                        resultMap.put("tokenCount", result.getTokenCount());
-                        resultMap.put("responseTimeMs", result.getResponseTimeMs());
-                        resultMap.put("cost", result.getCost());
-
-                        results.add(resultMap);
-
                     } catch (Exception e) {
-                        log.error("Error executing prompt test: {}", e.getMessage());
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("Error executing prompt test: {}", cause.getMessage());
                         failureCount++;
 
                         // Store error
                         Map<String, Object> errorMap = new HashMap<>();
                         errorMap.put("status", "ERROR");
                         errorMap.put("parameters", params);
-                        errorMap.put("error", e.getMessage());
+                        errorMap.put("error", cause.getMessage());
 
                         results.add(errorMap);
                     }
@@ -814,26 +832,19 @@ public class BatchJobServiceImpl implements BatchJobService {
                 // Update progress
                 int progress = (int) ((processedCount * 100.0) / totalCount);
                 job.updateProgress(progress);
-
-                // Avoid rate limiting
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
             }
         }
 
-        // Compute summary metrics
-        double successRate = processedCount > 0 ? (successCount * 100.0) / processedCount : 0;
+        // Compute summary metrics; with sampling a parameter set yields several executions
+        int executionCount = successCount + failureCount;
+        double successRate = executionCount > 0 ? (successCount * 100.0) / executionCount : 0;
         double avgTokens = successCount > 0 ? (double) totalTokens / successCount : 0;
         double avgCost = successCount > 0 ? totalCost / successCount : 0;
         double avgResponseTime = successCount > 0 ? totalResponseTime / successCount : 0;
 
         // Store results
         job.getResult().put("results", results);
-        job.getResult().put("totalExecutions", processedCount);
+        job.getResult().put("totalExecutions", executionCount);
         job.getResult().put("successCount", successCount);
         job.getResult().put("failureCount", failureCount);
         job.getResult().put("successRate", Math.round(successRate * 100) / 100.0);
@@ -987,6 +998,51 @@ public class BatchJobServiceImpl implements BatchJobService {
         return job;
     }
 
+    /**
+     * Execute the test of one parameter set of a batch job, collecting several samples in as
+     * few provider calls as possible when the job asks for more than one
+     */
+    private CompletableFuture<List<PromptExecutionResult>> dispatchBatchTest(BatchJob job, String providerId,
+                                                                             String modelId, Map<String, Object> params,
+                                                                             int samples) {
+        PromptTestRequest request = buildBatchTestRequest(job, providerId, modelId, params);
+        return samples > 1
+                ? testingService.testPromptSamplesAsync(request, samples)
+                : testingService.testPromptAsync(request).thenApply(List::of);
+    }
+
+    /**
+     * Build the test request for one execution of a batch job
+     */
+    private PromptTestRequest buildBatchTestRequest(BatchJob job, String providerId, String modelId,
+                                                    Map<String, Object> params) {
+        return PromptTestRequest.builder()
+                .versionId(job.getVersion().getId())
+                .providerId(providerId)
+                .modelId(modelId)
+                .parameters(params)
+                .storeResult(true)
+                .hedge(hedgeSetting(job))
+                .routing(routingPolicy(job))
+                .build();
+    }
+
+    /**
+     * Read the optional "routing" policy used when the job's provider is "auto"
+     */
+    private RoutingPolicy routingPolicy(BatchJob job) {
+        Object routing = job.getParameters() != null ? job.getParameters().get("routing") : null;
+        return routing instanceof Map<?, ?> values ? RoutingPolicy.fromMap(values) : null;
+    }
+
+    /**
+     * Read the optional "hedge" flag from the job configuration
+     */
+    private Boolean hedgeSetting(BatchJob job) {
+        Object hedge = job.getConfiguration() != null ? job.getConfiguration().get("hedge") : null;
+        return hedge != null ? Boolean.valueOf(hedge.toString()) : null;
+    }
+
     /**
      * Generate random parameters for testing
      */
@@ -1030,6 +1086,27 @@ public class BatchJobServiceImpl implements BatchJobService {
         }
     }
 
+    /**
+     * Check submitted provider batches and collect the results of those that have ended
+     */
+    @Scheduled(fixedDelayString = "${llm.batch.poll-interval:PT1M}")
+    public void pollProviderBatches() {
+        List<BatchJob> runningJobs = jobRepository.findByStatusAndJobType(
+                BatchJobStatus.RUNNING, BatchJobType.BATCH_EXECUTION);
+
+        for (BatchJob job : runningJobs) {
+            if (!ProviderBatchJobHandler.isAwaitingProviderBatch(job)) {
+                continue;
+            }
+            try {
+                providerBatchHandler.poll(job.getId());
+            } catch (Exception e) {
+                // Checked again on the next poll
+                log.warn("Failed to check provider batch of job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
     /**
      * Check for stuck jobs
      */
@@ -1043,6 +1120,12 @@ public class BatchJobServiceImpl implements BatchJobService {
         List<BatchJob> stuckJobs = jobRepository.findStuckJobs(cutoffTime);
 
         for (BatchJob job : stuckJobs) {
+            // Provider batches may take their whole completion window; the poller collects them
+            if (ProviderBatchJobHandler.isAwaitingProviderBatch(job)
+                    && job.getStartedAt().isAfter(cutoffTime.minusHours(DEFAULT_JOB_TIMEOUT_HOURS))) {
+                continue;
+            }
+
             log.warn("Detected stuck job: {} (running since {})", job.getId(), job.getStartedAt());
 
             // Mark job as failed
@@ -0,0 +1,548 @@
+package viettel.dac.promptservice.service.batch.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.request.PromptTestRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.dto.validation.ParameterValidationResult;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.exception.ResourceNotFoundException;
+import viettel.dac.promptservice.exception.ValidationException;
+import viettel.dac.promptservice.model.entity.BatchJob;
+import viettel.dac.promptservice.model.entity.BatchJobExecution;
+import viettel.dac.promptservice.model.entity.PromptVersion;
+import viettel.dac.promptservice.model.enums.BatchJobStatus;
+import viettel.dac.promptservice.model.enums.BatchSubmissionMode;
+import viettel.dac.promptservice.model.enums.ExecutionStatus;
+import viettel.dac.promptservice.repository.jpa.BatchJobRepository;
+import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
+import viettel.dac.promptservice.service.impl.PromptTestingServiceImpl;
+import viettel.dac.promptservice.service.llm.LlmProviderFactory;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.batch.LlmBatch;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchClient;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchItem;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchResult;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Runs batch execution jobs through provider batch APIs. All parameter sets are submitted as
+ * one provider-side batch and the job stays running until a poll finds the batch ended; its
+ * results are then streamed into prompt executions the same way directly executed tests are
+ * stored.
+ * <p>
+ * The provider batch state is kept in the job result under {@link #RESULT_KEY}, and the
+ * submitted parameter sets in the job parameters, so any worker can collect the results.
+ * A worker claims a job with a lease before checking it, so only one collects it; results are
+ * stored in chunks of short transactions, each recording the progress, so a worker taking over
+ * an interrupted collection resumes it instead of storing results twice.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProviderBatchJobHandler {
+
+    /**
+     * Key of the provider batch state in the job result
+     */
+    public static final String RESULT_KEY = "providerBatch";
+
+    private static final String SUBMISSION_MODE_KEY = "submissionMode";
+    private static final String PARAMETER_SETS_KEY = "parameterSets";
+
+    private final LlmProviderFactory providerFactory;
+    private final LlmProviderProperties providerProperties;
+    private final PromptTestingServiceImpl testingService;
+    private final PromptVersionRepository versionRepository;
+    private final BatchJobRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Read the submission mode from the job configuration
+     *
+     * @param job The batch job
+     * @return The configured mode, DIRECT if none is set
+     */
+    public static BatchSubmissionMode submissionMode(BatchJob job) {
+        Object mode = job.getConfiguration() != null ? job.getConfiguration().get(SUBMISSION_MODE_KEY) : null;
+        if (mode == null) {
+            return BatchSubmissionMode.DIRECT;
+        }
+        try {
+            return BatchSubmissionMode.valueOf(mode.toString().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unsupported submission mode: " + mode);
+        }
+    }
+
+    /**
+     * Check whether a job is running and waiting for a submitted provider batch
+     *
+     * @param job The batch job
+     * @return true if the job has a provider batch to collect
+     */
+    public static boolean isAwaitingProviderBatch(BatchJob job) {
+        return job.getStatus() == BatchJobStatus.RUNNING
+                && job.getResult() != null
+                && job.getResult().get(RESULT_KEY) instanceof Map;
+    }
+
+    /**
+     * Check whether requests to a provider can be submitted as a provider batch
+     *
+     * @param providerId The provider ID
+     * @return true if the provider has a batch API client
+     */
+    public boolean supports(String providerId) {
+        return providerFactory.getBatchClient(providerId).isPresent();
+    }
+
+    /**
+     * Submit all parameter sets of a job as one provider batch. Parameter sets that fail
+     * validation are not submitted and are stored as invalid once the batch is collected.
+     *
+     * @param job The running batch job
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param parameterSets Parameter values of every execution
+     * @return The job, still running
+     */
+    public BatchJob submit(BatchJob job, String providerId, String modelId, List<Map<String, Object>> parameterSets) {
+        LlmBatchClient client = providerFactory.getBatchClient(providerId)
+                .orElseThrow(() -> new ValidationException("Provider has no batch API: " + providerId));
+
+        int maxRequests = providerProperties.getBatch().getMaxRequests();
+        if (parameterSets.size() > maxRequests) {
+            throw new ValidationException("A provider batch holds at most " + maxRequests + " requests, got "
+                    + parameterSets.size());
+        }
+
+        PromptVersion version = loadVersion(job);
+        List<ParameterValidationResult> validations = testingService.validateBatchParameters(version, parameterSets);
+        List<LlmBatchItem> items = new ArrayList<>(parameterSets.size());
+        for (int i = 0; i < parameterSets.size(); i++) {
+            ParameterValidationResult validation = validations.get(i);
+            if (!validation.isValid()) {
+                log.debug("Not submitting parameter set {} of job {}: {}", i, job.getId(), validation.getIssues());
+                continue;
+            }
+            items.add(new LlmBatchItem(String.valueOf(i), testingService.prepareBatchTest(version,
+                    testRequest(job, providerId, modelId, parameterSets.get(i)), validation)));
+        }
+
+        // The results are matched to the parameter sets by index when the batch is collected
+        Map<String, Object> parameters = job.getParameters() != null
+                ? new HashMap<>(job.getParameters())
+                : new HashMap<>();
+        parameters.put(PARAMETER_SETS_KEY, parameterSets);
+        job.setParameters(parameters);
+
+        BatchJobExecution execution = job.getLatestExecution();
+        int skipped = parameterSets.size() - items.size();
+
+        if (items.isEmpty()) {
+            appendToLog(execution, "No valid parameter sets to submit");
+            collect(job, version, client, null, providerId, modelId);
+            return job;
+        }
+
+        LlmBatch batch = client.submit(items).block(providerProperties.getBatch().getRequestTimeout());
+        Objects.requireNonNull(batch, "Provider returned no batch");
+
+        job.getResult().put(RESULT_KEY, describe(batch, modelId));
+        job.updateProgress(0);
+        appendToLog(execution, "Submitted " + items.size() + " requests as " + providerId + " batch " + batch.getId()
+                + (skipped > 0 ? " (" + skipped + " parameter sets failed validation)" : ""));
+
+        return job;
+    }
+
+    /**
+     * Check the provider batch of a job, update its progress and, once the batch has ended,
+     * store its results and complete the job. Does nothing if another worker holds the job.
+     *
+     * @param jobId The job ID
+     */
+    public void poll(String jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobRepository.claimCollection(jobId, now, now.plus(providerProperties.getBatch().getCollectLease())) == 0) {
+            log.debug("Provider batch of job {} is not running or is held by another worker", jobId);
+            return;
+        }
+
+        try {
+            BatchJob job = jobRepository.findByIdWithExecutions(jobId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Job not found with id: " + jobId));
+            if (!isAwaitingProviderBatch(job)) {
+                jobRepository.releaseCollection(jobId);
+                return;
+            }
+
+            Map<?, ?> state = (Map<?, ?>) job.getResult().get(RESULT_KEY);
+            String providerId = (String) state.get("providerId");
+            String modelId = (String) state.get("modelId");
+            LlmBatchClient client = providerFactory.getBatchClient(providerId)
+                    .orElseThrow(() -> new ValidationException("Provider has no batch API: " + providerId));
+
+            LlmBatch batch = client.getBatch((String) state.get("id"))
+                    .block(providerProperties.getBatch().getRequestTimeout());
+            Objects.requireNonNull(batch, "Provider returned no batch");
+            job.getResult().put(RESULT_KEY, describe(batch, modelId));
+
+            if (!batch.getStatus().isEnded()) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    BatchJob current = lockRunning(job);
+                    if (current == null) {
+                        return;
+                    }
+                    if (batch.getRequestCount() > 0) {
+                        int processed = batch.getSucceededCount() + batch.getFailedCount();
+                        current.updateProgress(Math.min(99, processed * 100 / batch.getRequestCount()));
+                    }
+                    current.setCollectLeaseUntil(null);
+                    jobRepository.save(current);
+                });
+                return;
+            }
+
+            log.info("Provider batch {} of job {} ended with status {}", batch.getId(), jobId, batch.getStatus());
+            collect(job, loadVersion(job), client, batch, providerId, modelId);
+        } catch (RuntimeException e) {
+            // Let the next poll retry at once; stored chunks are kept and skipped then
+            jobRepository.releaseCollection(jobId);
+            throw e;
+        }
+    }
+
+    /**
+     * Ask the provider to stop the batch of a job; failures are only logged
+     *
+     * @param job The batch job
+     */
+    public void cancel(BatchJob job) {
+        if (!isAwaitingProviderBatch(job)) {
+            return;
+        }
+        Map<?, ?> state = (Map<?, ?>) job.getResult().get(RESULT_KEY);
+        String batchId = (String) state.get("id");
+        providerFactory.getBatchClient((String) state.get("providerId")).ifPresent(client -> {
+            try {
+                client.cancel(batchId).block(providerProperties.getBatch().getRequestTimeout());
+            } catch (Exception e) {
+                log.warn("Failed to cancel provider batch {} of job {}: {}", batchId, job.getId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Store the result of every parameter set, streaming the provider results as they are read,
+     * then write the job summary and complete the job.
+     * <p>
+     * Results are stored in chunks, each in its own transaction together with the results
+     * recorded so far, so no transaction stays open across the download. Results recorded by
+     * an earlier, interrupted collection are skipped.
+     */
+    private void collect(BatchJob job, PromptVersion version, LlmBatchClient client, LlmBatch batch,
+                         String providerId, String modelId) {
+        List<Map<String, Object>> parameterSets = parameterSets(job);
+        double costMultiplier = providerProperties.getBatch().getCostMultiplier();
+        BatchTotals totals = BatchTotals.restore(job.getResult(), parameterSets.size());
+
+        Flux<LlmBatchResult> results = batch != null
+                ? client.streamResults(batch, customId -> llmRequest(job, version, providerId, modelId,
+                        parameterSets, customId))
+                : Flux.empty();
+
+        int chunkSize = Math.max(1, providerProperties.getBatch().getCollectChunkSize());
+        try (Stream<List<LlmBatchResult>> chunks = results.buffer(chunkSize).toStream()) {
+            Iterator<List<LlmBatchResult>> iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                List<LlmBatchResult> chunk = iterator.next();
+                Boolean stored = transactionTemplate.execute(status -> {
+                    BatchJob current = lockRunning(job);
+                    if (current == null) {
+                        return false;
+                    }
+                    for (LlmBatchResult result : chunk) {
+                        int index = index(result.getCustomId(), parameterSets.size());
+                        if (index < 0 || totals.isRecorded(index)) {
+                            continue;
+                        }
+                        LlmResponse response = result.isSuccessful()
+                                ? discounted(result.getResponse(), batch, costMultiplier)
+                                : null;
+                        totals.record(index, testingService.completeBatchTest(version,
+                                testRequest(job, providerId, modelId, parameterSets.get(index)), response,
+                                result.getError()));
+                    }
+                    totals.writeTo(current.getResult());
+                    current.updateProgress(Math.min(99, totals.recordedCount() * 100 / Math.max(1, parameterSets.size())));
+                    current.setCollectLeaseUntil(LocalDateTime.now().plus(providerProperties.getBatch().getCollectLease()));
+                    jobRepository.save(current);
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(stored)) {
+                    // Closing the stream stops reading the provider results
+                    log.info("Job {} is no longer running, stopped collecting its provider batch", job.getId());
+                    return;
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            BatchJob current = lockRunning(job);
+            if (current == null) {
+                log.info("Job {} is no longer running, not completing its provider batch", job.getId());
+                return;
+            }
+
+            // Parameter sets that were not submitted or that the provider returned no result for
+            for (int i = 0; i < parameterSets.size(); i++) {
+                if (!totals.isRecorded(i)) {
+                    totals.record(i, testingService.completeBatchTest(version,
+                            testRequest(job, providerId, modelId, parameterSets.get(i)), null,
+                            new LlmProviderException("No result returned by the provider batch",
+                                    providerId, modelId, LlmProviderException.ErrorType.UNKNOWN)));
+                }
+            }
+
+            totals.writeTo(current.getResult());
+            appendToLog(current.getLatestExecution(), "Collected " + parameterSets.size() + " results: "
+                    + totals.successCount + " succeeded, " + totals.failureCount + " failed");
+
+            if (batch != null && batch.getStatus() == LlmBatchStatus.FAILED && totals.successCount == 0) {
+                current.setStatus(BatchJobStatus.FAILED);
+                current.setCompletedAt(LocalDateTime.now());
+                current.setErrorMessage("Provider batch " + batch.getId() + " failed");
+            } else {
+                current.updateProgress(100);
+            }
+            current.setCollectLeaseUntil(null);
+            jobRepository.save(current);
+        });
+    }
+
+    /**
+     * Re-read and lock a job inside the current transaction, so that a job cancelled while its
+     * provider batch was read is not written back. The provider batch state read with the
+     * stale copy is carried over.
+     *
+     * @param job The job as read outside the transaction
+     * @return The locked job, or null if it is no longer running
+     */
+    private BatchJob lockRunning(BatchJob job) {
+        BatchJob current = jobRepository.findByIdForUpdate(job.getId())
+                .filter(BatchJob::isRunning)
+                .orElse(null);
+        if (current == null || current == job) {
+            return current;
+        }
+        Map<String, Object> result = current.getResult() != null
+                ? new HashMap<>(current.getResult())
+                : new HashMap<>();
+        if (job.getResult() != null && job.getResult().containsKey(RESULT_KEY)) {
+            result.put(RESULT_KEY, job.getResult().get(RESULT_KEY));
+        }
+        current.setResult(result);
+        return current;
+    }
+
+    /**
+     * Rebuild the provider request of a result, for token accounting and pricing
+     */
+    private LlmRequest llmRequest(BatchJob job, PromptVersion version, String providerId, String modelId,
+                                  List<Map<String, Object>> parameterSets, String customId) {
+        int index = index(customId, parameterSets.size());
+        if (index >= 0) {
+            try {
+                return testingService.prepareBatchTest(version,
+                        testRequest(job, providerId, modelId, parameterSets.get(index)));
+            } catch (ValidationException e) {
+                log.debug("Parameter set {} of job {} no longer validates: {}", index, job.getId(), e.getMessage());
+            }
+        }
+        return LlmRequest.builder()
+                .providerId(providerId)
+                .modelId(modelId)
+                .prompt("")
+                .build();
+    }
+
+    /**
+     * Build the test request for one execution, as the direct path does
+     */
+    private PromptTestRequest testRequest(BatchJob job, String providerId, String modelId,
+                                          Map<String, Object> params) {
+        return PromptTestRequest.builder()
+                .versionId(job.getVersion().getId())
+                .providerId(providerId)
+                .modelId(modelId)
+                .parameters(params)
+                .storeResult(true)
+                .build();
+    }
+
+    /**
+     * Apply the batch price to a response and note the batch that served it
+     */
+    private LlmResponse discounted(LlmResponse response, LlmBatch batch, double costMultiplier) {
+        Map<String, Object> metadata = response.getMetadata() != null
+                ? new HashMap<>(response.getMetadata())
+                : new HashMap<>();
+        metadata.put("provider_batch_id", batch.getId());
+        return response.toBuilder()
+                .cost(response.getCost() != null ? response.getCost() * costMultiplier : null)
+                .metadata(metadata)
+                .build();
+    }
+
+    private PromptVersion loadVersion(BatchJob job) {
+        if (job.getVersion() == null) {
+            throw new ValidationException("Batch execution job requires a version");
+        }
+        String versionId = job.getVersion().getId();
+        return versionRepository.findByIdWithParameters(versionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Prompt version not found with id: " + versionId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> parameterSets(BatchJob job) {
+        Object parameterSets = job.getParameters() != null ? job.getParameters().get(PARAMETER_SETS_KEY) : null;
+        return parameterSets instanceof List ? (List<Map<String, Object>>) parameterSets : List.of();
+    }
+
+    private static int index(String customId, int size) {
+        try {
+            int index = Integer.parseInt(customId);
+            return index >= 0 && index < size ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, Object> describe(LlmBatch batch, String modelId) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("id", batch.getId());
+        state.put("providerId", batch.getProviderId());
+        state.put("modelId", modelId);
+        state.put("status", batch.getStatus().name());
+        state.put("requestCount", batch.getRequestCount());
+        state.put("succeededCount", batch.getSucceededCount());
+        state.put("failedCount", batch.getFailedCount());
+        state.put("createdAt", batch.getCreatedAt() != null ? batch.getCreatedAt().toString() : null);
+        return state;
+    }
+
+    private static void appendToLog(BatchJobExecution execution, String message) {
+        if (execution != null) {
+            execution.appendToLog(message);
+        }
+    }
+
+    /**
+     * Per-execution results and summary metrics, in parameter set order
+     */
+    private static final class BatchTotals {
+        private final Map<String, Object>[] results;
+        private int successCount;
+        private int failureCount;
+        private int totalTokens;
+        private double totalCost;
+        private double totalResponseTime;
+
+        @SuppressWarnings("unchecked")
+        private BatchTotals(int size) {
+            this.results = new Map[size];
+        }
+
+        /**
+         * Totals of the results a previous collection of the job stored, if any
+         */
+        @SuppressWarnings("unchecked")
+        private static BatchTotals restore(Map<String, Object> jobResult, int size) {
+            BatchTotals totals = new BatchTotals(size);
+            if (jobResult != null && jobResult.get("results") instanceof List<?> stored && stored.size() == size) {
+                for (int i = 0; i < size; i++) {
+                    if (stored.get(i) instanceof Map<?, ?> resultMap) {
+                        totals.add(i, new HashMap<>((Map<String, Object>) resultMap));
+                    }
+                }
+            }
+            return totals;
+        }
+
+        private boolean isRecorded(int index) {
+            return results[index] != null;
+        }
+
+        private int recordedCount() {
+            return successCount + failureCount;
+        }
+
+        private void record(int index, PromptExecutionResult result) {
+            Map<String, Object> resultMap = new HashMap<>();
+            resultMap.put("executionId", result.getExecutionId());
+            resultMap.put("status", result.getStatus().name());
+            resultMap.put("parameters", result.getParameters());
+            resultMap.put("tokenCount", result.getTokenCount());
+            resultMap.put("responseTimeMs", result.getResponseTimeMs());
+            resultMap.put("cost", result.getCost());
+            add(index, resultMap);
+        }
+
+        private void add(int index, Map<String, Object> resultMap) {
+            if (ExecutionStatus.SUCCESS.name().equals(resultMap.get("status"))) {
+                successCount++;
+            } else {
+                failureCount++;
+            }
+            if (resultMap.get("tokenCount") instanceof Number tokenCount) {
+                totalTokens += tokenCount.intValue();
+            }
+            if (resultMap.get("cost") instanceof Number cost) {
+                totalCost += cost.doubleValue();
+            }
+            if (resultMap.get("responseTimeMs") instanceof Number responseTime) {
+                totalResponseTime += responseTime.doubleValue();
+            }
+            results[index] = resultMap;
+        }
+
+        /**
+         * Write the same summary the direct path writes
+         */
+        private void writeTo(Map<String, Object> jobResult) {
+            int processedCount = successCount + failureCount;
+            double successRate = processedCount > 0 ? (successCount * 100.0) / processedCount : 0;
+            double avgTokens = successCount > 0 ? (double) totalTokens / successCount : 0;
+            double avgCost = successCount > 0 ? totalCost / successCount : 0;
+            double avgResponseTime = successCount > 0 ? totalResponseTime / successCount : 0;
+
+            jobResult.put("results", Arrays.asList(results));
+            jobResult.put("totalExecutions", processedCount);
+            jobResult.put("successCount", successCount);
+            jobResult.put("failureCount", failureCount);
+            jobResult.put("successRate", Math.round(successRate * 100) / 100.0);
+            jobResult.put("totalTokens", totalTokens);
+            jobResult.put("totalCost", Math.round(totalCost * 1000) / 1000.0);
+            jobResult.put("avgTokens", Math.round(avgTokens * 100) / 100.0);
+            jobResult.put("avgCost", Math.round(avgCost * 1000) / 1000.0);
+            jobResult.put("avgResponseTime", Math.round(avgResponseTime * 100) / 100.0);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package viettel.dac.promptservice.service.execution;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Shared, bounded pipeline for the items of interactive batch tests.
+ * <p>
+ * Every batch runs its items with at most its own concurrency, capped by
+ * {@code llm.pipeline.max-concurrent-per-batch}, and all batches together hold at most
+ * {@code llm.pipeline.max-concurrent} items in flight. Items beyond the global limit wait for
+ * a permit without holding a thread, so large batches neither start thread pools nor crowd out
+ * other callers.
+ */
+@Component
+public class PromptExecutionPipeline {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final int maxConcurrentPerBatch;
+    private final Semaphore permits;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public PromptExecutionPipeline(LlmProviderProperties properties) {
+        this.maxConcurrentPerBatch = Math.max(1, properties.getPipeline().getMaxConcurrentPerBatch());
+        this.permits = new Semaphore(Math.max(1, properties.getPipeline().getMaxConcurrent()));
+    }
+
+    /**
+     * Execute the items of a batch and emit the results in the order of the items
+     *
+     * @param items The batch items
+     * @param concurrency Concurrency the batch asks for
+     * @param task Execution of one item
+     * @return Flux of the results, in item order
+     */
+    public <I, T> Flux<T> executeOrdered(List<I> items, int concurrency, Function<I, Mono<T>> task) {
+        return Flux.fromIterable(items)
+                .flatMapSequential(item -> withPermit(Mono.defer(() -> task.apply(item))), batchConcurrency(concurrency));
+    }
+
+    /**
+     * Execute the items of a batch and emit every result as soon as it completes
+     *
+     * @param items The batch items
+     * @param concurrency Concurrency the batch asks for
+     * @param task Execution of one item, given the item and its index
+     * @return Flux of the results, in completion order
+     */
+    public <I, T> Flux<T> executeUnordered(List<I> items, int concurrency, BiFunction<I, Integer, Mono<T>> task) {
+        return Flux.range(0, items.size())
+                .flatMap(index -> withPermit(Mono.defer(() -> task.apply(items.get(index), index))),
+                        batchConcurrency(concurrency));
+    }
+
+    /**
+     * Number of permits not currently held
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Run work once a global permit is free and release the permit when it ends, fails or is
+     * cancelled
+     */
+    <T> Mono<T> withPermit(Mono<T> work) {
+        return Mono.usingWhen(acquire(), permit -> work, Permit::release, (permit, e) -> permit.release(),
+                Permit::release);
+    }
+
+    private int batchConcurrency(int requested) {
+        return Math.max(1, Math.min(requested, maxConcurrentPerBatch));
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            sink.onCancel(waiter::cancel);
+            if (permits.tryAcquire()) {
+                if (!waiter.grant()) {
+                    permits.release();
+                    drain();
+                }
+                return;
+            }
+            waiters.add(waiter);
+            // A permit released before the waiter was queued would otherwise go unnoticed
+            drain();
+        });
+    }
+
+    /**
+     * Hand free permits to queued waiters
+     */
+    private void drain() {
+        while (!waiters.isEmpty() && permits.tryAcquire()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null || !waiter.grant()) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * A held permit, released once
+     */
+    private final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Mono<Void> release() {
+            return Mono.fromRunnable(this::releaseNow);
+        }
+
+        private void releaseNow() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+                drain();
+            }
+        }
+    }
+
+    /**
+     * A caller waiting for a permit; it is granted one or cancelled, never both. A caller that
+     * cancels between the grant and the delivery of the permit never receives it, so the
+     * cancellation releases it instead.
+     */
+    private final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final Permit permit = new Permit();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        private boolean grant() {
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            sink.success(permit);
+            return true;
+        }
+
+        /**
+         * Called only while the permit is undelivered: the sink ignores a cancellation after it
+         * has emitted, and the permit is then released by its user
+         */
+        private void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                waiters.remove(this);
+            } else {
+                permit.releaseNow();
+            }
+        }
+    }
+}
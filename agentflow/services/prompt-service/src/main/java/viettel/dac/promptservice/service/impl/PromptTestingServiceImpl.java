@@ -5,12 +5,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.request.PromptBatchTestRequest;
 import viettel.dac.promptservice.dto.request.PromptTestRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.dto.response.PromptBatchItemResult;
 import viettel.dac.promptservice.dto.response.PromptExecutionResponse;
 import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.dto.response.PromptStreamEvent;
 import viettel.dac.promptservice.dto.validation.ParameterValidationResult;
 import viettel.dac.promptservice.dto.validation.ValidationResult;
 import viettel.dac.promptservice.exception.ResourceNotFoundException;
@@ -21,19 +28,23 @@ import viettel.dac.promptservice.model.enums.ExecutionStatus;
 import viettel.dac.promptservice.repository.jpa.PromptExecutionRepository;
 import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
 import viettel.dac.promptservice.security.SecurityUtils;
+import viettel.dac.promptservice.service.execution.PromptExecutionPipeline;
 import viettel.dac.promptservice.service.llm.LlmProvider;
 import viettel.dac.promptservice.service.llm.LlmProviderFactory;
 import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.LlmSampling;
+import viettel.dac.promptservice.service.llm.routing.LlmModelRouter;
 import viettel.dac.promptservice.service.mapper.EntityDtoMapper;
 import viettel.dac.promptservice.service.preview.PromptTestingService;
 import viettel.dac.promptservice.service.validation.ParameterValidator;
 import viettel.dac.promptservice.service.validation.ResponseValidator;
+import viettel.dac.promptservice.service.validation.StreamingValidation;
+import viettel.dac.promptservice.util.HashUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -53,6 +64,8 @@ public class PromptTestingServiceImpl implements PromptTestingService {
     private final ResponseValidator responseValidator;
     private final SecurityUtils securityUtils;
     private final EntityDtoMapper mapper;
+    private final PromptExecutionPipeline executionPipeline;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Test a prompt against a specified LLM provider
@@ -67,13 +80,20 @@ public class PromptTestingServiceImpl implements PromptTestingService {
         PromptVersion version = versionRepository.findByIdWithParameters(request.getVersionId())
                 .orElseThrow(() -> new ResourceNotFoundException("Prompt version not found with id: " + request.getVersionId()));
 
+        return executeTest(version, request, currentUser());
+    }
+
+    /**
+     * Test a prompt of a loaded version on the blocking provider path
+     */
+    private PromptExecutionResult executeTest(PromptVersion version, PromptTestRequest request, String executedBy) {
         // Validate parameters
         ParameterValidationResult paramValidation = parameterValidator.validateParameters(
                 version, request.getParameters());
 
         if (!paramValidation.isValid()) {
             return createErrorResult(version, request, paramValidation,
-                    "Parameter validation failed", ExecutionStatus.INVALID_PARAMS);
+                    "Parameter validation failed", ExecutionStatus.INVALID_PARAMS, executedBy);
         }
 
         // Get validated parameters
@@ -88,43 +108,17 @@ public class PromptTestingServiceImpl implements PromptTestingService {
             String promptText = version.applyParameters(validatedParams);
 
             // Build the LLM request
-            LlmRequest llmRequest = buildLlmRequest(request, version, promptText);
+            LlmRequest llmRequest = buildLlmRequest(request, version, promptText, validatedParams);
 
             // Execute the prompt against the provider
             LlmResponse llmResponse = provider.executePrompt(llmRequest);
 
-            // Store execution if requested
-            PromptExecution execution = null;
-            if (request.isStoreResult()) {
-                execution = createAndSaveExecution(version, request, llmResponse, validatedParams);
-            }
-
-            // Validate response if criteria provided
-            ValidationResult validationResult = null;
-            boolean validationPassed = true;
-            if (request.getValidationCriteria() != null && !request.getValidationCriteria().isEmpty()) {
-                validationResult = responseValidator.validateResponse(
-                        llmResponse.getText(), request.getValidationCriteria());
-                validationPassed = validationResult.isPassed();
-
-                // Update execution with validation results if stored
-                if (execution != null) {
-                    String validationSummary = "Validation " + (validationPassed ? "passed" : "failed");
-                    if (!validationPassed && validationResult.getIssues() != null && !validationResult.getIssues().isEmpty()) {
-                        validationSummary += ": " + validationResult.getIssues().get(0).getMessage();
-                    }
-                    updateExecutionWithValidation(execution.getId(), validationPassed, validationSummary);
-                }
-            }
-
-            // Build the result DTO
-            return buildExecutionResult(version, request, llmResponse, execution,
-                    validationResult, validationPassed);
+            return completeTest(version, request, llmResponse, validatedParams, executedBy);
 
         } catch (Exception e) {
             log.error("Error testing prompt: {}", e.getMessage(), e);
             return createErrorResult(version, request, paramValidation,
-                    "Error testing prompt: " + e.getMessage(), ExecutionStatus.ERROR);
+                    "Error testing prompt: " + e.getMessage(), ExecutionStatus.ERROR, executedBy);
         }
     }
 
@@ -133,7 +127,79 @@ public class PromptTestingServiceImpl implements PromptTestingService {
      */
     @Override
     public CompletableFuture<PromptExecutionResult> testPromptAsync(PromptTestRequest request) {
-        return CompletableFuture.supplyAsync(() -> testPrompt(request));
+        String executedBy = currentUser();
+        return loadVersion(request.getVersionId())
+                .flatMap(version -> testPromptReactive(version, request, executedBy))
+                .toFuture();
+    }
+
+    /**
+     * Collect several samples of a prompt asynchronously
+     */
+    @Override
+    public CompletableFuture<List<PromptExecutionResult>> testPromptSamplesAsync(PromptTestRequest request,
+                                                                                int samples) {
+        log.debug("Sampling prompt version {} {} times with provider {}, model {}",
+                request.getVersionId(), samples, request.getProviderId(), request.getModelId());
+
+        String executedBy = currentUser();
+        return loadVersion(request.getVersionId())
+                .flatMap(version -> testPromptSamplesReactive(version, request, samples, executedBy))
+                .toFuture();
+    }
+
+    /**
+     * Test a prompt and stream the generated text as it arrives
+     */
+    @Override
+    public Flux<PromptStreamEvent> testPromptStream(PromptTestRequest request) {
+        log.debug("Streaming test of prompt version {} with provider {}, model {}",
+                request.getVersionId(), request.getProviderId(), request.getModelId());
+
+        String executedBy = currentUser();
+        return loadVersion(request.getVersionId())
+                .flatMapMany(version -> {
+                    ParameterValidationResult paramValidation = parameterValidator.validateParameters(
+                            version, request.getParameters());
+
+                    if (!paramValidation.isValid()) {
+                        return Mono.fromCallable(() -> PromptStreamEvent.result(createErrorResult(version, request,
+                                        paramValidation, "Parameter validation failed", ExecutionStatus.INVALID_PARAMS, executedBy)))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    }
+
+                    Map<String, Object> validatedParams = paramValidation.getValidatedValues();
+
+                    return Flux.defer(() -> {
+                                LlmProvider provider = providerFactory.getProvider(request.getProviderId())
+                                        .orElseThrow(() -> new ValidationException("Provider not found: " + request.getProviderId()));
+
+                                String promptText = version.applyParameters(validatedParams);
+                                LlmRequest llmRequest = buildLlmRequest(request, version, promptText, validatedParams);
+
+                                Flux<LlmStreamChunk> stream = provider.executePromptStream(llmRequest);
+                                if (request.getValidationCriteria() == null || request.getValidationCriteria().isEmpty()) {
+                                    return stream;
+                                }
+                                // Stop generating once the response can no longer pass validation
+                                LocalDateTime startTime = LocalDateTime.now();
+                                return responseValidator.startStreaming(request.getValidationCriteria())
+                                        .guard(stream, text -> truncatedResponse(provider, llmRequest, text, startTime));
+                            })
+                            .concatMap(chunk -> chunk.isLast()
+                                    // Persisting and validating block on JPA, keep them off the event loop
+                                    ? Mono.fromCallable(() -> PromptStreamEvent.result(
+                                                    completeTest(version, request, chunk.getResponse(), validatedParams, executedBy)))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                    : Mono.just(PromptStreamEvent.delta(chunk.getDelta())))
+                            .onErrorResume(e -> {
+                                log.error("Error streaming prompt test: {}", e.getMessage(), e);
+                                return Mono.fromCallable(() -> PromptStreamEvent.result(createErrorResult(version, request,
+                                                paramValidation, "Error testing prompt: " + e.getMessage(), ExecutionStatus.ERROR,
+                                                executedBy)))
+                                        .subscribeOn(Schedulers.boundedElastic());
+                            });
+                });
     }
 
     /**
@@ -148,58 +214,7 @@ public class PromptTestingServiceImpl implements PromptTestingService {
         PromptVersion version = versionRepository.findByIdWithParameters(request.getVersionId())
                 .orElseThrow(() -> new ResourceNotFoundException("Prompt version not found with id: " + request.getVersionId()));
 
-        List<PromptExecutionResult> results = new ArrayList<>();
-
-        if (request.isParallelExecution()) {
-            // Execute tests in parallel
-            ExecutorService executorService = Executors.newFixedThreadPool(
-                    Math.min(request.getMaxConcurrent(), request.getParameterSets().size()));
-
-            try {
-                List<CompletableFuture<PromptExecutionResult>> futures = request.getParameterSets().stream()
-                        .map(params -> CompletableFuture.supplyAsync(() -> {
-                            PromptTestRequest testRequest = PromptTestRequest.builder()
-                                    .versionId(request.getVersionId())
-                                    .providerId(request.getProviderId())
-                                    .modelId(request.getModelId())
-                                    .parameters(params)
-                                    .maxTokens(request.getMaxTokens())
-                                    .temperature(request.getTemperature())
-                                    .validationCriteria(request.getValidationCriteria())
-                                    .storeResult(request.isStoreResults())
-                                    .build();
-                            return testPrompt(testRequest);
-                        }, executorService))
-                        .collect(Collectors.toList());
-
-                // Wait for all futures to complete
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-                // Collect results
-                for (CompletableFuture<PromptExecutionResult> future : futures) {
-                    results.add(future.join());
-                }
-            } finally {
-                executorService.shutdown();
-            }
-        } else {
-            // Execute tests sequentially
-            for (Map<String, Object> params : request.getParameterSets()) {
-                PromptTestRequest testRequest = PromptTestRequest.builder()
-                        .versionId(request.getVersionId())
-                        .providerId(request.getProviderId())
-                        .modelId(request.getModelId())
-                        .parameters(params)
-                        .maxTokens(request.getMaxTokens())
-                        .temperature(request.getTemperature())
-                        .validationCriteria(request.getValidationCriteria())
-                        .storeResult(request.isStoreResults())
-                        .build();
-                results.add(testPrompt(testRequest));
-            }
-        }
-
-        return results;
+        return executeBatch(version, request, currentUser()).collectList().block();
     }
 
     /**
@@ -207,7 +222,29 @@ public class PromptTestingServiceImpl implements PromptTestingService {
      */
     @Override
     public CompletableFuture<List<PromptExecutionResult>> batchTestPromptAsync(PromptBatchTestRequest request) {
-        return CompletableFuture.supplyAsync(() -> batchTestPrompt(request));
+        String executedBy = currentUser();
+        return loadVersion(request.getVersionId())
+                .flatMap(version -> executeBatch(version, request, executedBy).collectList())
+                .toFuture();
+    }
+
+    /**
+     * Execute batch testing and stream every result as it completes
+     */
+    @Override
+    public Flux<PromptBatchItemResult> batchTestPromptStream(PromptBatchTestRequest request) {
+        log.debug("Streaming batch test of prompt version {} with {} parameter sets",
+                request.getVersionId(), request.getParameterSets().size());
+
+        String executedBy = currentUser();
+        return loadVersion(request.getVersionId())
+                .flatMapMany(version -> executionPipeline.executeUnordered(request.getParameterSets(),
+                        batchConcurrency(request),
+                        (params, index) -> executeBatchItem(version, request, params, executedBy)
+                                .map(result -> PromptBatchItemResult.builder()
+                                        .index(index)
+                                        .result(result)
+                                        .build())));
     }
 
     /**
@@ -286,10 +323,327 @@ public class PromptTestingServiceImpl implements PromptTestingService {
 
     //-------------------- Helper Methods --------------------//
 
+    /**
+     * Build the provider request of a test without executing it, for submission through
+     * a provider batch API
+     *
+     * @param version The prompt version, with its parameters loaded
+     * @param request The test request
+     * @return The LLM request
+     * @throws ValidationException if the parameters are invalid
+     */
+    public LlmRequest prepareBatchTest(PromptVersion version, PromptTestRequest request) {
+        return prepareBatchTest(version, request, parameterValidator.validateParameters(
+                version, request.getParameters()));
+    }
+
+    /**
+     * Build the provider request of a test whose parameters were already validated, e.g. by
+     * {@link #validateBatchParameters}
+     *
+     * @param version The prompt version, with its parameters loaded
+     * @param request The test request
+     * @param paramValidation The validation result of the request's parameters
+     * @return The LLM request
+     * @throws ValidationException if the parameters are invalid
+     */
+    public LlmRequest prepareBatchTest(PromptVersion version, PromptTestRequest request,
+                                       ParameterValidationResult paramValidation) {
+        if (!paramValidation.isValid()) {
+            throw new ValidationException("Parameter validation failed");
+        }
+
+        Map<String, Object> validatedParams = paramValidation.getValidatedValues();
+        return buildLlmRequest(request, version, version.applyParameters(validatedParams), validatedParams);
+    }
+
+    /**
+     * Validate the parameter sets of a batch against a prompt version in one pass
+     *
+     * @param version The prompt version, with its parameters loaded
+     * @param parameterSets Parameter values of every execution
+     * @return One validation result per parameter set, in the same order
+     */
+    public List<ParameterValidationResult> validateBatchParameters(PromptVersion version,
+                                                                   List<Map<String, Object>> parameterSets) {
+        return parameterValidator.validateBatch(version, parameterSets);
+    }
+
+    /**
+     * Store and validate the outcome of a test executed through a provider batch API,
+     * the same way as a directly executed test
+     *
+     * @param version The prompt version, with its parameters loaded
+     * @param request The test request
+     * @param llmResponse The provider response, or null if the request failed
+     * @param error The error the request failed with, or null if it succeeded
+     * @return The execution result
+     */
+    @Transactional
+    public PromptExecutionResult completeBatchTest(PromptVersion version, PromptTestRequest request,
+                                                   LlmResponse llmResponse, Throwable error) {
+        String executedBy = currentUser();
+        ParameterValidationResult paramValidation = parameterValidator.validateParameters(
+                version, request.getParameters());
+
+        if (!paramValidation.isValid()) {
+            return createErrorResult(version, request, paramValidation,
+                    "Parameter validation failed", ExecutionStatus.INVALID_PARAMS, executedBy);
+        }
+
+        if (llmResponse == null) {
+            String message = error != null ? error.getMessage() : "No response";
+            return createErrorResult(version, request, paramValidation,
+                    "Error testing prompt: " + message, ExecutionStatus.ERROR, executedBy);
+        }
+
+        return completeTest(version, request, llmResponse, paramValidation.getValidatedValues(), executedBy);
+    }
+
+    /**
+     * Id of the user executing a test; resolve it on the calling thread, where the security
+     * context is bound, before handing work to a scheduler
+     */
+    private String currentUser() {
+        return securityUtils.getCurrentUserId().orElse("system");
+    }
+
+    /**
+     * Load a prompt version with its parameters off the calling thread
+     */
+    private Mono<PromptVersion> loadVersion(String versionId) {
+        return Mono.fromCallable(() -> versionRepository.findByIdWithParameters(versionId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Prompt version not found with id: " + versionId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Test a prompt on the provider's non-blocking path. Only the JPA work
+     * (storing the execution and error records) runs on a blocking-capable scheduler, so the
+     * executing user is resolved by the caller while its security context is still at hand.
+     */
+    private Mono<PromptExecutionResult> testPromptReactive(PromptVersion version, PromptTestRequest request,
+                                                           String executedBy) {
+        return Mono.defer(() -> {
+            ParameterValidationResult paramValidation = parameterValidator.validateParameters(
+                    version, request.getParameters());
+
+            if (!paramValidation.isValid()) {
+                return Mono.fromCallable(() -> createErrorResult(version, request, paramValidation,
+                                "Parameter validation failed", ExecutionStatus.INVALID_PARAMS, executedBy))
+                        .subscribeOn(Schedulers.boundedElastic());
+            }
+
+            Map<String, Object> validatedParams = paramValidation.getValidatedValues();
+
+            return Mono.defer(() -> {
+                        LlmProvider provider = providerFactory.getProvider(request.getProviderId())
+                                .orElseThrow(() -> new ValidationException("Provider not found: " + request.getProviderId()));
+
+                        String promptText = version.applyParameters(validatedParams);
+                        LlmRequest llmRequest = buildLlmRequest(request, version, promptText, validatedParams);
+
+                        return executeValidated(provider, llmRequest, request.getValidationCriteria());
+                    })
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(llmResponse -> completeTest(version, request, llmResponse, validatedParams, executedBy))
+                    .onErrorResume(e -> {
+                        log.error("Error testing prompt: {}", e.getMessage(), e);
+                        return Mono.fromCallable(() -> createErrorResult(version, request, paramValidation,
+                                        "Error testing prompt: " + e.getMessage(), ExecutionStatus.ERROR, executedBy))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    });
+        });
+    }
+
+    /**
+     * Execute a request on the provider's non-blocking path. When a validation rule can fail
+     * before the response is complete, the response is streamed and the generation stopped as
+     * soon as it can no longer pass, so A/B tests and batches do not pay for output that fails
+     * anyway. Hedged requests keep the unary call, the only one that hedges.
+     */
+    private Mono<LlmResponse> executeValidated(LlmProvider provider, LlmRequest llmRequest,
+                                               Map<String, Object> validationCriteria) {
+        if (validationCriteria == null || validationCriteria.isEmpty() || Boolean.TRUE.equals(llmRequest.getHedge())) {
+            return provider.executePromptReactive(llmRequest);
+        }
+        StreamingValidation validation = responseValidator.startStreaming(validationCriteria);
+        if (!validation.canTerminateEarly()) {
+            return provider.executePromptReactive(llmRequest);
+        }
+        LocalDateTime startTime = LocalDateTime.now();
+        return validation.guard(provider.executePromptStream(llmRequest),
+                        text -> truncatedResponse(provider, llmRequest, text, startTime))
+                .filter(LlmStreamChunk::isLast)
+                .last()
+                .map(LlmStreamChunk::getResponse);
+    }
+
+    /**
+     * Collect samples of a prompt on the provider's non-blocking path. Every completion is stored
+     * and validated as its own execution.
+     */
+    private Mono<List<PromptExecutionResult>> testPromptSamplesReactive(PromptVersion version,
+                                                                        PromptTestRequest request, int samples,
+                                                                        String executedBy) {
+        return Mono.defer(() -> {
+            ParameterValidationResult paramValidation = parameterValidator.validateParameters(
+                    version, request.getParameters());
+
+            if (!paramValidation.isValid()) {
+                return Mono.fromCallable(() -> List.of(createErrorResult(version, request, paramValidation,
+                                "Parameter validation failed", ExecutionStatus.INVALID_PARAMS, executedBy)))
+                        .subscribeOn(Schedulers.boundedElastic());
+            }
+
+            Map<String, Object> validatedParams = paramValidation.getValidatedValues();
+
+            return Mono.defer(() -> {
+                        LlmProvider provider = providerFactory.getProvider(request.getProviderId())
+                                .orElseThrow(() -> new ValidationException("Provider not found: " + request.getProviderId()));
+
+                        String promptText = version.applyParameters(validatedParams);
+                        LlmRequest llmRequest = buildLlmRequest(request, version, promptText, validatedParams);
+
+                        return Flux.fromIterable(LlmSampling.plan(provider, llmRequest, samples))
+                                .flatMap(call -> provider.executePromptReactive(call)
+                                                .publishOn(Schedulers.boundedElastic())
+                                                .flatMapIterable(LlmSampling::split)
+                                                .map(sample -> completeTest(version, request, sample, validatedParams,
+                                                        executedBy))
+                                                .onErrorResume(e -> {
+                                                    log.error("Error sampling prompt: {}", e.getMessage(), e);
+                                                    return Mono.fromCallable(() -> createErrorResult(version, request,
+                                                                    paramValidation, "Error testing prompt: " + e.getMessage(),
+                                                                    ExecutionStatus.ERROR, executedBy))
+                                                            .subscribeOn(Schedulers.boundedElastic());
+                                                }),
+                                        Math.max(1, providerProperties.getSampling().getMaxConcurrentCalls()))
+                                .collectList();
+                    })
+                    .onErrorResume(e -> {
+                        log.error("Error sampling prompt: {}", e.getMessage(), e);
+                        return Mono.fromCallable(() -> List.of(createErrorResult(version, request, paramValidation,
+                                        "Error testing prompt: " + e.getMessage(), ExecutionStatus.ERROR, executedBy)))
+                                .subscribeOn(Schedulers.boundedElastic());
+                    });
+        });
+    }
+
+    /**
+     * Execute the items of a batch through the shared pipeline, with the version loaded once,
+     * and emit the results in the order of the parameter sets
+     */
+    private Flux<PromptExecutionResult> executeBatch(PromptVersion version, PromptBatchTestRequest request,
+                                                     String executedBy) {
+        return executionPipeline.executeOrdered(request.getParameterSets(), batchConcurrency(request),
+                params -> executeBatchItem(version, request, params, executedBy));
+    }
+
+    /**
+     * Execute one item of a batch. Parallel batches use the provider's non-blocking path;
+     * sequential ones keep the blocking path, off the calling thread, so the executing user is
+     * resolved by the caller.
+     */
+    private Mono<PromptExecutionResult> executeBatchItem(PromptVersion version, PromptBatchTestRequest request,
+                                                         Map<String, Object> params, String executedBy) {
+        PromptTestRequest testRequest = buildBatchItemRequest(request, params);
+        if (request.isParallelExecution()) {
+            return testPromptReactive(version, testRequest, executedBy);
+        }
+        return Mono.fromCallable(() -> executeTest(version, testRequest, executedBy))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static int batchConcurrency(PromptBatchTestRequest request) {
+        return request.isParallelExecution() ? Math.max(1, request.getMaxConcurrent()) : 1;
+    }
+
+    /**
+     * Build the single test request for one parameter set of a batch
+     */
+    private PromptTestRequest buildBatchItemRequest(PromptBatchTestRequest request, Map<String, Object> params) {
+        return PromptTestRequest.builder()
+                .versionId(request.getVersionId())
+                .providerId(request.getProviderId())
+                .modelId(request.getModelId())
+                .parameters(params)
+                .maxTokens(request.getMaxTokens())
+                .temperature(request.getTemperature())
+                .validationCriteria(request.getValidationCriteria())
+                .storeResult(request.isStoreResults())
+                .cache(request.isCache())
+                .hedge(request.getHedge())
+                .build();
+    }
+
+    /**
+     * Store, validate and build the result for a completed LLM response. The execution record
+     * and its validation update are written in one transaction, joining the caller's if any:
+     * on the reactive paths this runs on a scheduler thread, outside any transactional proxy.
+     */
+    private PromptExecutionResult completeTest(PromptVersion version, PromptTestRequest request,
+                                               LlmResponse llmResponse, Map<String, Object> validatedParams,
+                                               String executedBy) {
+        // Validate response if criteria provided
+        ValidationResult validationResult = null;
+        boolean validationPassed = true;
+        if (request.getValidationCriteria() != null && !request.getValidationCriteria().isEmpty()) {
+            validationResult = responseValidator.validateResponse(
+                    llmResponse.getText(), request.getValidationCriteria());
+            validationPassed = validationResult.isPassed();
+        }
+
+        // Store execution if requested, with validation results if any
+        PromptExecution execution = null;
+        if (request.isStoreResult()) {
+            ValidationResult validation = validationResult;
+            execution = transactionTemplate.execute(status -> {
+                PromptExecution saved = createAndSaveExecution(version, request, llmResponse, validatedParams, executedBy);
+                if (validation != null) {
+                    String validationSummary = "Validation " + (validation.isPassed() ? "passed" : "failed");
+                    if (!validation.isPassed() && validation.getIssues() != null && !validation.getIssues().isEmpty()) {
+                        validationSummary += ": " + validation.getIssues().get(0).getMessage();
+                    }
+                    updateExecutionWithValidation(saved.getId(), validation.isPassed(), validationSummary);
+                }
+                return saved;
+            });
+        }
+
+        // Build the result DTO
+        return buildExecutionResult(version, request, llmResponse, execution,
+                validationResult, validationPassed, executedBy);
+    }
+
+    /**
+     * Build the response of a stream stopped early from the text received, with the tokens and
+     * cost estimated since the provider reports no usage for it
+     */
+    private static LlmResponse truncatedResponse(LlmProvider provider, LlmRequest llmRequest, String text,
+                                                 LocalDateTime startTime) {
+        int inputTokens = provider.countTokens(llmRequest.getPrompt(), llmRequest.getModelId());
+        int outputTokens = provider.countTokens(text, llmRequest.getModelId());
+        LocalDateTime completionTime = LocalDateTime.now();
+        return LlmResponse.builder()
+                .request(llmRequest)
+                .text(text)
+                .inputTokenCount(inputTokens)
+                .outputTokenCount(outputTokens)
+                .totalTokenCount(inputTokens + outputTokens)
+                .cost(provider.calculateCost(inputTokens, outputTokens, llmRequest.getModelId()))
+                .startTime(startTime)
+                .completionTime(completionTime)
+                .responseTimeMs(Duration.between(startTime, completionTime).toMillis())
+                .successful(true)
+                .build();
+    }
+
     /**
      * Build the LLM request from the test request and prompt text
      */
-    private LlmRequest buildLlmRequest(PromptTestRequest request, PromptVersion version, String promptText) {
+    private LlmRequest buildLlmRequest(PromptTestRequest request, PromptVersion version, String promptText,
+                                       Map<String, Object> validatedParams) {
         return LlmRequest.builder()
                 .providerId(request.getProviderId())
                 .modelId(request.getModelId())
@@ -298,31 +652,56 @@ public class PromptTestingServiceImpl implements PromptTestingService {
                 .maxTokens(request.getMaxTokens() != null ? request.getMaxTokens() : providerProperties.getDefaultMaxTokens())
                 .temperature(request.getTemperature() != null ? request.getTemperature() : providerProperties.getDefaultTemperature())
                 .timeoutMs(providerProperties.getDefaultTimeoutMs())
+                .versionId(version.getId())
+                .parametersHash(HashUtils.parametersHash(validatedParams))
+                .cacheable(request.isCache())
+                .hedge(request.getHedge())
+                .promptPrefixLength(providerProperties.getPromptCache().isEnabled()
+                        ? version.getStaticPrefixLength(promptText)
+                        : null)
+                .routing(request.getRouting())
                 .build();
     }
 
+    /**
+     * Provider and model that served a response; for routed requests they are the route chosen
+     * rather than the "auto" provider that was requested
+     */
+    private static String servedProviderId(PromptTestRequest request, LlmResponse llmResponse) {
+        Object routed = llmResponse.getMetadata() != null
+                ? llmResponse.getMetadata().get(LlmModelRouter.ROUTED_PROVIDER_METADATA_KEY) : null;
+        return routed != null ? routed.toString() : request.getProviderId();
+    }
+
+    private static String servedModelId(PromptTestRequest request, LlmResponse llmResponse) {
+        Object routed = llmResponse.getMetadata() != null
+                ? llmResponse.getMetadata().get(LlmModelRouter.ROUTED_MODEL_METADATA_KEY) : null;
+        return routed != null ? routed.toString() : request.getModelId();
+    }
+
     /**
      * Create and save an execution record in the database
      */
     private PromptExecution createAndSaveExecution(PromptVersion version, PromptTestRequest request,
-                                                   LlmResponse llmResponse, Map<String, Object> validatedParams) {
-
-        String currentUser = securityUtils.getCurrentUserId().orElse("system");
+                                                   LlmResponse llmResponse, Map<String, Object> validatedParams,
+                                                   String executedBy) {
 
         PromptExecution execution = PromptExecution.builder()
                 .version(version)
-                .providerId(request.getProviderId())
-                .modelId(request.getModelId())
+                .providerId(servedProviderId(request, llmResponse))
+                .modelId(servedModelId(request, llmResponse))
                 .inputParameters(validatedParams)
                 .rawResponse(llmResponse.getText())
                 .tokenCount(llmResponse.getTotalTokenCount())
                 .inputTokens(llmResponse.getInputTokenCount())
                 .outputTokens(llmResponse.getOutputTokenCount())
+                .cacheReadTokens(llmResponse.getCacheReadTokenCount())
+                .cacheWriteTokens(llmResponse.getCacheWriteTokenCount())
                 .cost(llmResponse.getCost() != null ?
                         java.math.BigDecimal.valueOf(llmResponse.getCost()) : null)
                 .responseTimeMs(llmResponse.getResponseTimeMs())
                 .executedAt(LocalDateTime.now())
-                .executedBy(currentUser)
+                .executedBy(executedBy)
                 .status(ExecutionStatus.SUCCESS)
                 .build();
 
@@ -349,24 +728,26 @@ public class PromptTestingServiceImpl implements PromptTestingService {
      */
     private PromptExecutionResult buildExecutionResult(PromptVersion version, PromptTestRequest request,
                                                        LlmResponse llmResponse, PromptExecution execution, ValidationResult validationResult,
-                                                       boolean validationPassed) {
+                                                       boolean validationPassed, String executedBy) {
 
         return PromptExecutionResult.builder()
                 .executionId(execution != null ? execution.getId() : null)
                 .versionId(version.getId())
                 .templateId(version.getTemplate().getId())
-                .providerId(request.getProviderId())
-                .modelId(request.getModelId())
+                .providerId(servedProviderId(request, llmResponse))
+                .modelId(servedModelId(request, llmResponse))
                 .parameters(request.getParameters())
                 .response(llmResponse.getText())
                 .tokenCount(llmResponse.getTotalTokenCount())
                 .inputTokens(llmResponse.getInputTokenCount())
                 .outputTokens(llmResponse.getOutputTokenCount())
+                .cacheReadTokens(llmResponse.getCacheReadTokenCount())
+                .cacheWriteTokens(llmResponse.getCacheWriteTokenCount())
                 .cost(llmResponse.getCost() != null ?
                         java.math.BigDecimal.valueOf(llmResponse.getCost()) : null)
                 .responseTimeMs(llmResponse.getResponseTimeMs())
                 .executedAt(LocalDateTime.now())
-                .executedBy(securityUtils.getCurrentUserId().orElse("system"))
+                .executedBy(executedBy)
                 .status(ExecutionStatus.SUCCESS)
                 .validationResult(validationResult)
                 .validationPassed(validationPassed)
@@ -378,7 +759,8 @@ public class PromptTestingServiceImpl implements PromptTestingService {
      * Create an error result for failed tests
      */
     private PromptExecutionResult createErrorResult(PromptVersion version, PromptTestRequest request,
-                                                    ParameterValidationResult paramValidation, String errorMessage, ExecutionStatus status) {
+                                                    ParameterValidationResult paramValidation, String errorMessage, ExecutionStatus status,
+                                                    String executedBy) {
 
         // Create execution record in the database if requested
         PromptExecution execution = null;
@@ -390,7 +772,7 @@ public class PromptTestingServiceImpl implements PromptTestingService {
                     .inputParameters(request.getParameters())
                     .rawResponse("Error: " + errorMessage)
                     .executedAt(LocalDateTime.now())
-                    .executedBy(securityUtils.getCurrentUserId().orElse("system"))
+                    .executedBy(executedBy)
                     .status(status)
                     .build();
 
@@ -407,7 +789,7 @@ public class PromptTestingServiceImpl implements PromptTestingService {
                 .parameters(request.getParameters())
                 .response("Error: " + errorMessage)
                 .executedAt(LocalDateTime.now())
-                .executedBy(securityUtils.getCurrentUserId().orElse("system"))
+                .executedBy(executedBy)
                 .status(status)
                 .errorMessage(errorMessage)
                 .build();
@@ -473,6 +855,8 @@ public class PromptTestingServiceImpl implements PromptTestingService {
                 .tokenCount(response.getTokenCount())
                 .inputTokens(response.getInputTokens())
                 .outputTokens(response.getOutputTokens())
+                .cacheReadTokens(response.getCacheReadTokens())
+                .cacheWriteTokens(response.getCacheWriteTokens())
                 .cost(response.getCost())
                 .responseTimeMs(response.getResponseTimeMs())
                 .executedAt(response.getExecutedAt())
@@ -1,14 +1,29 @@
 package viettel.dac.promptservice.service.llm;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
 import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.catalog.ModelCatalog;
+import viettel.dac.promptservice.service.llm.catalog.ModelCatalogRegistry;
+import viettel.dac.promptservice.service.llm.catalog.ModelSpec;
+import viettel.dac.promptservice.service.llm.metrics.MeteredLlmProvider;
+import viettel.dac.promptservice.service.llm.ratelimit.RateLimitStatus;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Base implementation with common functionality for all LLM providers
@@ -17,19 +32,115 @@ import java.util.concurrent.TimeUnit;
 public abstract class BaseLlmProvider implements LlmProvider {
 
     protected final Executor executor;
+    protected final TokenizerRegistry tokenizers;
+    private volatile ModelCatalogRegistry catalogRegistry;
+    private volatile ModelCatalog ownCatalog;
 
-    protected BaseLlmProvider(Executor executor) {
+    /**
+     * @param tokenizers The application's tokenizer registry, shared by all providers so they
+     *                   share its memo and configuration
+     */
+    protected BaseLlmProvider(Executor executor, TokenizerRegistry tokenizers) {
         this.executor = executor;
+        this.tokenizers = tokenizers;
+    }
+
+    /**
+     * Models the provider serves before configured changes, with their limits and prices
+     */
+    protected List<ModelSpec> builtinModels() {
+        return List.of();
+    }
+
+    /**
+     * Take models from a shared catalog, which may change them at runtime, instead of only
+     * from {@link #builtinModels()}
+     *
+     * @param registry The catalog registry
+     */
+    public void useCatalog(ModelCatalogRegistry registry) {
+        this.catalogRegistry = registry;
+        registry.registerProvider(getProviderId(), builtinModels());
+    }
+
+    /**
+     * Publish the current {@link #builtinModels()} after they changed
+     */
+    protected void publishModels() {
+        ModelCatalogRegistry registry = catalogRegistry;
+        if (registry != null) {
+            registry.registerProvider(getProviderId(), builtinModels());
+        } else {
+            ownCatalog = null;
+        }
+    }
+
+    /**
+     * Current catalog snapshot: the shared one, or one of the built-in models only
+     */
+    protected ModelCatalog catalog() {
+        ModelCatalogRegistry registry = catalogRegistry;
+        if (registry != null) {
+            return registry.current();
+        }
+        ModelCatalog catalog = ownCatalog;
+        if (catalog == null) {
+            catalog = ModelCatalog.of(getProviderId(), builtinModels());
+            ownCatalog = catalog;
+        }
+        return catalog;
+    }
+
+    /**
+     * Look up a model of this provider
+     *
+     * @param modelId A model ID or alias
+     * @return The model, or null if the provider does not serve it
+     */
+    protected ModelSpec modelSpec(String modelId) {
+        return catalog().find(getProviderId(), modelId);
+    }
+
+    /**
+     * Model ID to send to the provider API, with aliases resolved
+     */
+    protected String apiModelId(String modelId) {
+        return catalog().resolve(modelId);
+    }
+
+    @Override
+    public Map<String, String> getAvailableModels() {
+        return catalog().models(getProviderId());
     }
 
     @Override
     public boolean supportsModel(String modelId) {
-        return getAvailableModels().containsKey(modelId);
+        return modelId != null && getAvailableModels().containsKey(apiModelId(modelId));
     }
 
     @Override
-    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
+    public int getMaxContextLength(String modelId) {
+        ModelSpec spec = modelSpec(modelId);
+        return spec != null ? spec.getContextLength() : ModelCatalog.DEFAULT_CONTEXT_LENGTH;
+    }
+
+    @Override
+    public double calculateCost(int inputTokens, int outputTokens, String modelId) {
+        ModelSpec spec = modelSpec(modelId);
+        if (spec == null) {
+            return 0.0;
+        }
+        return (inputTokens / 1000000.0) * spec.getInputCostPerMillionTokens()
+                + (outputTokens / 1000000.0) * spec.getOutputCostPerMillionTokens();
+    }
+
+    /**
+     * Fallback reactive implementation for providers without a native non-blocking client.
+     * Runs the blocking {@link #executePrompt(LlmRequest)} on the provider executor.
+     */
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.fromCallable(() -> {
                     try {
                         return executePrompt(request);
                     } catch (Exception e) {
@@ -38,23 +149,43 @@ public abstract class BaseLlmProvider implements LlmProvider {
                         throw new LlmProviderException("Async execution failed: " + e.getMessage(),
                                 e, getProviderId(), request.getModelId(), LlmProviderException.ErrorType.UNKNOWN);
                     }
-                }, executor).orTimeout(request.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                })
+                .subscribeOn(Schedulers.fromExecutor(executor));
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return executePromptReactive(request)
+                .timeout(Duration.ofMillis(request.getTimeoutMs()))
+                .toFuture()
                 .exceptionally(e -> {
-                    Throwable cause = e.getCause();
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
                     if (cause instanceof LlmProviderException) {
                         throw (LlmProviderException) cause;
                     }
 
                     LlmProviderException.ErrorType errorType = LlmProviderException.ErrorType.UNKNOWN;
-                    if (e instanceof java.util.concurrent.TimeoutException) {
+                    if (cause instanceof TimeoutException) {
                         errorType = LlmProviderException.ErrorType.TIMEOUT;
                     }
 
-                    throw new LlmProviderException("Execution failed: " + e.getMessage(),
-                            e, getProviderId(), request.getModelId(), errorType);
+                    throw new LlmProviderException("Execution failed: " + cause.getMessage(),
+                            cause, getProviderId(), request.getModelId(), errorType);
                 });
     }
 
+    /**
+     * Fallback streaming implementation for providers without native streaming support.
+     * Emits the whole completion as a single delta followed by the final response.
+     */
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return executePromptReactive(request)
+                .flatMapMany(response -> Flux.just(
+                        LlmStreamChunk.delta(response.getText()),
+                        LlmStreamChunk.completed(response)));
+    }
+
     /**
      * Build a base response with timing information
      * @param request Original request
@@ -72,6 +203,43 @@ public abstract class BaseLlmProvider implements LlmProvider {
                 .responseTimeMs(responseTimeMs);
     }
 
+    /**
+     * Attach the rate limit state reported in the response headers to the response metadata
+     * so the rate limiter can follow the provider's actual limits
+     * @param response Parsed response
+     * @param headers HTTP response headers
+     * @return The same response
+     */
+    protected LlmResponse withRateLimitStatus(LlmResponse response, HttpHeaders headers) {
+        RateLimitStatus status = RateLimitStatus.fromHeaders(headers);
+        if (status != null) {
+            response.getMetadata().put(RateLimitStatus.METADATA_KEY, status);
+        }
+        return response;
+    }
+
+    /**
+     * Record in the response metadata how long the provider took to start answering, so call
+     * metrics can tell time spent waiting for the provider from time spent receiving the body
+     * @param response Parsed response
+     * @param timeToFirstByteMs Time from sending the request until the response headers arrived
+     * @return The same response
+     */
+    protected LlmResponse withTimeToFirstByte(LlmResponse response, long timeToFirstByteMs) {
+        response.getMetadata().put(MeteredLlmProvider.TIME_TO_FIRST_BYTE_METADATA_KEY, timeToFirstByteMs);
+        return response;
+    }
+
+    /**
+     * Count the prompt tokens of a request, memoized per prompt version and parameter values
+     * so validation and usage accounting share a single tokenization
+     * @param request The request to count
+     * @return Prompt token count
+     */
+    protected int countPromptTokens(LlmRequest request) {
+        return tokenizers.countPromptTokens(request, () -> countTokens(request.getPrompt(), request.getModelId()));
+    }
+
     /**
      * Validate that a request contains valid parameters for this provider
      * @param request The request to validate
@@ -93,7 +261,7 @@ public abstract class BaseLlmProvider implements LlmProvider {
                     getProviderId(), request.getModelId(), LlmProviderException.ErrorType.INVALID_REQUEST);
         }
 
-        int tokenCount = countTokens(request.getPrompt(), request.getModelId());
+        int tokenCount = countPromptTokens(request);
         int maxContextLength = getMaxContextLength(request.getModelId());
 
         if (tokenCount > maxContextLength) {
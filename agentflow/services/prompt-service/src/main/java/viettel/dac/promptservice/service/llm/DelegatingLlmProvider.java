@@ -0,0 +1,92 @@
+package viettel.dac.promptservice.service.llm;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Base class for providers that wrap another provider to add cross-cutting behaviour.
+ * Every method forwards to the delegate; subclasses override the ones they decorate.
+ */
+public abstract class DelegatingLlmProvider implements LlmProvider {
+
+    protected final LlmProvider delegate;
+
+    protected DelegatingLlmProvider(LlmProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Get the wrapped provider
+     */
+    public LlmProvider getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getProviderId() {
+        return delegate.getProviderId();
+    }
+
+    @Override
+    public Map<String, String> getAvailableModels() {
+        return delegate.getAvailableModels();
+    }
+
+    @Override
+    public boolean supportsModel(String modelId) {
+        return delegate.supportsModel(modelId);
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return delegate.executePrompt(request);
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return delegate.executePromptAsync(request);
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return delegate.executePromptReactive(request);
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return delegate.executePromptStream(request);
+    }
+
+    @Override
+    public int countTokens(String prompt, String modelId) {
+        return delegate.countTokens(prompt, modelId);
+    }
+
+    @Override
+    public double calculateCost(int inputTokens, int outputTokens, String modelId) {
+        return delegate.calculateCost(inputTokens, outputTokens, modelId);
+    }
+
+    @Override
+    public double calculateCost(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens,
+                                String modelId) {
+        return delegate.calculateCost(inputTokens, outputTokens, cacheReadTokens, cacheWriteTokens, modelId);
+    }
+
+    @Override
+    public int getMaxCompletionsPerRequest(String modelId) {
+        return delegate.getMaxCompletionsPerRequest(modelId);
+    }
+
+    @Override
+    public int getMaxContextLength(String modelId) {
+        return delegate.getMaxContextLength(modelId);
+    }
+}
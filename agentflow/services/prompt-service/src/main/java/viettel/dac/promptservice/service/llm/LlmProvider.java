@@ -1,8 +1,11 @@
 package viettel.dac.promptservice.service.llm;
 
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
 import viettel.dac.promptservice.exception.LlmProviderException;
 
 import java.util.Map;
@@ -47,6 +50,20 @@ public interface LlmProvider {
      */
     CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request);
 
+    /**
+     * Execute a prompt without blocking the calling thread
+     * @param request The LLM request containing prompt and parameters
+     * @return Mono emitting the LLM response, or an LlmProviderException on failure
+     */
+    Mono<LlmResponse> executePromptReactive(LlmRequest request);
+
+    /**
+     * Execute a prompt and stream the generated text as it is produced
+     * @param request The LLM request containing prompt and parameters
+     * @return Flux of text deltas; the last chunk carries the assembled response with usage and cost
+     */
+    Flux<LlmStreamChunk> executePromptStream(LlmRequest request);
+
     /**
      * Count tokens in a prompt for a specific model
      * @param prompt The prompt text
@@ -64,6 +81,30 @@ public interface LlmProvider {
      */
     double calculateCost(int inputTokens, int outputTokens, String modelId);
 
+    /**
+     * Calculate the estimated cost for a request whose prompt was partly read from or written
+     * to the provider's prompt cache. Providers without prompt caching price all input tokens alike.
+     * @param inputTokens Input token count, including cached tokens
+     * @param outputTokens Output token count
+     * @param cacheReadTokens Input tokens read from the prompt cache
+     * @param cacheWriteTokens Input tokens written to the prompt cache
+     * @param modelId The model ID
+     * @return Estimated cost in USD
+     */
+    default double calculateCost(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens,
+                                 String modelId) {
+        return calculateCost(inputTokens, outputTokens, modelId);
+    }
+
+    /**
+     * Get the number of completions a single request may ask for through {@link LlmRequest#getN()}
+     * @param modelId The model ID
+     * @return Maximum completions per request, 1 if the provider returns a single completion
+     */
+    default int getMaxCompletionsPerRequest(String modelId) {
+        return 1;
+    }
+
     /**
      * Get the maximum context length for a specific model
      * @param modelId The model ID
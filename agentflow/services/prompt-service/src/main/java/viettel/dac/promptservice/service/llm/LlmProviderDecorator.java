@@ -0,0 +1,37 @@
+package viettel.dac.promptservice.service.llm;
+
+import org.springframework.core.Ordered;
+
+/**
+ * Wraps the providers created by {@link LlmProviderFactory} with cross-cutting behaviour.
+ * <p>
+ * Decorators are applied in ascending {@link #getOrder()}, each one wrapping the result of the
+ * previous, so the decorator with the highest order is the outermost and sees a call first.
+ * Behaviour that must happen once per network request (rate limiting) sits close to the
+ * provider, behaviour that can avoid the request altogether (caching) sits on the outside.
+ * Hedging sits right below rate limiting, so attempt latencies measure the provider rather than
+ * permit waits and a hedged duplicate shares the permits of its call; the circuit breaker sits
+ * above both so one call counts once however many attempts it made.
+ * Record/replay stands in for the network call itself and is innermost, with call metrics
+ * right above it so they measure the provider alone. Route statistics sit just inside the
+ * response cache, so they see every call that reached a provider.
+ */
+public interface LlmProviderDecorator extends Ordered {
+
+    int REPLAY_ORDER = 0;
+    int METRICS_ORDER = 50;
+    int HEDGING_ORDER = 75;
+    int RATE_LIMIT_ORDER = 100;
+    int RESILIENCE_ORDER = 400;
+    int COALESCING_ORDER = 500;
+    int ROUTING_ORDER = 600;
+    int RESPONSE_CACHE_ORDER = 1000;
+
+    /**
+     * Wrap a provider
+     *
+     * @param provider The provider, possibly already decorated
+     * @return The decorated provider, or the same provider if the decorator is disabled
+     */
+    LlmProvider decorate(LlmProvider provider);
+}
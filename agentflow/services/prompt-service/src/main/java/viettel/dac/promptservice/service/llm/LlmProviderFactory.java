@@ -1,15 +1,30 @@
 package viettel.dac.promptservice.service.llm;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchClient;
+import viettel.dac.promptservice.service.llm.catalog.ModelCatalogRegistry;
+import viettel.dac.promptservice.service.llm.http.ProviderConnectionPool;
+import viettel.dac.promptservice.service.llm.providers.AnthropicBatchClient;
 import viettel.dac.promptservice.service.llm.providers.AnthropicProvider;
+import viettel.dac.promptservice.service.llm.providers.OpenAiBatchClient;
+import viettel.dac.promptservice.service.llm.providers.OpenAiCompatibleProvider;
 import viettel.dac.promptservice.service.llm.providers.OpenAiProvider;
+import viettel.dac.promptservice.service.llm.providers.SimulatedLlmProvider;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 
 /**
@@ -20,14 +35,36 @@ import java.util.concurrent.Executor;
 public class LlmProviderFactory {
 
     private final Map<String, LlmProvider> providers;
+    private final Map<String, LlmBatchClient> batchClients = new HashMap<>();
     private final WebClient.Builder webClientBuilder;
     private final Executor asyncExecutor;
+    private final TokenizerRegistry tokenizers;
+    private final ObjectMapper objectMapper;
+    private final List<LlmProviderDecorator> decorators;
+    private final ModelCatalogRegistry catalog;
+    private final List<ProviderConnectionPool> connectionPools = new ArrayList<>();
+    private volatile LlmProvider routingProvider;
 
-    public LlmProviderFactory(WebClient.Builder webClientBuilder, @Qualifier("llmExecutor") Executor asyncExecutor,
+    public LlmProviderFactory(WebClient.Builder webClientBuilder, Executor asyncExecutor,
                               LlmProviderProperties providerProperties) {
+        this(webClientBuilder, asyncExecutor, providerProperties, new TokenizerRegistry(providerProperties), List.of(),
+                new ObjectMapper(), new ModelCatalogRegistry(providerProperties, new ObjectMapper()));
+    }
+
+    @Autowired
+    public LlmProviderFactory(WebClient.Builder webClientBuilder, @Qualifier("llmExecutor") Executor asyncExecutor,
+                              LlmProviderProperties providerProperties, TokenizerRegistry tokenizers,
+                              List<LlmProviderDecorator> decorators, ObjectMapper objectMapper,
+                              ModelCatalogRegistry catalog) {
         this.webClientBuilder = webClientBuilder;
         this.asyncExecutor = asyncExecutor;
-        this.providers = new HashMap<>();
+        this.tokenizers = tokenizers;
+        this.objectMapper = objectMapper;
+        this.catalog = catalog;
+        this.decorators = decorators.stream()
+                .sorted(Comparator.comparingInt(LlmProviderDecorator::getOrder))
+                .toList();
+        this.providers = new ConcurrentHashMap<>();
 
         // Initialize configured providers
         initializeProviders(providerProperties);
@@ -63,17 +100,103 @@ public class LlmProviderFactory {
     }
 
     /**
-     * Get a provider that supports a specific model
+     * Get the batch API client of a provider
      *
-     * @param modelId The model ID
+     * @param providerId The provider ID
+     * @return Optional containing the client if the provider has a batch API and batching is enabled
+     */
+    public Optional<LlmBatchClient> getBatchClient(String providerId) {
+        return Optional.ofNullable(batchClients.get(providerId));
+    }
+
+    /**
+     * Get a provider that supports a specific model. With routing enabled this is the routing
+     * provider, which picks the best of the providers serving the model for every call.
+     * Otherwise the provider is looked up in the model catalog's index.
+     *
+     * @param modelId The model ID or an alias of it
      * @return Optional containing the provider if found
      */
     public Optional<LlmProvider> getProviderForModel(String modelId) {
+        String providerId = catalog.current().providerFor(modelId);
+        LlmProvider indexed = providerId != null ? providers.get(providerId) : null;
+        LlmProvider router = routingProvider;
+        if (router != null && (indexed != null
+                || modelId != null && router.getAvailableModels().containsKey(modelId))) {
+            return Optional.of(router);
+        }
+        if (indexed != null) {
+            return Optional.of(indexed);
+        }
+
+        // Providers that list their models outside the catalog
+        if (router != null && router.supportsModel(modelId)) {
+            return Optional.of(router);
+        }
         return providers.values().stream()
                 .filter(provider -> provider.supportsModel(modelId))
                 .findFirst();
     }
 
+    /**
+     * Register the provider that routes requests between the other providers. It is not
+     * decorated, since every call it makes goes through one of the decorated providers.
+     *
+     * @param provider The routing provider
+     */
+    public void registerRoutingProvider(LlmProvider provider) {
+        providers.put(provider.getProviderId(), provider);
+        routingProvider = provider;
+        log.info("Registered routing provider {}", provider.getProviderId());
+    }
+
+    /**
+     * Close the connection pools of all providers
+     */
+    @PreDestroy
+    public void close() {
+        connectionPools.forEach(ProviderConnectionPool::dispose);
+    }
+
+    /**
+     * Create the dedicated connection pool of a provider and warm it up in the background
+     */
+    private ProviderConnectionPool connectionPool(String providerId, String baseUrl,
+                                                  LlmProviderProperties.HttpConfig http) {
+        return warmedUp(ProviderConnectionPool.create(providerId, baseUrl, http), http.getWarmupConnections());
+    }
+
+    /**
+     * Track a connection pool for closing and warm it up in the background
+     */
+    private ProviderConnectionPool warmedUp(ProviderConnectionPool pool, int warmupConnections) {
+        connectionPools.add(pool);
+        pool.warmUp(warmupConnections);
+        return pool;
+    }
+
+    /**
+     * Create a WebClient builder of its own backed by a provider's connection pool.
+     * Cloned so clients do not share base URLs and default headers through one builder.
+     */
+    private WebClient.Builder webClientBuilder(ProviderConnectionPool pool) {
+        return pool.configure(webClientBuilder.clone());
+    }
+
+    /**
+     * Register a provider wrapped by all decorators, innermost first, with its models in the catalog
+     */
+    private void register(LlmProvider provider) {
+        if (provider instanceof BaseLlmProvider catalogued) {
+            catalogued.useCatalog(catalog);
+        }
+        LlmProvider registered = provider;
+        for (LlmProviderDecorator decorator : decorators) {
+            registered = decorator.decorate(registered);
+        }
+        providers.put(provider.getProviderId(), registered);
+    }
+
     /**
      * Initialize providers based on configuration
      */
@@ -81,12 +204,26 @@ public class LlmProviderFactory {
         // Initialize OpenAI provider if configured
         if (properties.getOpenai().isEnabled() && properties.getOpenai().getApiKey() != null) {
             try {
+                ProviderConnectionPool pool = connectionPool("openai", properties.getOpenai().getApiUrl(),
+                        properties.getHttp());
                 OpenAiProvider openAiProvider = new OpenAiProvider(
-                        webClientBuilder,
+                        webClientBuilder(pool),
                         properties.getOpenai().getApiKey(),
-                        asyncExecutor
+                        asyncExecutor,
+                        tokenizers,
+                        objectMapper,
+                        properties.isRetainRawResponse()
                 );
-                providers.put(openAiProvider.getProviderId(), openAiProvider);
+                register(openAiProvider);
+                if (properties.getBatch().isEnabled()) {
+                    batchClients.put("openai", new OpenAiBatchClient(
+                            webClientBuilder(pool),
+                            properties.getOpenai().getApiUrl(),
+                            properties.getOpenai().getApiKey(),
+                            openAiProvider,
+                            properties.getBatch().getCompletionWindow()
+                    ));
+                }
                 log.info("Initialized OpenAI provider with {} models",
                         openAiProvider.getAvailableModels().size());
             } catch (Exception e) {
@@ -97,12 +234,26 @@ public class LlmProviderFactory {
         // Initialize Anthropic provider if configured
         if (properties.getAnthropic().isEnabled() && properties.getAnthropic().getApiKey() != null) {
             try {
+                ProviderConnectionPool pool = connectionPool("anthropic", properties.getAnthropic().getApiUrl(),
+                        properties.getHttp());
                 AnthropicProvider anthropicProvider = new AnthropicProvider(
-                        webClientBuilder,
+                        webClientBuilder(pool),
                         properties.getAnthropic().getApiKey(),
-                        asyncExecutor
+                        asyncExecutor,
+                        tokenizers,
+                        objectMapper,
+                        properties.isRetainRawResponse()
                 );
-                providers.put(anthropicProvider.getProviderId(), anthropicProvider);
+                register(anthropicProvider);
+                if (properties.getBatch().isEnabled()) {
+                    batchClients.put("anthropic", new AnthropicBatchClient(
+                            webClientBuilder(pool),
+                            properties.getAnthropic().getApiUrl(),
+                            properties.getAnthropic().getApiKey(),
+                            properties.getAnthropic().getApiVersion(),
+                            anthropicProvider
+                    ));
+                }
                 log.info("Initialized Anthropic provider with {} models",
                         anthropicProvider.getAvailableModels().size());
             } catch (Exception e) {
@@ -110,6 +261,52 @@ public class LlmProviderFactory {
             }
         }
 
+        // Initialize self-hosted OpenAI compatible endpoints
+        for (LlmProviderProperties.OpenAiCompatible endpoint : properties.getOpenaiCompatible()) {
+            if (endpoint.isEnabled() && endpoint.getId() != null && endpoint.getBaseUrl() != null) {
+                initializeOpenAiCompatible(endpoint, properties);
+            }
+        }
+
+        // Initialize the simulated provider if enabled, for load testing without a real API
+        if (properties.getSimulated().isEnabled()) {
+            SimulatedLlmProvider simulatedProvider = new SimulatedLlmProvider(
+                    properties.getSimulated(),
+                    asyncExecutor,
+                    tokenizers
+            );
+            register(simulatedProvider);
+            log.info("Initialized simulated provider with {} models",
+                    simulatedProvider.getAvailableModels().size());
+        }
+
         log.info("LLM Provider Factory initialized with {} providers", providers.size());
     }
+
+    /**
+     * Initialize the provider of a self-hosted endpoint. Its models are discovered before it is
+     * registered; if the server is down it starts with the configured models and keeps retrying.
+     */
+    private void initializeOpenAiCompatible(LlmProviderProperties.OpenAiCompatible endpoint,
+                                            LlmProviderProperties properties) {
+        try {
+            ProviderConnectionPool pool = warmedUp(ProviderConnectionPool.createLimited(endpoint.getId(),
+                            endpoint.getBaseUrl(), properties.getHttp(), endpoint.getMaxConcurrentCalls()),
+                    Math.min(properties.getHttp().getWarmupConnections(), endpoint.getMaxConcurrentCalls()));
+            OpenAiCompatibleProvider provider = new OpenAiCompatibleProvider(
+                    endpoint,
+                    webClientBuilder(pool),
+                    asyncExecutor,
+                    tokenizers,
+                    objectMapper,
+                    properties.isRetainRawResponse()
+            );
+            Map<String, String> models = provider.refreshModels().block();
+            register(provider);
+            log.info("Initialized OpenAI compatible provider {} at {} with {} models",
+                    endpoint.getId(), endpoint.getBaseUrl(), models != null ? models.size() : 0);
+        } catch (Exception e) {
+            log.error("Failed to initialize OpenAI compatible provider {}: {}", endpoint.getId(), e.getMessage(), e);
+        }
+    }
 }
\ No newline at end of file
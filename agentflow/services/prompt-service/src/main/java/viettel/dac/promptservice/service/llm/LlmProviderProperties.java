@@ -3,6 +3,13 @@ package viettel.dac.promptservice.service.llm;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import viettel.dac.promptservice.exception.LlmProviderException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for LLM providers
@@ -14,12 +21,39 @@ public class LlmProviderProperties {
 
     private final OpenAi openai = new OpenAi();
     private final Anthropic anthropic = new Anthropic();
+    private final Simulated simulated = new Simulated();
+    private final HttpConfig http = new HttpConfig();
+    private final TokenizerConfig tokenizer = new TokenizerConfig();
+    private final RateLimitConfig rateLimit = new RateLimitConfig();
+    private final ResponseCacheConfig responseCache = new ResponseCacheConfig();
+    private final CoalescingConfig coalescing = new CoalescingConfig();
+    private final HedgingConfig hedging = new HedgingConfig();
+    private final ResilienceConfig resilience = new ResilienceConfig();
+    private final ReplayConfig replay = new ReplayConfig();
+    private final BatchConfig batch = new BatchConfig();
+    private final PromptCacheConfig promptCache = new PromptCacheConfig();
+    private final SamplingConfig sampling = new SamplingConfig();
+    private final PipelineConfig pipeline = new PipelineConfig();
+    private final RoutingConfig routing = new RoutingConfig();
+    private final MetricsConfig metrics = new MetricsConfig();
+    private final CatalogConfig catalog = new CatalogConfig();
+
+    /**
+     * Self-hosted servers with an OpenAI compatible API, each registered as a provider of its own
+     */
+    private List<OpenAiCompatible> openaiCompatible = new ArrayList<>();
     private Integer defaultTimeoutMs = 30000;
     private Integer defaultMaxTokens = 1024;
     private Double defaultTemperature = 0.7;
     private Integer maxRetries = 3;
     private Integer retryDelayMs = 1000;
 
+    /**
+     * Keep provider response bodies as the raw response of LLM responses; off by default
+     * because it holds every body in memory for the lifetime of the response
+     */
+    private boolean retainRawResponse = false;
+
     /**
      * OpenAI provider configuration
      */
@@ -43,4 +77,659 @@ public class LlmProviderProperties {
         private String apiUrl = "https://api.anthropic.com/v1";
         private String apiVersion = "2023-06-01";
     }
-}
\ No newline at end of file
+
+    /**
+     * Simulated in-process provider for load and throughput testing
+     */
+    @Data
+    public static class Simulated {
+        private boolean enabled = false;
+
+        /**
+         * Model IDs served by the simulated provider
+         */
+        private List<String> models = new ArrayList<>(List.of("simulated"));
+
+        /**
+         * Distribution the time to first token is drawn from
+         */
+        private LatencyDistribution latencyDistribution = LatencyDistribution.FIXED;
+
+        /**
+         * Time to first token of the FIXED distribution
+         */
+        private Duration fixedLatency = Duration.ofMillis(200);
+
+        /**
+         * Median time to first token of the LOG_NORMAL distribution
+         */
+        private Duration logNormalMedian = Duration.ofMillis(200);
+
+        /**
+         * Standard deviation of the logarithm of the LOG_NORMAL distribution
+         */
+        private double logNormalSigma = 0.5;
+
+        /**
+         * Buckets of the HISTOGRAM distribution, e.g. exported from production latency metrics
+         */
+        private List<HistogramBucket> latencyHistogram = new ArrayList<>();
+
+        /**
+         * Output token throughput after the first token
+         */
+        private double tokensPerSecond = 50;
+
+        /**
+         * Output tokens generated per completion, capped by the request's max tokens
+         */
+        private int outputTokens = 100;
+
+        /**
+         * Probability of failing a call with each error type
+         */
+        private Map<LlmProviderException.ErrorType, Double> errorRates = new HashMap<>();
+
+        /**
+         * Random seed; with a seed, latencies and injected errors repeat for the same call order
+         */
+        private Long seed;
+
+        private int maxContextLength = 128_000;
+        private double inputCostPerMillionTokens = 0.0;
+        private double outputCostPerMillionTokens = 0.0;
+
+        public enum LatencyDistribution {
+            FIXED,
+            LOG_NORMAL,
+            HISTOGRAM
+        }
+
+        /**
+         * Latencies up to an upper bound and how often they occurred
+         */
+        @Data
+        public static class HistogramBucket {
+            private Duration upTo;
+            private long count;
+        }
+    }
+
+    /**
+     * Self-hosted inference server with an OpenAI compatible API, such as vLLM, the llama.cpp
+     * server or Ollama. Its models are discovered from the server's {@code /models} endpoint.
+     */
+    @Data
+    public static class OpenAiCompatible {
+        private boolean enabled = true;
+
+        /**
+         * Provider ID of the endpoint, e.g. "vllm-lan"
+         */
+        private String id;
+
+        /**
+         * Base URL of the API including the version segment, e.g. "http://10.0.0.5:8000/v1"
+         */
+        private String baseUrl;
+
+        /**
+         * API key, for servers started with one
+         */
+        private String apiKey;
+
+        /**
+         * Maximum number of requests in flight to the server; further calls wait for a
+         * connection up to the pending acquire timeout of the HTTP configuration
+         */
+        private int maxConcurrentCalls = 8;
+
+        /**
+         * Model IDs served until the first successful model discovery
+         */
+        private List<String> models = new ArrayList<>();
+
+        /**
+         * Interval at which the served models are discovered again
+         */
+        private Duration modelRefreshInterval = Duration.ofMinutes(5);
+
+        /**
+         * Longest a model discovery request may take
+         */
+        private Duration discoveryTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Context length of models for which the server does not report one
+         */
+        private int defaultContextLength = 4096;
+
+        /**
+         * Completions one request may ask for with "n"; vLLM supports several, llama.cpp and
+         * Ollama return a single one
+         */
+        private int maxCompletionsPerRequest = 1;
+
+        private double inputCostPerMillionTokens = 0.0;
+        private double outputCostPerMillionTokens = 0.0;
+    }
+
+    /**
+     * Changes to the models the providers report: limits, prices, added or removed models and aliases
+     */
+    @Data
+    public static class CatalogConfig {
+        /**
+         * Location of a JSON catalog file (file: or classpath: URL) with "models" and "aliases"
+         * in the same form as below; its entries take precedence and it is reloaded when it changes
+         */
+        private String location;
+
+        /**
+         * Interval at which the catalog file is checked for changes; zero disables reloading
+         */
+        private Duration reloadInterval = Duration.ofSeconds(30);
+
+        private List<CatalogModel> models = new ArrayList<>();
+
+        /**
+         * Model IDs keyed by alternative IDs that requests may use instead
+         */
+        private Map<String, String> aliases = new HashMap<>();
+    }
+
+    /**
+     * Configured model of a provider; unset values keep those the provider reports
+     */
+    @Data
+    public static class CatalogModel {
+        private String provider;
+        private String model;
+        private String displayName;
+        private Integer contextLength;
+        private Double inputCostPerMillionTokens;
+        private Double outputCostPerMillionTokens;
+
+        /**
+         * Disabled models are removed from the provider
+         */
+        private boolean enabled = true;
+    }
+
+    /**
+     * HTTP client and connection pool of each provider
+     */
+    @Data
+    public static class HttpConfig {
+        /**
+         * Default maximum number of connections per provider
+         */
+        private int maxConnections = 50;
+
+        /**
+         * Maximum number of connections keyed by provider ID, overriding the default
+         */
+        private Map<String, Integer> providerMaxConnections = new HashMap<>();
+
+        /**
+         * Maximum number of requests waiting for a connection
+         */
+        private int pendingAcquireMaxCount = 500;
+
+        /**
+         * Longest a request waits for a connection
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Idle time after which a connection is closed, kept below the providers' own idle timeouts
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * Maximum lifetime of a connection, so DNS changes are eventually picked up
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        /**
+         * Interval of the background eviction of idle and expired connections
+         */
+        private Duration evictionInterval = Duration.ofSeconds(15);
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Negotiate HTTP/2 with HTTPS endpoints that support it
+         */
+        private boolean http2 = true;
+
+        /**
+         * Request gzip compressed responses
+         */
+        private boolean compression = true;
+
+        /**
+         * Connections opened to each provider at startup
+         */
+        private int warmupConnections = 2;
+    }
+
+    /**
+     * Tokenizer configuration
+     */
+    @Data
+    public static class TokenizerConfig {
+        /**
+         * Location of the cl100k_base vocabulary in tiktoken format (classpath: or file: URL)
+         */
+        private String cl100kVocabulary = "classpath:tokenizer/cl100k_base.tiktoken";
+
+        /**
+         * Location of the o200k_base vocabulary in tiktoken format (classpath: or file: URL)
+         */
+        private String o200kVocabulary = "classpath:tokenizer/o200k_base.tiktoken";
+
+        /**
+         * Ratio of Claude tokens to cl100k tokens for the same text
+         */
+        private double claudeCalibration = 1.1;
+
+        /**
+         * Maximum number of memoized prompt token counts
+         */
+        private long cacheMaxSize = 10_000;
+
+        /**
+         * Time after last access before a memoized prompt token count is evicted
+         */
+        private Duration cacheExpireAfterAccess = Duration.ofHours(1);
+    }
+
+    /**
+     * Per provider and model request/token rate limits
+     */
+    @Data
+    public static class RateLimitConfig {
+        private boolean enabled = true;
+
+        /**
+         * Default requests per minute for models without an explicit limit
+         */
+        private int requestsPerMinute = 500;
+
+        /**
+         * Default tokens per minute (prompt plus max output tokens) for models without an explicit limit
+         */
+        private int tokensPerMinute = 200_000;
+
+        /**
+         * Explicit limits keyed by "provider:model" or "provider"
+         */
+        private Map<String, ModelLimit> models = new HashMap<>();
+
+        /**
+         * Longest a call may wait for permits before failing with RATE_LIMIT
+         */
+        private Duration maxWait = Duration.ofSeconds(60);
+
+        /**
+         * Pause applied after a rate limit error that carries no retry-after hint
+         */
+        private Duration defaultRetryAfter = Duration.ofSeconds(5);
+
+        /**
+         * Factor applied to the current limits after a rate limit error
+         */
+        private double backoffFactor = 0.5;
+
+        /**
+         * Fraction of the ceiling regained by each successful call after a backoff
+         */
+        private double recoveryStep = 0.05;
+    }
+
+    /**
+     * Response cache for deterministic or explicitly cacheable requests
+     */
+    @Data
+    public static class ResponseCacheConfig {
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of responses held in the local in-memory tier
+         */
+        private long localMaxSize = 10_000;
+
+        /**
+         * Time after write before a response is evicted from the local tier; the Redis tier
+         * uses the TTL configured for the cache name
+         */
+        private Duration localTtl = Duration.ofHours(1);
+
+        /**
+         * Name of the Redis backed Spring cache used as the shared tier
+         */
+        private String cacheName = "llmResponses";
+    }
+
+    /**
+     * Single-flight coalescing of identical in-flight requests
+     */
+    @Data
+    public static class CoalescingConfig {
+        private boolean enabled = true;
+
+        /**
+         * Also coalesce requests that sample with a non-zero temperature; callers then share
+         * one sample instead of receiving independent ones
+         */
+        private boolean includeSampled = false;
+    }
+
+    /**
+     * Latency tracking, adaptive timeouts and hedged requests per provider model
+     */
+    @Data
+    public static class HedgingConfig {
+        private boolean enabled = true;
+
+        /**
+         * Send a hedged request for calls that do not say otherwise; hedging costs a second
+         * request for every slow call, so it is opt-in per request or job by default
+         */
+        private boolean hedgeByDefault = false;
+
+        /**
+         * Number of most recent latencies kept per provider model
+         */
+        private int windowSize = 200;
+
+        /**
+         * Samples required before timeouts adapt and hedging starts
+         */
+        private int minSamples = 20;
+
+        /**
+         * Latency percentile after which a hedged request is sent
+         */
+        private double hedgePercentile = 0.95;
+
+        /**
+         * Lower bound for the hedge delay, so fast models are not hedged on noise
+         */
+        private Duration minHedgeDelay = Duration.ofMillis(250);
+
+        /**
+         * Whether to shorten timeouts from the observed latencies
+         */
+        private boolean adaptiveTimeout = true;
+
+        /**
+         * Latency percentile the adaptive timeout is derived from
+         */
+        private double timeoutPercentile = 0.99;
+
+        /**
+         * Multiple of the timeout percentile allowed before a call times out
+         */
+        private double timeoutMultiplier = 3.0;
+
+        /**
+         * Lower bound for adaptive timeouts; the request timeout remains the upper bound
+         */
+        private Duration minTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Model a hedged request is sent to instead of the original, keyed by "provider:model"
+         */
+        private Map<String, String> equivalentModels = new HashMap<>();
+    }
+
+    /**
+     * Circuit breaker and bulkhead applied to each provider
+     */
+    @Data
+    public static class ResilienceConfig {
+        private boolean enabled = true;
+
+        /**
+         * Percentage of failed calls in the sliding window that opens the circuit
+         */
+        private float failureRateThreshold = 50;
+
+        /**
+         * Percentage of slow calls in the sliding window that opens the circuit
+         */
+        private float slowCallRateThreshold = 100;
+
+        /**
+         * Duration above which a call counts as slow
+         */
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(60);
+
+        /**
+         * Number of most recent calls the failure rate is computed over
+         */
+        private int slidingWindowSize = 20;
+
+        /**
+         * Calls required before the failure rate is evaluated
+         */
+        private int minimumNumberOfCalls = 10;
+
+        /**
+         * Time an open circuit rejects calls before letting trial calls through
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+
+        /**
+         * Trial calls allowed while the circuit is half open
+         */
+        private int permittedNumberOfCallsInHalfOpenState = 3;
+
+        /**
+         * Default maximum number of concurrent calls per provider
+         */
+        private int maxConcurrentCalls = 20;
+
+        /**
+         * Maximum number of concurrent calls keyed by provider ID, overriding the default
+         */
+        private Map<String, Integer> providerMaxConcurrentCalls = new HashMap<>();
+    }
+
+    /**
+     * Recording provider responses to cassette files and replaying them offline
+     */
+    @Data
+    public static class ReplayConfig {
+        /**
+         * OFF, RECORD responses of the real providers, or REPLAY recorded responses instead of
+         * calling the providers
+         */
+        private Mode mode = Mode.OFF;
+
+        /**
+         * Provider IDs to record or replay; empty means all providers
+         */
+        private List<String> providers = new ArrayList<>();
+
+        /**
+         * Directory holding one NDJSON cassette file per provider
+         */
+        private String cassetteDir = "cassettes";
+
+        /**
+         * Also replay from stored prompt executions when no cassette entry matches
+         */
+        private boolean useExecutions = true;
+
+        /**
+         * Wait for the recorded response time before answering; when false, answer at once
+         */
+        private boolean simulateLatency = true;
+
+        /**
+         * Maximum number of loaded cassettes and stored execution sets kept in memory
+         */
+        private long cacheMaxSize = 1_000;
+
+        /**
+         * Time after loading before a cassette or execution set is reloaded, so recordings
+         * and executions stored since then are replayed too
+         */
+        private Duration cacheExpireAfterWrite = Duration.ofMinutes(10);
+
+        public enum Mode {
+            OFF,
+            RECORD,
+            REPLAY
+        }
+    }
+
+    /**
+     * Asynchronous provider batch APIs (OpenAI Batch API, Anthropic Message Batches)
+     * used by batch execution jobs submitted in provider batch mode
+     */
+    @Data
+    public static class BatchConfig {
+        private boolean enabled = true;
+
+        /**
+         * Interval between status checks of submitted provider batches
+         */
+        private Duration pollInterval = Duration.ofMinutes(1);
+
+        /**
+         * Completion window requested from providers that take one
+         */
+        private String completionWindow = "24h";
+
+        /**
+         * Factor applied to the list price of batched requests
+         */
+        private double costMultiplier = 0.5;
+
+        /**
+         * Maximum number of requests in one provider batch
+         */
+        private int maxRequests = 50_000;
+
+        /**
+         * Timeout of a single batch API call (submission, status check, cancellation)
+         */
+        private Duration requestTimeout = Duration.ofMinutes(2);
+
+        /**
+         * Number of results stored per transaction when collecting a provider batch
+         */
+        private int collectChunkSize = 500;
+
+        /**
+         * How long a worker holds a job while checking or collecting its provider batch; the
+         * lease is renewed with every stored chunk and lets another worker take over on expiry
+         */
+        private Duration collectLease = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Provider-side caching of the system prompt and the static prefix of prompt versions
+     */
+    @Data
+    public static class PromptCacheConfig {
+        private boolean enabled = true;
+    }
+
+    /**
+     * Collection of several samples of the same prompt, e.g. for A/B tests
+     */
+    @Data
+    public static class SamplingConfig {
+        /**
+         * Ask for several completions per call where the provider supports it, instead of one call per sample
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum concurrent calls of one sampling run, used when the provider returns a single completion per call
+         */
+        private int maxConcurrentCalls = 8;
+    }
+
+    /**
+     * Shared execution pipeline of interactive batch tests
+     */
+    @Data
+    public static class PipelineConfig {
+        /**
+         * Maximum batch items executing at once across all interactive batches
+         */
+        private int maxConcurrent = 64;
+
+        /**
+         * Maximum batch items of one batch executing at once, whatever the batch asks for
+         */
+        private int maxConcurrentPerBatch = 16;
+    }
+
+    /**
+     * Choice of provider and model for requests sent to the "auto" provider
+     */
+    @Data
+    public static class RoutingConfig {
+        private boolean enabled = true;
+
+        /**
+         * Routes considered when neither the request nor its policy names any, as "provider:model";
+         * empty considers every model of every provider
+         */
+        private List<String> candidates = new ArrayList<>();
+
+        /**
+         * Number of most recent calls kept per provider model for latency and error rate
+         */
+        private int windowSize = 100;
+
+        /**
+         * Calls required before a route's latency and error rate are trusted
+         */
+        private int minSamples = 10;
+
+        /**
+         * Error rate above which a route is degraded and only used as a fallback
+         */
+        private double maxErrorRate = 0.2;
+
+        /**
+         * Share of the rate limit budget below which a route is degraded and only used as a fallback
+         */
+        private double minRateLimitHeadroom = 0.05;
+
+        /**
+         * Maximum routes tried for one call before its error is returned
+         */
+        private int maxAttempts = 3;
+    }
+
+    /**
+     * Micrometer metrics of provider calls
+     */
+    @Data
+    public static class MetricsConfig {
+        private boolean enabled = true;
+
+        /**
+         * Percentiles published for latencies and token counts; empty publishes histograms only
+         */
+        private List<Double> percentiles = new ArrayList<>(List.of(0.5, 0.95, 0.99));
+    }
+
+    /**
+     * Rate limits of a single provider or model
+     */
+    @Data
+    public static class ModelLimit {
+        private Integer requestsPerMinute;
+        private Integer tokensPerMinute;
+    }
+}
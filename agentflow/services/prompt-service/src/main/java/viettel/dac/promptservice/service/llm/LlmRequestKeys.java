@@ -0,0 +1,42 @@
+package viettel.dac.promptservice.service.llm;
+
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.util.HashUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Helpers for identifying LLM requests that are guaranteed to produce the same response
+ */
+public final class LlmRequestKeys {
+
+    private LlmRequestKeys() {
+    }
+
+    /**
+     * Hash everything that determines the response of a request
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @return Hex encoded hash of provider, model, prompts and sampling parameters
+     */
+    public static String fingerprint(String providerId, LlmRequest request) {
+        Map<String, Object> extraParams = request.getExtraParams() != null
+                ? new TreeMap<>(request.getExtraParams())
+                : null;
+        return HashUtils.sha256Hex(providerId, request.getModelId(), request.getSystemPrompt(), request.getPrompt(),
+                request.getMaxTokens(), request.getTemperature(), request.getTopP(), request.getN(), extraParams);
+    }
+
+    /**
+     * Check whether identical requests may share one response: sampling is deterministic
+     * (temperature 0) or the caller explicitly allowed it
+     *
+     * @param request The LLM request
+     * @return true if the response may be reused
+     */
+    public static boolean isReproducible(LlmRequest request) {
+        return request.isCacheable() || (request.getTemperature() != null && request.getTemperature() == 0.0);
+    }
+}
@@ -0,0 +1,92 @@
+package viettel.dac.promptservice.service.llm;
+
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for collecting several samples of the same prompt with as few provider calls as possible
+ */
+public final class LlmSampling {
+
+    private LlmSampling() {
+    }
+
+    /**
+     * Plan the provider calls needed for a number of samples. Providers that return several
+     * completions per call get requests with n set, up to their limit; others get one request
+     * per sample, to be executed concurrently.
+     *
+     * @param provider The provider the calls are sent to
+     * @param request The request to sample
+     * @param samples The number of samples wanted
+     * @return The requests to execute, whose completions add up to the samples
+     */
+    public static List<LlmRequest> plan(LlmProvider provider, LlmRequest request, int samples) {
+        int perCall = Math.max(1, provider.getMaxCompletionsPerRequest(request.getModelId()));
+        List<LlmRequest> calls = new ArrayList<>();
+        for (int remaining = samples; remaining > 0; remaining -= perCall) {
+            int n = Math.min(perCall, remaining);
+            calls.add(request.toBuilder().n(n > 1 ? n : null).build());
+        }
+        return calls;
+    }
+
+    /**
+     * Split a response with alternatives into one response per completion. The usage and cost
+     * of the call are divided evenly between the completions, so they still add up to the call.
+     *
+     * @param response The response of a call that may have asked for several completions
+     * @return One response per completion, the primary text first
+     */
+    public static List<LlmResponse> split(LlmResponse response) {
+        if (response.getAlternatives() == null || response.getAlternatives().isEmpty()) {
+            return List.of(response);
+        }
+
+        List<String> texts = new ArrayList<>();
+        texts.add(response.getText());
+        texts.addAll(response.getAlternatives());
+        int count = texts.size();
+
+        List<LlmResponse> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = response.getMetadata() != null
+                    ? new HashMap<>(response.getMetadata())
+                    : new HashMap<>();
+            metadata.put("sample_index", i);
+            metadata.put("sample_count", count);
+
+            Integer inputTokens = share(response.getInputTokenCount(), i, count);
+            Integer outputTokens = share(response.getOutputTokenCount(), i, count);
+            samples.add(response.toBuilder()
+                    .text(texts.get(i))
+                    .alternatives(new ArrayList<>())
+                    .inputTokenCount(inputTokens)
+                    .outputTokenCount(outputTokens)
+                    .cacheReadTokenCount(share(response.getCacheReadTokenCount(), i, count))
+                    .cacheWriteTokenCount(share(response.getCacheWriteTokenCount(), i, count))
+                    .totalTokenCount(inputTokens != null && outputTokens != null
+                            ? inputTokens + outputTokens
+                            : share(response.getTotalTokenCount(), i, count))
+                    .cost(response.getCost() != null ? response.getCost() / count : null)
+                    .metadata(metadata)
+                    .build());
+        }
+        return samples;
+    }
+
+    /**
+     * Share of a total for one of count parts, with the remainder going to the first parts
+     */
+    private static Integer share(Integer total, int index, int count) {
+        if (total == null) {
+            return null;
+        }
+        return total / count + (index < total % count ? 1 : 0);
+    }
+}
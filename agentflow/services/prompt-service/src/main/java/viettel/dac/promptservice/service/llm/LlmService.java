@@ -3,6 +3,8 @@ package viettel.dac.promptservice.service.llm;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
 import viettel.dac.promptservice.exception.LlmProviderException;
@@ -10,6 +12,7 @@ import viettel.dac.promptservice.model.entity.PromptExecution;
 import viettel.dac.promptservice.model.entity.PromptVersion;
 import viettel.dac.promptservice.model.enums.ExecutionStatus;
 import viettel.dac.promptservice.repository.jpa.PromptExecutionRepository;
+import viettel.dac.promptservice.util.HashUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -44,53 +47,21 @@ public class LlmService {
         log.debug("Executing prompt version {} with provider {}, model {}",
                 promptVersion.getId(), providerId, modelId);
 
-        LocalDateTime startTime = LocalDateTime.now();
-        PromptExecution execution = PromptExecution.builder()
-                .version(promptVersion)
-                .providerId(providerId)
-                .modelId(modelId)
-                .inputParameters(parameters)
-                .executedAt(startTime)
-                .status(ExecutionStatus.SUCCESS) // Will be updated if there's an error
-                .build();
+        PromptExecution execution = createExecution(promptVersion, providerId, modelId, parameters);
 
         try {
-            // Apply parameters to the prompt template
-            String promptText = promptVersion.applyParameters(parameters);
-
-            // Get the provider
-            LlmProvider provider = providerFactory.getProvider(providerId)
-                    .orElseThrow(() -> new LlmProviderException(
-                            "Provider not found: " + providerId,
-                            providerId, modelId, LlmProviderException.ErrorType.INVALID_REQUEST));
-
-            // Build the request with system prompt from version
-            LlmRequest request = LlmRequest.builder()
-                    .providerId(providerId)
-                    .modelId(modelId)
-                    .prompt(promptText)
-                    .systemPrompt(promptVersion.getSystemPrompt())
-                    .maxTokens(providerProperties.getDefaultMaxTokens())
-                    .temperature(providerProperties.getDefaultTemperature())
-                    .timeoutMs(providerProperties.getDefaultTimeoutMs())
-                    .build();
+            // Get the provider and build the request
+            LlmProvider provider = getProviderOrThrow(providerId, modelId);
+            LlmRequest request = buildRequest(promptVersion, providerId, modelId, parameters);
 
             // Execute the prompt
             LlmResponse response = provider.executePrompt(request);
 
             // Update the execution with the results
-            execution.setRawResponse(response.getText());
-            execution.setInputTokens(response.getInputTokenCount());
-            execution.setOutputTokens(response.getOutputTokenCount());
-            execution.setTokenCount(response.getTotalTokenCount());
-            execution.setResponseTimeMs(response.getResponseTimeMs());
-            execution.setCost(BigDecimal.valueOf(response.getCost()));
-            execution.setStatus(ExecutionStatus.SUCCESS);
+            applyResponse(execution, response);
 
         } catch (LlmProviderException e) {
-            log.error("Error executing prompt: {}", e.getMessage());
-            execution.setRawResponse("Error: " + e.getMessage());
-            execution.setStatus(mapToExecutionStatus(e.getErrorType()));
+            applyError(execution, e);
         }
 
         // Save and return the execution record
@@ -110,8 +81,37 @@ public class LlmService {
                                                                  String providerId,
                                                                  String modelId,
                                                                  Map<String, Object> parameters) {
-        return CompletableFuture.supplyAsync(() ->
-                executePrompt(promptVersion, providerId, modelId, parameters));
+        return executePromptReactive(promptVersion, providerId, modelId, parameters).toFuture();
+    }
+
+    /**
+     * Execute a prompt without parking a thread while the provider call is in flight.
+     * Only saving the execution record runs on a blocking-capable scheduler.
+     *
+     * @param promptVersion The prompt version to execute
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param parameters The parameters to apply to the prompt
+     * @return Mono with the saved execution
+     */
+    public Mono<PromptExecution> executePromptReactive(PromptVersion promptVersion,
+                                                       String providerId,
+                                                       String modelId,
+                                                       Map<String, Object> parameters) {
+        PromptExecution execution = createExecution(promptVersion, providerId, modelId, parameters);
+
+        return Mono.defer(() -> getProviderOrThrow(providerId, modelId)
+                        .executePromptReactive(buildRequest(promptVersion, providerId, modelId, parameters)))
+                .map(response -> {
+                    applyResponse(execution, response);
+                    return execution;
+                })
+                .onErrorResume(LlmProviderException.class, e -> {
+                    applyError(execution, e);
+                    return Mono.just(execution);
+                })
+                .publishOn(Schedulers.boundedElastic())
+                .map(executionRepository::save);
     }
 
     /**
@@ -149,6 +149,77 @@ public class LlmService {
         return providerFactory.hasProvider(providerId);
     }
 
+    /**
+     * Create a new execution record for a prompt run
+     */
+    private PromptExecution createExecution(PromptVersion promptVersion, String providerId,
+                                            String modelId, Map<String, Object> parameters) {
+        return PromptExecution.builder()
+                .version(promptVersion)
+                .providerId(providerId)
+                .modelId(modelId)
+                .inputParameters(parameters)
+                .executedAt(LocalDateTime.now())
+                .status(ExecutionStatus.SUCCESS) // Will be updated if there's an error
+                .build();
+    }
+
+    /**
+     * Get a provider by ID or fail with an invalid request error
+     */
+    private LlmProvider getProviderOrThrow(String providerId, String modelId) {
+        return providerFactory.getProvider(providerId)
+                .orElseThrow(() -> new LlmProviderException(
+                        "Provider not found: " + providerId,
+                        providerId, modelId, LlmProviderException.ErrorType.INVALID_REQUEST));
+    }
+
+    /**
+     * Build the request with system prompt from version and parameters applied to the template
+     */
+    private LlmRequest buildRequest(PromptVersion promptVersion, String providerId,
+                                    String modelId, Map<String, Object> parameters) {
+        String prompt = promptVersion.applyParameters(parameters);
+        return LlmRequest.builder()
+                .providerId(providerId)
+                .modelId(modelId)
+                .prompt(prompt)
+                .systemPrompt(promptVersion.getSystemPrompt())
+                .maxTokens(providerProperties.getDefaultMaxTokens())
+                .temperature(providerProperties.getDefaultTemperature())
+                .timeoutMs(providerProperties.getDefaultTimeoutMs())
+                .versionId(promptVersion.getId())
+                .parametersHash(HashUtils.parametersHash(parameters))
+                .promptPrefixLength(providerProperties.getPromptCache().isEnabled()
+                        ? promptVersion.getStaticPrefixLength(prompt)
+                        : null)
+                .build();
+    }
+
+    /**
+     * Copy response text, token usage and cost onto the execution record
+     */
+    private void applyResponse(PromptExecution execution, LlmResponse response) {
+        execution.setRawResponse(response.getText());
+        execution.setInputTokens(response.getInputTokenCount());
+        execution.setOutputTokens(response.getOutputTokenCount());
+        execution.setCacheReadTokens(response.getCacheReadTokenCount());
+        execution.setCacheWriteTokens(response.getCacheWriteTokenCount());
+        execution.setTokenCount(response.getTotalTokenCount());
+        execution.setResponseTimeMs(response.getResponseTimeMs());
+        execution.setCost(BigDecimal.valueOf(response.getCost()));
+        execution.setStatus(ExecutionStatus.SUCCESS);
+    }
+
+    /**
+     * Record a provider failure on the execution record
+     */
+    private void applyError(PromptExecution execution, LlmProviderException e) {
+        log.error("Error executing prompt: {}", e.getMessage());
+        execution.setRawResponse("Error: " + e.getMessage());
+        execution.setStatus(mapToExecutionStatus(e.getErrorType()));
+    }
+
     /**
      * Map LlmProviderException error type to ExecutionStatus
      */
@@ -0,0 +1,60 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of a batch submitted to a provider batch API
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmBatch {
+
+    /**
+     * Batch ID assigned by the provider
+     */
+    private String id;
+
+    /**
+     * The provider ID
+     */
+    private String providerId;
+
+    private LlmBatchStatus status;
+
+    /**
+     * Number of requests in the batch
+     */
+    private int requestCount;
+
+    /**
+     * Number of requests that completed successfully so far
+     */
+    private int succeededCount;
+
+    /**
+     * Number of requests that failed, expired or were cancelled so far
+     */
+    private int failedCount;
+
+    /**
+     * Provider reference to the successful results, such as a file ID or results URL
+     */
+    private String outputLocation;
+
+    /**
+     * Provider reference to the failed results, if the provider keeps them apart
+     */
+    private String errorLocation;
+
+    /**
+     * When the provider accepted the batch
+     */
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,56 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Client for a provider's asynchronous batch API. Requests are submitted together, processed
+ * by the provider within its completion window at a reduced price, and their results fetched
+ * once the batch has ended.
+ */
+public interface LlmBatchClient {
+
+    /**
+     * Get the provider ID this client submits to
+     *
+     * @return Provider ID string
+     */
+    String getProviderId();
+
+    /**
+     * Submit requests as one provider batch
+     *
+     * @param items Requests with their custom IDs
+     * @return The accepted batch
+     */
+    Mono<LlmBatch> submit(List<LlmBatchItem> items);
+
+    /**
+     * Fetch the current state of a batch
+     *
+     * @param batchId Batch ID assigned by the provider
+     * @return The batch state
+     */
+    Mono<LlmBatch> getBatch(String batchId);
+
+    /**
+     * Stream the results of an ended batch as the provider returns them, one per request
+     *
+     * @param batch The ended batch
+     * @param requests Original request of a custom ID, used for token accounting and pricing
+     * @return Results in provider order
+     */
+    Flux<LlmBatchResult> streamResults(LlmBatch batch, Function<String, LlmRequest> requests);
+
+    /**
+     * Ask the provider to stop processing a batch
+     *
+     * @param batchId Batch ID assigned by the provider
+     * @return The batch state after the cancellation request
+     */
+    Mono<LlmBatch> cancel(String batchId);
+}
@@ -0,0 +1,20 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+
+/**
+ * One request of a provider batch, with the ID its result is reported under
+ */
+@Data
+@AllArgsConstructor
+public class LlmBatchItem {
+
+    /**
+     * Caller-assigned ID, unique within the batch
+     */
+    private String customId;
+
+    private LlmRequest request;
+}
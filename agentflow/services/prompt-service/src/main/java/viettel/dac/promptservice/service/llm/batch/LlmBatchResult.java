@@ -0,0 +1,47 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+
+/**
+ * Result of one request of a provider batch: a response or the error it failed with
+ */
+@Data
+@AllArgsConstructor
+public class LlmBatchResult {
+
+    private String customId;
+    private LlmResponse response;
+    private LlmProviderException error;
+
+    public static LlmBatchResult success(String customId, LlmResponse response) {
+        return new LlmBatchResult(customId, response, null);
+    }
+
+    public static LlmBatchResult failure(String customId, LlmProviderException error) {
+        return new LlmBatchResult(customId, null, error);
+    }
+
+    public boolean isSuccessful() {
+        return response != null;
+    }
+
+    /**
+     * Map the HTTP status a provider reported for a single batched request to an error type
+     *
+     * @param statusCode HTTP status code
+     * @return The error type
+     */
+    public static LlmProviderException.ErrorType errorType(int statusCode) {
+        return switch (statusCode) {
+            case 400, 404, 413, 422 -> LlmProviderException.ErrorType.INVALID_REQUEST;
+            case 401, 403 -> LlmProviderException.ErrorType.AUTHENTICATION;
+            case 429 -> LlmProviderException.ErrorType.RATE_LIMIT;
+            case 500, 502, 503, 529 -> LlmProviderException.ErrorType.SERVICE_UNAVAILABLE;
+            case 504 -> LlmProviderException.ErrorType.TIMEOUT;
+            default -> LlmProviderException.ErrorType.UNKNOWN;
+        };
+    }
+}
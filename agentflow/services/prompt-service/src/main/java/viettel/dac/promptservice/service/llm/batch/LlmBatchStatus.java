@@ -0,0 +1,38 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+/**
+ * Processing state of a provider-side batch
+ */
+public enum LlmBatchStatus {
+    /**
+     * The provider is validating or processing the batch
+     */
+    IN_PROGRESS,
+
+    /**
+     * The batch ended and its results are available
+     */
+    COMPLETED,
+
+    /**
+     * The batch was rejected or failed as a whole
+     */
+    FAILED,
+
+    /**
+     * The completion window passed; results of processed requests are available
+     */
+    EXPIRED,
+
+    /**
+     * The batch was cancelled; results of processed requests are available
+     */
+    CANCELLED;
+
+    /**
+     * Whether the provider has stopped processing the batch
+     */
+    public boolean isEnded() {
+        return this != IN_PROGRESS;
+    }
+}
@@ -0,0 +1,92 @@
+package viettel.dac.promptservice.service.llm.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider decorator that serves cacheable requests from {@link LlmResponseCache} and stores
+ * successful responses to them. Non-cacheable requests pass straight through.
+ */
+public class CachingLlmProvider extends DelegatingLlmProvider {
+
+    private final LlmResponseCache cache;
+
+    public CachingLlmProvider(LlmProvider delegate, LlmResponseCache cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        if (!cache.isCacheable(request)) {
+            return delegate.executePrompt(request);
+        }
+
+        String key = cache.key(getProviderId(), request);
+        Optional<LlmResponse> cached = cache.get(key, request);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        LlmResponse response = delegate.executePrompt(request);
+        cache.put(key, response);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        if (!cache.isCacheable(request)) {
+            return delegate.executePromptAsync(request);
+        }
+
+        String key = cache.key(getProviderId(), request);
+        return cache.getReactive(key, request)
+                .switchIfEmpty(Mono.fromFuture(() -> delegate.executePromptAsync(request))
+                        .doOnNext(response -> cache.putAsync(key, response)))
+                .toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            if (!cache.isCacheable(request)) {
+                return delegate.executePromptReactive(request);
+            }
+
+            String key = cache.key(getProviderId(), request);
+            return cache.getReactive(key, request)
+                    .switchIfEmpty(Mono.defer(() -> delegate.executePromptReactive(request))
+                            .doOnNext(response -> cache.putAsync(key, response)));
+        });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            if (!cache.isCacheable(request)) {
+                return delegate.executePromptStream(request);
+            }
+
+            String key = cache.key(getProviderId(), request);
+            return cache.getReactive(key, request)
+                    .map(response -> Flux.just(LlmStreamChunk.delta(response.getText()),
+                            LlmStreamChunk.completed(response)))
+                    .defaultIfEmpty(Flux.defer(() -> delegate.executePromptStream(request))
+                            .doOnNext(chunk -> {
+                                if (chunk.isLast()) {
+                                    cache.putAsync(key, chunk.getResponse());
+                                }
+                            }))
+                    .flatMapMany(chunks -> chunks);
+        });
+    }
+}
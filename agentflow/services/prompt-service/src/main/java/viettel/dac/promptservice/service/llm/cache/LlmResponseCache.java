@@ -0,0 +1,263 @@
+package viettel.dac.promptservice.service.llm.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.LlmRequestKeys;
+import viettel.dac.promptservice.service.llm.ratelimit.RateLimitStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Two-tier cache of LLM responses for requests whose output is reproducible.
+ * <p>
+ * A request is cacheable when it samples deterministically (temperature 0) or is explicitly
+ * flagged {@link LlmRequest#isCacheable()}. Entries are keyed by a hash of the provider, model,
+ * system prompt, rendered prompt and sampling parameters. Lookups go to a size-bounded local
+ * Caffeine tier first and then to the Redis backed Spring cache, when Redis is configured.
+ */
+@Component
+@Slf4j
+public class LlmResponseCache implements LlmProviderDecorator {
+
+    public static final String CACHE_HIT_METADATA_KEY = "cache_hit";
+
+    private static final String TIER_LOCAL = "local";
+    private static final String TIER_REMOTE = "redis";
+
+    private final LlmProviderProperties.ResponseCacheConfig config;
+    private final MeterRegistry meterRegistry;
+    private final org.springframework.cache.Cache remote;
+    private final Cache<String, LlmResponse> local;
+
+    @Autowired
+    public LlmResponseCache(LlmProviderProperties properties, MeterRegistry meterRegistry,
+                            ObjectProvider<CacheManager> cacheManager) {
+        this(properties, meterRegistry, cacheManager.getIfUnique());
+    }
+
+    LlmResponseCache(LlmProviderProperties properties, MeterRegistry meterRegistry, CacheManager cacheManager) {
+        this.config = properties.getResponseCache();
+        this.meterRegistry = meterRegistry;
+        this.remote = cacheManager != null ? cacheManager.getCache(config.getCacheName()) : null;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(config.getLocalMaxSize())
+                .expireAfterWrite(config.getLocalTtl())
+                .build();
+
+        if (remote == null) {
+            log.info("No shared cache manager available, LLM responses are cached locally only");
+        }
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return config.isEnabled() ? new CachingLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return RESPONSE_CACHE_ORDER;
+    }
+
+    /**
+     * Check whether a response to the request may be cached
+     *
+     * @param request The LLM request
+     * @return true for deterministic or explicitly cacheable requests
+     */
+    public boolean isCacheable(LlmRequest request) {
+        return LlmRequestKeys.isReproducible(request);
+    }
+
+    /**
+     * Build the cache key of a request
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @return Hex encoded hash of everything that determines the response
+     */
+    public String key(String providerId, LlmRequest request) {
+        return LlmRequestKeys.fingerprint(providerId, request);
+    }
+
+    /**
+     * Look up a cached response, checking the local tier before Redis. Blocks on Redis.
+     *
+     * @param key The cache key
+     * @param request The request being served
+     * @return Response rebound to the request, or empty on a miss
+     */
+    public Optional<LlmResponse> get(String key, LlmRequest request) {
+        LlmResponse cached = local.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(hit(cached, request, TIER_LOCAL));
+        }
+
+        cached = getRemote(key);
+        if (cached != null) {
+            local.put(key, cached);
+            return Optional.of(hit(cached, request, TIER_REMOTE));
+        }
+
+        recordMiss(request);
+        return Optional.empty();
+    }
+
+    /**
+     * Look up a cached response without blocking the caller; the Redis lookup runs on the
+     * bounded elastic scheduler
+     *
+     * @param key The cache key
+     * @param request The request being served
+     * @return Mono of the response rebound to the request, empty on a miss
+     */
+    public Mono<LlmResponse> getReactive(String key, LlmRequest request) {
+        LlmResponse cached = local.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(hit(cached, request, TIER_LOCAL));
+        }
+        if (remote == null) {
+            recordMiss(request);
+            return Mono.empty();
+        }
+
+        return Mono.fromCallable(() -> Optional.ofNullable(getRemote(key)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(found -> {
+                    if (found.isEmpty()) {
+                        recordMiss(request);
+                        return Mono.empty();
+                    }
+                    local.put(key, found.get());
+                    return Mono.just(hit(found.get(), request, TIER_REMOTE));
+                });
+    }
+
+    /**
+     * Store a successful response in both tiers
+     *
+     * @param key The cache key
+     * @param response The provider response
+     */
+    public void put(String key, LlmResponse response) {
+        if (response == null || !response.isSuccessful()) {
+            return;
+        }
+
+        // The request is rebound on every hit, so it is not worth storing
+        Map<String, Object> metadata = copy(response.getMetadata());
+        // Rate limit state describes the moment of the original call, not the cached answer
+        metadata.remove(RateLimitStatus.METADATA_KEY);
+        LlmResponse entry = response.toBuilder()
+                .request(null)
+                .metadata(metadata)
+                .build();
+        local.put(key, entry);
+
+        if (remote != null) {
+            try {
+                remote.put(key, entry);
+            } catch (RuntimeException e) {
+                log.warn("Failed to store LLM response in shared cache: {}", e.getMessage());
+                meterRegistry.counter("llm.cache.errors", "operation", "put").increment();
+            }
+        }
+    }
+
+    /**
+     * Store a successful response without blocking the caller
+     *
+     * @param key The cache key
+     * @param response The provider response
+     */
+    public void putAsync(String key, LlmResponse response) {
+        if (remote == null) {
+            put(key, response);
+            return;
+        }
+        Mono.fromRunnable(() -> put(key, response))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+    }
+
+    private LlmResponse getRemote(String key) {
+        if (remote == null) {
+            return null;
+        }
+        try {
+            return remote.get(key, LlmResponse.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read LLM response from shared cache: {}", e.getMessage());
+            meterRegistry.counter("llm.cache.errors", "operation", "get").increment();
+            return null;
+        }
+    }
+
+    /**
+     * Copy a cached response for the current request and record what the hit saved
+     */
+    private LlmResponse hit(LlmResponse cached, LlmRequest request, String tier) {
+        String provider = String.valueOf(request.getProviderId());
+        String model = String.valueOf(request.getModelId());
+
+        meterRegistry.counter("llm.cache.requests", "result", "hit", "tier", tier,
+                "provider", provider, "model", model).increment();
+        if (cached.getTotalTokenCount() != null) {
+            meterRegistry.counter("llm.cache.saved.tokens", "provider", provider, "model", model)
+                    .increment(cached.getTotalTokenCount());
+        }
+        if (cached.getCost() != null) {
+            meterRegistry.counter("llm.cache.saved.cost", "provider", provider, "model", model)
+                    .increment(cached.getCost());
+        }
+        if (cached.getResponseTimeMs() != null) {
+            meterRegistry.counter("llm.cache.saved.time.ms", "provider", provider, "model", model)
+                    .increment(cached.getResponseTimeMs());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> metadata = copy(cached.getMetadata());
+        metadata.put(CACHE_HIT_METADATA_KEY, true);
+        metadata.put("cached_cost", cached.getCost());
+        metadata.put("cached_response_time_ms", cached.getResponseTimeMs());
+
+        return cached.toBuilder()
+                .request(request)
+                .alternatives(cached.getAlternatives() != null
+                        ? new ArrayList<>(cached.getAlternatives())
+                        : new ArrayList<>())
+                .startTime(now)
+                .completionTime(now)
+                .responseTimeMs(0L)
+                .cost(0.0)
+                .metadata(metadata)
+                .build();
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> metadata) {
+        return metadata != null ? new HashMap<>(metadata) : new HashMap<>();
+    }
+
+    private void recordMiss(LlmRequest request) {
+        meterRegistry.counter("llm.cache.requests", "result", "miss", "tier", "all",
+                "provider", String.valueOf(request.getProviderId()),
+                "model", String.valueOf(request.getModelId())).increment();
+    }
+}
@@ -0,0 +1,172 @@
+package viettel.dac.promptservice.service.llm.catalog;
+
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the models of all providers, with their limits, prices and aliases,
+ * and an index of the provider serving each model.
+ * <p>
+ * A snapshot is never changed after it is built; configuration changes build a new one that
+ * replaces it as a whole, so readers need no locks and never see a half applied change.
+ */
+public final class ModelCatalog {
+
+    /**
+     * Context length of models added by configuration without one
+     */
+    public static final int DEFAULT_CONTEXT_LENGTH = 4096;
+
+    public static final ModelCatalog EMPTY = new ModelCatalog(0, Map.of(), Map.of(), Map.of(), Map.of());
+
+    private final long version;
+    private final Map<String, ModelSpec> specs;
+    private final Map<String, Map<String, String>> models;
+    private final Map<String, String> aliases;
+    private final Map<String, String> providerIndex;
+
+    private ModelCatalog(long version, Map<String, ModelSpec> specs, Map<String, Map<String, String>> models,
+                         Map<String, String> aliases, Map<String, String> providerIndex) {
+        this.version = version;
+        this.specs = specs;
+        this.models = models;
+        this.aliases = aliases;
+        this.providerIndex = providerIndex;
+    }
+
+    /**
+     * Build a catalog of one provider's models, for providers used without a registry
+     *
+     * @param providerId The provider ID
+     * @param models The provider's models
+     * @return The catalog
+     */
+    public static ModelCatalog of(String providerId, List<ModelSpec> models) {
+        return build(0, Map.of(providerId, models), List.of(), Map.of());
+    }
+
+    /**
+     * Build a catalog from the models providers report and the configured changes to them
+     *
+     * @param version Version of the snapshot
+     * @param providerModels Models reported by each provider, in provider registration order
+     * @param overrides Configured models; they replace the limits and prices that are set, add
+     *                  models the provider does not report, or remove models when disabled
+     * @param aliases Alternative model IDs keyed by alias
+     * @return The catalog
+     */
+    public static ModelCatalog build(long version, Map<String, List<ModelSpec>> providerModels,
+                                     List<LlmProviderProperties.CatalogModel> overrides,
+                                     Map<String, String> aliases) {
+        Map<String, ModelSpec> specs = new LinkedHashMap<>();
+        providerModels.values().forEach(list -> list.forEach(spec -> specs.put(spec.key(), spec)));
+
+        for (LlmProviderProperties.CatalogModel override : overrides) {
+            if (override.getProvider() == null || override.getModel() == null) {
+                continue;
+            }
+            String key = key(override.getProvider(), override.getModel());
+            if (!override.isEnabled()) {
+                specs.remove(key);
+                continue;
+            }
+            ModelSpec base = specs.get(key);
+            ModelSpec.ModelSpecBuilder spec = base != null
+                    ? base.toBuilder()
+                    : ModelSpec.builder()
+                            .providerId(override.getProvider())
+                            .modelId(override.getModel())
+                            .displayName(override.getModel())
+                            .contextLength(DEFAULT_CONTEXT_LENGTH);
+            if (override.getDisplayName() != null) {
+                spec.displayName(override.getDisplayName());
+            }
+            if (override.getContextLength() != null) {
+                spec.contextLength(override.getContextLength());
+            }
+            if (override.getInputCostPerMillionTokens() != null) {
+                spec.inputCostPerMillionTokens(override.getInputCostPerMillionTokens());
+            }
+            if (override.getOutputCostPerMillionTokens() != null) {
+                spec.outputCostPerMillionTokens(override.getOutputCostPerMillionTokens());
+            }
+            specs.put(key, spec.build());
+        }
+
+        // Providers registered first win the index for models that several providers serve
+        Map<String, Map<String, String>> models = new HashMap<>();
+        Map<String, String> providerIndex = new HashMap<>();
+        for (ModelSpec spec : specs.values()) {
+            models.computeIfAbsent(spec.getProviderId(), id -> new LinkedHashMap<>())
+                    .put(spec.getModelId(), spec.getDisplayName());
+            providerIndex.putIfAbsent(spec.getModelId(), spec.getProviderId());
+        }
+        models.replaceAll((providerId, names) -> Collections.unmodifiableMap(names));
+
+        Map<String, String> resolvedAliases = new HashMap<>();
+        aliases.forEach((alias, modelId) -> {
+            String providerId = providerIndex.get(modelId);
+            if (providerId != null && !providerIndex.containsKey(alias)) {
+                resolvedAliases.put(alias, modelId);
+            }
+        });
+        resolvedAliases.forEach((alias, modelId) -> providerIndex.put(alias, providerIndex.get(modelId)));
+
+        return new ModelCatalog(version, Collections.unmodifiableMap(specs), Collections.unmodifiableMap(models),
+                Collections.unmodifiableMap(resolvedAliases), Collections.unmodifiableMap(providerIndex));
+    }
+
+    static String key(String providerId, String modelId) {
+        return providerId + ":" + modelId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Resolve an alias to the model it stands for
+     *
+     * @param modelId A model ID or alias
+     * @return The model ID
+     */
+    public String resolve(String modelId) {
+        return aliases.getOrDefault(modelId, modelId);
+    }
+
+    /**
+     * Look up a model of a provider
+     *
+     * @param providerId The provider ID
+     * @param modelId A model ID or alias
+     * @return The model, or null if the provider does not serve it
+     */
+    public ModelSpec find(String providerId, String modelId) {
+        return modelId != null ? specs.get(key(providerId, resolve(modelId))) : null;
+    }
+
+    /**
+     * Models of a provider
+     *
+     * @param providerId The provider ID
+     * @return Unmodifiable map of display names keyed by model ID
+     */
+    public Map<String, String> models(String providerId) {
+        return models.getOrDefault(providerId, Map.of());
+    }
+
+    /**
+     * Provider serving a model
+     *
+     * @param modelId A model ID or alias
+     * @return The provider ID, or null if no provider serves the model
+     */
+    public String providerFor(String modelId) {
+        return modelId != null ? providerIndex.get(modelId) : null;
+    }
+}
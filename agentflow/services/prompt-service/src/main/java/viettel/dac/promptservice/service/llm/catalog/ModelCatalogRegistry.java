@@ -0,0 +1,153 @@
+package viettel.dac.promptservice.service.llm.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ModelCatalog} and replaces it atomically when the models change.
+ * <p>
+ * A catalog is built from the models each provider reports, the models and aliases configured
+ * under {@code llm.catalog}, and those of the optional catalog file. The file is checked for
+ * changes every reload interval, so models, limits and prices can change without a restart.
+ */
+@Component
+@Slf4j
+public class ModelCatalogRegistry {
+
+    private final LlmProviderProperties.CatalogConfig config;
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private final AtomicReference<ModelCatalog> current = new AtomicReference<>(ModelCatalog.EMPTY);
+    private final Map<String, List<ModelSpec>> providerModels = new LinkedHashMap<>();
+    private CatalogFile file = new CatalogFile();
+    private long fileLastModified = -1;
+    private Disposable reloading;
+
+    public ModelCatalogRegistry(LlmProviderProperties properties, ObjectMapper objectMapper) {
+        this.config = properties.getCatalog();
+        this.objectMapper = objectMapper;
+        rebuild();
+    }
+
+    /**
+     * Load the catalog file and check it for changes in the background
+     */
+    @PostConstruct
+    public void start() {
+        if (config.getLocation() == null) {
+            return;
+        }
+        reload();
+        if (!config.getReloadInterval().isZero()) {
+            reloading = Flux.interval(config.getReloadInterval(), config.getReloadInterval(),
+                            Schedulers.boundedElastic())
+                    .subscribe(tick -> reload());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reloading != null) {
+            reloading.dispose();
+        }
+    }
+
+    /**
+     * Get the current catalog. The snapshot does not change; callers making several lookups
+     * for one decision should keep it rather than calling this method again.
+     *
+     * @return The catalog
+     */
+    public ModelCatalog current() {
+        return current.get();
+    }
+
+    /**
+     * Set the models a provider reports, e.g. its built-in models or those discovered from
+     * its server, replacing those it reported before
+     *
+     * @param providerId The provider ID
+     * @param models The provider's models
+     */
+    public synchronized void registerProvider(String providerId, List<ModelSpec> models) {
+        providerModels.put(providerId, List.copyOf(models));
+        rebuild();
+    }
+
+    /**
+     * Read the catalog file again if it changed since it was last read. A file that cannot
+     * be read or parsed leaves the current catalog in place.
+     *
+     * @return true if the catalog was rebuilt from a changed file
+     */
+    public synchronized boolean reload() {
+        if (config.getLocation() == null) {
+            return false;
+        }
+        Resource resource = resourceLoader.getResource(config.getLocation());
+        try {
+            long lastModified = resource.isFile() ? resource.lastModified() : 0;
+            if (lastModified == fileLastModified && lastModified != 0) {
+                return false;
+            }
+            CatalogFile loaded;
+            try (InputStream in = resource.getInputStream()) {
+                loaded = objectMapper.readValue(in, CatalogFile.class);
+            }
+            file = loaded;
+            fileLastModified = lastModified;
+            rebuild();
+            log.info("Loaded model catalog {} with {} models and {} aliases, catalog version {}",
+                    config.getLocation(), loaded.getModels().size(), loaded.getAliases().size(),
+                    current().getVersion());
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to load model catalog {}, keeping version {}: {}",
+                    config.getLocation(), current().getVersion(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Build a new catalog from the provider models and the configured changes; the file takes
+     * precedence over the application configuration
+     */
+    private void rebuild() {
+        List<LlmProviderProperties.CatalogModel> overrides = new ArrayList<>(config.getModels());
+        overrides.addAll(file.getModels());
+        Map<String, String> aliases = new HashMap<>(config.getAliases());
+        aliases.putAll(file.getAliases());
+
+        ModelCatalog previous = current.get();
+        current.set(ModelCatalog.build(previous.getVersion() + 1, providerModels, overrides, aliases));
+    }
+
+    /**
+     * Contents of the catalog file
+     */
+    @Data
+    static class CatalogFile {
+        private List<LlmProviderProperties.CatalogModel> models = new ArrayList<>();
+        private Map<String, String> aliases = new HashMap<>();
+    }
+}
@@ -0,0 +1,34 @@
+package viettel.dac.promptservice.service.llm.catalog;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable description of one model of one provider: its limits and its prices
+ */
+@Value
+@Builder(toBuilder = true)
+public class ModelSpec {
+
+    String providerId;
+
+    String modelId;
+
+    String displayName;
+
+    /**
+     * Maximum number of prompt and completion tokens
+     */
+    int contextLength;
+
+    double inputCostPerMillionTokens;
+
+    double outputCostPerMillionTokens;
+
+    /**
+     * Key of the model in the catalog, "provider:model"
+     */
+    public String key() {
+        return ModelCatalog.key(providerId, modelId);
+    }
+}
@@ -0,0 +1,58 @@
+package viettel.dac.promptservice.service.llm.coalescing;
+
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider decorator that lets identical concurrent requests share one provider call through
+ * {@link RequestCoalescer}. Streams are passed through, since their deltas cannot be replayed
+ * to callers that join midway.
+ */
+public class CoalescingLlmProvider extends DelegatingLlmProvider {
+
+    private final RequestCoalescer coalescer;
+
+    public CoalescingLlmProvider(LlmProvider delegate, RequestCoalescer coalescer) {
+        super(delegate);
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        if (!coalescer.isCoalescible(request)) {
+            return delegate.executePrompt(request);
+        }
+        return coalesce(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        if (!coalescer.isCoalescible(request)) {
+            return delegate.executePromptAsync(request);
+        }
+        return coalesce(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> coalescer.isCoalescible(request)
+                ? coalesce(request)
+                : delegate.executePromptReactive(request));
+    }
+
+    /**
+     * Share the call with identical in-flight requests, rebinding the response to this caller's request
+     */
+    private Mono<LlmResponse> coalesce(LlmRequest request) {
+        return coalescer.execute(getProviderId(), request, () -> delegate.executePromptReactive(request))
+                .map(response -> response.getRequest() == request
+                        ? response
+                        : response.toBuilder().request(request).build());
+    }
+}
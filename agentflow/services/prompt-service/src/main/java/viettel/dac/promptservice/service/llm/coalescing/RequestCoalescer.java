@@ -0,0 +1,188 @@
+package viettel.dac.promptservice.service.llm.coalescing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.LlmRequestKeys;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight registry that collapses identical concurrent LLM requests into one provider call.
+ * <p>
+ * The first caller for a request fingerprint starts the call; callers arriving while it is in
+ * flight wait for the same result. A caller that cancels only stops waiting; the provider call
+ * is cancelled once the last waiter has gone. Finished calls leave the registry immediately,
+ * so reuse beyond the in-flight window is left to the response cache.
+ */
+@Component
+@Slf4j
+public class RequestCoalescer implements LlmProviderDecorator {
+
+    private final LlmProviderProperties.CoalescingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(LlmProviderProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getCoalescing();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return config.isEnabled() ? new CoalescingLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return COALESCING_ORDER;
+    }
+
+    /**
+     * Check whether a request may share its response with identical concurrent requests
+     *
+     * @param request The LLM request
+     * @return true if the request may be coalesced
+     */
+    public boolean isCoalescible(LlmRequest request) {
+        return config.isIncludeSampled() || LlmRequestKeys.isReproducible(request);
+    }
+
+    /**
+     * Execute a call, or join the identical call already in flight
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @param call Starts the provider call; invoked only by the first caller
+     * @return Mono of the shared response
+     */
+    public Mono<LlmResponse> execute(String providerId, LlmRequest request, Supplier<Mono<LlmResponse>> call) {
+        return Mono.defer(() -> {
+            String key = LlmRequestKeys.fingerprint(providerId, request);
+
+            InFlight[] started = new InFlight[1];
+            InFlight flight = inFlight.compute(key, (k, existing) -> {
+                if (existing != null && existing.join()) {
+                    return existing;
+                }
+                InFlight created = new InFlight(k);
+                created.join();
+                started[0] = created;
+                return created;
+            });
+
+            if (started[0] == flight) {
+                flight.start(Mono.defer(call));
+            } else {
+                meterRegistry.counter("llm.requests.coalesced",
+                        "provider", String.valueOf(providerId),
+                        "model", String.valueOf(request.getModelId())).increment();
+                log.debug("Coalesced request for {} {} with an identical in-flight call", providerId,
+                        request.getModelId());
+            }
+
+            return flight.sink.asMono().doOnCancel(flight::leave);
+        });
+    }
+
+    /**
+     * Number of distinct calls currently in flight
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * One shared provider call and the callers waiting for it
+     */
+    private final class InFlight {
+        private final String key;
+        private final Sinks.One<LlmResponse> sink = Sinks.one();
+        private int waiters;
+        private boolean closed;
+        private boolean cancelled;
+        private Disposable upstream;
+
+        private InFlight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Register another waiter
+         *
+         * @return false if the call has already finished or been cancelled
+         */
+        private synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        private void start(Mono<LlmResponse> call) {
+            Disposable subscription = call.subscribe(
+                    response -> {
+                        finish();
+                        sink.tryEmitValue(response);
+                    },
+                    error -> {
+                        finish();
+                        sink.tryEmitError(error);
+                    },
+                    () -> {
+                        finish();
+                        sink.tryEmitEmpty();
+                    });
+
+            boolean cancelNow;
+            synchronized (this) {
+                upstream = subscription;
+                cancelNow = cancelled;
+            }
+            // Every waiter may have left while the call was being subscribed
+            if (cancelNow) {
+                subscription.dispose();
+            }
+        }
+
+        /**
+         * Remove a waiter that cancelled, cancelling the call when nobody is left waiting
+         */
+        private void leave() {
+            Disposable toCancel;
+            synchronized (this) {
+                if (closed || --waiters > 0) {
+                    return;
+                }
+                closed = true;
+                cancelled = true;
+                toCancel = upstream;
+            }
+            inFlight.remove(key, this);
+            if (toCancel != null) {
+                toCancel.dispose();
+            }
+        }
+
+        /**
+         * Close the call to new waiters once it has produced its outcome
+         */
+        private void finish() {
+            synchronized (this) {
+                closed = true;
+            }
+            inFlight.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package viettel.dac.promptservice.service.llm.hedging;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Provider decorator that bounds every attempt by the adaptive timeout of {@link LatencyTracker}
+ * and, for calls that allow it, sends a hedged duplicate once the first attempt has run longer
+ * than the model's hedge percentile. The first response wins and the other attempt is cancelled.
+ * Streams are passed through.
+ */
+public class HedgedLlmProvider extends DelegatingLlmProvider {
+
+    /**
+     * Metadata key set on responses served by the hedged attempt, holding the model that served it
+     */
+    public static final String HEDGE_METADATA_KEY = "hedged_model";
+
+    private final LatencyTracker tracker;
+
+    public HedgedLlmProvider(LlmProvider delegate, LatencyTracker tracker) {
+        super(delegate);
+        this.tracker = tracker;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return execute(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return execute(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return execute(request);
+    }
+
+    private Mono<LlmResponse> execute(LlmRequest request) {
+        return Mono.defer(() -> {
+            Duration hedgeDelay = tracker.hedgeDelay(getProviderId(), request);
+            if (hedgeDelay == null) {
+                long start = System.nanoTime();
+                return attempt(request)
+                        .doOnNext(response -> tracker.recordCall(getProviderId(), request.getModelId(),
+                                elapsed(start), null));
+            }
+            return Mono.create(sink -> new Race(request, hedgeDelay, sink).start());
+        });
+    }
+
+    /**
+     * One provider attempt bounded by the adaptive timeout, feeding its latency to the tracker
+     */
+    private Mono<LlmResponse> attempt(LlmRequest request) {
+        return Mono.defer(() -> {
+            Duration timeout = tracker.timeout(getProviderId(), request);
+            long start = System.nanoTime();
+            return delegate.executePromptReactive(request)
+                    .timeout(timeout)
+                    .doOnNext(response -> tracker.recordAttempt(getProviderId(), request.getModelId(), elapsed(start)))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        tracker.recordAttempt(getProviderId(), request.getModelId(), elapsed(start));
+                        return new LlmProviderException("Request timed out after " + timeout.toMillis() + " ms",
+                                e, getProviderId(), request.getModelId(), LlmProviderException.ErrorType.TIMEOUT);
+                    })
+                    // An abandoned attempt ran at least this long; keeping it stops the tail from looking shorter
+                    .doOnCancel(() -> tracker.recordAttempt(getProviderId(), request.getModelId(), elapsed(start)));
+        });
+    }
+
+    private static Duration elapsed(long start) {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * The first attempt racing a delayed hedge. A failure before the hedge is sent fails the
+     * call at once; after that the call fails only when both attempts have failed.
+     */
+    private final class Race {
+        private final LlmRequest request;
+        private final Duration hedgeDelay;
+        private final MonoSink<LlmResponse> sink;
+        private final Disposable.Composite subscriptions = Disposables.composite();
+        private final long start = System.nanoTime();
+        private int running;
+        private boolean hedged;
+        private boolean done;
+        private Throwable firstError;
+
+        private Race(LlmRequest request, Duration hedgeDelay, MonoSink<LlmResponse> sink) {
+            this.request = request;
+            this.hedgeDelay = hedgeDelay;
+            this.sink = sink;
+        }
+
+        private void start() {
+            // Cancels the attempts and the hedge timer when the caller cancels
+            sink.onDispose(subscriptions);
+            launch(request, false);
+            subscriptions.add(Mono.delay(hedgeDelay)
+                    .subscribe(tick -> launch(tracker.hedgeRequest(getProviderId(), request), true)));
+        }
+
+        private void launch(LlmRequest attemptRequest, boolean hedge) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                running++;
+                hedged |= hedge;
+            }
+            subscriptions.add(attempt(attemptRequest).subscribe(
+                    response -> succeeded(response, hedge),
+                    this::failed));
+        }
+
+        private void succeeded(LlmResponse response, boolean hedge) {
+            LatencyTracker.HedgeOutcome outcome;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                outcome = !hedged ? LatencyTracker.HedgeOutcome.NOT_NEEDED
+                        : hedge ? LatencyTracker.HedgeOutcome.HEDGE : LatencyTracker.HedgeOutcome.PRIMARY;
+            }
+            tracker.recordCall(getProviderId(), request.getModelId(), elapsed(start), outcome);
+            subscriptions.dispose();
+            sink.success(hedge ? fromHedge(response) : response);
+        }
+
+        private void failed(Throwable error) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (firstError == null) {
+                    firstError = error;
+                }
+                if (--running > 0) {
+                    return;
+                }
+                done = true;
+            }
+            tracker.recordCall(getProviderId(), request.getModelId(), elapsed(start),
+                    LatencyTracker.HedgeOutcome.FAILED);
+            subscriptions.dispose();
+            sink.error(firstError);
+        }
+
+        /**
+         * Bind a hedge response to the caller's request, noting the model that served it
+         */
+        private LlmResponse fromHedge(LlmResponse response) {
+            Map<String, Object> metadata = response.getMetadata() != null
+                    ? new HashMap<>(response.getMetadata())
+                    : new HashMap<>();
+            metadata.put(HEDGE_METADATA_KEY, response.getRequest() != null
+                    ? response.getRequest().getModelId()
+                    : request.getModelId());
+            return response.toBuilder()
+                    .request(request)
+                    .metadata(metadata)
+                    .build();
+        }
+    }
+}
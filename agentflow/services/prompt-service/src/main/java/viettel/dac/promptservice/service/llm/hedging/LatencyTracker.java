@@ -0,0 +1,182 @@
+package viettel.dac.promptservice.service.llm.hedging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling latency statistics per provider model, used to derive adaptive timeouts and the
+ * delay after which a hedged duplicate request is sent.
+ * <p>
+ * Until a model has {@code minSamples} latencies its calls keep the request timeout and are
+ * never hedged. Latencies are measured below the rate limiter, so they exclude any wait for
+ * permits, which would otherwise inflate the timeouts and hedge delays.
+ */
+@Component
+public class LatencyTracker implements LlmProviderDecorator {
+
+    /**
+     * How a call that was eligible for hedging ended
+     */
+    public enum HedgeOutcome {
+        /** The first attempt finished before the hedge delay */
+        NOT_NEEDED,
+        /** A hedge was sent and the first attempt still won */
+        PRIMARY,
+        /** A hedge was sent and won */
+        HEDGE,
+        /** Every attempt failed */
+        FAILED
+    }
+
+    private final LlmProviderProperties.HedgingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    public LatencyTracker(LlmProviderProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getHedging();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return config.isEnabled() ? new HedgedLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return HEDGING_ORDER;
+    }
+
+    /**
+     * Timeout for one attempt: a multiple of the observed tail latency, never shorter than
+     * the configured minimum and never longer than the request timeout
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @return The attempt timeout
+     */
+    public Duration timeout(String providerId, LlmRequest request) {
+        Duration requestTimeout = Duration.ofMillis(request.getTimeoutMs());
+        if (!config.isAdaptiveTimeout()) {
+            return requestTimeout;
+        }
+        long tail = percentile(providerId, request.getModelId(), config.getTimeoutPercentile());
+        if (tail < 0) {
+            return requestTimeout;
+        }
+        Duration adaptive = Duration.ofNanos((long) (tail * config.getTimeoutMultiplier()));
+        if (adaptive.compareTo(config.getMinTimeout()) < 0) {
+            adaptive = config.getMinTimeout();
+        }
+        return adaptive.compareTo(requestTimeout) < 0 ? adaptive : requestTimeout;
+    }
+
+    /**
+     * Delay after which a hedged request is sent
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @return The hedge delay, or null if the call should not be hedged
+     */
+    public Duration hedgeDelay(String providerId, LlmRequest request) {
+        boolean hedge = request.getHedge() != null ? request.getHedge() : config.isHedgeByDefault();
+        if (!hedge) {
+            return null;
+        }
+        long p = percentile(providerId, request.getModelId(), config.getHedgePercentile());
+        if (p < 0) {
+            return null;
+        }
+        Duration delay = Duration.ofNanos(p);
+        if (delay.compareTo(config.getMinHedgeDelay()) < 0) {
+            delay = config.getMinHedgeDelay();
+        }
+        // A hedge that would only start after the first attempt times out is pointless
+        return delay.compareTo(timeout(providerId, request)) < 0 ? delay : null;
+    }
+
+    /**
+     * Request sent as the hedge: the same request, or the same request for the configured
+     * equivalent model
+     *
+     * @param providerId The provider ID
+     * @param request The original request
+     * @return The hedge request
+     */
+    public LlmRequest hedgeRequest(String providerId, LlmRequest request) {
+        String equivalent = config.getEquivalentModels().get(key(providerId, request.getModelId()));
+        if (equivalent == null || equivalent.equals(request.getModelId())) {
+            return request;
+        }
+        return request.toBuilder().modelId(equivalent).build();
+    }
+
+    /**
+     * Record the latency of one provider attempt
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param latency Time from sending the attempt until it completed, timed out or was abandoned
+     */
+    public void recordAttempt(String providerId, String modelId, Duration latency) {
+        windows.computeIfAbsent(key(providerId, modelId), k -> new LatencyWindow(config.getWindowSize()))
+                .record(latency.toNanos());
+        Timer.builder("llm.attempt.latency")
+                .tag("provider", String.valueOf(providerId))
+                .tag("model", String.valueOf(modelId))
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(latency);
+    }
+
+    /**
+     * Record the latency of a successful call as the caller observed it and, for calls eligible
+     * for hedging, how the call ended.
+     * Comparing the {@code llm.call.latency} and {@code llm.attempt.latency} percentiles shows
+     * the tail latency saved by hedging.
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param latency Time from the call until the caller received the outcome
+     * @param outcome How a hedge-eligible call ended, or null if the call was not eligible
+     */
+    public void recordCall(String providerId, String modelId, Duration latency, HedgeOutcome outcome) {
+        if (outcome != HedgeOutcome.FAILED) {
+            boolean hedged = outcome == HedgeOutcome.PRIMARY || outcome == HedgeOutcome.HEDGE;
+            Timer.builder("llm.call.latency")
+                    .tag("provider", String.valueOf(providerId))
+                    .tag("model", String.valueOf(modelId))
+                    .tag("hedged", String.valueOf(hedged))
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(latency);
+        }
+        if (outcome != null) {
+            meterRegistry.counter("llm.hedge.requests",
+                    "provider", String.valueOf(providerId),
+                    "model", String.valueOf(modelId),
+                    "outcome", outcome.name().toLowerCase()).increment();
+        }
+    }
+
+    private long percentile(String providerId, String modelId, double percentile) {
+        LatencyWindow window = windows.get(key(providerId, modelId));
+        if (window == null || window.size() < config.getMinSamples()) {
+            return -1;
+        }
+        return window.percentile(percentile);
+    }
+
+    private static String key(String providerId, String modelId) {
+        return providerId + ":" + modelId;
+    }
+}
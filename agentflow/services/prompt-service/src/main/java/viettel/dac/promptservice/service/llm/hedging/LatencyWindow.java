@@ -0,0 +1,63 @@
+package viettel.dac.promptservice.service.llm.hedging;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size window of the most recent latencies of one provider model.
+ * <p>
+ * Alongside the samples in arrival order the window keeps them sorted, updating the sorted
+ * copy on every record, so percentiles are read without copying or sorting the window.
+ */
+public final class LatencyWindow {
+
+    private final long[] samples;
+    private final long[] sorted;
+    private int size;
+    private int next;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+        this.sorted = new long[samples.length];
+    }
+
+    /**
+     * Add a latency, replacing the oldest one once the window is full
+     *
+     * @param nanos Latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        if (size == samples.length) {
+            int evicted = Arrays.binarySearch(sorted, 0, size, samples[next]);
+            System.arraycopy(sorted, evicted + 1, sorted, evicted, size - evicted - 1);
+            size--;
+        }
+        int insert = Arrays.binarySearch(sorted, 0, size, nanos);
+        if (insert < 0) {
+            insert = -insert - 1;
+        }
+        System.arraycopy(sorted, insert, sorted, insert + 1, size - insert);
+        sorted[insert] = nanos;
+        size++;
+
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Latency at a percentile of the window, using the nearest-rank method
+     *
+     * @param percentile Percentile between 0 and 1
+     * @return Latency in nanoseconds, or -1 if the window is empty
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return -1;
+        }
+        int rank = (int) Math.ceil(percentile * size);
+        return sorted[Math.min(size - 1, Math.max(0, rank - 1))];
+    }
+}
@@ -0,0 +1,145 @@
+package viettel.dac.promptservice.service.llm.http;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.net.URI;
+import java.util.function.Function;
+
+/**
+ * Dedicated Reactor Netty connection pool and HTTP client of one provider.
+ * <p>
+ * Each provider gets its own pool, so a burst against one provider cannot starve the others.
+ * Pool metrics (active, idle and pending connections, acquire time) are published to Micrometer
+ * under {@code reactor.netty.connection.provider} with the pool name {@code llm-<provider>}.
+ */
+@Slf4j
+public final class ProviderConnectionPool {
+
+    private final String providerId;
+    private final URI baseUri;
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+
+    private ProviderConnectionPool(String providerId, URI baseUri, ConnectionProvider connectionProvider,
+                                   HttpClient httpClient) {
+        this.providerId = providerId;
+        this.baseUri = baseUri;
+        this.connectionProvider = connectionProvider;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Create the pool and HTTP client of a provider
+     *
+     * @param providerId The provider ID
+     * @param baseUrl Base URL of the provider API
+     * @param config HTTP configuration
+     * @return The connection pool
+     */
+    public static ProviderConnectionPool create(String providerId, String baseUrl,
+                                                LlmProviderProperties.HttpConfig config) {
+        return create(providerId, baseUrl, config,
+                config.getProviderMaxConnections().getOrDefault(providerId, config.getMaxConnections()),
+                config.isHttp2());
+    }
+
+    /**
+     * Create the pool and HTTP client of a provider that may serve only a limited number of
+     * requests at a time. The client stays on HTTP/1.1, so every request holds a connection of
+     * its own and requests beyond the limit wait for one to be released.
+     *
+     * @param providerId The provider ID
+     * @param baseUrl Base URL of the provider API
+     * @param config HTTP configuration
+     * @param maxConcurrentCalls Maximum number of requests in flight
+     * @return The connection pool
+     */
+    public static ProviderConnectionPool createLimited(String providerId, String baseUrl,
+                                                       LlmProviderProperties.HttpConfig config,
+                                                       int maxConcurrentCalls) {
+        return create(providerId, baseUrl, config, maxConcurrentCalls, false);
+    }
+
+    private static ProviderConnectionPool create(String providerId, String baseUrl,
+                                                 LlmProviderProperties.HttpConfig config, int maxConnections,
+                                                 boolean http2) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("llm-" + providerId)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(config.getPendingAcquireTimeout())
+                .maxIdleTime(config.getMaxIdleTime())
+                .maxLifeTime(config.getMaxLifeTime())
+                .evictInBackground(config.getEvictionInterval())
+                // Reuse the most recently released connection, letting surplus ones go idle and expire
+                .lifo()
+                .metrics(true)
+                .build();
+
+        URI baseUri = URI.create(baseUrl);
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) config.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(config.isCompression())
+                // Provider endpoints are fixed paths, so the URI is a safe metric tag
+                .metrics(true, Function.identity());
+
+        // HTTP/2 is negotiated through TLS ALPN; plain HTTP endpoints stay on HTTP/1.1
+        if (http2 && "https".equalsIgnoreCase(baseUri.getScheme())) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        return new ProviderConnectionPool(providerId, baseUri, connectionProvider, httpClient);
+    }
+
+    /**
+     * Point a WebClient builder at this pool
+     *
+     * @param builder A builder owned by the provider
+     * @return The same builder
+     */
+    public WebClient.Builder configure(WebClient.Builder builder) {
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+
+    /**
+     * Initialize the HTTP client and open connections in the background, so the first calls
+     * do not pay for DNS resolution and TLS handshakes. Failures are only logged.
+     *
+     * @param connections Number of connections to open
+     */
+    public void warmUp(int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        httpClient.warmup()
+                .thenMany(Flux.range(0, connections)
+                        .flatMap(i -> httpClient.head()
+                                .uri(baseUri.toString())
+                                .response()
+                                .onErrorResume(e -> {
+                                    log.debug("Connection warm-up to provider {} failed: {}", providerId, e.getMessage());
+                                    return Mono.empty();
+                                })))
+                .subscribe(
+                        response -> { },
+                        e -> log.debug("Warm-up of provider {} failed: {}", providerId, e.getMessage()),
+                        () -> log.debug("Warmed up connections to provider {}", providerId));
+    }
+
+    /**
+     * Close all connections of the pool
+     */
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,188 @@
+package viettel.dac.promptservice.service.llm.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON document token by token and hands every scalar value to a {@link JsonValueHandler}
+ * with its path. No tree is built and, when reading a response body, every buffer is parsed and
+ * released as it arrives instead of first collecting the whole body.
+ */
+public final class IncrementalJsonReader {
+
+    private final JsonParser parser;
+    private final JsonValueHandler handler;
+    private final StringBuilder path = new StringBuilder();
+    private int[] pathLengths = new int[16];
+    private int[] indexes = new int[16];
+    private boolean[] arrays = new boolean[16];
+    private int depth;
+
+    private IncrementalJsonReader(JsonParser parser, JsonValueHandler handler) {
+        this.parser = parser;
+        this.handler = handler;
+    }
+
+    /**
+     * Read a response body as it streams in
+     *
+     * @param body The body buffers, released by this method
+     * @param factory Factory of the shared ObjectMapper
+     * @param handler Handler of the values
+     * @param retainRaw Also pass the complete document to {@link JsonValueHandler#onRaw(String)}
+     * @return Mono emitting the handler once the document has been read
+     */
+    public static <T extends JsonValueHandler> Mono<T> read(Flux<DataBuffer> body, JsonFactory factory,
+                                                            T handler, boolean retainRaw) {
+        return Mono.defer(() -> {
+            IncrementalJsonReader reader;
+            try {
+                reader = new IncrementalJsonReader(factory.createNonBlockingByteBufferParser(), handler);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            ByteArrayOutputStream raw = retainRaw ? new ByteArrayOutputStream() : null;
+
+            return body
+                    .<Void>handle((buffer, sink) -> {
+                        try {
+                            reader.feed(buffer, raw);
+                        } catch (IOException e) {
+                            sink.error(e);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(() -> {
+                        reader.finish();
+                        if (raw != null) {
+                            handler.onRaw(raw.toString(StandardCharsets.UTF_8));
+                        }
+                        return handler;
+                    }))
+                    .doFinally(signal -> reader.close());
+        });
+    }
+
+    /**
+     * Read a document from a blocking parser, e.g. one over a string or a tree
+     *
+     * @param parser The parser, closed by this method
+     * @param handler Handler of the values
+     * @return The handler
+     * @throws IOException if the document is malformed
+     */
+    public static <T extends JsonValueHandler> T read(JsonParser parser, T handler) throws IOException {
+        IncrementalJsonReader reader = new IncrementalJsonReader(parser, handler);
+        try {
+            reader.drain();
+            reader.checkComplete();
+            return handler;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void feed(DataBuffer buffer, ByteArrayOutputStream raw) throws IOException {
+        ByteBufferFeeder feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer byteBuffer = iterator.next();
+                if (raw != null) {
+                    ByteBuffer copy = byteBuffer.duplicate();
+                    byte[] bytes = new byte[copy.remaining()];
+                    copy.get(bytes);
+                    raw.write(bytes);
+                }
+                feeder.feedInput(byteBuffer);
+                drain();
+            }
+        }
+    }
+
+    private void finish() throws IOException {
+        ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+        drain();
+        checkComplete();
+    }
+
+    /**
+     * Consume all tokens available from the input fed so far
+     */
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    enterValue();
+                    push(token == JsonToken.START_ARRAY);
+                }
+                case END_OBJECT, END_ARRAY -> depth--;
+                case FIELD_NAME -> {
+                    path.setLength(pathLengths[depth]);
+                    appendSegment(parser.currentName());
+                }
+                default -> {
+                    enterValue();
+                    handler.onValue(path.toString(), parser);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the path to the next element when the current container is an array
+     */
+    private void enterValue() {
+        if (depth > 0 && arrays[depth]) {
+            indexes[depth]++;
+            path.setLength(pathLengths[depth]);
+            appendSegment(Integer.toString(indexes[depth]));
+        }
+    }
+
+    private void push(boolean array) {
+        depth++;
+        if (depth == pathLengths.length) {
+            pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+            indexes = Arrays.copyOf(indexes, depth * 2);
+            arrays = Arrays.copyOf(arrays, depth * 2);
+        }
+        pathLengths[depth] = path.length();
+        indexes[depth] = -1;
+        arrays[depth] = array;
+    }
+
+    private void appendSegment(String segment) {
+        if (path.length() > 0) {
+            path.append('.');
+        }
+        path.append(segment);
+    }
+
+    private void checkComplete() throws IOException {
+        if (depth != 0) {
+            throw new IOException("Unexpected end of JSON document");
+        }
+    }
+
+    private void close() {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // Nothing is left to release
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package viettel.dac.promptservice.service.llm.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Receives the scalar values of a JSON document read by {@link IncrementalJsonReader}
+ */
+public interface JsonValueHandler {
+
+    /**
+     * Handle one scalar value
+     *
+     * @param path Field names and array indexes leading to the value, joined with dots,
+     *             e.g. choices.0.message.content
+     * @param parser Parser positioned on the value
+     * @throws IOException if the value cannot be read
+     */
+    void onValue(String path, JsonParser parser) throws IOException;
+
+    /**
+     * Receive the complete document, when the caller asked for it to be retained
+     *
+     * @param raw The document as received
+     */
+    default void onRaw(String raw) {
+    }
+}
@@ -0,0 +1,164 @@
+package viettel.dac.promptservice.service.llm.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+
+/**
+ * Micrometer metrics of provider calls, tagged by provider, model and outcome:
+ * <ul>
+ *     <li>{@code llm.provider.latency} - total time of the call; the outcome tag is "success",
+ *     "cancelled" or the lower case {@link LlmProviderException.ErrorType}</li>
+ *     <li>{@code llm.provider.ttfb} - time until the provider started answering</li>
+ *     <li>{@code llm.provider.tokens} - input and output tokens per call, tagged by type</li>
+ *     <li>{@code llm.provider.tokens.per.second} - output tokens per second of call time</li>
+ *     <li>{@code llm.provider.cost} - cost per call in USD</li>
+ * </ul>
+ * Calls are measured right above the network call, so the latencies exclude rate limit waits,
+ * hedging and caching. Queueing in the executors is measured by the executor metrics.
+ */
+@Component
+public class LlmCallMetrics implements LlmProviderDecorator {
+
+    static final String CANCELLED = "cancelled";
+
+    private final LlmProviderProperties.MetricsConfig config;
+    private final MeterRegistry meterRegistry;
+    private final double[] percentiles;
+
+    public LlmCallMetrics(LlmProviderProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getMetrics();
+        this.meterRegistry = meterRegistry;
+        this.percentiles = config.getPercentiles().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return config.isEnabled() ? new MeteredLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return METRICS_ORDER;
+    }
+
+    /**
+     * Record a successful call
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param streaming Whether the call was a stream
+     * @param latency Total time of the call
+     * @param timeToFirstByte Time until the provider started answering, or null if unknown
+     * @param response The response, or null if a stream ended without one
+     */
+    public void recordSuccess(String providerId, String modelId, boolean streaming, Duration latency,
+                              Duration timeToFirstByte, LlmResponse response) {
+        latencyTimer(providerId, modelId, streaming, "success").record(latency);
+        if (timeToFirstByte != null) {
+            Timer.builder("llm.provider.ttfb")
+                    .description("Time from sending a request until the provider started answering")
+                    .tag("provider", String.valueOf(providerId))
+                    .tag("model", String.valueOf(modelId))
+                    .tag("stream", String.valueOf(streaming))
+                    .publishPercentiles(percentiles)
+                    .register(meterRegistry)
+                    .record(timeToFirstByte);
+        }
+        if (response == null) {
+            return;
+        }
+
+        if (response.getInputTokenCount() != null) {
+            tokens(providerId, modelId, "input").record(response.getInputTokenCount());
+        }
+        if (response.getOutputTokenCount() != null) {
+            tokens(providerId, modelId, "output").record(response.getOutputTokenCount());
+            double seconds = latency.toNanos() / 1e9;
+            if (seconds > 0) {
+                DistributionSummary.builder("llm.provider.tokens.per.second")
+                        .description("Output tokens generated per second of call time")
+                        .tag("provider", String.valueOf(providerId))
+                        .tag("model", String.valueOf(modelId))
+                        .publishPercentiles(percentiles)
+                        .register(meterRegistry)
+                        .record(response.getOutputTokenCount() / seconds);
+            }
+        }
+        if (response.getCost() != null) {
+            DistributionSummary.builder("llm.provider.cost")
+                    .description("Cost of a provider call")
+                    .baseUnit("usd")
+                    .tag("provider", String.valueOf(providerId))
+                    .tag("model", String.valueOf(modelId))
+                    .register(meterRegistry)
+                    .record(response.getCost());
+        }
+    }
+
+    /**
+     * Record a failed call
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param streaming Whether the call was a stream
+     * @param latency Time until the call failed
+     * @param error The call error
+     */
+    public void recordFailure(String providerId, String modelId, boolean streaming, Duration latency,
+                              Throwable error) {
+        latencyTimer(providerId, modelId, streaming, outcome(error)).record(latency);
+    }
+
+    /**
+     * Record a call the caller cancelled before it completed, e.g. a lost hedge, a timeout or
+     * a stream ended early
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param streaming Whether the call was a stream
+     * @param latency Time until the call was cancelled
+     */
+    public void recordCancellation(String providerId, String modelId, boolean streaming, Duration latency) {
+        latencyTimer(providerId, modelId, streaming, CANCELLED).record(latency);
+    }
+
+    /**
+     * Outcome tag of a failed call: the error type of provider errors, "unknown" otherwise
+     */
+    static String outcome(Throwable error) {
+        return error instanceof LlmProviderException e && e.getErrorType() != null
+                ? e.getErrorType().name().toLowerCase()
+                : LlmProviderException.ErrorType.UNKNOWN.name().toLowerCase();
+    }
+
+    private Timer latencyTimer(String providerId, String modelId, boolean streaming, String outcome) {
+        return Timer.builder("llm.provider.latency")
+                .description("Total time of a provider call")
+                .tag("provider", String.valueOf(providerId))
+                .tag("model", String.valueOf(modelId))
+                .tag("stream", String.valueOf(streaming))
+                .tag("outcome", outcome)
+                .publishPercentiles(percentiles)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary tokens(String providerId, String modelId, String type) {
+        return DistributionSummary.builder("llm.provider.tokens")
+                .description("Tokens per provider call")
+                .baseUnit("tokens")
+                .tag("provider", String.valueOf(providerId))
+                .tag("model", String.valueOf(modelId))
+                .tag("type", type)
+                .publishPercentiles(percentiles)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,105 @@
+package viettel.dac.promptservice.service.llm.metrics;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Provider decorator that reports every call to {@link LlmCallMetrics}, including calls the
+ * caller cancelled. The time to first byte of a call is taken from the response metadata set by
+ * the provider, and for streams from the arrival of the first chunk.
+ */
+public class MeteredLlmProvider extends DelegatingLlmProvider {
+
+    /**
+     * Metadata key set by providers on responses, holding the milliseconds from sending the
+     * request until the response headers arrived
+     */
+    public static final String TIME_TO_FIRST_BYTE_METADATA_KEY = "time_to_first_byte_ms";
+
+    private final LlmCallMetrics metrics;
+
+    public MeteredLlmProvider(LlmProvider delegate, LlmCallMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return executePromptReactive(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // Operators such as zip may cancel after the value arrived; that call still succeeded
+            AtomicBoolean finished = new AtomicBoolean();
+            return delegate.executePromptReactive(request)
+                    .doOnNext(response -> {
+                        finished.set(true);
+                        metrics.recordSuccess(getProviderId(), request.getModelId(), false,
+                                elapsed(start), timeToFirstByte(response), response);
+                    })
+                    .doOnError(e -> {
+                        finished.set(true);
+                        metrics.recordFailure(getProviderId(), request.getModelId(), false, elapsed(start), e);
+                    })
+                    .doOnCancel(() -> {
+                        if (!finished.get()) {
+                            metrics.recordCancellation(getProviderId(), request.getModelId(), false, elapsed(start));
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong firstChunk = new AtomicLong(-1);
+            AtomicReference<LlmResponse> completed = new AtomicReference<>();
+            return delegate.executePromptStream(request)
+                    .doOnNext(chunk -> {
+                        firstChunk.compareAndSet(-1, System.nanoTime() - start);
+                        if (chunk.getResponse() != null) {
+                            completed.set(chunk.getResponse());
+                        }
+                    })
+                    .doOnComplete(() -> metrics.recordSuccess(getProviderId(), request.getModelId(), true,
+                            elapsed(start), firstChunk.get() >= 0 ? Duration.ofNanos(firstChunk.get()) : null,
+                            completed.get()))
+                    .doOnError(e -> metrics.recordFailure(getProviderId(), request.getModelId(), true,
+                            elapsed(start), e))
+                    .doOnCancel(() -> metrics.recordCancellation(getProviderId(), request.getModelId(), true,
+                            elapsed(start)));
+        });
+    }
+
+    private static Duration timeToFirstByte(LlmResponse response) {
+        Object millis = response.getMetadata() != null
+                ? response.getMetadata().get(TIME_TO_FIRST_BYTE_METADATA_KEY)
+                : null;
+        return millis instanceof Number number ? Duration.ofMillis(number.longValue()) : null;
+    }
+
+    private static Duration elapsed(long start) {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+}
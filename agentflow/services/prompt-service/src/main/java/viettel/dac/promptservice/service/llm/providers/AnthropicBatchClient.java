@@ -0,0 +1,203 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.batch.LlmBatch;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchClient;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchItem;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchResult;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchStatus;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Client for the Anthropic Message Batches API. The requests are sent in one call and the
+ * JSONL results are streamed back line by line once the batch has ended.
+ */
+@Slf4j
+public class AnthropicBatchClient implements LlmBatchClient {
+
+    private static final String PROVIDER_ID = "anthropic";
+
+    private final WebClient webClient;
+    private final AnthropicProvider provider;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param webClientBuilder Builder owned by this client
+     * @param apiUrl Base URL of the API, e.g. https://api.anthropic.com/v1
+     * @param apiKey The API key
+     * @param apiVersion Value of the anthropic-version header
+     * @param provider Provider used to build request bodies and parse responses
+     */
+    public AnthropicBatchClient(WebClient.Builder webClientBuilder, String apiUrl, String apiKey,
+                                String apiVersion, AnthropicProvider provider) {
+        this.webClient = webClientBuilder
+                .baseUrl(apiUrl)
+                .defaultHeader("x-api-key", apiKey)
+                .defaultHeader("anthropic-version", apiVersion)
+                .build();
+        this.provider = provider;
+        this.objectMapper = provider.objectMapper();
+    }
+
+    @Override
+    public String getProviderId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public Mono<LlmBatch> submit(List<LlmBatchItem> items) {
+        return Mono.fromCallable(() -> {
+                    ObjectNode body = objectMapper.createObjectNode();
+                    ArrayNode requests = body.putArray("requests");
+                    for (LlmBatchItem item : items) {
+                        requests.addObject()
+                                .put("custom_id", item.getCustomId())
+                                .set("params", provider.createRequestBody(item.getRequest()));
+                    }
+                    return body;
+                })
+                .flatMap(body -> webClient.post()
+                        .uri("/messages/batches")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .map(this::parseBatch)
+                .doOnNext(batch -> log.info("Submitted Anthropic message batch {} with {} requests",
+                        batch.getId(), items.size()))
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("submit batch", e));
+    }
+
+    @Override
+    public Mono<LlmBatch> getBatch(String batchId) {
+        return webClient.get()
+                .uri("/messages/batches/{id}", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(this::parseBatch)
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("get batch " + batchId, e));
+    }
+
+    @Override
+    public Flux<LlmBatchResult> streamResults(LlmBatch batch, Function<String, LlmRequest> requests) {
+        if (batch.getOutputLocation() == null) {
+            return Flux.empty();
+        }
+        return webClient.get()
+                .uri(URI.create(batch.getOutputLocation()))
+                .retrieve()
+                .bodyToFlux(String.class)
+                .filter(line -> !line.isBlank())
+                .map(line -> parseResult(line, batch, requests))
+                .onErrorMap(e -> !(e instanceof LlmProviderException),
+                        e -> mapError("read results of batch " + batch.getId(), e));
+    }
+
+    @Override
+    public Mono<LlmBatch> cancel(String batchId) {
+        return webClient.post()
+                .uri("/messages/batches/{id}/cancel", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(this::parseBatch)
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("cancel batch " + batchId, e));
+    }
+
+    private LlmBatchResult parseResult(String line, LlmBatch batch, Function<String, LlmRequest> requests) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new LlmProviderException("Unreadable Anthropic batch result: " + e.getMessage(),
+                    e, PROVIDER_ID, null, LlmProviderException.ErrorType.UNKNOWN);
+        }
+
+        String customId = node.path("custom_id").asText();
+        LlmRequest request = requests.apply(customId);
+        JsonNode result = node.path("result");
+
+        switch (result.path("type").asText()) {
+            case "succeeded" -> {
+                int inputTokens = provider.countTokens(request.getPrompt(), request.getModelId());
+                return LlmBatchResult.success(customId,
+                        provider.parseResponse(result.path("message"), request, batch.getCreatedAt(), inputTokens));
+            }
+            case "errored" -> {
+                JsonNode error = result.path("error").path("error");
+                return LlmBatchResult.failure(customId, new LlmProviderException(
+                        error.path("message").asText("Anthropic batch request failed"),
+                        PROVIDER_ID, request.getModelId(), errorType(error.path("type").asText())));
+            }
+            case "expired" -> {
+                return LlmBatchResult.failure(customId, new LlmProviderException(
+                        "Request expired before the batch was processed",
+                        PROVIDER_ID, request.getModelId(), LlmProviderException.ErrorType.TIMEOUT));
+            }
+            default -> {
+                return LlmBatchResult.failure(customId, new LlmProviderException(
+                        "Request was cancelled before it was processed",
+                        PROVIDER_ID, request.getModelId(), LlmProviderException.ErrorType.UNKNOWN));
+            }
+        }
+    }
+
+    private LlmBatch parseBatch(JsonNode node) {
+        JsonNode counts = node.path("request_counts");
+        int succeeded = counts.path("succeeded").asInt();
+        int failed = counts.path("errored").asInt() + counts.path("canceled").asInt() + counts.path("expired").asInt();
+        String createdAt = node.path("created_at").asText(null);
+        return LlmBatch.builder()
+                .id(node.path("id").asText())
+                .providerId(PROVIDER_ID)
+                .status("ended".equals(node.path("processing_status").asText())
+                        ? LlmBatchStatus.COMPLETED
+                        : LlmBatchStatus.IN_PROGRESS)
+                .requestCount(counts.path("processing").asInt() + succeeded + failed)
+                .succeededCount(succeeded)
+                .failedCount(failed)
+                .outputLocation(node.path("results_url").isTextual() ? node.path("results_url").asText() : null)
+                .createdAt(createdAt != null
+                        ? OffsetDateTime.parse(createdAt).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+                        : LocalDateTime.now())
+                .build();
+    }
+
+    private static LlmProviderException.ErrorType errorType(String type) {
+        return switch (type) {
+            case "invalid_request_error", "not_found_error", "request_too_large" ->
+                    LlmProviderException.ErrorType.INVALID_REQUEST;
+            case "authentication_error", "permission_error" -> LlmProviderException.ErrorType.AUTHENTICATION;
+            case "rate_limit_error" -> LlmProviderException.ErrorType.RATE_LIMIT;
+            case "api_error", "overloaded_error" -> LlmProviderException.ErrorType.SERVICE_UNAVAILABLE;
+            default -> LlmProviderException.ErrorType.UNKNOWN;
+        };
+    }
+
+    private LlmProviderException mapError(String action, Throwable e) {
+        if (e instanceof WebClientResponseException webClientException) {
+            log.error("Anthropic Message Batches API error: {} {}", webClientException.getStatusCode(),
+                    webClientException.getResponseBodyAsString());
+            return new LlmProviderException("Failed to " + action + ": " + webClientException.getStatusCode(),
+                    e, PROVIDER_ID, null, LlmBatchResult.errorType(webClientException.getStatusCode().value()));
+        }
+        return new LlmProviderException("Failed to " + action + ": " + e.getMessage(),
+                e, PROVIDER_ID, null, LlmProviderException.ErrorType.UNKNOWN);
+    }
+}
@@ -1,27 +1,43 @@
 package viettel.dac.promptservice.service.llm.providers;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
 import viettel.dac.promptservice.exception.LlmProviderException;
 import viettel.dac.promptservice.service.llm.BaseLlmProvider;
+import viettel.dac.promptservice.service.llm.catalog.ModelSpec;
+import viettel.dac.promptservice.service.llm.json.IncrementalJsonReader;
+import viettel.dac.promptservice.service.llm.json.JsonValueHandler;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Implementation of the LlmProvider interface for Anthropic's Claude API
@@ -33,17 +49,34 @@ public class AnthropicProvider extends BaseLlmProvider {
     private static final String API_URL = "https://api.anthropic.com/v1/messages";
     private static final String API_VERSION = "2023-06-01";
     private static final String DEFAULT_SYSTEM_PROMPT = "You are Claude, a helpful AI assistant.";
+    private static final double CACHE_WRITE_COST_FACTOR = 1.25;
+    private static final double CACHE_READ_COST_FACTOR = 0.1;
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final List<ModelSpec> BUILTIN_MODELS = List.of(
+            model("claude-3-opus-20240229", "Claude 3 Opus", 200000, 15.0, 75.0),
+            model("claude-3-sonnet-20240229", "Claude 3 Sonnet", 200000, 3.0, 15.0),
+            model("claude-3-haiku-20240307", "Claude 3 Haiku", 200000, 0.25, 1.25),
+            model("claude-2.1", "Claude 2.1", 100000, 8.0, 24.0),
+            model("claude-2.0", "Claude 2.0", 100000, 8.0, 24.0),
+            model("claude-instant-1.2", "Claude Instant 1.2", 100000, 1.63, 5.51));
 
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
-    private final Map<String, String> availableModels;
-    private final Map<String, Integer> maxContextLengths;
-    private final Map<String, double[]> modelCosts; // [input cost per 1M tokens, output cost per 1M tokens]
-
+    private final boolean retainRawResponse;
 
+    public AnthropicProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor,
+                             TokenizerRegistry tokenizers) {
+        this(webClientBuilder, apiKey, executor, tokenizers, new ObjectMapper(), false);
+    }
 
-    public AnthropicProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor) {
-        super(executor);
+    /**
+     * @param objectMapper Mapper shared with the rest of the application
+     * @param retainRawResponse Keep the response body as the raw response, at the cost of holding it in memory
+     */
+    public AnthropicProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor,
+                             TokenizerRegistry tokenizers, ObjectMapper objectMapper, boolean retainRawResponse) {
+        super(executor, tokenizers);
         this.webClient = webClientBuilder
                 .baseUrl(API_URL)
                 .defaultHeader("x-api-key", apiKey)
@@ -51,34 +84,8 @@ public class AnthropicProvider extends BaseLlmProvider {
                 .defaultHeader("Content-Type", "application/json")
                 .build();
 
-        this.objectMapper = new ObjectMapper();
-
-        // Initialize available models
-        this.availableModels = new HashMap<>();
-        availableModels.put("claude-3-opus-20240229", "Claude 3 Opus");
-        availableModels.put("claude-3-sonnet-20240229", "Claude 3 Sonnet");
-        availableModels.put("claude-3-haiku-20240307", "Claude 3 Haiku");
-        availableModels.put("claude-2.1", "Claude 2.1");
-        availableModels.put("claude-2.0", "Claude 2.0");
-        availableModels.put("claude-instant-1.2", "Claude Instant 1.2");
-
-        // Initialize context lengths
-        this.maxContextLengths = new HashMap<>();
-        maxContextLengths.put("claude-3-opus-20240229", 200000);
-        maxContextLengths.put("claude-3-sonnet-20240229", 200000);
-        maxContextLengths.put("claude-3-haiku-20240307", 200000);
-        maxContextLengths.put("claude-2.1", 100000);
-        maxContextLengths.put("claude-2.0", 100000);
-        maxContextLengths.put("claude-instant-1.2", 100000);
-
-        // Initialize costs per 1M tokens [input, output]
-        this.modelCosts = new HashMap<>();
-        modelCosts.put("claude-3-opus-20240229", new double[]{15.0, 75.0});
-        modelCosts.put("claude-3-sonnet-20240229", new double[]{3.0, 15.0});
-        modelCosts.put("claude-3-haiku-20240307", new double[]{0.25, 1.25});
-        modelCosts.put("claude-2.1", new double[]{8.0, 24.0});
-        modelCosts.put("claude-2.0", new double[]{8.0, 24.0});
-        modelCosts.put("claude-instant-1.2", new double[]{1.63, 5.51});
+        this.objectMapper = objectMapper;
+        this.retainRawResponse = retainRawResponse;
     }
 
     @Override
@@ -86,95 +93,164 @@ public class AnthropicProvider extends BaseLlmProvider {
         return PROVIDER_ID;
     }
 
+    /**
+     * Models and prices of the Anthropic API, per million tokens
+     */
     @Override
-    public Map<String, String> getAvailableModels() {
-        return availableModels;
+    protected List<ModelSpec> builtinModels() {
+        return BUILTIN_MODELS;
     }
 
     @Override
     public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
-        LocalDateTime startTime = LocalDateTime.now();
-        log.debug("Executing prompt with Anthropic, model: {}", request.getModelId());
+        return executePromptReactive(request).block();
+    }
 
-        validateRequest(request);
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            log.debug("Executing prompt with Anthropic, model: {}", request.getModelId());
+
+            validateRequest(request);
 
-        try {
             ObjectNode requestBody = createRequestBody(request);
 
             // Calculate token counts before sending request
-            int inputTokenCount = countTokens(request.getPrompt(), request.getModelId());
+            int inputTokenCount = countPromptTokens(request);
 
-            String response = webClient.post()
+            return webClient.post()
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(requestBody)
                     .retrieve()
-                    .bodyToMono(String.class)
+                    .toEntityFlux(DataBuffer.class)
+                    .elapsed()
+                    .flatMap(timed -> IncrementalJsonReader.read(timed.getT2().getBody(), objectMapper.getFactory(),
+                                    new MessageFields(), retainRawResponse)
+                            .map(fields -> withTimeToFirstByte(withRateLimitStatus(
+                                    toResponse(fields, request, startTime, inputTokenCount), timed.getT2().getHeaders()),
+                                    timed.getT1())))
                     .timeout(Duration.ofMillis(request.getTimeoutMs()))
-                    .onErrorResume(WebClientResponseException.class, e -> {
+                    .onErrorMap(WebClientResponseException.class, e -> {
                         log.error("Anthropic API error: {} {}", e.getStatusCode(), e.getResponseBodyAsString());
-                        throw mapToProviderException(e, request.getModelId());
+                        return mapToProviderException(e, request.getModelId());
                     })
-                    .onErrorResume(e -> {
-                        if (e instanceof LlmProviderException) {
-                            return Mono.error(e);
+                    .onErrorMap(JsonProcessingException.class, e -> new LlmProviderException(
+                            "Failed to parse Anthropic response: " + e.getMessage(),
+                            e, PROVIDER_ID, request.getModelId(),
+                            LlmProviderException.ErrorType.UNKNOWN))
+                    .doOnNext(llmResponse -> log.debug("Successfully executed prompt with Anthropic, model: {}, tokens: {}",
+                            request.getModelId(), llmResponse.getTotalTokenCount()));
+        })
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> {
+                    log.error("Error calling Anthropic API: {}", e.getMessage());
+                    LlmProviderException.ErrorType errorType = e instanceof TimeoutException
+                            ? LlmProviderException.ErrorType.TIMEOUT
+                            : LlmProviderException.ErrorType.UNKNOWN;
+                    return new LlmProviderException("Anthropic API call failed: " + e.getMessage(),
+                            e, PROVIDER_ID, request.getModelId(), errorType);
+                });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            log.debug("Streaming prompt with Anthropic, model: {}", request.getModelId());
+
+            validateRequest(request);
+
+            ObjectNode requestBody = createRequestBody(request);
+            requestBody.put("stream", true);
+
+            StreamState state = new StreamState(countPromptTokens(request));
+
+            return webClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(SSE_TYPE)
+                    .timeout(Duration.ofMillis(request.getTimeoutMs()))
+                    .<LlmStreamChunk>handle((event, sink) -> {
+                        try {
+                            String delta = handleStreamEvent(event, state, request.getModelId());
+                            if (delta != null && !delta.isEmpty()) {
+                                sink.next(LlmStreamChunk.delta(delta));
+                            }
+                        } catch (LlmProviderException e) {
+                            sink.error(e);
+                        } catch (Exception e) {
+                            sink.error(new LlmProviderException(
+                                    "Failed to parse Anthropic stream event: " + e.getMessage(),
+                                    e, PROVIDER_ID, request.getModelId(),
+                                    LlmProviderException.ErrorType.UNKNOWN));
                         }
-                        log.error("Error calling Anthropic API: {}", e.getMessage());
-                        return Mono.error(new LlmProviderException(
-                                "Anthropic API call failed: " + e.getMessage(),
-                                e, PROVIDER_ID, request.getModelId(),
-                                LlmProviderException.ErrorType.UNKNOWN));
                     })
-                    .block();
-
-            JsonNode responseNode = objectMapper.readTree(response);
-            LlmResponse llmResponse = parseResponse(responseNode, request, startTime, inputTokenCount);
-            log.debug("Successfully executed prompt with Anthropic, model: {}, tokens: {}",
-                    request.getModelId(), llmResponse.getTotalTokenCount());
-
-            return llmResponse;
-
-        } catch (LlmProviderException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error executing prompt with Anthropic: {}", e.getMessage(), e);
-            throw new LlmProviderException(
-                    "Failed to execute prompt with Anthropic: " + e.getMessage(),
-                    e, PROVIDER_ID, request.getModelId(),
-                    LlmProviderException.ErrorType.UNKNOWN);
-        }
+                    .concatWith(Mono.fromCallable(() -> LlmStreamChunk.completed(
+                            assembleResponse(request, startTime, state.text.toString(), state.inputTokens,
+                                    state.outputTokens, state.cacheReadTokens, state.cacheWriteTokens,
+                                    state.metadata, null))))
+                    .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapStreamError(e, request.getModelId()));
+        });
     }
 
     @Override
     public int countTokens(String prompt, String modelId) {
-        // Simple approximation - 4 characters per token
-        // In a production environment, you should use a proper tokenizer
-        return Math.max(1, prompt.length() / 4);
+        return tokenizers.countTokens(prompt, modelId);
     }
 
+    /**
+     * Cache reads are billed at a tenth of the input price and cache writes at a quarter more
+     */
     @Override
-    public double calculateCost(int inputTokens, int outputTokens, String modelId) {
-        if (!modelCosts.containsKey(modelId)) {
+    public double calculateCost(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens,
+                                String modelId) {
+        ModelSpec spec = modelSpec(modelId);
+        if (spec == null) {
             return 0.0;
         }
 
-        double[] costs = modelCosts.get(modelId);
-        double inputCost = (inputTokens / 1000000.0) * costs[0];
-        double outputCost = (outputTokens / 1000000.0) * costs[1];
+        int uncachedTokens = Math.max(0, inputTokens - cacheReadTokens - cacheWriteTokens);
+        double inputCost = (uncachedTokens
+                + cacheWriteTokens * CACHE_WRITE_COST_FACTOR
+                + cacheReadTokens * CACHE_READ_COST_FACTOR) / 1000000.0 * spec.getInputCostPerMillionTokens();
+        double outputCost = (outputTokens / 1000000.0) * spec.getOutputCostPerMillionTokens();
 
         return inputCost + outputCost;
     }
 
     @Override
     public int getMaxContextLength(String modelId) {
-        return maxContextLengths.getOrDefault(modelId, 100000);
+        ModelSpec spec = modelSpec(modelId);
+        return spec != null ? spec.getContextLength() : 100000;
+    }
+
+    private static ModelSpec model(String modelId, String displayName, int contextLength,
+                                   double inputCostPerMillionTokens, double outputCostPerMillionTokens) {
+        return ModelSpec.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(modelId)
+                .displayName(displayName)
+                .contextLength(contextLength)
+                .inputCostPerMillionTokens(inputCostPerMillionTokens)
+                .outputCostPerMillionTokens(outputCostPerMillionTokens)
+                .build();
+    }
+
+    /**
+     * Mapper used for request and response bodies, shared with the batch client
+     */
+    ObjectMapper objectMapper() {
+        return objectMapper;
     }
 
     /**
      * Create the JSON request body for the Anthropic API
      */
-    private ObjectNode createRequestBody(LlmRequest request) {
+    ObjectNode createRequestBody(LlmRequest request) {
         ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", request.getModelId());
+        requestBody.put("model", apiModelId(request.getModelId()));
 
         // Determine system prompt to use
         String systemPrompt = DEFAULT_SYSTEM_PROMPT;
@@ -182,14 +258,33 @@ public class AnthropicProvider extends BaseLlmProvider {
             systemPrompt = request.getSystemPrompt();
         }
 
-        // Add system prompt
-        requestBody.put("system", systemPrompt);
+        Integer prefixLength = request.getPromptPrefixLength();
+        if (prefixLength == null) {
+            // Add system prompt
+            requestBody.put("system", systemPrompt);
 
-        // Add message array with user message
-        requestBody.putArray("messages")
-                .add(objectMapper.createObjectNode()
-                        .put("role", "user")
-                        .put("content", request.getPrompt()));
+            // Add message array with user message
+            requestBody.putArray("messages")
+                    .add(objectMapper.createObjectNode()
+                            .put("role", "user")
+                            .put("content", request.getPrompt()));
+        } else {
+            // Mark the system prompt and the static prompt prefix as cache breakpoints
+            ArrayNode system = requestBody.putArray("system");
+            cachedTextBlock(system, systemPrompt);
+
+            ArrayNode content = requestBody.putArray("messages").addObject()
+                    .put("role", "user")
+                    .putArray("content");
+            String prompt = request.getPrompt();
+            int split = Math.min(prefixLength, prompt.length());
+            if (split > 0) {
+                cachedTextBlock(content, prompt.substring(0, split));
+            }
+            if (split < prompt.length()) {
+                content.addObject().put("type", "text").put("text", prompt.substring(split));
+            }
+        }
 
         // Add common parameters
         requestBody.put("max_tokens", request.getMaxTokens());
@@ -214,69 +309,169 @@ public class AnthropicProvider extends BaseLlmProvider {
         return requestBody;
     }
 
+    private static void cachedTextBlock(ArrayNode blocks, String text) {
+        blocks.addObject()
+                .put("type", "text")
+                .put("text", text)
+                .putObject("cache_control").put("type", "ephemeral");
+    }
+
     /**
      * Parse the Anthropic API response into our LlmResponse format
      */
-    private LlmResponse parseResponse(JsonNode responseNode, LlmRequest request,
-                                      LocalDateTime startTime, int inputTokenCount) {
-
-        List<String> choices = new ArrayList<>();
-        String primaryText = "";
-
-        if (responseNode.has("content") && responseNode.get("content").isArray()) {
-            JsonNode contentNode = responseNode.get("content");
-            for (int i = 0; i < contentNode.size(); i++) {
-                JsonNode item = contentNode.get(i);
-                if (item.has("type") && "text".equals(item.get("type").asText()) &&
-                        item.has("text")) {
-                    primaryText = item.get("text").asText();
-                    break;
-                }
+    LlmResponse parseResponse(JsonNode responseNode, LlmRequest request,
+                              LocalDateTime startTime, int inputTokenCount) {
+        try {
+            MessageFields fields = IncrementalJsonReader.read(objectMapper.treeAsTokens(responseNode),
+                    new MessageFields());
+            if (retainRawResponse) {
+                fields.onRaw(responseNode.toString());
             }
+            return toResponse(fields, request, startTime, inputTokenCount);
+        } catch (IOException e) {
+            throw new LlmProviderException("Failed to parse Anthropic response: " + e.getMessage(),
+                    e, PROVIDER_ID, request.getModelId(), LlmProviderException.ErrorType.UNKNOWN);
         }
+    }
 
-        int outputTokenCount = 0;
-        int totalTokenCount = 0;
+    /**
+     * Build our LlmResponse from the fields read from a message
+     */
+    private LlmResponse toResponse(MessageFields fields, LlmRequest request, LocalDateTime startTime,
+                                   int estimatedInputTokens) {
+        String primaryText = fields.blockTypes.entrySet().stream()
+                .filter(entry -> "text".equals(entry.getValue()) && fields.blockTexts.containsKey(entry.getKey()))
+                .map(entry -> fields.blockTexts.get(entry.getKey()))
+                .findFirst()
+                .orElse("");
+
+        // input_tokens only counts the tokens after the last cache breakpoint
+        int inputTokenCount = fields.inputTokens != null
+                ? fields.inputTokens + fields.cacheReadTokens + fields.cacheWriteTokens
+                : estimatedInputTokens;
+
+        return assembleResponse(request, startTime, primaryText, inputTokenCount, fields.outputTokens,
+                fields.cacheReadTokens, fields.cacheWriteTokens, fields.metadata, fields.raw);
+    }
 
-        if (responseNode.has("usage")) {
-            JsonNode usageNode = responseNode.get("usage");
-            inputTokenCount = usageNode.has("input_tokens") ?
-                    usageNode.get("input_tokens").asInt() : inputTokenCount;
-            outputTokenCount = usageNode.has("output_tokens") ?
-                    usageNode.get("output_tokens").asInt() : 0;
-            totalTokenCount = inputTokenCount + outputTokenCount;
-        } else {
+    /**
+     * Assemble the final LlmResponse from parsed or streamed values
+     */
+    private LlmResponse assembleResponse(LlmRequest request, LocalDateTime startTime, String primaryText,
+                                         int inputTokenCount, Integer outputTokenCount,
+                                         int cacheReadTokens, int cacheWriteTokens,
+                                         Map<String, Object> metadata, String rawResponse) {
+        if (outputTokenCount == null) {
             // Fallback if usage info is not available
             outputTokenCount = countTokens(primaryText, request.getModelId());
-            totalTokenCount = inputTokenCount + outputTokenCount;
         }
+        int totalTokenCount = inputTokenCount + outputTokenCount;
 
-        double cost = calculateCost(inputTokenCount, outputTokenCount, request.getModelId());
+        double cost = calculateCost(inputTokenCount, outputTokenCount, cacheReadTokens, cacheWriteTokens,
+                request.getModelId());
 
-        LlmResponse.LlmResponseBuilder responseBuilder = createBaseResponse(request, startTime)
+        return createBaseResponse(request, startTime)
                 .text(primaryText)
-                .alternatives(choices)
+                .alternatives(new ArrayList<>())
                 .inputTokenCount(inputTokenCount)
                 .outputTokenCount(outputTokenCount)
+                .cacheReadTokenCount(cacheReadTokens)
+                .cacheWriteTokenCount(cacheWriteTokens)
                 .totalTokenCount(totalTokenCount)
                 .cost(cost)
-                .rawResponse(responseNode.toString())
-                .successful(true);
+                .rawResponse(rawResponse)
+                .successful(true)
+                .metadata(metadata)
+                .build();
+    }
 
-        Map<String, Object> metadata = new HashMap<>();
-        if (responseNode.has("id")) {
-            metadata.put("response_id", responseNode.get("id").asText());
-        }
-        if (responseNode.has("model")) {
-            metadata.put("model", responseNode.get("model").asText());
-        }
-        if (responseNode.has("stop_reason")) {
-            metadata.put("stop_reason", responseNode.get("stop_reason").asText());
+    /**
+     * Apply one server-sent event of a streamed Messages API response to the stream state
+     *
+     * @return Text delta carried by the event, or null if the event has no text
+     */
+    private String handleStreamEvent(ServerSentEvent<String> event, StreamState state, String modelId)
+            throws Exception {
+        String data = event.data();
+        if (data == null || data.isBlank()) {
+            return null;
         }
 
-        responseBuilder.metadata(metadata);
+        JsonNode node = objectMapper.readTree(data);
+        String type = node.path("type").asText(event.event() != null ? event.event() : "");
+
+        switch (type) {
+            case "message_start" -> {
+                JsonNode message = node.path("message");
+                if (message.has("id")) {
+                    state.metadata.put("response_id", message.get("id").asText());
+                }
+                if (message.has("model")) {
+                    state.metadata.put("model", message.get("model").asText());
+                }
+                JsonNode usage = message.path("usage");
+                if (usage.has("input_tokens")) {
+                    state.cacheReadTokens = usage.path("cache_read_input_tokens").asInt();
+                    state.cacheWriteTokens = usage.path("cache_creation_input_tokens").asInt();
+                    state.inputTokens = usage.get("input_tokens").asInt()
+                            + state.cacheReadTokens + state.cacheWriteTokens;
+                }
+                return null;
+            }
+            case "content_block_delta" -> {
+                JsonNode delta = node.path("delta");
+                if ("text_delta".equals(delta.path("type").asText()) && delta.has("text")) {
+                    String text = delta.get("text").asText();
+                    state.text.append(text);
+                    return text;
+                }
+                return null;
+            }
+            case "message_delta" -> {
+                if (node.path("delta").has("stop_reason")) {
+                    state.metadata.put("stop_reason", node.path("delta").get("stop_reason").asText());
+                }
+                if (node.path("usage").has("output_tokens")) {
+                    state.outputTokens = node.path("usage").get("output_tokens").asInt();
+                }
+                return null;
+            }
+            case "error" -> {
+                JsonNode error = node.path("error");
+                String errorType = error.path("type").asText();
+                LlmProviderException.ErrorType mapped = switch (errorType) {
+                    case "rate_limit_error" -> LlmProviderException.ErrorType.RATE_LIMIT;
+                    case "overloaded_error", "api_error" -> LlmProviderException.ErrorType.SERVICE_UNAVAILABLE;
+                    case "authentication_error" -> LlmProviderException.ErrorType.AUTHENTICATION;
+                    case "invalid_request_error" -> LlmProviderException.ErrorType.INVALID_REQUEST;
+                    default -> LlmProviderException.ErrorType.UNKNOWN;
+                };
+                throw new LlmProviderException(error.path("message").asText("Anthropic stream error"),
+                        PROVIDER_ID, modelId, mapped);
+            }
+            default -> {
+                // ping, content_block_start, content_block_stop, message_stop
+                return null;
+            }
+        }
+    }
 
-        return responseBuilder.build();
+    /**
+     * Map errors raised while streaming to our provider exception
+     */
+    private LlmProviderException mapStreamError(Throwable e, String modelId) {
+        if (e instanceof WebClientResponseException webClientException) {
+            log.error("Anthropic API error: {} {}", webClientException.getStatusCode(),
+                    webClientException.getResponseBodyAsString());
+            return mapToProviderException(webClientException, modelId);
+        }
+        if (e instanceof TimeoutException) {
+            return new LlmProviderException("Anthropic stream timed out", e, PROVIDER_ID, modelId,
+                    LlmProviderException.ErrorType.TIMEOUT);
+        }
+        log.error("Error streaming from Anthropic API: {}", e.getMessage());
+        return new LlmProviderException("Anthropic API call failed: " + e.getMessage(),
+                e, PROVIDER_ID, modelId, LlmProviderException.ErrorType.UNKNOWN);
     }
 
     /**
@@ -324,4 +519,73 @@ public class AnthropicProvider extends BaseLlmProvider {
 
         return new LlmProviderException(message, e, PROVIDER_ID, modelId, errorType);
     }
+
+    /**
+     * Text, usage and metadata fields pulled from a Messages API body
+     */
+    private static final class MessageFields implements JsonValueHandler {
+        private static final String BLOCK_PREFIX = "content.";
+
+        private final Map<Integer, String> blockTypes = new TreeMap<>();
+        private final Map<Integer, String> blockTexts = new HashMap<>();
+        private final Map<String, Object> metadata = new HashMap<>();
+        private Integer inputTokens;
+        private Integer outputTokens;
+        private int cacheReadTokens;
+        private int cacheWriteTokens;
+        private String raw;
+
+        @Override
+        public void onValue(String path, JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            switch (path) {
+                case "id" -> metadata.put("response_id", parser.getText());
+                case "model" -> metadata.put("model", parser.getText());
+                case "stop_reason" -> metadata.put("stop_reason", parser.getText());
+                case "usage.input_tokens" -> inputTokens = parser.getIntValue();
+                case "usage.output_tokens" -> outputTokens = parser.getIntValue();
+                case "usage.cache_read_input_tokens" -> cacheReadTokens = parser.getIntValue();
+                case "usage.cache_creation_input_tokens" -> cacheWriteTokens = parser.getIntValue();
+                default -> {
+                    if (path.startsWith(BLOCK_PREFIX)) {
+                        int dot = path.indexOf('.', BLOCK_PREFIX.length());
+                        if (dot < 0) {
+                            return;
+                        }
+                        int index = Integer.parseInt(path.substring(BLOCK_PREFIX.length(), dot));
+                        switch (path.substring(dot + 1)) {
+                            case "type" -> blockTypes.put(index, parser.getText());
+                            case "text" -> blockTexts.put(index, parser.getText());
+                            default -> {
+                                // tool use input and other block fields
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onRaw(String raw) {
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * Mutable accumulator for a single streamed response
+     */
+    private static final class StreamState {
+        private final StringBuilder text = new StringBuilder();
+        private final Map<String, Object> metadata = new HashMap<>();
+        private int inputTokens;
+        private Integer outputTokens;
+        private int cacheReadTokens;
+        private int cacheWriteTokens;
+
+        private StreamState(int estimatedInputTokens) {
+            this.inputTokens = estimatedInputTokens;
+        }
+    }
 }
\ No newline at end of file
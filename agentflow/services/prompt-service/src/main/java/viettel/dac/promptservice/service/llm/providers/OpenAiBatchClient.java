@@ -0,0 +1,226 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.batch.LlmBatch;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchClient;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchItem;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchResult;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Client for the OpenAI Batch API. The requests are uploaded as a JSONL file, a batch is
+ * created for it, and the output and error files are streamed back line by line once the
+ * batch has ended.
+ */
+@Slf4j
+public class OpenAiBatchClient implements LlmBatchClient {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String ENDPOINT = "/v1/chat/completions";
+
+    private final WebClient webClient;
+    private final OpenAiProvider provider;
+    private final String completionWindow;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param webClientBuilder Builder owned by this client
+     * @param apiUrl Base URL of the API, e.g. https://api.openai.com/v1
+     * @param apiKey The API key
+     * @param provider Provider used to build request bodies and parse responses
+     * @param completionWindow Completion window of created batches
+     */
+    public OpenAiBatchClient(WebClient.Builder webClientBuilder, String apiUrl, String apiKey,
+                             OpenAiProvider provider, String completionWindow) {
+        this.webClient = webClientBuilder
+                .baseUrl(apiUrl)
+                .defaultHeader("Authorization", "Bearer " + apiKey)
+                .build();
+        this.provider = provider;
+        this.objectMapper = provider.objectMapper();
+        this.completionWindow = completionWindow;
+    }
+
+    @Override
+    public String getProviderId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public Mono<LlmBatch> submit(List<LlmBatchItem> items) {
+        return Mono.fromCallable(() -> toJsonLines(items))
+                .flatMap(this::uploadInputFile)
+                .flatMap(fileId -> webClient.post()
+                        .uri("/batches")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(objectMapper.createObjectNode()
+                                .put("input_file_id", fileId)
+                                .put("endpoint", ENDPOINT)
+                                .put("completion_window", completionWindow))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .map(this::parseBatch)
+                .doOnNext(batch -> log.info("Submitted OpenAI batch {} with {} requests", batch.getId(), items.size()))
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("submit batch", e));
+    }
+
+    @Override
+    public Mono<LlmBatch> getBatch(String batchId) {
+        return webClient.get()
+                .uri("/batches/{id}", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(this::parseBatch)
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("get batch " + batchId, e));
+    }
+
+    @Override
+    public Flux<LlmBatchResult> streamResults(LlmBatch batch, Function<String, LlmRequest> requests) {
+        // Successful and failed requests are written to separate files
+        return Flux.concat(fileLines(batch.getOutputLocation()), fileLines(batch.getErrorLocation()))
+                .map(line -> parseResult(line, batch, requests))
+                .onErrorMap(e -> !(e instanceof LlmProviderException),
+                        e -> mapError("read results of batch " + batch.getId(), e));
+    }
+
+    @Override
+    public Mono<LlmBatch> cancel(String batchId) {
+        return webClient.post()
+                .uri("/batches/{id}/cancel", batchId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(this::parseBatch)
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapError("cancel batch " + batchId, e));
+    }
+
+    /**
+     * Write one chat completion request per line, in the Batch API input format
+     */
+    private byte[] toJsonLines(List<LlmBatchItem> items) throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (LlmBatchItem item : items) {
+            ObjectNode line = objectMapper.createObjectNode()
+                    .put("custom_id", item.getCustomId())
+                    .put("method", "POST")
+                    .put("url", ENDPOINT);
+            line.set("body", provider.createRequestBody(item.getRequest()));
+            lines.append(objectMapper.writeValueAsString(line)).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Mono<String> uploadInputFile(byte[] content) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("purpose", "batch");
+        body.part("file", content)
+                .filename("batch.jsonl")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+
+        return webClient.post()
+                .uri("/files")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(file -> file.path("id").asText());
+    }
+
+    /**
+     * Stream the lines of a result file without loading it whole
+     */
+    private Flux<String> fileLines(String fileId) {
+        if (fileId == null || fileId.isBlank()) {
+            return Flux.empty();
+        }
+        return webClient.get()
+                .uri("/files/{id}/content", fileId)
+                .retrieve()
+                .bodyToFlux(String.class)
+                .filter(line -> !line.isBlank());
+    }
+
+    private LlmBatchResult parseResult(String line, LlmBatch batch, Function<String, LlmRequest> requests) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new LlmProviderException("Unreadable OpenAI batch result: " + e.getMessage(),
+                    e, PROVIDER_ID, null, LlmProviderException.ErrorType.UNKNOWN);
+        }
+
+        String customId = node.path("custom_id").asText();
+        LlmRequest request = requests.apply(customId);
+        JsonNode response = node.path("response");
+        int statusCode = response.path("status_code").asInt(0);
+
+        if (statusCode == 200 && !node.path("error").isObject()) {
+            int inputTokens = provider.countTokens(request.getPrompt(), request.getModelId());
+            return LlmBatchResult.success(customId,
+                    provider.parseResponse(response.path("body"), request, batch.getCreatedAt(), inputTokens));
+        }
+
+        JsonNode error = node.path("error").isObject() ? node.path("error") : response.path("body").path("error");
+        String message = error.path("message").asText("OpenAI batch request failed with status " + statusCode);
+        return LlmBatchResult.failure(customId, new LlmProviderException(message, PROVIDER_ID,
+                request.getModelId(), LlmBatchResult.errorType(statusCode)));
+    }
+
+    private LlmBatch parseBatch(JsonNode node) {
+        JsonNode counts = node.path("request_counts");
+        long createdAt = node.path("created_at").asLong(0);
+        return LlmBatch.builder()
+                .id(node.path("id").asText())
+                .providerId(PROVIDER_ID)
+                .status(parseStatus(node.path("status").asText()))
+                .requestCount(counts.path("total").asInt())
+                .succeededCount(counts.path("completed").asInt())
+                .failedCount(counts.path("failed").asInt())
+                .outputLocation(node.path("output_file_id").isTextual() ? node.path("output_file_id").asText() : null)
+                .errorLocation(node.path("error_file_id").isTextual() ? node.path("error_file_id").asText() : null)
+                .createdAt(createdAt > 0
+                        ? LocalDateTime.ofInstant(Instant.ofEpochSecond(createdAt), ZoneId.systemDefault())
+                        : LocalDateTime.now())
+                .build();
+    }
+
+    private static LlmBatchStatus parseStatus(String status) {
+        return switch (status) {
+            case "completed" -> LlmBatchStatus.COMPLETED;
+            case "failed" -> LlmBatchStatus.FAILED;
+            case "expired" -> LlmBatchStatus.EXPIRED;
+            case "cancelled" -> LlmBatchStatus.CANCELLED;
+            // validating, in_progress, finalizing and cancelling
+            default -> LlmBatchStatus.IN_PROGRESS;
+        };
+    }
+
+    private LlmProviderException mapError(String action, Throwable e) {
+        if (e instanceof WebClientResponseException webClientException) {
+            log.error("OpenAI Batch API error: {} {}", webClientException.getStatusCode(),
+                    webClientException.getResponseBodyAsString());
+            return new LlmProviderException("Failed to " + action + ": " + webClientException.getStatusCode(),
+                    e, PROVIDER_ID, null, LlmBatchResult.errorType(webClientException.getStatusCode().value()));
+        }
+        return new LlmProviderException("Failed to " + action + ": " + e.getMessage(),
+                e, PROVIDER_ID, null, LlmProviderException.ErrorType.UNKNOWN);
+    }
+}
@@ -0,0 +1,158 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.catalog.ModelSpec;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provider for a self-hosted inference server with an OpenAI compatible API, such as vLLM,
+ * the llama.cpp server or Ollama.
+ * <p>
+ * Chat completions and streaming work as with {@link OpenAiProvider}. The models come from the
+ * server's {@code /models} endpoint and are discovered again once the refresh interval has
+ * passed, so models loaded on the server become available without a restart. Calls cost
+ * nothing unless prices are configured for the endpoint.
+ */
+@Slf4j
+public class OpenAiCompatibleProvider extends OpenAiProvider {
+
+    private static final String MODELS_PATH = "/models";
+
+    private final LlmProviderProperties.OpenAiCompatible config;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile List<ModelSpec> models;
+    private volatile long nextRefreshAt;
+
+    public OpenAiCompatibleProvider(LlmProviderProperties.OpenAiCompatible config, WebClient.Builder webClientBuilder,
+                                    Executor executor, TokenizerRegistry tokenizers, ObjectMapper objectMapper,
+                                    boolean retainRawResponse) {
+        super(config.getId(), config.getBaseUrl(), webClientBuilder, config.getApiKey(), executor, tokenizers,
+                objectMapper, retainRawResponse);
+        this.config = config;
+        this.models = config.getModels().stream()
+                .map(modelId -> model(modelId, config.getDefaultContextLength()))
+                .toList();
+    }
+
+    /**
+     * Models found by the last successful discovery, or the configured ones before that
+     */
+    @Override
+    protected List<ModelSpec> builtinModels() {
+        return models;
+    }
+
+    /**
+     * Models served by the endpoint. Starts a discovery in the background when the catalog
+     * is due for a refresh and returns the current catalog meanwhile.
+     */
+    @Override
+    public Map<String, String> getAvailableModels() {
+        if (System.currentTimeMillis() >= nextRefreshAt && refreshing.compareAndSet(false, true)) {
+            refreshModels()
+                    .doFinally(signal -> refreshing.set(false))
+                    .subscribe();
+        }
+        return super.getAvailableModels();
+    }
+
+    /**
+     * Discover the models served by the endpoint and replace the catalog with them. When the
+     * server cannot be reached the current catalog is kept.
+     *
+     * @return Mono emitting the models served after the refresh; never fails
+     */
+    public Mono<Map<String, String>> refreshModels() {
+        return webClient().get()
+                .uri(MODELS_PATH)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(config.getDiscoveryTimeout())
+                .map(this::discovered)
+                .doOnNext(discovered -> {
+                    models = discovered;
+                    publishModels();
+                    log.debug("Discovered {} models on provider {}", discovered.size(), getProviderId());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Model discovery of provider {} failed, keeping {} known models: {}",
+                            getProviderId(), models.size(), e.getMessage());
+                    return Mono.just(models);
+                })
+                .doFinally(signal -> nextRefreshAt = System.currentTimeMillis()
+                        + config.getModelRefreshInterval().toMillis())
+                .map(served -> catalog().models(getProviderId()));
+    }
+
+    /**
+     * Prefix caching on the server needs no separate pricing
+     */
+    @Override
+    public double calculateCost(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens,
+                                String modelId) {
+        return calculateCost(inputTokens, outputTokens, modelId);
+    }
+
+    @Override
+    public int getMaxContextLength(String modelId) {
+        ModelSpec spec = modelSpec(modelId);
+        return spec != null ? spec.getContextLength() : config.getDefaultContextLength();
+    }
+
+    @Override
+    public int getMaxCompletionsPerRequest(String modelId) {
+        return config.getMaxCompletionsPerRequest();
+    }
+
+    /**
+     * The OpenAI request body without the prompt cache key, which is no part of the
+     * self-hosted APIs
+     */
+    @Override
+    ObjectNode createRequestBody(LlmRequest request) {
+        ObjectNode requestBody = super.createRequestBody(request);
+        requestBody.remove("prompt_cache_key");
+        return requestBody;
+    }
+
+    /**
+     * Read the model list; vLLM reports the context length as {@code max_model_len} and the
+     * llama.cpp server as {@code meta.n_ctx_train}, Ollama not at all
+     */
+    private List<ModelSpec> discovered(JsonNode body) {
+        List<ModelSpec> discovered = new ArrayList<>();
+        for (JsonNode model : body.path("data")) {
+            String modelId = model.path("id").asText(null);
+            if (modelId == null) {
+                continue;
+            }
+            int contextLength = model.path("max_model_len").asInt(model.path("meta").path("n_ctx_train").asInt());
+            discovered.add(model(modelId, contextLength > 0 ? contextLength : config.getDefaultContextLength()));
+        }
+        return List.copyOf(discovered);
+    }
+
+    private ModelSpec model(String modelId, int contextLength) {
+        return ModelSpec.builder()
+                .providerId(config.getId())
+                .modelId(modelId)
+                .displayName(modelId)
+                .contextLength(contextLength)
+                .inputCostPerMillionTokens(config.getInputCostPerMillionTokens())
+                .outputCostPerMillionTokens(config.getOutputCostPerMillionTokens())
+                .build();
+    }
+}
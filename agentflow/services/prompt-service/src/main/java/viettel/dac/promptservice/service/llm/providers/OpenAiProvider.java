@@ -1,27 +1,43 @@
 package viettel.dac.promptservice.service.llm.providers;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
 import viettel.dac.promptservice.exception.LlmProviderException;
 import viettel.dac.promptservice.service.llm.BaseLlmProvider;
+import viettel.dac.promptservice.service.llm.catalog.ModelSpec;
+import viettel.dac.promptservice.service.llm.json.IncrementalJsonReader;
+import viettel.dac.promptservice.service.llm.json.JsonValueHandler;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the LlmProvider interface for OpenAI's API
@@ -30,142 +46,230 @@ import java.util.concurrent.Executor;
 public class OpenAiProvider extends BaseLlmProvider {
 
     private static final String PROVIDER_ID = "openai";
-    private static final String API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String API_URL = "https://api.openai.com/v1";
+    private static final String CHAT_COMPLETIONS_PATH = "/chat/completions";
     private static final String DEFAULT_SYSTEM_PROMPT = "You are a helpful assistant.";
-
+    private static final String STREAM_DONE = "[DONE]";
+    private static final double CACHE_READ_COST_FACTOR = 0.5;
+    private static final int MAX_COMPLETIONS_PER_REQUEST = 128;
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final List<ModelSpec> BUILTIN_MODELS = List.of(
+            model("gpt-4-turbo", "GPT-4 Turbo", 128000, 10.0, 30.0),
+            model("gpt-4", "GPT-4", 8192, 30.0, 60.0),
+            model("gpt-3.5-turbo", "GPT-3.5 Turbo", 4096, 1.5, 2.0),
+            model("gpt-3.5-turbo-16k", "GPT-3.5 Turbo 16K", 16384, 3.0, 4.0));
+
+    private final String providerId;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
-    private final Map<String, String> availableModels;
-    private final Map<String, Integer> maxContextLengths;
-    private final Map<String, double[]> modelCosts; // [input cost per 1K tokens, output cost per 1K tokens]
-
-    public OpenAiProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor) {
-        super(executor);
-        this.webClient = webClientBuilder
-                .baseUrl(API_URL)
-                .defaultHeader("Authorization", "Bearer " + apiKey)
-                .defaultHeader("Content-Type", "application/json")
-                .build();
+    private final boolean retainRawResponse;
 
-        this.objectMapper = new ObjectMapper();
-
-        // Initialize available models
-        this.availableModels = new HashMap<>();
-        availableModels.put("gpt-4-turbo", "GPT-4 Turbo");
-        availableModels.put("gpt-4", "GPT-4");
-        availableModels.put("gpt-3.5-turbo", "GPT-3.5 Turbo");
-        availableModels.put("gpt-3.5-turbo-16k", "GPT-3.5 Turbo 16K");
-
-        // Initialize context lengths
-        this.maxContextLengths = new HashMap<>();
-        maxContextLengths.put("gpt-4-turbo", 128000);
-        maxContextLengths.put("gpt-4", 8192);
-        maxContextLengths.put("gpt-3.5-turbo", 4096);
-        maxContextLengths.put("gpt-3.5-turbo-16k", 16384);
-
-        // Initialize costs per 1K tokens [input, output]
-        this.modelCosts = new HashMap<>();
-        modelCosts.put("gpt-4-turbo", new double[]{0.01, 0.03});
-        modelCosts.put("gpt-4", new double[]{0.03, 0.06});
-        modelCosts.put("gpt-3.5-turbo", new double[]{0.0015, 0.002});
-        modelCosts.put("gpt-3.5-turbo-16k", new double[]{0.003, 0.004});
+    public OpenAiProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor,
+                          TokenizerRegistry tokenizers) {
+        this(webClientBuilder, apiKey, executor, tokenizers, new ObjectMapper(), false);
+    }
+
+    /**
+     * @param objectMapper Mapper shared with the rest of the application
+     * @param retainRawResponse Keep the response body as the raw response, at the cost of holding it in memory
+     */
+    public OpenAiProvider(WebClient.Builder webClientBuilder, String apiKey, Executor executor,
+                          TokenizerRegistry tokenizers, ObjectMapper objectMapper, boolean retainRawResponse) {
+        this(PROVIDER_ID, API_URL, webClientBuilder, apiKey, executor, tokenizers, objectMapper, retainRawResponse);
+    }
+
+    /**
+     * Constructor for servers that implement the OpenAI API under another provider ID
+     *
+     * @param providerId The provider ID
+     * @param apiUrl Base URL of the API, up to and including the version segment
+     * @param apiKey The API key, or null if the server does not require one
+     */
+    protected OpenAiProvider(String providerId, String apiUrl, WebClient.Builder webClientBuilder, String apiKey,
+                             Executor executor, TokenizerRegistry tokenizers, ObjectMapper objectMapper,
+                             boolean retainRawResponse) {
+        super(executor, tokenizers);
+        this.providerId = providerId;
+        webClientBuilder
+                .baseUrl(apiUrl)
+                .defaultHeader("Content-Type", "application/json");
+        if (StringUtils.hasText(apiKey)) {
+            webClientBuilder.defaultHeader("Authorization", "Bearer " + apiKey);
+        }
+        this.webClient = webClientBuilder.build();
+
+        this.objectMapper = objectMapper;
+        this.retainRawResponse = retainRawResponse;
     }
 
     @Override
     public String getProviderId() {
-        return PROVIDER_ID;
+        return providerId;
     }
 
+    /**
+     * Models and prices of the OpenAI API, per million tokens
+     */
     @Override
-    public Map<String, String> getAvailableModels() {
-        return availableModels;
+    protected List<ModelSpec> builtinModels() {
+        return BUILTIN_MODELS;
     }
 
     @Override
     public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
-        LocalDateTime startTime = LocalDateTime.now();
-        log.debug("Executing prompt with OpenAI, model: {}", request.getModelId());
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            log.debug("Executing prompt with OpenAI, model: {}", request.getModelId());
 
-        validateRequest(request);
+            validateRequest(request);
 
-        try {
             ObjectNode requestBody = createRequestBody(request);
 
             // Calculate token counts before sending request
-            int inputTokenCount = countTokens(request.getPrompt(), request.getModelId());
+            int inputTokenCount = countPromptTokens(request);
 
-            String response = webClient.post()
+            return webClient.post()
+                    .uri(CHAT_COMPLETIONS_PATH)
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(requestBody)
                     .retrieve()
-                    .bodyToMono(String.class)
+                    .toEntityFlux(DataBuffer.class)
+                    .elapsed()
+                    .flatMap(timed -> IncrementalJsonReader.read(timed.getT2().getBody(), objectMapper.getFactory(),
+                                    new CompletionFields(), retainRawResponse)
+                            .map(fields -> withTimeToFirstByte(withRateLimitStatus(
+                                    toResponse(fields, request, startTime, inputTokenCount), timed.getT2().getHeaders()),
+                                    timed.getT1())))
                     .timeout(Duration.ofMillis(request.getTimeoutMs()))
-                    .onErrorResume(WebClientResponseException.class, e -> {
+                    .onErrorMap(WebClientResponseException.class, e -> {
                         log.error("OpenAI API error: {} {}", e.getStatusCode(), e.getResponseBodyAsString());
-                        throw mapToProviderException(e, request.getModelId());
+                        return mapToProviderException(e, request.getModelId());
                     })
-                    .onErrorResume(e -> {
-                        if (e instanceof LlmProviderException) {
-                            return Mono.error(e);
+                    .onErrorMap(JsonProcessingException.class, e -> new LlmProviderException(
+                            "Failed to parse OpenAI response: " + e.getMessage(),
+                            e, providerId, request.getModelId(),
+                            LlmProviderException.ErrorType.UNKNOWN))
+                    .doOnNext(llmResponse -> log.debug("Successfully executed prompt with OpenAI, model: {}, tokens: {}",
+                            request.getModelId(), llmResponse.getTotalTokenCount()));
+        })
+                .onErrorMap(e -> !(e instanceof LlmProviderException), e -> {
+                    log.error("Error calling OpenAI API: {}", e.getMessage());
+                    LlmProviderException.ErrorType errorType = e instanceof TimeoutException
+                            ? LlmProviderException.ErrorType.TIMEOUT
+                            : LlmProviderException.ErrorType.UNKNOWN;
+                    return new LlmProviderException("OpenAI API call failed: " + e.getMessage(),
+                            e, providerId, request.getModelId(), errorType);
+                });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            log.debug("Streaming prompt with OpenAI, model: {}", request.getModelId());
+
+            validateRequest(request);
+
+            ObjectNode requestBody = createRequestBody(request);
+            requestBody.put("stream", true);
+            requestBody.putObject("stream_options").put("include_usage", true);
+
+            StreamState state = new StreamState(countPromptTokens(request));
+
+            return webClient.post()
+                    .uri(CHAT_COMPLETIONS_PATH)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(SSE_TYPE)
+                    .timeout(Duration.ofMillis(request.getTimeoutMs()))
+                    .takeWhile(event -> !STREAM_DONE.equals(event.data()))
+                    .<LlmStreamChunk>handle((event, sink) -> {
+                        try {
+                            String delta = handleStreamEvent(event, state);
+                            if (delta != null && !delta.isEmpty()) {
+                                sink.next(LlmStreamChunk.delta(delta));
+                            }
+                        } catch (Exception e) {
+                            sink.error(new LlmProviderException(
+                                    "Failed to parse OpenAI stream event: " + e.getMessage(),
+                                    e, providerId, request.getModelId(),
+                                    LlmProviderException.ErrorType.UNKNOWN));
                         }
-                        log.error("Error calling OpenAI API: {}", e.getMessage());
-                        return Mono.error(new LlmProviderException(
-                                "OpenAI API call failed: " + e.getMessage(),
-                                e, PROVIDER_ID, request.getModelId(),
-                                LlmProviderException.ErrorType.UNKNOWN));
                     })
-                    .block();
-
-            JsonNode responseNode = objectMapper.readTree(response);
-            LlmResponse llmResponse = parseResponse(responseNode, request, startTime, inputTokenCount);
-            log.debug("Successfully executed prompt with OpenAI, model: {}, tokens: {}",
-                    request.getModelId(), llmResponse.getTotalTokenCount());
-
-            return llmResponse;
-
-        } catch (LlmProviderException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error executing prompt with OpenAI: {}", e.getMessage(), e);
-            throw new LlmProviderException(
-                    "Failed to execute prompt with OpenAI: " + e.getMessage(),
-                    e, PROVIDER_ID, request.getModelId(),
-                    LlmProviderException.ErrorType.UNKNOWN);
-        }
+                    .concatWith(Mono.fromCallable(() -> LlmStreamChunk.completed(state.toResponse(request, startTime))))
+                    .onErrorMap(e -> !(e instanceof LlmProviderException), e -> mapStreamError(e, request.getModelId()));
+        });
     }
 
     @Override
     public int countTokens(String prompt, String modelId) {
-        // Simple approximation - 4 characters per token
-        // In a production environment, you should use a proper tokenizer
-        // like GPT2Tokenizer from TikToken library
-        return Math.max(1, prompt.length() / 4);
+        return tokenizers.countTokens(prompt, modelId);
     }
 
+    /**
+     * Cached input tokens are billed at half the input price; cache writes cost nothing extra
+     */
     @Override
-    public double calculateCost(int inputTokens, int outputTokens, String modelId) {
-        if (!modelCosts.containsKey(modelId)) {
+    public double calculateCost(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens,
+                                String modelId) {
+        ModelSpec spec = modelSpec(modelId);
+        if (spec == null) {
             return 0.0;
         }
 
-        double[] costs = modelCosts.get(modelId);
-        double inputCost = (inputTokens / 1000.0) * costs[0];
-        double outputCost = (outputTokens / 1000.0) * costs[1];
+        int uncachedTokens = Math.max(0, inputTokens - cacheReadTokens);
+        double inputCost = (uncachedTokens + cacheReadTokens * CACHE_READ_COST_FACTOR) / 1000000.0
+                * spec.getInputCostPerMillionTokens();
+        double outputCost = (outputTokens / 1000000.0) * spec.getOutputCostPerMillionTokens();
 
         return inputCost + outputCost;
     }
 
     @Override
-    public int getMaxContextLength(String modelId) {
-        return maxContextLengths.getOrDefault(modelId, 4096);
+    public int getMaxCompletionsPerRequest(String modelId) {
+        return MAX_COMPLETIONS_PER_REQUEST;
+    }
+
+    private static ModelSpec model(String modelId, String displayName, int contextLength,
+                                   double inputCostPerMillionTokens, double outputCostPerMillionTokens) {
+        return ModelSpec.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(modelId)
+                .displayName(displayName)
+                .contextLength(contextLength)
+                .inputCostPerMillionTokens(inputCostPerMillionTokens)
+                .outputCostPerMillionTokens(outputCostPerMillionTokens)
+                .build();
+    }
+
+    /**
+     * Client bound to the API base URL with the authorization header set
+     */
+    protected WebClient webClient() {
+        return webClient;
+    }
+
+    /**
+     * Mapper used for request and response bodies, shared with the batch client
+     */
+    ObjectMapper objectMapper() {
+        return objectMapper;
     }
 
     /**
      * Create the JSON request body for the OpenAI API
      */
-    private ObjectNode createRequestBody(LlmRequest request) {
+    ObjectNode createRequestBody(LlmRequest request) {
         ObjectNode requestBody = objectMapper.createObjectNode();
-        requestBody.put("model", request.getModelId());
+        requestBody.put("model", apiModelId(request.getModelId()));
 
         // Determine system prompt to use
         String systemPrompt = DEFAULT_SYSTEM_PROMPT;
@@ -188,6 +292,12 @@ public class OpenAiProvider extends BaseLlmProvider {
         requestBody.put("top_p", request.getTopP());
         requestBody.put("n", request.getN());
 
+        // Prompt prefixes are cached automatically; the key routes executions of the same
+        // prompt version to the same cache
+        if (request.getPromptPrefixLength() != null && request.getVersionId() != null) {
+            requestBody.put("prompt_cache_key", request.getVersionId());
+        }
+
         // Add any extra parameters
         if (request.getExtraParams() != null) {
             request.getExtraParams().forEach((key, value) -> {
@@ -209,67 +319,134 @@ public class OpenAiProvider extends BaseLlmProvider {
     /**
      * Parse the OpenAI API response into our LlmResponse format
      */
-    private LlmResponse parseResponse(JsonNode responseNode, LlmRequest request,
-                                      LocalDateTime startTime, int inputTokenCount) {
-
-        List<String> choices = new ArrayList<>();
-        String primaryText = "";
-
-        if (responseNode.has("choices") && responseNode.get("choices").isArray()) {
-            JsonNode choicesNode = responseNode.get("choices");
-            for (int i = 0; i < choicesNode.size(); i++) {
-                JsonNode choice = choicesNode.get(i);
-                if (choice.has("message") && choice.get("message").has("content")) {
-                    String text = choice.get("message").get("content").asText();
-                    if (i == 0) {
-                        primaryText = text;
-                    } else {
-                        choices.add(text);
-                    }
-                }
+    LlmResponse parseResponse(JsonNode responseNode, LlmRequest request,
+                              LocalDateTime startTime, int inputTokenCount) {
+        try {
+            CompletionFields fields = IncrementalJsonReader.read(objectMapper.treeAsTokens(responseNode),
+                    new CompletionFields());
+            if (retainRawResponse) {
+                fields.onRaw(responseNode.toString());
             }
+            return toResponse(fields, request, startTime, inputTokenCount);
+        } catch (IOException e) {
+            throw new LlmProviderException("Failed to parse OpenAI response: " + e.getMessage(),
+                    e, providerId, request.getModelId(), LlmProviderException.ErrorType.UNKNOWN);
         }
+    }
 
-        int outputTokenCount = 0;
-        int totalTokenCount = 0;
-
-        if (responseNode.has("usage")) {
-            JsonNode usageNode = responseNode.get("usage");
-            inputTokenCount = usageNode.has("prompt_tokens") ?
-                    usageNode.get("prompt_tokens").asInt() : inputTokenCount;
-            outputTokenCount = usageNode.has("completion_tokens") ?
-                    usageNode.get("completion_tokens").asInt() : 0;
-            totalTokenCount = usageNode.has("total_tokens") ?
-                    usageNode.get("total_tokens").asInt() : (inputTokenCount + outputTokenCount);
-        } else {
+    /**
+     * Build our LlmResponse from the fields read from a chat completion
+     */
+    private LlmResponse toResponse(CompletionFields fields, LlmRequest request, LocalDateTime startTime,
+                                   int estimatedInputTokens) {
+        String primaryText = fields.choices.getOrDefault(0, "");
+        List<String> choices = fields.choices.entrySet().stream()
+                .filter(entry -> entry.getKey() > 0)
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        return assembleResponse(request, startTime, primaryText, choices,
+                fields.inputTokens != null ? fields.inputTokens : estimatedInputTokens,
+                fields.outputTokens, fields.totalTokens, fields.cacheReadTokens, fields.metadata, fields.raw);
+    }
+
+    /**
+     * Assemble the final LlmResponse from parsed or streamed values
+     */
+    private LlmResponse assembleResponse(LlmRequest request, LocalDateTime startTime, String primaryText,
+                                         List<String> choices, int inputTokenCount, Integer outputTokenCount,
+                                         Integer totalTokenCount, int cacheReadTokens,
+                                         Map<String, Object> metadata, String rawResponse) {
+        if (outputTokenCount == null) {
             // Fallback if usage info is not available
             outputTokenCount = countTokens(primaryText, request.getModelId());
+        }
+        if (totalTokenCount == null) {
             totalTokenCount = inputTokenCount + outputTokenCount;
         }
 
-        double cost = calculateCost(inputTokenCount, outputTokenCount, request.getModelId());
+        double cost = calculateCost(inputTokenCount, outputTokenCount, cacheReadTokens, 0, request.getModelId());
 
-        LlmResponse.LlmResponseBuilder responseBuilder = createBaseResponse(request, startTime)
+        return createBaseResponse(request, startTime)
                 .text(primaryText)
                 .alternatives(choices)
                 .inputTokenCount(inputTokenCount)
                 .outputTokenCount(outputTokenCount)
+                .cacheReadTokenCount(cacheReadTokens)
+                .cacheWriteTokenCount(0)
                 .totalTokenCount(totalTokenCount)
                 .cost(cost)
-                .rawResponse(responseNode.toString())
-                .successful(true);
+                .rawResponse(rawResponse)
+                .successful(true)
+                .metadata(metadata)
+                .build();
+    }
 
-        Map<String, Object> metadata = new HashMap<>();
-        if (responseNode.has("id")) {
-            metadata.put("response_id", responseNode.get("id").asText());
+    /**
+     * Apply one chat.completion.chunk event to the stream state
+     *
+     * @return Text delta of the primary choice carried by the event, or null if there is none
+     */
+    private String handleStreamEvent(ServerSentEvent<String> event, StreamState state) throws Exception {
+        String data = event.data();
+        if (data == null || data.isBlank()) {
+            return null;
+        }
+
+        JsonNode node = objectMapper.readTree(data);
+        if (node.has("id")) {
+            state.metadata.put("response_id", node.get("id").asText());
         }
-        if (responseNode.has("created")) {
-            metadata.put("created_timestamp", responseNode.get("created").asLong());
+        if (node.has("created")) {
+            state.metadata.put("created_timestamp", node.get("created").asLong());
         }
 
-        responseBuilder.metadata(metadata);
+        // With include_usage the final chunk has an empty choices array and the usage block
+        JsonNode usageNode = node.path("usage");
+        if (usageNode.isObject()) {
+            if (usageNode.has("prompt_tokens")) {
+                state.inputTokens = usageNode.get("prompt_tokens").asInt();
+            }
+            if (usageNode.has("completion_tokens")) {
+                state.outputTokens = usageNode.get("completion_tokens").asInt();
+            }
+            if (usageNode.has("total_tokens")) {
+                state.totalTokens = usageNode.get("total_tokens").asInt();
+            }
+            state.cacheReadTokens = usageNode.path("prompt_tokens_details").path("cached_tokens").asInt();
+        }
 
-        return responseBuilder.build();
+        String primaryDelta = null;
+        for (JsonNode choice : node.path("choices")) {
+            JsonNode content = choice.path("delta").path("content");
+            if (!content.isTextual()) {
+                continue;
+            }
+            int index = choice.path("index").asInt(0);
+            state.choices.computeIfAbsent(index, i -> new StringBuilder()).append(content.asText());
+            if (index == 0) {
+                primaryDelta = content.asText();
+            }
+        }
+        return primaryDelta;
+    }
+
+    /**
+     * Map errors raised while streaming to our provider exception
+     */
+    private LlmProviderException mapStreamError(Throwable e, String modelId) {
+        if (e instanceof WebClientResponseException webClientException) {
+            log.error("OpenAI API error: {} {}", webClientException.getStatusCode(),
+                    webClientException.getResponseBodyAsString());
+            return mapToProviderException(webClientException, modelId);
+        }
+        if (e instanceof TimeoutException) {
+            return new LlmProviderException("OpenAI stream timed out", e, providerId, modelId,
+                    LlmProviderException.ErrorType.TIMEOUT);
+        }
+        log.error("Error streaming from OpenAI API: {}", e.getMessage());
+        return new LlmProviderException("OpenAI API call failed: " + e.getMessage(),
+                e, providerId, modelId, LlmProviderException.ErrorType.UNKNOWN);
     }
 
     /**
@@ -312,6 +489,79 @@ public class OpenAiProvider extends BaseLlmProvider {
         }
 
 
-        return new LlmProviderException(message, e, PROVIDER_ID, modelId, errorType);
+        return new LlmProviderException(message, e, providerId, modelId, errorType);
+    }
+
+    /**
+     * Text, usage and metadata fields pulled from a chat completion body
+     */
+    private static final class CompletionFields implements JsonValueHandler {
+        private static final String CHOICE_PREFIX = "choices.";
+        private static final String CHOICE_CONTENT = ".message.content";
+
+        private final Map<Integer, String> choices = new TreeMap<>();
+        private final Map<String, Object> metadata = new HashMap<>();
+        private Integer inputTokens;
+        private Integer outputTokens;
+        private Integer totalTokens;
+        private int cacheReadTokens;
+        private String raw;
+
+        @Override
+        public void onValue(String path, JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            switch (path) {
+                case "id" -> metadata.put("response_id", parser.getText());
+                case "created" -> metadata.put("created_timestamp", parser.getLongValue());
+                case "usage.prompt_tokens" -> inputTokens = parser.getIntValue();
+                case "usage.completion_tokens" -> outputTokens = parser.getIntValue();
+                case "usage.total_tokens" -> totalTokens = parser.getIntValue();
+                case "usage.prompt_tokens_details.cached_tokens" -> cacheReadTokens = parser.getIntValue();
+                default -> {
+                    if (path.startsWith(CHOICE_PREFIX) && path.endsWith(CHOICE_CONTENT)) {
+                        int index = Integer.parseInt(
+                                path.substring(CHOICE_PREFIX.length(), path.length() - CHOICE_CONTENT.length()));
+                        choices.put(index, parser.getText());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onRaw(String raw) {
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * Mutable accumulator for a single streamed response
+     */
+    private final class StreamState {
+        private final Map<Integer, StringBuilder> choices = new TreeMap<>();
+        private final Map<String, Object> metadata = new HashMap<>();
+        private int inputTokens;
+        private Integer outputTokens;
+        private Integer totalTokens;
+        private int cacheReadTokens;
+
+        private StreamState(int estimatedInputTokens) {
+            this.inputTokens = estimatedInputTokens;
+        }
+
+        private LlmResponse toResponse(LlmRequest request, LocalDateTime startTime) {
+            String primaryText = "";
+            List<String> alternatives = new ArrayList<>();
+            for (Map.Entry<Integer, StringBuilder> entry : choices.entrySet()) {
+                if (entry.getKey() == 0) {
+                    primaryText = entry.getValue().toString();
+                } else {
+                    alternatives.add(entry.getValue().toString());
+                }
+            }
+            return assembleResponse(request, startTime, primaryText, alternatives, inputTokens,
+                    outputTokens, totalTokens, cacheReadTokens, metadata, null);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.BaseLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.catalog.ModelSpec;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process provider producing synthetic completions, for load and throughput testing
+ * without network access or API cost.
+ * <p>
+ * Each call waits for a time to first token drawn from the configured distribution and then
+ * generates its output tokens at the configured throughput; streams emit one token per interval.
+ * Errors are injected with the configured probability per error type. Waiting happens on Reactor
+ * timers, so simulated calls on the reactive path do not hold threads.
+ */
+@Slf4j
+public class SimulatedLlmProvider extends BaseLlmProvider {
+
+    private static final String PROVIDER_ID = "simulated";
+    private static final String[] WORDS = {
+            "the", "quick", "brown", "fox", "jumps", "over", "a", "lazy", "dog", "while", "the", "cat", "sleeps"
+    };
+    private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    private final LlmProviderProperties.Simulated config;
+    private final List<ModelSpec> models;
+    private final List<LlmProviderProperties.Simulated.HistogramBucket> histogram;
+    private final long seed;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SimulatedLlmProvider(LlmProviderProperties.Simulated config, Executor executor,
+                                TokenizerRegistry tokenizers) {
+        super(executor, tokenizers);
+        this.config = config;
+        this.seed = config.getSeed() != null ? config.getSeed() : System.nanoTime();
+
+        this.models = config.getModels().stream()
+                .map(model -> ModelSpec.builder()
+                        .providerId(PROVIDER_ID)
+                        .modelId(model)
+                        .displayName("Simulated " + model)
+                        .contextLength(config.getMaxContextLength())
+                        .inputCostPerMillionTokens(config.getInputCostPerMillionTokens())
+                        .outputCostPerMillionTokens(config.getOutputCostPerMillionTokens())
+                        .build())
+                .toList();
+
+        this.histogram = config.getLatencyHistogram().stream()
+                .filter(bucket -> bucket.getUpTo() != null && bucket.getCount() > 0)
+                .sorted(Comparator.comparing(LlmProviderProperties.Simulated.HistogramBucket::getUpTo))
+                .toList();
+    }
+
+    @Override
+    public String getProviderId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    protected List<ModelSpec> builtinModels() {
+        return models;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            log.debug("Executing simulated prompt, model: {}", request.getModelId());
+            validateRequest(request);
+
+            Completion completion = plan(request);
+            if (completion.error != null) {
+                return Mono.delay(completion.firstToken).then(Mono.error(completion.error));
+            }
+            return Mono.delay(completion.duration())
+                    .map(tick -> assembleResponse(request, startTime, completion));
+        });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            LocalDateTime startTime = LocalDateTime.now();
+            validateRequest(request);
+
+            Completion completion = plan(request);
+            if (completion.error != null) {
+                return Mono.delay(completion.firstToken).thenMany(Flux.error(completion.error));
+            }
+            Flux<String> tokens = completion.tokenInterval.isZero()
+                    ? Mono.delay(completion.firstToken).thenMany(Flux.fromIterable(completion.tokens))
+                    : Flux.interval(completion.firstToken, completion.tokenInterval)
+                            .take(completion.tokens.size())
+                            .map(i -> completion.tokens.get(i.intValue()));
+            return tokens.map(LlmStreamChunk::delta)
+                    .concatWith(Mono.fromSupplier(() ->
+                            LlmStreamChunk.completed(assembleResponse(request, startTime, completion))));
+        });
+    }
+
+    @Override
+    public int countTokens(String prompt, String modelId) {
+        return tokenizers.countTokens(prompt, modelId);
+    }
+
+    /**
+     * Draw the latency, outcome and output of one call. Every call takes the next random stream
+     * of the seed, so a seeded provider repeats itself for the same call order.
+     */
+    private Completion plan(LlmRequest request) {
+        SplittableRandom random = new SplittableRandom(seed + sequence.getAndIncrement() * SEED_STRIDE);
+        Duration firstToken = sampleLatency(random);
+        LlmProviderException error = sampleError(random, request);
+
+        int outputTokens = config.getOutputTokens();
+        if (request.getMaxTokens() != null) {
+            outputTokens = Math.min(outputTokens, request.getMaxTokens());
+        }
+        int offset = Math.floorMod(request.getPrompt().hashCode(), WORDS.length);
+        List<String> tokens = new ArrayList<>(outputTokens);
+        for (int i = 0; i < outputTokens; i++) {
+            String word = WORDS[(offset + i) % WORDS.length];
+            tokens.add(i == 0 ? word : " " + word);
+        }
+
+        // A non-positive throughput means unthrottled: every token is ready with the first one
+        Duration tokenInterval = config.getTokensPerSecond() > 0
+                ? Duration.ofNanos(Math.max(1, (long) (1_000_000_000L / config.getTokensPerSecond())))
+                : Duration.ZERO;
+        return new Completion(firstToken, tokenInterval, tokens, error);
+    }
+
+    private Duration sampleLatency(SplittableRandom random) {
+        return switch (config.getLatencyDistribution()) {
+            case FIXED -> config.getFixedLatency();
+            case LOG_NORMAL -> Duration.ofNanos((long) (config.getLogNormalMedian().toNanos()
+                    * Math.exp(config.getLogNormalSigma() * random.nextGaussian())));
+            case HISTOGRAM -> sampleHistogram(random);
+        };
+    }
+
+    /**
+     * Pick a bucket in proportion to its count and a latency uniformly within it
+     */
+    private Duration sampleHistogram(SplittableRandom random) {
+        long total = histogram.stream().mapToLong(LlmProviderProperties.Simulated.HistogramBucket::getCount).sum();
+        if (total == 0) {
+            return config.getFixedLatency();
+        }
+        long pick = random.nextLong(total);
+        long lower = 0;
+        for (LlmProviderProperties.Simulated.HistogramBucket bucket : histogram) {
+            long upper = bucket.getUpTo().toNanos();
+            if (pick < bucket.getCount()) {
+                return Duration.ofNanos(lower + (long) (random.nextDouble() * (upper - lower)));
+            }
+            pick -= bucket.getCount();
+            lower = upper;
+        }
+        return Duration.ofNanos(lower);
+    }
+
+    private LlmProviderException sampleError(SplittableRandom random, LlmRequest request) {
+        double roll = random.nextDouble();
+        double cumulative = 0.0;
+        for (LlmProviderException.ErrorType errorType : LlmProviderException.ErrorType.values()) {
+            cumulative += config.getErrorRates().getOrDefault(errorType, 0.0);
+            if (roll < cumulative) {
+                return new LlmProviderException("Simulated " + errorType + " error",
+                        getProviderId(), request.getModelId(), errorType);
+            }
+        }
+        return null;
+    }
+
+    private LlmResponse assembleResponse(LlmRequest request, LocalDateTime startTime, Completion completion) {
+        int inputTokenCount = countPromptTokens(request);
+        int outputTokenCount = completion.tokens.size();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("simulated", true);
+        metadata.put("time_to_first_token_ms", completion.firstToken.toMillis());
+
+        return createBaseResponse(request, startTime)
+                .text(String.join("", completion.tokens))
+                .alternatives(new ArrayList<>())
+                .inputTokenCount(inputTokenCount)
+                .outputTokenCount(outputTokenCount)
+                .totalTokenCount(inputTokenCount + outputTokenCount)
+                .cost(calculateCost(inputTokenCount, outputTokenCount, request.getModelId()))
+                .successful(true)
+                .metadata(metadata)
+                .build();
+    }
+
+    /**
+     * Planned latency and output of one simulated call
+     */
+    private static final class Completion {
+        private final Duration firstToken;
+        private final Duration tokenInterval;
+        private final List<String> tokens;
+        private final LlmProviderException error;
+
+        private Completion(Duration firstToken, Duration tokenInterval, List<String> tokens,
+                           LlmProviderException error) {
+            this.firstToken = firstToken;
+            this.tokenInterval = tokenInterval;
+            this.tokens = tokens;
+            this.error = error;
+        }
+
+        /**
+         * Time until the last token, which is when a non-streamed response is complete
+         */
+        private Duration duration() {
+            return tokens.isEmpty()
+                    ? firstToken
+                    : firstToken.plus(tokenInterval.multipliedBy(tokens.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Requests-per-minute and tokens-per-minute limiter shared by all callers of a provider model.
+ * <p>
+ * Each provider:model pair has one request bucket and one token bucket. A call reserves one
+ * request and its estimated token cost (prompt plus max output tokens) and waits until both
+ * are available. Limits start from configuration, follow the limits the provider reports in
+ * its headers, halve on a rate limit error and recover gradually on success.
+ */
+@Component
+@Slf4j
+public class ProviderRateLimiter implements LlmProviderDecorator {
+
+    private final LlmProviderProperties.RateLimitConfig config;
+    private final TokenizerRegistry tokenizers;
+    private final LongSupplier clock;
+    private final int defaultMaxTokens;
+    private final Map<String, ModelLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProviderRateLimiter(LlmProviderProperties properties, TokenizerRegistry tokenizers) {
+        this(properties, tokenizers, System::nanoTime);
+    }
+
+    ProviderRateLimiter(LlmProviderProperties properties, TokenizerRegistry tokenizers, LongSupplier clock) {
+        this.config = properties.getRateLimit();
+        this.tokenizers = tokenizers;
+        this.clock = clock;
+        this.defaultMaxTokens = properties.getDefaultMaxTokens();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return isEnabled() ? new RateLimitedLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return RATE_LIMIT_ORDER;
+    }
+
+    /**
+     * Reserve a request and its estimated tokens for a call
+     *
+     * @param providerId The provider ID
+     * @param request The request about to be sent
+     * @return Permit holding the reservation and the time to wait before sending
+     * @throws LlmProviderException with RATE_LIMIT if the wait would exceed the configured maximum
+     */
+    public Permit reserve(String providerId, LlmRequest request) throws LlmProviderException {
+        ModelLimiter limiter = limiterFor(providerId, request.getModelId());
+        int estimatedTokens = estimateTokens(request);
+        long now = clock.getAsLong();
+
+        long waitNanos = Math.max(limiter.requests.reserve(1, now), limiter.tokens.reserve(estimatedTokens, now));
+        Duration wait = Duration.ofNanos(waitNanos);
+
+        if (wait.compareTo(config.getMaxWait()) > 0) {
+            limiter.requests.refund(1, now);
+            limiter.tokens.refund(estimatedTokens, now);
+            throw new LlmProviderException(
+                    String.format("Rate limit wait of %d ms for %s exceeds the maximum of %d ms",
+                            wait.toMillis(), limiter.key, config.getMaxWait().toMillis()),
+                    providerId, request.getModelId(), LlmProviderException.ErrorType.RATE_LIMIT);
+        }
+
+        if (!wait.isZero()) {
+            log.debug("Waiting {} ms for rate limit permits on {}", wait.toMillis(), limiter.key);
+        }
+        return new Permit(limiter, estimatedTokens, wait);
+    }
+
+    /**
+     * Settle a reservation after a successful call using the actual token usage and any
+     * rate limit headers the provider returned
+     *
+     * @param permit The reservation
+     * @param response The provider response
+     */
+    public void onSuccess(Permit permit, LlmResponse response) {
+        if (!permit.settle()) {
+            return;
+        }
+        ModelLimiter limiter = permit.limiter;
+        long now = clock.getAsLong();
+
+        if (response != null && response.getTotalTokenCount() != null) {
+            limiter.tokens.refund(permit.estimatedTokens - response.getTotalTokenCount(), now);
+        }
+
+        RateLimitStatus status = response != null && response.getMetadata() != null
+                && response.getMetadata().get(RateLimitStatus.METADATA_KEY) instanceof RateLimitStatus reported
+                ? reported : null;
+        limiter.apply(status, now);
+        limiter.recover(config.getRecoveryStep(), now);
+    }
+
+    /**
+     * Settle a reservation after a failed call, backing off if the provider rate limited it
+     *
+     * @param permit The reservation
+     * @param error The error raised by the call
+     */
+    public void onError(Permit permit, Throwable error) {
+        if (!permit.settle()) {
+            return;
+        }
+        ModelLimiter limiter = permit.limiter;
+        long now = clock.getAsLong();
+
+        if (!(error instanceof LlmProviderException providerException)
+                || providerException.getErrorType() != LlmProviderException.ErrorType.RATE_LIMIT) {
+            // Nothing was generated, so only the request itself counts against the limits
+            limiter.tokens.refund(permit.estimatedTokens, now);
+            return;
+        }
+
+        RateLimitStatus status = error.getCause() instanceof WebClientResponseException responseException
+                ? RateLimitStatus.fromHeaders(responseException.getHeaders())
+                : null;
+        limiter.apply(status, now);
+
+        Duration pause = status != null && status.getRetryAfter() != null
+                ? status.getRetryAfter()
+                : config.getDefaultRetryAfter();
+        if (pause.compareTo(config.getMaxWait()) > 0) {
+            pause = config.getMaxWait();
+        }
+        limiter.backOff(config.getBackoffFactor(), now + pause.toNanos(), now);
+
+        log.warn("Rate limited by {}, pausing {} ms and lowering limits to {} RPM / {} TPM", limiter.key,
+                pause.toMillis(), Math.round(limiter.requests.getLimit()), Math.round(limiter.tokens.getLimit()));
+    }
+
+    /**
+     * Settle a reservation whose call was cancelled, e.g. by a caller timeout, an early ended
+     * stream or a coalesced caller. A call cancelled before it was sent returns the whole reservation;
+     * one cancelled in flight still counts as a request, as after an error.
+     *
+     * @param permit The reservation
+     * @param sent Whether the request had been sent when it was cancelled
+     */
+    public void onCancel(Permit permit, boolean sent) {
+        if (!permit.settle()) {
+            return;
+        }
+        ModelLimiter limiter = permit.limiter;
+        long now = clock.getAsLong();
+
+        if (!sent) {
+            limiter.requests.refund(1, now);
+        }
+        limiter.tokens.refund(permit.estimatedTokens, now);
+    }
+
+    /**
+     * Share of a provider model's request and token budget that is available right now, relative
+     * to the limits the provider allows. Backed-off and paused models report little or no headroom.
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @return Between 0 and 1; 1 if rate limiting is disabled or the model has not been called yet
+     */
+    public double headroom(String providerId, String modelId) {
+        ModelLimiter limiter = isEnabled() ? limiters.get(providerId + ":" + modelId) : null;
+        if (limiter == null) {
+            return 1.0;
+        }
+        long now = clock.getAsLong();
+        return Math.min(share(limiter.requests.getAvailable(now), limiter.requestCeiling),
+                share(limiter.tokens.getAvailable(now), limiter.tokenCeiling));
+    }
+
+    private static double share(double available, double ceiling) {
+        return ceiling > 0 ? Math.max(0.0, Math.min(1.0, available / ceiling)) : 0.0;
+    }
+
+    /**
+     * Estimate the token cost of a request: prompt and system prompt tokens plus the output budget
+     */
+    int estimateTokens(LlmRequest request) {
+        int promptTokens = tokenizers.countPromptTokens(request,
+                () -> tokenizers.countTokens(request.getPrompt(), request.getModelId()));
+        int systemTokens = request.getSystemPrompt() != null
+                ? tokenizers.countTokens(request.getSystemPrompt(), request.getModelId())
+                : 0;
+        int outputTokens = request.getMaxTokens() != null ? request.getMaxTokens() : defaultMaxTokens;
+        int choices = request.getN() != null && request.getN() > 1 ? request.getN() : 1;
+        return promptTokens + systemTokens + outputTokens * choices;
+    }
+
+    private ModelLimiter limiterFor(String providerId, String modelId) {
+        String key = providerId + ":" + modelId;
+        return limiters.computeIfAbsent(key, k -> {
+            LlmProviderProperties.ModelLimit limit = config.getModels().get(k);
+            if (limit == null) {
+                limit = config.getModels().get(providerId);
+            }
+
+            int requestsPerMinute = limit != null && limit.getRequestsPerMinute() != null
+                    ? limit.getRequestsPerMinute() : config.getRequestsPerMinute();
+            int tokensPerMinute = limit != null && limit.getTokensPerMinute() != null
+                    ? limit.getTokensPerMinute() : config.getTokensPerMinute();
+            return new ModelLimiter(k, requestsPerMinute, tokensPerMinute, clock.getAsLong());
+        });
+    }
+
+    /**
+     * Reservation made by {@link #reserve(String, LlmRequest)}, settled once by the first of
+     * {@link #onSuccess}, {@link #onError} and {@link #onCancel}
+     */
+    public static final class Permit {
+        private final ModelLimiter limiter;
+        private final int estimatedTokens;
+        private final Duration wait;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Permit(ModelLimiter limiter, int estimatedTokens, Duration wait) {
+            this.limiter = limiter;
+            this.estimatedTokens = estimatedTokens;
+            this.wait = wait;
+        }
+
+        /**
+         * Time to wait before sending the request
+         */
+        public Duration getWait() {
+            return wait;
+        }
+
+        public int getEstimatedTokens() {
+            return estimatedTokens;
+        }
+
+        private boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Buckets and ceilings of one provider model
+     */
+    private static final class ModelLimiter {
+        private final String key;
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+        private volatile double requestCeiling;
+        private volatile double tokenCeiling;
+
+        private ModelLimiter(String key, double requestsPerMinute, double tokensPerMinute, long now) {
+            this.key = key;
+            this.requestCeiling = requestsPerMinute;
+            this.tokenCeiling = tokensPerMinute;
+            this.requests = new TokenBucket(requestsPerMinute, now);
+            this.tokens = new TokenBucket(tokensPerMinute, now);
+        }
+
+        /**
+         * Adopt the limits and remaining balances reported by the provider
+         */
+        private void apply(RateLimitStatus status, long now) {
+            if (status == null) {
+                return;
+            }
+            if (status.getRequestLimit() != null) {
+                requestCeiling = adoptCeiling(requests, requestCeiling, status.getRequestLimit(), now);
+            }
+            if (status.getTokenLimit() != null) {
+                tokenCeiling = adoptCeiling(tokens, tokenCeiling, status.getTokenLimit(), now);
+            }
+            if (status.getRemainingRequests() != null) {
+                requests.syncRemaining(status.getRemainingRequests(), now);
+            }
+            if (status.getRemainingTokens() != null) {
+                tokens.syncRemaining(status.getRemainingTokens(), now);
+            }
+        }
+
+        private void backOff(double factor, long pausedUntil, long now) {
+            requests.setLimit(requests.getLimit() * factor, now);
+            tokens.setLimit(tokens.getLimit() * factor, now);
+            requests.pauseUntil(pausedUntil);
+            tokens.pauseUntil(pausedUntil);
+        }
+
+        private void recover(double step, long now) {
+            raiseTowards(requests, requestCeiling, step, now);
+            raiseTowards(tokens, tokenCeiling, step, now);
+        }
+
+        private static double adoptCeiling(TokenBucket bucket, double oldCeiling, double newCeiling, long now) {
+            double limit = bucket.getLimit();
+            // A bucket running at the old ceiling follows the new one, a backed-off bucket keeps recovering
+            if (limit >= oldCeiling || limit > newCeiling) {
+                bucket.setLimit(newCeiling, now);
+            }
+            return newCeiling;
+        }
+
+        private static void raiseTowards(TokenBucket bucket, double ceiling, double step, long now) {
+            double limit = bucket.getLimit();
+            if (limit < ceiling) {
+                bucket.setLimit(Math.min(ceiling, limit + ceiling * step), now);
+            }
+        }
+    }
+}
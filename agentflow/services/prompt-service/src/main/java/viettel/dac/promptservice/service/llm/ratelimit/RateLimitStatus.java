@@ -0,0 +1,169 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rate limit state reported by a provider in its response headers.
+ * <p>
+ * Understands the OpenAI ({@code x-ratelimit-*}) and Anthropic ({@code anthropic-ratelimit-*})
+ * header families as well as the standard {@code retry-after}. Fields a provider did not
+ * report are null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitStatus {
+
+    /**
+     * Key under which providers store the status in {@code LlmResponse.metadata}
+     */
+    public static final String METADATA_KEY = "rate_limit";
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    /**
+     * Requests allowed per minute
+     */
+    private Long requestLimit;
+
+    /**
+     * Requests remaining in the current window
+     */
+    private Long remainingRequests;
+
+    /**
+     * Tokens allowed per minute
+     */
+    private Long tokenLimit;
+
+    /**
+     * Tokens remaining in the current window
+     */
+    private Long remainingTokens;
+
+    /**
+     * Time until the provider accepts requests again; only acted upon for rate limit errors
+     */
+    private Duration retryAfter;
+
+    /**
+     * Parse the rate limit headers of a provider response
+     *
+     * @param headers Response headers
+     * @return Parsed status, or null if the response carries no rate limit headers
+     */
+    public static RateLimitStatus fromHeaders(HttpHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
+
+        RateLimitStatus status = RateLimitStatus.builder()
+                .requestLimit(firstLong(headers, "x-ratelimit-limit-requests", "anthropic-ratelimit-requests-limit"))
+                .remainingRequests(firstLong(headers, "x-ratelimit-remaining-requests",
+                        "anthropic-ratelimit-requests-remaining"))
+                .tokenLimit(firstLong(headers, "x-ratelimit-limit-tokens", "anthropic-ratelimit-tokens-limit"))
+                .remainingTokens(firstLong(headers, "x-ratelimit-remaining-tokens",
+                        "anthropic-ratelimit-tokens-remaining"))
+                .retryAfter(parseRetryAfter(headers))
+                .build();
+
+        return status.isEmpty() ? null : status;
+    }
+
+    /**
+     * Parse an OpenAI style reset duration such as {@code 20ms}, {@code 1s} or {@code 6m0s}
+     *
+     * @param value Header value
+     * @return Parsed duration, or null if the value is not a duration
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis((long) Math.ceil(millis)) : null;
+    }
+
+    private boolean isEmpty() {
+        return requestLimit == null && remainingRequests == null && tokenLimit == null
+                && remainingTokens == null && retryAfter == null;
+    }
+
+    private static Duration parseRetryAfter(HttpHeaders headers) {
+        String retryAfterMs = headers.getFirst("retry-after-ms");
+        if (retryAfterMs != null) {
+            try {
+                return Duration.ofMillis((long) Math.ceil(Double.parseDouble(retryAfterMs.trim())));
+            } catch (NumberFormatException e) {
+                // Fall through to the other headers
+            }
+        }
+
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return Duration.ofMillis((long) Math.ceil(Double.parseDouble(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // HTTP-date form is not used by the supported providers
+            }
+        }
+
+        // OpenAI reports the window resets as durations, Anthropic as an RFC 3339 timestamp
+        Duration requestsReset = parseDuration(headers.getFirst("x-ratelimit-reset-requests"));
+        Duration tokensReset = parseDuration(headers.getFirst("x-ratelimit-reset-tokens"));
+        if (requestsReset != null || tokensReset != null) {
+            if (requestsReset == null || (tokensReset != null && tokensReset.compareTo(requestsReset) > 0)) {
+                return tokensReset;
+            }
+            return requestsReset;
+        }
+
+        String anthropicReset = headers.getFirst("anthropic-ratelimit-requests-reset");
+        if (anthropicReset != null) {
+            try {
+                Duration untilReset = Duration.between(OffsetDateTime.now(), OffsetDateTime.parse(anthropicReset.trim()));
+                return untilReset.isNegative() ? null : untilReset;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Long firstLong(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            String value = headers.getFirst(name);
+            if (value != null) {
+                try {
+                    return Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    // Ignore malformed values
+                }
+            }
+        }
+        return null;
+    }
+}
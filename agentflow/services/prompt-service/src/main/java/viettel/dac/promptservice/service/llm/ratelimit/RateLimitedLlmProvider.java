@@ -0,0 +1,105 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Provider decorator that waits for {@link ProviderRateLimiter} permits before every call.
+ * The blocking path sleeps, the reactive and streaming paths delay without holding a thread.
+ */
+public class RateLimitedLlmProvider extends DelegatingLlmProvider {
+
+    private final ProviderRateLimiter rateLimiter;
+
+    public RateLimitedLlmProvider(LlmProvider delegate, ProviderRateLimiter rateLimiter) {
+        super(delegate);
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        ProviderRateLimiter.Permit permit = rateLimiter.reserve(getProviderId(), request);
+        try {
+            sleep(permit.getWait(), request);
+            LlmResponse response = delegate.executePrompt(request);
+            rateLimiter.onSuccess(permit, response);
+            return response;
+        } catch (RuntimeException e) {
+            rateLimiter.onError(permit, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return limit(request, () -> Mono.fromFuture(() -> delegate.executePromptAsync(request))).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return limit(request, () -> delegate.executePromptReactive(request));
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> {
+            ProviderRateLimiter.Permit permit = rateLimiter.reserve(getProviderId(), request);
+            AtomicBoolean sent = new AtomicBoolean();
+            Flux<LlmStreamChunk> stream = Flux.defer(() -> {
+                        sent.set(true);
+                        return delegate.executePromptStream(request);
+                    })
+                    .doOnNext(chunk -> {
+                        if (chunk.isLast()) {
+                            rateLimiter.onSuccess(permit, chunk.getResponse());
+                        }
+                    })
+                    .doOnError(e -> rateLimiter.onError(permit, e));
+            return (permit.getWait().isZero() ? stream : Mono.delay(permit.getWait()).thenMany(stream))
+                    .doOnCancel(() -> rateLimiter.onCancel(permit, sent.get()));
+        });
+    }
+
+    /**
+     * Reserve permits on subscription, delay the call until they are available and settle
+     * the reservation with the outcome, including cancellation while waiting or in flight
+     */
+    private Mono<LlmResponse> limit(LlmRequest request, Supplier<Mono<LlmResponse>> call) {
+        return Mono.defer(() -> {
+            ProviderRateLimiter.Permit permit = rateLimiter.reserve(getProviderId(), request);
+            AtomicBoolean sent = new AtomicBoolean();
+            Mono<LlmResponse> response = Mono.defer(() -> {
+                        sent.set(true);
+                        return call.get();
+                    })
+                    .doOnNext(result -> rateLimiter.onSuccess(permit, result))
+                    .doOnError(e -> rateLimiter.onError(permit, e));
+            return (permit.getWait().isZero() ? response : Mono.delay(permit.getWait()).then(response))
+                    .doOnCancel(() -> rateLimiter.onCancel(permit, sent.get()));
+        });
+    }
+
+    private void sleep(Duration wait, LlmRequest request) {
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait.toMillis(), wait.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmProviderException("Interrupted while waiting for rate limit permits",
+                    e, getProviderId(), request.getModelId(), LlmProviderException.ErrorType.UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+/**
+ * Token bucket refilled continuously at {@code limit} permits per minute, holding at most one
+ * minute of permits.
+ * <p>
+ * Callers reserve permits up front and are told how long to wait for them. Reservations may
+ * drive the balance negative, so concurrent callers queue behind each other in arrival order
+ * instead of all waking up at the same time. Time is passed in explicitly (nanoseconds) to
+ * keep the bucket deterministic under test.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = 60_000_000_000d;
+
+    private double limit;
+    private double available;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(double limitPerMinute, long nowNanos) {
+        this.limit = Math.max(1, limitPerMinute);
+        this.available = this.limit;
+        this.lastRefillNanos = nowNanos;
+        this.pausedUntilNanos = nowNanos;
+    }
+
+    /**
+     * Reserve permits and compute the wait until they are available. Requests larger than
+     * the bucket are charged a full bucket so they cannot block forever.
+     *
+     * @param permits Number of permits to reserve
+     * @param nowNanos Current time
+     * @return Nanoseconds to wait before using the permits
+     */
+    public synchronized long reserve(double permits, long nowNanos) {
+        refill(nowNanos);
+        available -= Math.min(permits, limit);
+
+        long wait = available >= 0 ? 0 : (long) Math.ceil(-available * NANOS_PER_MINUTE / limit);
+        return Math.max(wait, pausedUntilNanos - nowNanos);
+    }
+
+    /**
+     * Return permits that were reserved but not used, or charge extra ones with a negative value
+     *
+     * @param permits Number of permits to return
+     * @param nowNanos Current time
+     */
+    public synchronized void refund(double permits, long nowNanos) {
+        refill(nowNanos);
+        available = Math.min(limit, available + permits);
+    }
+
+    /**
+     * Lower the balance to what the provider reports as remaining
+     *
+     * @param remaining Remaining permits reported by the provider
+     * @param nowNanos Current time
+     */
+    public synchronized void syncRemaining(double remaining, long nowNanos) {
+        refill(nowNanos);
+        available = Math.min(available, remaining);
+    }
+
+    /**
+     * Stop handing out permits until the given time
+     *
+     * @param untilNanos Time at which permits become available again
+     */
+    public synchronized void pauseUntil(long untilNanos) {
+        pausedUntilNanos = Math.max(pausedUntilNanos, untilNanos);
+        available = Math.min(available, 0);
+    }
+
+    /**
+     * Change the refill rate, keeping the current balance within the new capacity
+     *
+     * @param limitPerMinute New limit in permits per minute
+     * @param nowNanos Current time
+     */
+    public synchronized void setLimit(double limitPerMinute, long nowNanos) {
+        refill(nowNanos);
+        limit = Math.max(1, limitPerMinute);
+        available = Math.min(available, limit);
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public synchronized double getAvailable(long nowNanos) {
+        refill(nowNanos);
+        return available;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(limit, available + elapsed * limit / NANOS_PER_MINUTE);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package viettel.dac.promptservice.service.llm.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One recorded provider response, stored as a line of a cassette file
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CassetteEntry {
+
+    /**
+     * Match key of the request the response was recorded for
+     */
+    private String key;
+
+    private String modelId;
+
+    private String versionId;
+
+    private String parametersHash;
+
+    private String text;
+
+    private Integer inputTokens;
+
+    private Integer outputTokens;
+
+    private Double cost;
+
+    private Long responseTimeMs;
+}
@@ -0,0 +1,295 @@
+package viettel.dac.promptservice.service.llm.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.model.entity.PromptExecution;
+import viettel.dac.promptservice.model.enums.ExecutionStatus;
+import viettel.dac.promptservice.repository.jpa.PromptExecutionRepository;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.LlmRequestKeys;
+import viettel.dac.promptservice.util.HashUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Records provider responses to cassette files and replays them in place of the providers.
+ * <p>
+ * Requests rendered from a prompt version are matched by version, parameter values and model;
+ * other requests by their full fingerprint. A replayed request is answered from the provider's
+ * cassette file first and, failing that, from the successful prompt executions stored for the
+ * version. Several recordings of the same request are replayed in turn. Loaded cassettes and
+ * executions are cached with a size bound and reloaded after they expire.
+ * <p>
+ * Recording only serializes the response on the calling thread, which may be an event loop;
+ * the lines are appended to the cassette files by a single writer thread.
+ */
+@Component
+@Slf4j
+public class CassetteStore implements LlmProviderDecorator {
+
+    private static final String VALIDATION_MARKER = "\n\n--- Validation: ";
+
+    private final LlmProviderProperties.ReplayConfig config;
+    private final PromptExecutionRepository executionRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Cache<String, Map<String, Recordings>> cassettes;
+    private final Cache<String, Map<String, Recordings>> executions;
+    private final Scheduler writer = Schedulers.newSingle("cassette-writer", true);
+
+    @Autowired
+    public CassetteStore(LlmProviderProperties properties, PromptExecutionRepository executionRepository) {
+        this(properties, executionRepository, Ticker.systemTicker());
+    }
+
+    CassetteStore(LlmProviderProperties properties, PromptExecutionRepository executionRepository, Ticker ticker) {
+        this.config = properties.getReplay();
+        this.executionRepository = executionRepository;
+        this.cassettes = recordingsCache(ticker);
+        this.executions = recordingsCache(ticker);
+    }
+
+    /**
+     * Stop the writer once the recordings it was given are appended
+     */
+    @PreDestroy
+    public void stop() {
+        writer.disposeGracefully()
+                .timeout(Duration.ofSeconds(10))
+                .onErrorResume(e -> {
+                    log.warn("Cassette writer did not finish pending recordings: {}", e.getMessage());
+                    writer.dispose();
+                    return Mono.empty();
+                })
+                .block();
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        if (!config.getProviders().isEmpty() && !config.getProviders().contains(provider.getProviderId())) {
+            return provider;
+        }
+        return switch (config.getMode()) {
+            case RECORD -> new RecordingLlmProvider(provider, this);
+            case REPLAY -> new ReplayLlmProvider(provider, this, config.isSimulateLatency());
+            case OFF -> provider;
+        };
+    }
+
+    @Override
+    public int getOrder() {
+        return REPLAY_ORDER;
+    }
+
+    /**
+     * Find a recorded response for a request. May query the database, so it must not be
+     * called on an event loop thread.
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @return The next recorded response, if any
+     */
+    public Optional<CassetteEntry> find(String providerId, LlmRequest request) {
+        String key = key(providerId, request);
+        Recordings recorded = loadIfAbsent(cassettes, providerId, () -> loadCassette(providerId)).get(key);
+        if (recorded == null && config.isUseExecutions()
+                && request.getVersionId() != null && request.getParametersHash() != null) {
+            String executionKey = request.getVersionId() + ':' + providerId + ':' + request.getModelId();
+            recorded = loadIfAbsent(executions, executionKey, () -> loadExecutions(providerId, request))
+                    .get(request.getParametersHash());
+        }
+        return recorded != null ? Optional.of(recorded.next()) : Optional.empty();
+    }
+
+    /**
+     * Append a successful response to the provider's cassette file. The file is written
+     * asynchronously, so this does not block and may be called on an event loop thread.
+     *
+     * @param providerId The provider ID
+     * @param request The LLM request
+     * @param response The provider response
+     */
+    public void record(String providerId, LlmRequest request, LlmResponse response) {
+        if (response == null || !response.isSuccessful()) {
+            return;
+        }
+        CassetteEntry entry = CassetteEntry.builder()
+                .key(key(providerId, request))
+                .modelId(request.getModelId())
+                .versionId(request.getVersionId())
+                .parametersHash(request.getParametersHash())
+                .text(response.getText())
+                .inputTokens(response.getInputTokenCount())
+                .outputTokens(response.getOutputTokenCount())
+                .cost(response.getCost())
+                .responseTimeMs(response.getResponseTimeMs())
+                .build();
+        String line;
+        try {
+            line = objectMapper.writeValueAsString(entry) + System.lineSeparator();
+        } catch (IOException e) {
+            // Recording must never fail the call it records
+            log.warn("Failed to record response of provider {} to cassette: {}", providerId, e.getMessage());
+            return;
+        }
+        try {
+            writer.schedule(() -> append(providerId, line));
+        } catch (RejectedExecutionException e) {
+            log.warn("Cassette writer stopped, response of provider {} not recorded", providerId);
+        }
+    }
+
+    /**
+     * Append a line to a cassette file; only called on the writer thread
+     */
+    private void append(String providerId, String line) {
+        Path file = cassetteFile(providerId);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            cassettes.invalidate(providerId);
+        } catch (IOException e) {
+            log.warn("Failed to record response of provider {} to cassette: {}", providerId, e.getMessage());
+        }
+    }
+
+    private Cache<String, Map<String, Recordings>> recordingsCache(Ticker ticker) {
+        return Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaxSize())
+                .expireAfterWrite(config.getCacheExpireAfterWrite())
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Get a cached value or load it, without holding a map lock while loading: loads read
+     * files or query the database. Concurrent first lookups may both load; the first one
+     * stored wins.
+     */
+    private static <V> V loadIfAbsent(Cache<String, V> cache, String key, Supplier<V> loader) {
+        V value = cache.getIfPresent(key);
+        if (value == null) {
+            value = loader.get();
+            V existing = cache.asMap().putIfAbsent(key, value);
+            if (existing != null) {
+                value = existing;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Match key of a request: version, parameter values and model for rendered prompts,
+     * the full request fingerprint otherwise
+     */
+    static String key(String providerId, LlmRequest request) {
+        if (request.getVersionId() != null && request.getParametersHash() != null) {
+            return HashUtils.sha256Hex(request.getVersionId(), request.getParametersHash(), request.getModelId());
+        }
+        return LlmRequestKeys.fingerprint(providerId, request);
+    }
+
+    private Path cassetteFile(String providerId) {
+        return Paths.get(config.getCassetteDir(), providerId + ".ndjson");
+    }
+
+    private Map<String, Recordings> loadCassette(String providerId) {
+        Path file = cassetteFile(providerId);
+        Map<String, List<CassetteEntry>> entries = new HashMap<>();
+        if (Files.exists(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        CassetteEntry entry = objectMapper.readValue(line, CassetteEntry.class);
+                        entries.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load cassette " + file, e);
+            }
+            log.info("Loaded {} recorded requests for provider {} from {}", entries.size(), providerId, file);
+        }
+        return toRecordings(entries);
+    }
+
+    private Map<String, Recordings> loadExecutions(String providerId, LlmRequest request) {
+        Map<String, List<CassetteEntry>> entries = new HashMap<>();
+        List<PromptExecution> stored = executionRepository.findByVersionIdAndProviderIdAndModelIdAndStatus(
+                request.getVersionId(), providerId, request.getModelId(), ExecutionStatus.SUCCESS);
+        for (PromptExecution execution : stored) {
+            String parametersHash = HashUtils.parametersHash(execution.getInputParameters());
+            entries.computeIfAbsent(parametersHash, k -> new ArrayList<>()).add(CassetteEntry.builder()
+                    .modelId(execution.getModelId())
+                    .versionId(request.getVersionId())
+                    .parametersHash(parametersHash)
+                    .text(stripValidation(execution.getRawResponse()))
+                    .inputTokens(execution.getInputTokens())
+                    .outputTokens(execution.getOutputTokens())
+                    .cost(execution.getCost() != null ? execution.getCost().doubleValue() : null)
+                    .responseTimeMs(execution.getResponseTimeMs())
+                    .build());
+        }
+        return toRecordings(entries);
+    }
+
+    /**
+     * Remove the validation summary appended to stored responses after validation
+     */
+    private static String stripValidation(String rawResponse) {
+        if (rawResponse == null) {
+            return null;
+        }
+        int marker = rawResponse.indexOf(VALIDATION_MARKER);
+        return marker >= 0 ? rawResponse.substring(0, marker) : rawResponse;
+    }
+
+    private static Map<String, Recordings> toRecordings(Map<String, List<CassetteEntry>> entries) {
+        Map<String, Recordings> recordings = new HashMap<>();
+        entries.forEach((key, list) -> recordings.put(key, new Recordings(list)));
+        return recordings;
+    }
+
+    /**
+     * All recordings of one request, replayed in turn
+     */
+    private static final class Recordings {
+        private final List<CassetteEntry> entries;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Recordings(List<CassetteEntry> entries) {
+            this.entries = List.copyOf(entries);
+        }
+
+        private CassetteEntry next() {
+            return entries.get(Math.floorMod(next.getAndIncrement(), entries.size()));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package viettel.dac.promptservice.service.llm.replay;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider decorator that records every successful response of the wrapped provider
+ * to its cassette file
+ */
+public class RecordingLlmProvider extends DelegatingLlmProvider {
+
+    private final CassetteStore cassettes;
+
+    public RecordingLlmProvider(LlmProvider delegate, CassetteStore cassettes) {
+        super(delegate);
+        this.cassettes = cassettes;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        LlmResponse response = delegate.executePrompt(request);
+        cassettes.record(getProviderId(), request, response);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return delegate.executePromptAsync(request)
+                .thenApply(response -> {
+                    cassettes.record(getProviderId(), request, response);
+                    return response;
+                });
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return delegate.executePromptReactive(request)
+                .doOnNext(response -> cassettes.record(getProviderId(), request, response));
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return delegate.executePromptStream(request)
+                .doOnNext(chunk -> {
+                    if (chunk.isLast()) {
+                        cassettes.record(getProviderId(), request, chunk.getResponse());
+                    }
+                });
+    }
+}
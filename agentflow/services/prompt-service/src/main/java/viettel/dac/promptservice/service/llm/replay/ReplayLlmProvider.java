@@ -0,0 +1,103 @@
+package viettel.dac.promptservice.service.llm.replay;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider that answers from recorded responses instead of calling the wrapped provider,
+ * reproducing the recorded token counts, cost and, optionally, response time.
+ * Requests without a recording fail with {@code INVALID_REQUEST}.
+ */
+public class ReplayLlmProvider extends DelegatingLlmProvider {
+
+    /**
+     * Metadata key marking a replayed response
+     */
+    public static final String REPLAYED_METADATA_KEY = "replayed";
+
+    private final CassetteStore cassettes;
+    private final boolean simulateLatency;
+
+    public ReplayLlmProvider(LlmProvider delegate, CassetteStore cassettes, boolean simulateLatency) {
+        super(delegate);
+        this.cassettes = cassettes;
+        this.simulateLatency = simulateLatency;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return executePromptReactive(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.fromCallable(() -> cassettes.find(getProviderId(), request)
+                        .orElseThrow(() -> new LlmProviderException(
+                                "No recorded response for model " + request.getModelId()
+                                        + (request.getVersionId() != null ? " and version " + request.getVersionId() : ""),
+                                getProviderId(), request.getModelId(), LlmProviderException.ErrorType.INVALID_REQUEST)))
+                // Recordings may be loaded from the database on first use
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(entry -> {
+                    LlmResponse response = toResponse(request, entry);
+                    long responseTimeMs = entry.getResponseTimeMs() != null ? entry.getResponseTimeMs() : 0;
+                    return simulateLatency && responseTimeMs > 0
+                            ? Mono.delay(Duration.ofMillis(responseTimeMs)).thenReturn(response)
+                            : Mono.just(response);
+                });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return executePromptReactive(request)
+                .flatMapMany(response -> Flux.just(
+                        LlmStreamChunk.delta(response.getText()),
+                        LlmStreamChunk.completed(response)));
+    }
+
+    private LlmResponse toResponse(LlmRequest request, CassetteEntry entry) {
+        int inputTokens = entry.getInputTokens() != null ? entry.getInputTokens() : 0;
+        int outputTokens = entry.getOutputTokens() != null ? entry.getOutputTokens() : 0;
+        long responseTimeMs = entry.getResponseTimeMs() != null ? entry.getResponseTimeMs() : 0;
+        LocalDateTime startTime = LocalDateTime.now();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(REPLAYED_METADATA_KEY, true);
+
+        return LlmResponse.builder()
+                .request(request)
+                .text(entry.getText())
+                .alternatives(new ArrayList<>())
+                .inputTokenCount(inputTokens)
+                .outputTokenCount(outputTokens)
+                .totalTokenCount(inputTokens + outputTokens)
+                .cost(entry.getCost() != null
+                        ? entry.getCost()
+                        : calculateCost(inputTokens, outputTokens, request.getModelId()))
+                .responseTimeMs(responseTimeMs)
+                .startTime(startTime)
+                .completionTime(startTime.plus(Duration.ofMillis(responseTimeMs)))
+                .successful(true)
+                .metadata(metadata)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package viettel.dac.promptservice.service.llm.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+
+/**
+ * Per provider circuit breaker and semaphore bulkhead.
+ * <p>
+ * Breakers and bulkheads live in the resilience4j registries, so their state and call
+ * metrics are published through Micrometer and the circuitbreakers/bulkheads actuator
+ * endpoints. Only failures that point at the provider (unavailable, timed out, unknown)
+ * count towards opening a circuit; invalid requests and rate limits do not.
+ */
+@Component
+@Slf4j
+public class ProviderCircuitBreaker implements LlmProviderDecorator {
+
+    private static final String NAME_PREFIX = "llm-";
+
+    private final LlmProviderProperties.ResilienceConfig config;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+
+    public ProviderCircuitBreaker(LlmProviderProperties properties, CircuitBreakerRegistry circuitBreakers,
+                                  BulkheadRegistry bulkheads) {
+        this.config = properties.getResilience();
+        this.circuitBreakers = circuitBreakers;
+        this.bulkheads = bulkheads;
+
+        // Log transitions once per breaker, however often its provider is decorated
+        circuitBreakers.getEventPublisher().onEntryAdded(event -> logStateTransitions(event.getAddedEntry()));
+        circuitBreakers.getAllCircuitBreakers().forEach(this::logStateTransitions);
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        if (!config.isEnabled()) {
+            return provider;
+        }
+        String providerId = provider.getProviderId();
+        return new ResilientLlmProvider(provider, circuitBreaker(providerId), bulkhead(providerId));
+    }
+
+    @Override
+    public int getOrder() {
+        return RESILIENCE_ORDER;
+    }
+
+    /**
+     * Get or create the circuit breaker of a provider
+     *
+     * @param providerId The provider ID
+     * @return The circuit breaker
+     */
+    public CircuitBreaker circuitBreaker(String providerId) {
+        return circuitBreakers.circuitBreaker(NAME_PREFIX + providerId,
+                () -> CircuitBreakerConfig.custom()
+                        .failureRateThreshold(config.getFailureRateThreshold())
+                        .slowCallRateThreshold(config.getSlowCallRateThreshold())
+                        .slowCallDurationThreshold(config.getSlowCallDurationThreshold())
+                        .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                        .slidingWindowSize(config.getSlidingWindowSize())
+                        .minimumNumberOfCalls(config.getMinimumNumberOfCalls())
+                        .waitDurationInOpenState(config.getWaitDurationInOpenState())
+                        .permittedNumberOfCallsInHalfOpenState(config.getPermittedNumberOfCallsInHalfOpenState())
+                        .recordException(ProviderCircuitBreaker::isProviderFailure)
+                        .build());
+    }
+
+    /**
+     * Check whether the circuit of a provider is open, i.e. calls to it are currently rejected
+     *
+     * @param providerId The provider ID
+     * @return true if the circuit is open; always false when resilience is disabled
+     */
+    public boolean isOpen(String providerId) {
+        if (!config.isEnabled()) {
+            return false;
+        }
+        CircuitBreaker.State state = circuitBreaker(providerId).getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    /**
+     * Get or create the bulkhead of a provider. Calls that find it full are rejected at once
+     * rather than queued, so a slow provider cannot tie up callers.
+     *
+     * @param providerId The provider ID
+     * @return The bulkhead
+     */
+    public Bulkhead bulkhead(String providerId) {
+        int maxConcurrentCalls = config.getProviderMaxConcurrentCalls()
+                .getOrDefault(providerId, config.getMaxConcurrentCalls());
+        return bulkheads.bulkhead(NAME_PREFIX + providerId, () -> BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    }
+
+    private void logStateTransitions(CircuitBreaker circuitBreaker) {
+        if (!circuitBreaker.getName().startsWith(NAME_PREFIX)) {
+            return;
+        }
+        String providerId = circuitBreaker.getName().substring(NAME_PREFIX.length());
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Circuit breaker of provider {} changed state: {}", providerId, event.getStateTransition()));
+    }
+
+    /**
+     * Check whether an error indicates that the provider itself is failing
+     *
+     * @param error The call error
+     * @return true if the error counts towards opening the circuit
+     */
+    static boolean isProviderFailure(Throwable error) {
+        if (error instanceof LlmProviderException e) {
+            return switch (e.getErrorType()) {
+                case SERVICE_UNAVAILABLE, TIMEOUT, UNKNOWN -> true;
+                default -> false;
+            };
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package viettel.dac.promptservice.service.llm.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider decorator that runs every call through the provider's bulkhead and circuit breaker.
+ * Calls rejected by either fail at once with {@code SERVICE_UNAVAILABLE} instead of waiting
+ * for a provider that is down or saturated.
+ */
+public class ResilientLlmProvider extends DelegatingLlmProvider {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ResilientLlmProvider(LlmProvider delegate, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        super(delegate);
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return executePromptReactive(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> delegate.executePromptReactive(request))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .onErrorMap(ResilientLlmProvider::isRejection, e -> rejected(e, request));
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return Flux.defer(() -> delegate.executePromptStream(request))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .onErrorMap(ResilientLlmProvider::isRejection, e -> rejected(e, request));
+    }
+
+    private static boolean isRejection(Throwable error) {
+        return error instanceof CallNotPermittedException || error instanceof BulkheadFullException;
+    }
+
+    private LlmProviderException rejected(Throwable error, LlmRequest request) {
+        String reason = error instanceof CallNotPermittedException
+                ? "circuit breaker is open after repeated failures"
+                : "too many concurrent calls";
+        return new LlmProviderException("Provider " + getProviderId() + " is unavailable: " + reason,
+                error, getProviderId(), request.getModelId(), LlmProviderException.ErrorType.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,298 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.request.RoutingPolicy;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.model.enums.RoutingObjective;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderFactory;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.ratelimit.ProviderRateLimiter;
+import viettel.dac.promptservice.service.llm.resilience.ProviderCircuitBreaker;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chooses the provider and model of requests sent to the "auto" provider from live statistics:
+ * latency percentiles and error rate from {@link RouteStatistics}, the remaining rate limit budget,
+ * the state of the provider's circuit breaker, and the estimated cost of the request.
+ * <p>
+ * Routes over the policy's cost budget are never used. The others are ranked healthy routes
+ * within the latency limit first, then healthy routes over it, then degraded routes, each group
+ * ordered by the policy's objective. A call that fails on a route for a reason another route may
+ * not share falls back to the next one, up to {@code maxAttempts} routes.
+ */
+@Component
+@Slf4j
+public class LlmModelRouter {
+
+    /**
+     * Provider ID, and model ID, that ask for the route to be chosen by the router
+     */
+    public static final String AUTO = "auto";
+
+    /**
+     * Metadata keys set on routed responses, holding the provider and model that served them
+     */
+    public static final String ROUTED_PROVIDER_METADATA_KEY = "routed_provider";
+    public static final String ROUTED_MODEL_METADATA_KEY = "routed_model";
+
+    private static final RoutingPolicy DEFAULT_POLICY = new RoutingPolicy();
+
+    private final LlmProviderFactory providerFactory;
+    private final RouteStatistics statistics;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderCircuitBreaker circuitBreakers;
+    private final TokenizerRegistry tokenizers;
+    private final LlmProviderProperties.RoutingConfig config;
+    private final int defaultMaxTokens;
+
+    public LlmModelRouter(LlmProviderFactory providerFactory, RouteStatistics statistics,
+                          ProviderRateLimiter rateLimiter, ProviderCircuitBreaker circuitBreakers,
+                          TokenizerRegistry tokenizers, LlmProviderProperties properties) {
+        this.providerFactory = providerFactory;
+        this.statistics = statistics;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreakers = circuitBreakers;
+        this.tokenizers = tokenizers;
+        this.config = properties.getRouting();
+        this.defaultMaxTokens = properties.getDefaultMaxTokens();
+    }
+
+    /**
+     * Make routing available as the "auto" provider
+     */
+    @PostConstruct
+    public void register() {
+        if (config.isEnabled()) {
+            providerFactory.registerRoutingProvider(new RoutedLlmProvider(this));
+        }
+    }
+
+    /**
+     * Rank the routes of a request under its routing policy
+     *
+     * @param request The request; a concrete model ID restricts the routes to providers of that model
+     * @return The routes within the cost budget, best first
+     * @throws LlmProviderException with INVALID_REQUEST if no route is within the budget
+     */
+    public List<Route> rank(LlmRequest request) {
+        RoutingPolicy policy = request.getRouting() != null ? request.getRouting() : DEFAULT_POLICY;
+        List<Route> routes = new ArrayList<>();
+        List<Route> overBudget = new ArrayList<>();
+        // Routes sharing an encoding see the same input, so it is only tokenized once per encoding
+        Map<String, Integer> inputTokens = new HashMap<>();
+        for (Map.Entry<LlmProvider, String> candidate : candidates(request, policy)) {
+            Route route = evaluate(candidate.getKey(), candidate.getValue(), request, policy, inputTokens);
+            if (policy.getMaxCost() != null && route.getEstimatedCost() > policy.getMaxCost()) {
+                overBudget.add(route);
+            } else {
+                routes.add(route);
+            }
+        }
+
+        if (routes.isEmpty()) {
+            throw new LlmProviderException(overBudget.isEmpty()
+                    ? "No provider can serve model " + request.getModelId()
+                    : "No route is within the cost budget of " + policy.getMaxCost() + " USD",
+                    AUTO, request.getModelId(), LlmProviderException.ErrorType.INVALID_REQUEST);
+        }
+
+        routes.sort(Comparator.comparing(Route::isDegraded)
+                .thenComparing(route -> !route.isWithinLatency())
+                .thenComparing(objective(policy.getObjective())));
+        return routes;
+    }
+
+    /**
+     * Execute a request on the best route, falling back to the next routes if it fails
+     *
+     * @param request The request
+     * @return Mono of the response of the route that served it
+     */
+    public Mono<LlmResponse> execute(LlmRequest request) {
+        return Mono.defer(() -> attempt(rank(request), 0));
+    }
+
+    /**
+     * Stream a request from the best route, falling back to the next routes if it fails before
+     * the first chunk
+     *
+     * @param request The request
+     * @return Flux of the chunks of the route that served it
+     */
+    public Flux<LlmStreamChunk> stream(LlmRequest request) {
+        return Flux.defer(() -> streamFrom(rank(request), 0));
+    }
+
+    /**
+     * Find a route of a model ignoring live statistics, e.g. to count tokens or look up limits
+     *
+     * @param modelId The model ID, or "auto" for any route
+     * @return The first provider serving the model with the model it serves, or null if there is none
+     */
+    Map.Entry<LlmProvider, String> defaultRoute(String modelId) {
+        List<Map.Entry<LlmProvider, String>> candidates = candidates(
+                LlmRequest.builder().modelId(modelId).build(), DEFAULT_POLICY);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    private Mono<LlmResponse> attempt(List<Route> routes, int index) {
+        Route route = routes.get(index);
+        return route.getProvider().executePromptReactive(route.getRequest())
+                .map(response -> annotate(response, route))
+                .onErrorResume(e -> canFallBack(routes, index, e), e -> {
+                    log.warn("Route {}:{} failed ({}), falling back to {}:{}", route.getProviderId(),
+                            route.getModelId(), e.getMessage(), routes.get(index + 1).getProviderId(),
+                            routes.get(index + 1).getModelId());
+                    return attempt(routes, index + 1);
+                });
+    }
+
+    private Flux<LlmStreamChunk> streamFrom(List<Route> routes, int index) {
+        Route route = routes.get(index);
+        AtomicBoolean emitted = new AtomicBoolean();
+        return route.getProvider().executePromptStream(route.getRequest())
+                .doOnNext(chunk -> emitted.set(true))
+                .onErrorResume(e -> !emitted.get() && canFallBack(routes, index, e), e -> {
+                    log.warn("Stream on route {}:{} failed ({}), falling back", route.getProviderId(),
+                            route.getModelId(), e.getMessage());
+                    return streamFrom(routes, index + 1);
+                });
+    }
+
+    private boolean canFallBack(List<Route> routes, int index, Throwable error) {
+        return index + 1 < Math.min(routes.size(), config.getMaxAttempts())
+                && RouteStatistics.isRouteFailure(error);
+    }
+
+    /**
+     * Provider models a request may be routed to, as provider and model ID pairs
+     */
+    private List<Map.Entry<LlmProvider, String>> candidates(LlmRequest request, RoutingPolicy policy) {
+        Map<String, LlmProvider> providers = providerFactory.getAllProviders();
+        providers.remove(AUTO);
+
+        List<Map.Entry<LlmProvider, String>> candidates = new ArrayList<>();
+        String modelId = request.getModelId();
+        boolean anyModel = modelId == null || AUTO.equals(modelId);
+        List<String> named = policy.getCandidates() != null && !policy.getCandidates().isEmpty()
+                ? policy.getCandidates()
+                : anyModel ? config.getCandidates() : List.of();
+
+        if (!named.isEmpty()) {
+            for (String route : named) {
+                int separator = route.indexOf(':');
+                LlmProvider provider = separator > 0 ? providers.get(route.substring(0, separator)) : null;
+                String routeModel = separator > 0 ? route.substring(separator + 1) : null;
+                if (provider != null && provider.supportsModel(routeModel)) {
+                    candidates.add(Map.entry(provider, routeModel));
+                }
+            }
+        } else {
+            providers.values().stream()
+                    .sorted(Comparator.comparing(LlmProvider::getProviderId))
+                    .forEach(provider -> {
+                        if (!anyModel) {
+                            if (provider.supportsModel(modelId)) {
+                                candidates.add(Map.entry(provider, modelId));
+                            }
+                        } else {
+                            provider.getAvailableModels().keySet().stream().sorted()
+                                    .forEach(model -> candidates.add(Map.entry(provider, model)));
+                        }
+                    });
+        }
+        return candidates;
+    }
+
+    private Route evaluate(LlmProvider provider, String modelId, LlmRequest request, RoutingPolicy policy,
+                           Map<String, Integer> inputTokens) {
+        String providerId = provider.getProviderId();
+        long p95 = statistics.latency(providerId, modelId, 0.95);
+        double errorRate = statistics.errorRate(providerId, modelId);
+        double headroom = rateLimiter.headroom(providerId, modelId);
+        LlmRequest routeRequest = request.toBuilder().providerId(providerId).modelId(modelId).routing(null).build();
+
+        return Route.builder()
+                .providerId(providerId)
+                .modelId(modelId)
+                .provider(provider)
+                .request(routeRequest)
+                .estimatedCost(estimateCost(provider, routeRequest, inputTokens))
+                .p50Nanos(statistics.latency(providerId, modelId, 0.5))
+                .p95Nanos(p95)
+                .errorRate(errorRate)
+                .rateLimitHeadroom(headroom)
+                .degraded(circuitBreakers.isOpen(providerId)
+                        || errorRate > config.getMaxErrorRate()
+                        || headroom < config.getMinRateLimitHeadroom())
+                .withinLatency(policy.getMaxP95LatencyMs() == null || p95 < 0
+                        || p95 <= policy.getMaxP95LatencyMs() * 1_000_000L)
+                .build();
+    }
+
+    /**
+     * Cost of the request on a route if the whole output budget is used
+     */
+    private double estimateCost(LlmProvider provider, LlmRequest request, Map<String, Integer> inputTokensByEncoding) {
+        String modelId = request.getModelId();
+        int inputTokens = inputTokensByEncoding.computeIfAbsent(TokenizerRegistry.encodingForModel(modelId),
+                encoding -> countInputTokens(provider, request));
+        int outputTokens = request.getMaxTokens() != null ? request.getMaxTokens() : defaultMaxTokens;
+        int choices = request.getN() != null && request.getN() > 1 ? request.getN() : 1;
+        return provider.calculateCost(inputTokens, outputTokens * choices, modelId);
+    }
+
+    /**
+     * Input tokens of a request on a route, the prompt count shared with the providers' memo
+     */
+    private int countInputTokens(LlmProvider provider, LlmRequest request) {
+        String modelId = request.getModelId();
+        int tokens = request.getPrompt() != null
+                ? tokenizers.countPromptTokens(request, () -> provider.countTokens(request.getPrompt(), modelId))
+                : 0;
+        if (request.getSystemPrompt() != null) {
+            tokens += provider.countTokens(request.getSystemPrompt(), modelId);
+        }
+        return tokens;
+    }
+
+    private static Comparator<Route> objective(RoutingObjective objective) {
+        Comparator<Route> byCost = Comparator.comparingDouble(Route::getEstimatedCost);
+        Comparator<Route> byP50 = Comparator.comparingLong(route -> known(route.getP50Nanos()));
+        Comparator<Route> byP95 = Comparator.comparingLong(route -> known(route.getP95Nanos()));
+        return objective == RoutingObjective.FASTEST
+                ? byP95.thenComparing(byCost)
+                : byCost.thenComparing(byP50);
+    }
+
+    /**
+     * Sort routes whose latency is not known yet after those with a known latency
+     */
+    private static long known(long nanos) {
+        return nanos < 0 ? Long.MAX_VALUE : nanos;
+    }
+
+    private static LlmResponse annotate(LlmResponse response, Route route) {
+        Map<String, Object> metadata = response.getMetadata() != null
+                ? new HashMap<>(response.getMetadata())
+                : new HashMap<>();
+        metadata.put(ROUTED_PROVIDER_METADATA_KEY, route.getProviderId());
+        metadata.put(ROUTED_MODEL_METADATA_KEY, route.getModelId());
+        return response.toBuilder().metadata(metadata).build();
+    }
+}
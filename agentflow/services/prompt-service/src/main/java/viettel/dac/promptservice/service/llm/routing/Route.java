@@ -0,0 +1,58 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.ToString;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+/**
+ * One provider model a request can be sent to, with the statistics it was ranked by
+ */
+@Data
+@Builder
+public class Route {
+
+    private String providerId;
+    private String modelId;
+
+    /**
+     * The registered provider the request is sent to
+     */
+    @ToString.Exclude
+    private LlmProvider provider;
+
+    /**
+     * The request addressed to this route
+     */
+    @ToString.Exclude
+    private LlmRequest request;
+
+    /**
+     * Estimated cost in USD, assuming the full output budget is used
+     */
+    private double estimatedCost;
+
+    /**
+     * Median and 95th percentile latency in nanoseconds, -1 while unknown
+     */
+    private long p50Nanos;
+    private long p95Nanos;
+
+    private double errorRate;
+
+    /**
+     * Share of the rate limit budget currently available
+     */
+    private double rateLimitHeadroom;
+
+    /**
+     * Whether the circuit is open, the error rate too high or the rate limit budget exhausted
+     */
+    private boolean degraded;
+
+    /**
+     * Whether the route meets the latency limit of the policy, or its latency is not known yet
+     */
+    private boolean withinLatency;
+}
@@ -0,0 +1,123 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import org.springframework.stereotype.Component;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderDecorator;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling latency and error rate per provider model, read by {@link LlmModelRouter} to rank routes.
+ * <p>
+ * Latencies are those of successful calls as their callers saw them, including rate limit waits
+ * and hedging. Until a model has {@code minSamples} calls its statistics are reported as unknown.
+ */
+@Component
+public class RouteStatistics implements LlmProviderDecorator {
+
+    private final LlmProviderProperties.RoutingConfig config;
+    private final Map<String, RouteWindow> windows = new ConcurrentHashMap<>();
+
+    public RouteStatistics(LlmProviderProperties properties) {
+        this.config = properties.getRouting();
+    }
+
+    @Override
+    public LlmProvider decorate(LlmProvider provider) {
+        return config.isEnabled() ? new TrackedLlmProvider(provider, this) : provider;
+    }
+
+    @Override
+    public int getOrder() {
+        return ROUTING_ORDER;
+    }
+
+    /**
+     * Record a successful call
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param latency Time from the call until the response arrived, or null for streams
+     */
+    public void recordSuccess(String providerId, String modelId, Duration latency) {
+        RouteWindow window = window(providerId, modelId);
+        if (latency != null) {
+            window.recordSuccess(latency.toNanos());
+        } else {
+            window.recordOutcome(false);
+        }
+    }
+
+    /**
+     * Record a failed call; errors caused by the request itself do not count against the route
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param error The call error
+     */
+    public void recordFailure(String providerId, String modelId, Throwable error) {
+        if (isRouteFailure(error)) {
+            window(providerId, modelId).recordFailure();
+        }
+    }
+
+    /**
+     * Latency of successful calls at a percentile
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @param percentile Percentile between 0 and 1
+     * @return Latency in nanoseconds, or -1 if there are not enough samples yet
+     */
+    public long latency(String providerId, String modelId, double percentile) {
+        RouteWindow window = windows.get(key(providerId, modelId));
+        if (window == null || window.latencySamples() < config.getMinSamples()) {
+            return -1;
+        }
+        return window.percentile(percentile);
+    }
+
+    /**
+     * Share of recent calls that failed
+     *
+     * @param providerId The provider ID
+     * @param modelId The model ID
+     * @return Between 0 and 1, or 0 if there are not enough calls yet
+     */
+    public double errorRate(String providerId, String modelId) {
+        RouteWindow window = windows.get(key(providerId, modelId));
+        if (window == null || window.calls() < config.getMinSamples()) {
+            return 0.0;
+        }
+        return window.errorRate();
+    }
+
+    /**
+     * Check whether an error means the route failed, rather than the request being unacceptable
+     * to any route
+     *
+     * @param error The call error
+     * @return true if another route may succeed where this one failed
+     */
+    public static boolean isRouteFailure(Throwable error) {
+        if (error instanceof LlmProviderException e) {
+            return switch (e.getErrorType()) {
+                case CONTEXT_LENGTH, CONTENT_FILTER, INVALID_REQUEST -> false;
+                default -> true;
+            };
+        }
+        return true;
+    }
+
+    private RouteWindow window(String providerId, String modelId) {
+        return windows.computeIfAbsent(key(providerId, modelId), k -> new RouteWindow(config.getWindowSize()));
+    }
+
+    private static String key(String providerId, String modelId) {
+        return providerId + ":" + modelId;
+    }
+}
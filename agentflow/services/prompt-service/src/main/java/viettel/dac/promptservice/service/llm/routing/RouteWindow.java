@@ -0,0 +1,59 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import viettel.dac.promptservice.service.llm.hedging.LatencyWindow;
+
+/**
+ * Most recent call outcomes and successful call latencies of one provider model
+ */
+final class RouteWindow {
+
+    private final LatencyWindow latencies;
+    private final boolean[] failures;
+    private int size;
+    private int next;
+    private int failureCount;
+
+    RouteWindow(int capacity) {
+        this.latencies = new LatencyWindow(capacity);
+        this.failures = new boolean[Math.max(1, capacity)];
+    }
+
+    void recordSuccess(long nanos) {
+        latencies.record(nanos);
+        recordOutcome(false);
+    }
+
+    void recordFailure() {
+        recordOutcome(true);
+    }
+
+    /**
+     * Add an outcome, replacing the oldest one once the window is full
+     */
+    synchronized void recordOutcome(boolean failed) {
+        if (size == failures.length) {
+            failureCount -= failures[next] ? 1 : 0;
+        } else {
+            size++;
+        }
+        failures[next] = failed;
+        failureCount += failed ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    synchronized int calls() {
+        return size;
+    }
+
+    synchronized double errorRate() {
+        return size == 0 ? 0.0 : (double) failureCount / size;
+    }
+
+    int latencySamples() {
+        return latencies.size();
+    }
+
+    long percentile(double percentile) {
+        return latencies.percentile(percentile);
+    }
+}
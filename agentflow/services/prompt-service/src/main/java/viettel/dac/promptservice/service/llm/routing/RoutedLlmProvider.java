@@ -0,0 +1,79 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The "auto" provider: sends each request to the route chosen by {@link LlmModelRouter}.
+ * Requests may name a model, which restricts the routes to providers of that model, or "auto".
+ * Responses keep the request of the route that served them and name it in their metadata.
+ */
+public class RoutedLlmProvider implements LlmProvider {
+
+    private final LlmModelRouter router;
+
+    public RoutedLlmProvider(LlmModelRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public String getProviderId() {
+        return LlmModelRouter.AUTO;
+    }
+
+    @Override
+    public Map<String, String> getAvailableModels() {
+        return Map.of(LlmModelRouter.AUTO, "Best route for the request's routing policy");
+    }
+
+    @Override
+    public boolean supportsModel(String modelId) {
+        return LlmModelRouter.AUTO.equals(modelId) || router.defaultRoute(modelId) != null;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return router.execute(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return router.execute(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return router.execute(request);
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return router.stream(request);
+    }
+
+    @Override
+    public int countTokens(String prompt, String modelId) {
+        Map.Entry<LlmProvider, String> route = router.defaultRoute(modelId);
+        return route != null ? route.getKey().countTokens(prompt, route.getValue()) : 0;
+    }
+
+    @Override
+    public double calculateCost(int inputTokens, int outputTokens, String modelId) {
+        Map.Entry<LlmProvider, String> route = router.defaultRoute(modelId);
+        return route != null ? route.getKey().calculateCost(inputTokens, outputTokens, route.getValue()) : 0.0;
+    }
+
+    @Override
+    public int getMaxContextLength(String modelId) {
+        Map.Entry<LlmProvider, String> route = router.defaultRoute(modelId);
+        return route != null ? route.getKey().getMaxContextLength(route.getValue()) : 0;
+    }
+}
@@ -0,0 +1,55 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.DelegatingLlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider decorator that feeds the latency and outcome of every call to {@link RouteStatistics}.
+ * Streams only count towards the error rate, since their duration depends on the output length.
+ */
+public class TrackedLlmProvider extends DelegatingLlmProvider {
+
+    private final RouteStatistics statistics;
+
+    public TrackedLlmProvider(LlmProvider delegate, RouteStatistics statistics) {
+        super(delegate);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public LlmResponse executePrompt(LlmRequest request) throws LlmProviderException {
+        return executePromptReactive(request).block();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> executePromptAsync(LlmRequest request) {
+        return executePromptReactive(request).toFuture();
+    }
+
+    @Override
+    public Mono<LlmResponse> executePromptReactive(LlmRequest request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return delegate.executePromptReactive(request)
+                    .doOnNext(response -> statistics.recordSuccess(getProviderId(), request.getModelId(),
+                            Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(e -> statistics.recordFailure(getProviderId(), request.getModelId(), e));
+        });
+    }
+
+    @Override
+    public Flux<LlmStreamChunk> executePromptStream(LlmRequest request) {
+        return delegate.executePromptStream(request)
+                .doOnComplete(() -> statistics.recordSuccess(getProviderId(), request.getModelId(), null))
+                .doOnError(e -> statistics.recordFailure(getProviderId(), request.getModelId(), e));
+    }
+}
@@ -0,0 +1,187 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-pair-encoding tokenizer compatible with OpenAI's tiktoken encodings.
+ * <p>
+ * Text is split with the encoding's pre-tokenization pattern, each piece is UTF-8 encoded
+ * into a reusable per-thread buffer and merged by rank. Only the count is produced, so the
+ * hot path allocates nothing beyond the regex matcher.
+ */
+public class BpeTokenizer implements Tokenizer {
+
+    /**
+     * Pre-tokenization pattern of the cl100k_base encoding (GPT-4, GPT-3.5)
+     */
+    public static final Pattern CL100K_PATTERN = Pattern.compile(
+            "'(?i:[sdmt]|ll|ve|re)|[^\\r\\n\\p{L}\\p{N}]?+\\p{L}++|\\p{N}{1,3}+| ?[^\\s\\p{L}\\p{N}]++[\\r\\n]*+"
+                    + "|\\s++$|\\s*[\\r\\n]|\\s+(?!\\S)|\\s",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    /**
+     * Pre-tokenization pattern of the o200k_base encoding (GPT-4o, o-series)
+     */
+    public static final Pattern O200K_PATTERN = Pattern.compile(
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final String encoding;
+    private final Pattern pattern;
+    private final BpeVocabulary vocabulary;
+
+    BpeTokenizer(String encoding, Pattern pattern, BpeVocabulary vocabulary) {
+        this.encoding = encoding;
+        this.pattern = pattern;
+        this.vocabulary = vocabulary;
+    }
+
+    @Override
+    public String getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while (matcher.find()) {
+            int length = scratch.encodeUtf8(text, matcher.start(), matcher.end());
+            count += countPiece(scratch, length);
+        }
+        return count;
+    }
+
+    /**
+     * Count the tokens of one pre-tokenized piece held in the scratch byte buffer
+     */
+    private int countPiece(Scratch scratch, int length) {
+        byte[] bytes = scratch.bytes;
+        if (vocabulary.rank(bytes, 0, length) != BpeVocabulary.NOT_FOUND) {
+            return 1;
+        }
+
+        // Boundaries of the current parts; part j is [starts[j], starts[j + 1])
+        int[] starts = scratch.starts(length + 1);
+        // Rank of merging part j with part j + 1
+        int[] pairRanks = scratch.pairRanks(length + 1);
+
+        int boundaries = length + 1;
+        for (int i = 0; i < boundaries; i++) {
+            starts[i] = i;
+        }
+        for (int j = 0; j + 2 < boundaries; j++) {
+            pairRanks[j] = pairRank(bytes, starts, j, boundaries);
+        }
+
+        while (boundaries > 2) {
+            int best = -1;
+            int bestRank = NO_RANK;
+            for (int j = 0; j + 2 < boundaries; j++) {
+                if (pairRanks[j] < bestRank) {
+                    bestRank = pairRanks[j];
+                    best = j;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+
+            // Merge part best with part best + 1 by dropping boundary best + 1
+            System.arraycopy(starts, best + 2, starts, best + 1, boundaries - best - 2);
+            int pairs = boundaries - 2;
+            if (best + 2 < pairs) {
+                System.arraycopy(pairRanks, best + 2, pairRanks, best + 1, pairs - best - 2);
+            }
+            boundaries--;
+
+            if (best + 2 < boundaries) {
+                pairRanks[best] = pairRank(bytes, starts, best, boundaries);
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = pairRank(bytes, starts, best - 1, boundaries);
+            }
+        }
+
+        return boundaries - 1;
+    }
+
+    private int pairRank(byte[] bytes, int[] starts, int part, int boundaries) {
+        if (part + 2 >= boundaries) {
+            return NO_RANK;
+        }
+        int rank = vocabulary.rank(bytes, starts[part], starts[part + 2]);
+        return rank == BpeVocabulary.NOT_FOUND ? NO_RANK : rank;
+    }
+
+    /**
+     * Per-thread buffers reused across calls
+     */
+    private static final class Scratch {
+        private byte[] bytes = new byte[256];
+        private int[] starts = new int[257];
+        private int[] pairRanks = new int[257];
+
+        int[] starts(int size) {
+            if (starts.length < size) {
+                starts = new int[Math.max(size, starts.length * 2)];
+            }
+            return starts;
+        }
+
+        int[] pairRanks(int size) {
+            if (pairRanks.length < size) {
+                pairRanks = new int[Math.max(size, pairRanks.length * 2)];
+            }
+            return pairRanks;
+        }
+
+        /**
+         * Encode text[from, to) as UTF-8 into the byte buffer, replacing lone surrogates like String.getBytes
+         * @return Number of bytes written
+         */
+        int encodeUtf8(String text, int from, int to) {
+            int required = (to - from) * 3;
+            if (bytes.length < required) {
+                bytes = new byte[Math.max(required, bytes.length * 2)];
+            }
+
+            byte[] out = bytes;
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xc0 | (c >> 6));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = (byte) (0xf0 | (cp >> 18));
+                    out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (cp & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = (byte) '?';
+                } else {
+                    out[n++] = (byte) (0xe0 | (c >> 12));
+                    out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            return n;
+        }
+    }
+}
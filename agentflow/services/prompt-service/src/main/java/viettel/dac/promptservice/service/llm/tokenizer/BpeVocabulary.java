@@ -0,0 +1,129 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Byte-pair-encoding vocabulary stored in compact primitive tables.
+ * <p>
+ * All token byte sequences are concatenated into a single byte pool and indexed by an
+ * open-addressing hash table of ints, so lookups by byte range never allocate.
+ */
+final class BpeVocabulary {
+
+    static final int NOT_FOUND = -1;
+
+    private final byte[] pool;
+    private final int[] offsets;
+    private final int[] ranks;
+    private final int[] slots;
+    private final int mask;
+    private final int size;
+
+    private BpeVocabulary(byte[] pool, int[] offsets, int[] ranks, int size) {
+        this.pool = pool;
+        this.offsets = offsets;
+        this.ranks = ranks;
+        this.size = size;
+
+        int capacity = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int token = 0; token < size; token++) {
+            int slot = hash(pool, offsets[token], offsets[token + 1]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = token + 1;
+        }
+    }
+
+    /**
+     * Load a vocabulary in the tiktoken format: one {@code <base64 token> <rank>} pair per line
+     */
+    static BpeVocabulary load(InputStream in) throws IOException {
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] pool = new byte[1 << 20];
+        int[] offsets = new int[1 << 17];
+        int[] ranks = new int[1 << 17];
+        int poolSize = 0;
+        int size = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (line.isBlank() || space < 0) {
+                    continue;
+                }
+
+                byte[] token = decoder.decode(line.substring(0, space));
+                int rank = Integer.parseInt(line.substring(space + 1).trim());
+
+                if (poolSize + token.length > pool.length) {
+                    pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + token.length));
+                }
+                if (size + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    ranks = Arrays.copyOf(ranks, ranks.length * 2);
+                }
+
+                offsets[size] = poolSize;
+                ranks[size] = rank;
+                System.arraycopy(token, 0, pool, poolSize, token.length);
+                poolSize += token.length;
+                size++;
+            }
+        }
+
+        offsets[size] = poolSize;
+        return new BpeVocabulary(Arrays.copyOf(pool, poolSize), Arrays.copyOf(offsets, size + 1),
+                Arrays.copyOf(ranks, size), size);
+    }
+
+    /**
+     * Get the merge rank of a byte range
+     * @return Rank, or {@link #NOT_FOUND} if the bytes are not a token
+     */
+    int rank(byte[] bytes, int from, int to) {
+        int slot = hash(bytes, from, to) & mask;
+        int length = to - from;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int token = entry - 1;
+            int start = offsets[token];
+            if (offsets[token + 1] - start == length
+                    && Arrays.equals(pool, start, start + length, bytes, from, to)) {
+                return ranks[token];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Get the number of tokens in the vocabulary
+     */
+    int size() {
+        return size;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        // FNV-1a followed by a murmur finalizer to spread short keys across the table
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,32 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+/**
+ * Calibrated token approximation for Anthropic Claude models.
+ * <p>
+ * Claude's tokenizer is not published, so counts are taken from a reference encoder
+ * (cl100k when its vocabulary is available) and scaled by a calibration factor measured
+ * against the usage reported by the Messages API.
+ */
+public class ClaudeTokenizer implements Tokenizer {
+
+    public static final String ENCODING = "claude";
+
+    private final Tokenizer reference;
+    private final double calibration;
+
+    public ClaudeTokenizer(Tokenizer reference, double calibration) {
+        this.reference = reference;
+        this.calibration = calibration;
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        int count = reference.countTokens(text);
+        return count == 0 ? 0 : (int) Math.ceil(count * calibration);
+    }
+}
@@ -0,0 +1,63 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Vocabulary-free token estimate used when no BPE vocabulary is available.
+ * <p>
+ * Splits text with the cl100k pre-tokenization pattern and charges each piece about one
+ * token per six ASCII characters (at least one), weighting non-ASCII characters four times
+ * heavier. Common words stay one token and digits split in threes, which tracks real
+ * encoders far better than a flat characters / 4 on code, numbers and non-Latin scripts.
+ */
+public class HeuristicTokenizer implements Tokenizer {
+
+    public static final String ENCODING = "heuristic";
+
+    private final Pattern pattern;
+
+    public HeuristicTokenizer() {
+        this(BpeTokenizer.CL100K_PATTERN);
+    }
+
+    public HeuristicTokenizer(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while (matcher.find()) {
+            int units = weightedLength(text, matcher.start(), matcher.end());
+            count += Math.max(1, (units + 2) / 6);
+        }
+        return count;
+    }
+
+    private static int weightedLength(String text, int from, int to) {
+        int units = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                units++;
+            } else {
+                units += 4;
+                if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    i++;
+                }
+            }
+        }
+        return units;
+    }
+}
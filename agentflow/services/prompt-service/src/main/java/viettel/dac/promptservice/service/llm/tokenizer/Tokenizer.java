@@ -0,0 +1,20 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+/**
+ * Counts model tokens for a text
+ */
+public interface Tokenizer {
+
+    /**
+     * Get the name of the encoding (e.g., "cl100k_base", "o200k_base")
+     * @return Encoding name
+     */
+    String getEncoding();
+
+    /**
+     * Count the tokens the model sees for a text
+     * @param text The text to count
+     * @return Number of tokens, 0 for null or empty text
+     */
+    int countTokens(String text);
+}
@@ -0,0 +1,192 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the tokenizer for a model and memoizes prompt token counts.
+ * <p>
+ * Vocabularies are loaded lazily, once per encoding. When a vocabulary cannot be found the
+ * encoding degrades to {@link HeuristicTokenizer} and a warning is logged.
+ */
+@Component
+@Slf4j
+public class TokenizerRegistry {
+
+    public static final String CL100K_BASE = "cl100k_base";
+    public static final String O200K_BASE = "o200k_base";
+
+    // Checked in order, so more specific prefixes must come first
+    private static final List<Map.Entry<String, String>> MODEL_PREFIXES = List.of(
+            Map.entry("gpt-4o", O200K_BASE),
+            Map.entry("gpt-4.1", O200K_BASE),
+            Map.entry("gpt-4.5", O200K_BASE),
+            Map.entry("gpt-5", O200K_BASE),
+            Map.entry("chatgpt-4o", O200K_BASE),
+            Map.entry("o1", O200K_BASE),
+            Map.entry("o3", O200K_BASE),
+            Map.entry("o4", O200K_BASE),
+            Map.entry("gpt-4", CL100K_BASE),
+            Map.entry("gpt-3.5", CL100K_BASE),
+            Map.entry("text-embedding-3", CL100K_BASE),
+            Map.entry("text-embedding-ada-002", CL100K_BASE),
+            Map.entry("claude", ClaudeTokenizer.ENCODING));
+
+    private final LlmProviderProperties.TokenizerConfig config;
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private final Map<String, Tokenizer> tokenizers = new ConcurrentHashMap<>();
+    private final Cache<String, PromptTokenCount> promptCounts;
+
+    public TokenizerRegistry(LlmProviderProperties properties) {
+        this.config = properties.getTokenizer();
+        this.promptCounts = Caffeine.newBuilder()
+                .maximumSize(config.getCacheMaxSize())
+                .expireAfterAccess(config.getCacheExpireAfterAccess())
+                .build();
+    }
+
+    /**
+     * Get the tokenizer for a model, falling back to cl100k for unknown models
+     *
+     * @param modelId The model ID
+     * @return Tokenizer for the model
+     */
+    public Tokenizer forModel(String modelId) {
+        return forEncoding(encodingForModel(modelId));
+    }
+
+    /**
+     * Get the tokenizer for an encoding name
+     *
+     * @param encoding Encoding name, e.g. {@link #CL100K_BASE}
+     * @return Tokenizer for the encoding
+     */
+    public Tokenizer forEncoding(String encoding) {
+        Tokenizer tokenizer = tokenizers.get(encoding);
+        if (tokenizer != null) {
+            return tokenizer;
+        }
+        // Claude wraps cl100k, so resolve it outside computeIfAbsent to avoid a recursive update
+        if (ClaudeTokenizer.ENCODING.equals(encoding)) {
+            Tokenizer reference = forEncoding(CL100K_BASE);
+            return tokenizers.computeIfAbsent(encoding,
+                    key -> new ClaudeTokenizer(reference, config.getClaudeCalibration()));
+        }
+        return tokenizers.computeIfAbsent(encoding, this::loadEncoding);
+    }
+
+    /**
+     * Count tokens in a text for a model
+     *
+     * @param text The text to count
+     * @param modelId The model ID
+     * @return Token count
+     */
+    public int countTokens(String text, String modelId) {
+        return forModel(modelId).countTokens(text);
+    }
+
+    /**
+     * Count the prompt tokens of a request, memoized per (versionId, parametersHash, encoding).
+     * Requests without a version or parameter hash are counted directly.
+     *
+     * @param request The LLM request
+     * @param counter Computes the count on a cache miss
+     * @return Token count of the request prompt
+     */
+    public int countPromptTokens(LlmRequest request, IntSupplier counter) {
+        String prompt = request.getPrompt();
+        if (request.getVersionId() == null || request.getParametersHash() == null || prompt == null) {
+            return counter.getAsInt();
+        }
+
+        String key = request.getVersionId() + '\u001f' + request.getParametersHash() + '\u001f'
+                + encodingForModel(request.getModelId());
+
+        PromptTokenCount cached = promptCounts.getIfPresent(key);
+        // Draft versions can be edited in place, so only trust an entry for the same prompt text
+        if (cached != null && cached.matches(prompt)) {
+            return cached.count();
+        }
+
+        int count = counter.getAsInt();
+        promptCounts.put(key, new PromptTokenCount(prompt.length(), prompt.hashCode(), count));
+        return count;
+    }
+
+    /**
+     * Resolve the encoding used by a model
+     *
+     * @param modelId The model ID
+     * @return Encoding name
+     */
+    public static String encodingForModel(String modelId) {
+        if (modelId != null) {
+            for (Map.Entry<String, String> prefix : MODEL_PREFIXES) {
+                if (modelId.startsWith(prefix.getKey())) {
+                    return prefix.getValue();
+                }
+            }
+        }
+        return CL100K_BASE;
+    }
+
+    private Tokenizer loadEncoding(String encoding) {
+        String location;
+        Pattern pattern;
+        switch (encoding) {
+            case CL100K_BASE -> {
+                location = config.getCl100kVocabulary();
+                pattern = BpeTokenizer.CL100K_PATTERN;
+            }
+            case O200K_BASE -> {
+                location = config.getO200kVocabulary();
+                pattern = BpeTokenizer.O200K_PATTERN;
+            }
+            default -> {
+                log.warn("Unknown tokenizer encoding {}, using heuristic estimate", encoding);
+                return new HeuristicTokenizer();
+            }
+        }
+
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            log.warn("Vocabulary for {} not found at {}, using heuristic token estimate", encoding, location);
+            return new HeuristicTokenizer(pattern);
+        }
+
+        try (InputStream in = resource.getInputStream()) {
+            long start = System.nanoTime();
+            BpeVocabulary vocabulary = BpeVocabulary.load(in);
+            log.info("Loaded {} vocabulary with {} tokens in {} ms", encoding, vocabulary.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return new BpeTokenizer(encoding, pattern, vocabulary);
+        } catch (Exception e) {
+            log.error("Failed to load vocabulary for {} from {}: {}", encoding, location, e.getMessage(), e);
+            return new HeuristicTokenizer(pattern);
+        }
+    }
+
+    /**
+     * Memoized count with a fingerprint of the prompt it was computed for
+     */
+    private record PromptTokenCount(int promptLength, int promptHash, int count) {
+        boolean matches(String prompt) {
+            return prompt.length() == promptLength && prompt.hashCode() == promptHash;
+        }
+    }
+}
@@ -127,6 +127,8 @@ public class EntityDtoMapper {
                 .tokenCount(execution.getTokenCount())
                 .inputTokens(execution.getInputTokens())
                 .outputTokens(execution.getOutputTokens())
+                .cacheReadTokens(execution.getCacheReadTokens())
+                .cacheWriteTokens(execution.getCacheWriteTokens())
                 .cost(execution.getCost())
                 .responseTimeMs(execution.getResponseTimeMs())
                 .executedAt(execution.getExecutedAt())
@@ -19,6 +19,7 @@ import viettel.dac.promptservice.model.enums.BatchJobType;
 import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
 import viettel.dac.promptservice.service.PromptVersionService;
 import viettel.dac.promptservice.service.llm.LlmService;
+import viettel.dac.promptservice.service.llm.routing.LlmModelRouter;
 import viettel.dac.promptservice.service.optimization.PromptOptimizationService;
 
 import java.util.*;
@@ -40,9 +41,9 @@ public class PromptOptimizationServiceImpl implements PromptOptimizationService
     private final LlmService llmService;
     private final ApplicationEventPublisher eventPublisher;
 
-    // Default provider and model IDs for optimization
-    private static final String DEFAULT_PROVIDER_ID = "openai";
-    private static final String DEFAULT_MODEL_ID = "gpt-4";
+    // Default provider and model IDs for optimization: let the router choose
+    private static final String DEFAULT_PROVIDER_ID = LlmModelRouter.AUTO;
+    private static final String DEFAULT_MODEL_ID = LlmModelRouter.AUTO;
 
     // Regex patterns for analysis
     private static final Pattern REDUNDANT_TEXT_PATTERN = Pattern.compile("\\b(please|kindly|would you|could you)\\b", Pattern.CASE_INSENSITIVE);
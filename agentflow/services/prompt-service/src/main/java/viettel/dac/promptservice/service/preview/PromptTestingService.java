@@ -1,8 +1,11 @@
 package viettel.dac.promptservice.service.preview;
 
+import reactor.core.publisher.Flux;
 import viettel.dac.promptservice.dto.request.PromptBatchTestRequest;
 import viettel.dac.promptservice.dto.request.PromptTestRequest;
+import viettel.dac.promptservice.dto.response.PromptBatchItemResult;
 import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.dto.response.PromptStreamEvent;
 import viettel.dac.promptservice.dto.validation.ValidationResult;
 
 import java.util.List;
@@ -30,6 +33,24 @@ public interface PromptTestingService {
      */
     CompletableFuture<PromptExecutionResult> testPromptAsync(PromptTestRequest request);
 
+    /**
+     * Test a prompt and stream the generated text as it arrives
+     *
+     * @param request The test request
+     * @return Flux of text delta events followed by a single result event
+     */
+    Flux<PromptStreamEvent> testPromptStream(PromptTestRequest request);
+
+    /**
+     * Asynchronously collect several samples of a prompt with the same parameters, asking for
+     * several completions per provider call where the provider supports it
+     *
+     * @param request The test request
+     * @param samples The number of samples to collect
+     * @return CompletableFuture with one execution result per sample; a failed call yields a single error result
+     */
+    CompletableFuture<List<PromptExecutionResult>> testPromptSamplesAsync(PromptTestRequest request, int samples);
+
     /**
      * Execute batch testing of a prompt with multiple parameter sets
      *
@@ -46,6 +67,14 @@ public interface PromptTestingService {
      */
     CompletableFuture<List<PromptExecutionResult>> batchTestPromptAsync(PromptBatchTestRequest request);
 
+    /**
+     * Execute batch testing and stream every result as soon as it completes
+     *
+     * @param request The batch test request
+     * @return Flux of results in completion order, each carrying the index of its parameter set
+     */
+    Flux<PromptBatchItemResult> batchTestPromptStream(PromptBatchTestRequest request);
+
     /**
      * Validate a prompt response against specified validation criteria
      *
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.stat.inference.AlternativeHypothesis;
 import org.apache.commons.math3.stat.inference.BinomialTest;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
@@ -29,6 +30,7 @@ import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
 import viettel.dac.promptservice.security.SecurityUtils;
 import viettel.dac.promptservice.service.impl.PromptVersionServiceImpl;
 import viettel.dac.promptservice.service.impl.PromptTestingServiceImpl;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
 import viettel.dac.promptservice.service.testing.AbTestService;
 
 import java.math.BigDecimal;
@@ -36,6 +38,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +55,8 @@ public class AbTestServiceImpl implements AbTestService {
     private final PromptTestingServiceImpl testingService;
     private final PromptVersionServiceImpl versionService;
     private final SecurityUtils securityUtils;
+    private final LlmProviderProperties providerProperties;
+    private final TaskExecutor taskExecutor;
 
     // Default metrics
     private static final String METRIC_SUCCESS_RATE = "success_rate";
@@ -558,36 +563,47 @@ public class AbTestServiceImpl implements AbTestService {
         BigDecimal totalCost = BigDecimal.ZERO;
         List<String> executionIds = new ArrayList<>();
 
-        for (int i = 0; i < batchSize; i++) {
-            try {
-                PromptExecutionResult executionResult = testingService.testPrompt(testRequest);
+        // Identical parameters let the samples share provider calls where the provider returns
+        // several completions per call; otherwise dispatch one call per sample, then collect
+        List<CompletableFuture<List<PromptExecutionResult>>> futures = new ArrayList<>();
+        if (providerProperties.getSampling().isEnabled()) {
+            futures.add(testingService.testPromptSamplesAsync(testRequest, batchSize));
+        } else {
+            for (int i = 0; i < batchSize; i++) {
+                futures.add(testingService.testPromptAsync(testRequest).thenApply(List::of));
+            }
+        }
 
-                // Track execution ID
-                if (executionResult.getExecutionId() != null) {
-                    executionIds.add(executionResult.getExecutionId());
-                }
+        for (CompletableFuture<List<PromptExecutionResult>> future : futures) {
+            try {
+                for (PromptExecutionResult executionResult : future.join()) {
+                    // Track execution ID
+                    if (executionResult.getExecutionId() != null) {
+                        executionIds.add(executionResult.getExecutionId());
+                    }
 
-                // Determine success based on evaluation metric
-                boolean success = evaluateSuccess(test.getEvaluationMetric(), executionResult);
-                if (success) {
-                    successes++;
-                }
+                    // Determine success based on evaluation metric
+                    boolean success = evaluateSuccess(test.getEvaluationMetric(), executionResult);
+                    if (success) {
+                        successes++;
+                    }
 
-                // Track metrics
-                if (executionResult.getResponseTimeMs() != null) {
-                    totalResponseTime += executionResult.getResponseTimeMs();
-                }
+                    // Track metrics
+                    if (executionResult.getResponseTimeMs() != null) {
+                        totalResponseTime += executionResult.getResponseTimeMs();
+                    }
 
-                if (executionResult.getTokenCount() != null) {
-                    totalTokens += executionResult.getTokenCount();
-                }
+                    if (executionResult.getTokenCount() != null) {
+                        totalTokens += executionResult.getTokenCount();
+                    }
 
-                if (executionResult.getCost() != null) {
-                    totalCost = totalCost.add(executionResult.getCost());
+                    if (executionResult.getCost() != null) {
+                        totalCost = totalCost.add(executionResult.getCost());
+                    }
                 }
-
             } catch (Exception e) {
-                log.error("Error running test execution for A/B test {}: {}", test.getId(), e.getMessage());
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Error running test execution for A/B test {}: {}", test.getId(), cause.getMessage());
             }
         }
 
@@ -782,17 +798,9 @@ public class AbTestServiceImpl implements AbTestService {
             // Run the test iteration
             AbTest updatedTest = runTestIteration(test);
 
-            // If test is still active, schedule next iteration
+            // If test is still active, schedule next iteration; pacing is left to the provider rate limiter
             if (updatedTest.isActive()) {
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        // Wait a bit to avoid hitting rate limits
-                        Thread.sleep(1000);
-                        runTestAsync(updatedTest.getId());
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                });
+                CompletableFuture.runAsync(() -> runTestAsync(updatedTest.getId()), taskExecutor);
             }
 
             return CompletableFuture.completedFuture(convertToResponse(updatedTest));
@@ -0,0 +1,436 @@
+package viettel.dac.promptservice.service.validation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import viettel.dac.promptservice.dto.validation.ValidationResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Response validation criteria compiled once: texts and patterns are extracted and compiled,
+ * malformed criteria are turned into rules that fail with their message, and JSON is checked
+ * with a shared streaming parser instead of a new ObjectMapper per response.
+ * <p>
+ * Instances are immutable and thread-safe, so one compiled set of criteria can validate any
+ * number of responses concurrently. Obtain them through {@link ResponseValidator#compile(Map)},
+ * which caches them.
+ */
+@Slf4j
+public final class CompiledCriteria {
+
+    /**
+     * Criteria without rules; every non-empty response passes
+     */
+    public static final CompiledCriteria NONE = new CompiledCriteria(Map.of(), List.of(), StreamingRules.NONE);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Map<String, Object> criteria;
+    private final List<CompiledRule> rules;
+    private final StreamingRules streamingRules;
+
+    private CompiledCriteria(Map<String, Object> criteria, List<CompiledRule> rules, StreamingRules streamingRules) {
+        this.criteria = criteria;
+        this.rules = rules;
+        this.streamingRules = streamingRules;
+    }
+
+    /**
+     * Compile validation criteria
+     *
+     * @param validationCriteria Map of validation rules to apply
+     * @return The compiled criteria
+     */
+    public static CompiledCriteria compile(Map<String, Object> validationCriteria) {
+        if (validationCriteria == null || validationCriteria.isEmpty()) {
+            return NONE;
+        }
+        List<CompiledRule> rules = new ArrayList<>(validationCriteria.size());
+        for (Map.Entry<String, Object> entry : validationCriteria.entrySet()) {
+            rules.add(compileRule(entry.getKey(), entry.getValue()));
+        }
+        return new CompiledCriteria(new LinkedHashMap<>(validationCriteria), List.copyOf(rules),
+                StreamingRules.compile(validationCriteria));
+    }
+
+    /**
+     * Criteria the rules were compiled from
+     */
+    Map<String, Object> getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Rules that can be checked on a partial response, for {@link StreamingValidation}
+     */
+    StreamingRules getStreamingRules() {
+        return streamingRules;
+    }
+
+    /**
+     * Validate an LLM response
+     *
+     * @param response The LLM response text
+     * @return Validation result with details
+     */
+    public ValidationResult validate(String response) {
+        if (response == null || response.isEmpty()) {
+            ValidationResult result = ValidationResult.builder()
+                    .passed(false)
+                    .score(0.0)
+                    .build();
+            result.addIssue("empty_response", "Response is empty", ValidationResult.ValidationSeverity.ERROR);
+            return result;
+        }
+
+        ValidationResult result = ValidationResult.builder().build();
+        double scoreSum = 0.0;
+        int scored = 0;
+        boolean overallPassed = true;
+
+        for (CompiledRule rule : rules) {
+            if (rule.check == null) {
+                result.addIssue(rule.name, "Unknown validation rule", ValidationResult.ValidationSeverity.WARNING);
+                continue;
+            }
+            boolean passed = rule.check.apply(response, result);
+            double score = passed ? 1.0 : 0.0;
+            result.addRuleResult(rule.name, passed, passed ? rule.passMessage : rule.failMessage, score);
+            scoreSum += score;
+            scored++;
+            overallPassed &= passed;
+        }
+
+        result.setPassed(overallPassed);
+        result.setScore(scored == 0 ? 1.0 : scoreSum / scored);
+        return result;
+    }
+
+    private static CompiledRule compileRule(String rule, Object criterion) {
+        return switch (rule) {
+            case "contains" -> new CompiledRule(rule, containsCheck(criterion),
+                    "Response contains the required text", "Response does not contain the required text");
+            case "not_contains" -> new CompiledRule(rule, notContainsCheck(criterion),
+                    "Response does not contain the forbidden text", "Response contains forbidden text");
+            case "regex_match" -> new CompiledRule(rule, regexCheck(criterion),
+                    "Response matches the required pattern", "Response does not match the required pattern");
+            case "min_length" -> new CompiledRule(rule, minLengthCheck(criterion),
+                    "Response meets minimum length requirement", "Response is too short");
+            case "max_length" -> new CompiledRule(rule, maxLengthCheck(criterion),
+                    "Response is within maximum length", "Response exceeds maximum length");
+            case "json_format" -> new CompiledRule(rule, CompiledCriteria::checkJsonFormat,
+                    "Response is valid JSON", "Response is not valid JSON");
+            case "json_schema" -> new CompiledRule(rule, jsonSchemaCheck(criterion),
+                    "Response matches the JSON schema", "Response does not match the JSON schema");
+            case "structure" -> new CompiledRule(rule, structureCheck(criterion),
+                    "Response has the required structure", "Response missing required structure");
+            default -> {
+                log.warn("Unknown validation rule: {}", rule);
+                yield new CompiledRule(rule, null, null, null);
+            }
+        };
+    }
+
+    /**
+     * Check that response contains specific text(s)
+     */
+    private static RuleCheck containsCheck(Object criterion) {
+        List<String> texts = texts(criterion);
+        if (texts == null) {
+            return invalidFormat("contains");
+        }
+        return (response, result) -> {
+            boolean allContained = true;
+            for (String text : texts) {
+                if (!response.contains(text)) {
+                    result.addIssue("contains", "Response does not contain: " + text, ValidationResult.ValidationSeverity.ERROR);
+                    allContained = false;
+                }
+            }
+            return allContained;
+        };
+    }
+
+    /**
+     * Check that response does not contain specific text(s)
+     */
+    private static RuleCheck notContainsCheck(Object criterion) {
+        List<String> texts = texts(criterion);
+        if (texts == null) {
+            return invalidFormat("not_contains");
+        }
+        return (response, result) -> {
+            boolean noneContained = true;
+            for (String text : texts) {
+                if (response.contains(text)) {
+                    result.addIssue("not_contains", "Response contains forbidden text: " + text, ValidationResult.ValidationSeverity.ERROR);
+                    noneContained = false;
+                }
+            }
+            return noneContained;
+        };
+    }
+
+    /**
+     * Check that response matches a regex pattern
+     */
+    private static RuleCheck regexCheck(Object criterion) {
+        if (!(criterion instanceof String patternStr)) {
+            return invalidFormat("regex_match");
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(patternStr, Pattern.DOTALL);
+        } catch (Exception e) {
+            String message = "Invalid regex pattern: " + e.getMessage();
+            return (response, result) -> {
+                result.addIssue("regex_match", message, ValidationResult.ValidationSeverity.ERROR);
+                return false;
+            };
+        }
+        return (response, result) -> {
+            boolean matches = pattern.matcher(response).find();
+            if (!matches) {
+                result.addIssue("regex_match", "Response does not match pattern: " + patternStr, ValidationResult.ValidationSeverity.ERROR);
+            }
+            return matches;
+        };
+    }
+
+    /**
+     * Check that response meets minimum length
+     */
+    private static RuleCheck minLengthCheck(Object criterion) {
+        Integer minLength = length(criterion);
+        if (minLength == null) {
+            return invalidFormat("min_length");
+        }
+        return (response, result) -> {
+            boolean valid = response.length() >= minLength;
+            if (!valid) {
+                result.addIssue("min_length", "Response length (" + response.length() + ") is less than minimum required (" + minLength + ")", ValidationResult.ValidationSeverity.ERROR);
+            }
+            return valid;
+        };
+    }
+
+    /**
+     * Check that response does not exceed maximum length
+     */
+    private static RuleCheck maxLengthCheck(Object criterion) {
+        Integer maxLength = length(criterion);
+        if (maxLength == null) {
+            return invalidFormat("max_length");
+        }
+        return (response, result) -> {
+            boolean valid = response.length() <= maxLength;
+            if (!valid) {
+                result.addIssue("max_length", "Response length (" + response.length() + ") exceeds maximum allowed (" + maxLength + ")", ValidationResult.ValidationSeverity.ERROR);
+            }
+            return valid;
+        };
+    }
+
+    /**
+     * Check that response is valid JSON. As when reading a tree, the first value must be
+     * well-formed and anything after it is ignored.
+     */
+    private static boolean checkJsonFormat(String response, ValidationResult result) {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            int depth = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                } else if (token == JsonToken.VALUE_STRING) {
+                    // Decodes the escapes, which skipping the string would not check
+                    parser.getTextLength();
+                }
+                if (depth == 0) {
+                    break;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            result.addIssue("json_format", "Response is not valid JSON: " + e.getMessage(), ValidationResult.ValidationSeverity.ERROR);
+            return false;
+        }
+    }
+
+    /**
+     * Check that response is JSON matching a schema
+     */
+    private static RuleCheck jsonSchemaCheck(Object criterion) {
+        JsonSchemaCheck schema;
+        try {
+            schema = JsonSchemaCheck.compile(criterion);
+        } catch (IllegalArgumentException e) {
+            return invalidFormat("json_schema");
+        }
+        return (response, result) -> {
+            List<String> violations = new ArrayList<>();
+            try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+                if (parser.nextToken() == null) {
+                    result.addIssue("json_schema", "Response is not valid JSON: no content", ValidationResult.ValidationSeverity.ERROR);
+                    return false;
+                }
+                schema.check(parser, "$", violations);
+            } catch (IOException e) {
+                result.addIssue("json_schema", "Response is not valid JSON: " + e.getMessage(), ValidationResult.ValidationSeverity.ERROR);
+                return false;
+            }
+            for (String violation : violations) {
+                result.addIssue("json_schema", violation, ValidationResult.ValidationSeverity.ERROR);
+            }
+            return violations.isEmpty();
+        };
+    }
+
+    /**
+     * Check that response has required structure (sections, headers, etc.)
+     */
+    private static RuleCheck structureCheck(Object criterion) {
+        if (!(criterion instanceof Map<?, ?> structure)) {
+            return invalidFormat("structure");
+        }
+        List<String> sections = structure.containsKey("sections") ? texts(structure.get("sections")) : List.of();
+        List<String> headers = structure.containsKey("headers") ? texts(structure.get("headers")) : List.of();
+        if (sections == null || headers == null) {
+            return invalidFormat("structure");
+        }
+
+        // Markdown headers (# Header) or uppercase headers
+        List<Pattern> headerPatterns = headers.stream()
+                .map(header -> Pattern.compile("(?m)(^#+ " + Pattern.quote(header) + "\\s*$)|(^"
+                        + Pattern.quote(header.toUpperCase()) + "\\s*$)"))
+                .toList();
+
+        return (response, result) -> {
+            boolean valid = true;
+            for (String section : sections) {
+                // Simple heuristic: check if section header exists
+                if (!response.contains(section)) {
+                    result.addIssue("structure", "Response missing required section: " + section, ValidationResult.ValidationSeverity.ERROR);
+                    valid = false;
+                }
+            }
+            for (int i = 0; i < headers.size(); i++) {
+                if (!headerPatterns.get(i).matcher(response).find()) {
+                    result.addIssue("structure", "Response missing required header: " + headers.get(i), ValidationResult.ValidationSeverity.ERROR);
+                    valid = false;
+                }
+            }
+            return valid;
+        };
+    }
+
+    private static RuleCheck invalidFormat(String rule) {
+        String message = "Invalid criterion format for '" + rule + "' rule";
+        return (response, result) -> {
+            result.addIssue(rule, message, ValidationResult.ValidationSeverity.ERROR);
+            return false;
+        };
+    }
+
+    /**
+     * A text or a list of texts, null if the criterion is neither
+     */
+    private static List<String> texts(Object criterion) {
+        if (criterion instanceof String text) {
+            return List.of(text);
+        }
+        if (criterion instanceof List<?> list) {
+            return list.stream().map(String::valueOf).toList();
+        }
+        return null;
+    }
+
+    private static Integer length(Object criterion) {
+        if (criterion == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(criterion.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check of one rule; adds its issues to the result and returns whether it passed
+     */
+    @FunctionalInterface
+    private interface RuleCheck {
+        boolean apply(String response, ValidationResult result);
+    }
+
+    /**
+     * A rule with its check and messages; unknown rules have no check
+     */
+    private record CompiledRule(String name, RuleCheck check, String passMessage, String failMessage) {
+    }
+
+    /**
+     * The rules that more text can no longer satisfy once they fail: {@code max_length},
+     * {@code not_contains}, {@code json_format} and {@code regex_match} with a pattern anchored
+     * at the start of the response
+     */
+    record StreamingRules(Integer maxLength, List<String> forbidden, Pattern anchoredPattern, boolean json) {
+
+        static final StreamingRules NONE = new StreamingRules(null, List.of(), null, false);
+
+        static StreamingRules compile(Map<String, Object> validationCriteria) {
+            return new StreamingRules(length(validationCriteria.get("max_length")),
+                    forbidden(validationCriteria.get("not_contains")),
+                    anchoredPattern(validationCriteria.get("regex_match")),
+                    validationCriteria.containsKey("json_format"));
+        }
+
+        /**
+         * Check whether any rule can fail before the response is complete
+         */
+        boolean canTerminateEarly() {
+            return maxLength != null || !forbidden.isEmpty() || anchoredPattern != null || json;
+        }
+
+        private static List<String> forbidden(Object criterion) {
+            List<String> texts = new ArrayList<>();
+            if (criterion instanceof String text) {
+                texts.add(text);
+            } else if (criterion instanceof List<?> list) {
+                for (Object item : list) {
+                    if (item instanceof String text) {
+                        texts.add(text);
+                    }
+                }
+            }
+            return List.copyOf(texts);
+        }
+
+        /**
+         * Compile the pattern if it can only match at the start of the response; other patterns
+         * could still match in text yet to come
+         */
+        private static Pattern anchoredPattern(Object criterion) {
+            if (!(criterion instanceof String patternStr)
+                    || !(patternStr.startsWith("^") || patternStr.startsWith("\\A"))
+                    || patternStr.contains("|")) {
+                return null;
+            }
+            try {
+                return Pattern.compile(patternStr, Pattern.DOTALL);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package viettel.dac.promptservice.service.validation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiled subset of JSON Schema, checked against the tokens of a streaming parser so no tree
+ * of the response is built.
+ * <p>
+ * Supported keywords are {@code type} (a name or a list of names), {@code properties},
+ * {@code required} and {@code items}; other keywords are ignored. Values without a schema are
+ * skipped.
+ */
+final class JsonSchemaCheck {
+
+    private static final Set<String> TYPES = Set.of("object", "array", "string", "number", "integer", "boolean", "null");
+
+    private final Set<String> types;
+    private final Map<String, JsonSchemaCheck> properties;
+    private final List<String> required;
+    private final JsonSchemaCheck items;
+
+    private JsonSchemaCheck(Set<String> types, Map<String, JsonSchemaCheck> properties, List<String> required,
+                            JsonSchemaCheck items) {
+        this.types = types;
+        this.properties = properties;
+        this.required = required;
+        this.items = items;
+    }
+
+    /**
+     * Compile a schema given as a map, as it arrives in the validation criteria
+     *
+     * @param schema The schema
+     * @return The compiled schema
+     * @throws IllegalArgumentException if the schema is malformed
+     */
+    static JsonSchemaCheck compile(Object schema) {
+        if (!(schema instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Schema must be an object");
+        }
+
+        Set<String> types = null;
+        Object type = map.get("type");
+        if (type instanceof String name) {
+            types = Set.of(typeName(name));
+        } else if (type instanceof List<?> names) {
+            types = new LinkedHashSet<>();
+            for (Object name : names) {
+                types.add(typeName(String.valueOf(name)));
+            }
+        } else if (type != null) {
+            throw new IllegalArgumentException("Invalid type: " + type);
+        }
+
+        Map<String, JsonSchemaCheck> properties = new HashMap<>();
+        if (map.get("properties") instanceof Map<?, ?> propertySchemas) {
+            propertySchemas.forEach((name, propertySchema) ->
+                    properties.put(String.valueOf(name), compile(propertySchema)));
+        }
+
+        List<String> required = List.of();
+        if (map.get("required") instanceof List<?> names) {
+            required = names.stream().map(String::valueOf).toList();
+        }
+
+        JsonSchemaCheck items = map.get("items") != null ? compile(map.get("items")) : null;
+        return new JsonSchemaCheck(types, Map.copyOf(properties), required, items);
+    }
+
+    /**
+     * Check the value at the parser's current token and move the parser to its last token
+     *
+     * @param parser The parser, positioned at the first token of the value
+     * @param path Path of the value, for the messages
+     * @param violations Collects a message per violation
+     * @throws IOException if the JSON is malformed
+     */
+    void check(JsonParser parser, String path, List<String> violations) throws IOException {
+        JsonToken token = parser.currentToken();
+        String actual = typeOf(token);
+        if (types != null && !types.contains(actual) && !("integer".equals(actual) && types.contains("number"))) {
+            violations.add(path + " should be " + String.join(" or ", types) + " but is " + actual);
+            parser.skipChildren();
+            return;
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            Set<String> seen = required.isEmpty() ? Set.of() : new HashSet<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (!required.isEmpty()) {
+                    seen.add(name);
+                }
+                JsonSchemaCheck property = properties.get(name);
+                if (property != null) {
+                    property.check(parser, path + "." + name, violations);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            for (String name : required) {
+                if (!seen.contains(name)) {
+                    violations.add(path + " is missing required property " + name);
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            JsonToken next;
+            while ((next = parser.nextToken()) != JsonToken.END_ARRAY && next != null) {
+                if (items != null) {
+                    items.check(parser, path + "[" + index + "]", violations);
+                } else {
+                    parser.skipChildren();
+                }
+                index++;
+            }
+        }
+    }
+
+    private static String typeName(String name) {
+        if (!TYPES.contains(name)) {
+            throw new IllegalArgumentException("Unknown type: " + name);
+        }
+        return name;
+    }
+
+    private static String typeOf(JsonToken token) {
+        return switch (token) {
+            case START_OBJECT -> "object";
+            case START_ARRAY -> "array";
+            case VALUE_STRING -> "string";
+            case VALUE_NUMBER_INT -> "integer";
+            case VALUE_NUMBER_FLOAT -> "number";
+            case VALUE_TRUE, VALUE_FALSE -> "boolean";
+            case VALUE_NULL -> "null";
+            default -> throw new IllegalStateException("Unexpected token " + token);
+        };
+    }
+}
@@ -0,0 +1,318 @@
+package viettel.dac.promptservice.service.validation;
+
+import lombok.extern.slf4j.Slf4j;
+import viettel.dac.promptservice.dto.validation.ParameterValidationResult;
+import viettel.dac.promptservice.model.entity.PromptParameter;
+import viettel.dac.promptservice.model.enums.ParameterType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Validation rules of a prompt version's parameters, compiled once: validation patterns are
+ * precompiled, every type has a coercer that checks and converts a value in one step, and
+ * default values are converted up front.
+ * <p>
+ * A plan is immutable and can validate any number of parameter sets concurrently. It remembers
+ * the parameter definitions it was compiled from, so a cached plan can be checked against the
+ * version's current parameters.
+ */
+@Slf4j
+public final class ParameterValidationPlan {
+
+    private static final Set<String> BOOLEAN_VALUES = Set.of("true", "false", "1", "0", "yes", "no");
+    private static final Set<String> TRUE_VALUES = Set.of("true", "1", "yes");
+
+    private final List<Definition> definitions;
+    private final List<Rule> rules;
+    private final Map<String, Rule> rulesByName;
+
+    private ParameterValidationPlan(List<Definition> definitions) {
+        this.definitions = definitions;
+        this.rules = definitions.stream().map(Rule::new).toList();
+        Map<String, Rule> byName = new HashMap<>();
+        for (Rule rule : rules) {
+            byName.put(rule.definition.name(), rule);
+        }
+        this.rulesByName = byName;
+    }
+
+    /**
+     * Compile the validation rules of parameter definitions
+     *
+     * @param parameters The parameters of a prompt version
+     * @return The plan
+     */
+    public static ParameterValidationPlan compile(Collection<PromptParameter> parameters) {
+        return of(definitions(parameters));
+    }
+
+    /**
+     * Compile the validation rules of definitions already read from the parameters
+     */
+    static ParameterValidationPlan of(List<Definition> definitions) {
+        return new ParameterValidationPlan(definitions);
+    }
+
+    /**
+     * Read what a plan depends on from parameter definitions
+     *
+     * @param parameters The parameters of a prompt version
+     * @return The definitions, sorted by name so that reloading the parameters in another order
+     * yields an equal list
+     */
+    static List<Definition> definitions(Collection<PromptParameter> parameters) {
+        List<Definition> definitions = new ArrayList<>(parameters.size());
+        for (PromptParameter param : parameters) {
+            definitions.add(new Definition(param.getName(), param.getParameterType(), param.isRequired(),
+                    param.getDefaultValue(), param.getValidationPattern()));
+        }
+        definitions.sort(Comparator.comparing(Definition::name, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return List.copyOf(definitions);
+    }
+
+    /**
+     * Check whether the plan was compiled from these parameter definitions
+     */
+    boolean matches(List<Definition> current) {
+        return definitions.equals(current);
+    }
+
+    /**
+     * Validate one parameter set
+     *
+     * @param parameterValues The parameter values, may be null
+     * @return Validation result with details
+     */
+    public ParameterValidationResult validate(Map<String, Object> parameterValues) {
+        List<ParameterValidationResult.ValidationIssue> issues = new ArrayList<>();
+        List<String> unknownParameters = new ArrayList<>();
+        List<String> missingRequired = new ArrayList<>();
+        Map<String, Object> validatedValues = new HashMap<>();
+
+        if (parameterValues != null) {
+            for (String paramName : parameterValues.keySet()) {
+                if (!rulesByName.containsKey(paramName)) {
+                    unknownParameters.add(paramName);
+                }
+            }
+        }
+
+        for (Rule rule : rules) {
+            Object paramValue = parameterValues != null ? parameterValues.get(rule.definition.name()) : null;
+            rule.apply(paramValue, issues, missingRequired, validatedValues);
+        }
+
+        for (String unknown : unknownParameters) {
+            issues.add(issue(unknown, "Parameter is not defined in the prompt version",
+                    ParameterValidationResult.ValidationSeverity.WARNING));
+        }
+
+        boolean passed = missingRequired.isEmpty() &&
+                issues.stream().noneMatch(i -> i.getSeverity() == ParameterValidationResult.ValidationSeverity.ERROR);
+
+        return ParameterValidationResult.builder()
+                .valid(passed)
+                .issues(issues)
+                .unknownParameters(unknownParameters)
+                .missingRequired(missingRequired)
+                .validatedValues(validatedValues)
+                .build();
+    }
+
+    /**
+     * Validate many parameter sets in one pass
+     *
+     * @param parameterSets The parameter sets; null entries are validated as empty sets
+     * @return One result per parameter set, in the same order
+     */
+    public List<ParameterValidationResult> validateAll(List<Map<String, Object>> parameterSets) {
+        List<ParameterValidationResult> results = new ArrayList<>(parameterSets.size());
+        for (Map<String, Object> parameterValues : parameterSets) {
+            results.add(validate(parameterValues));
+        }
+        return results;
+    }
+
+    private static ParameterValidationResult.ValidationIssue issue(String parameter, String message,
+                                                                   ParameterValidationResult.ValidationSeverity severity) {
+        return ParameterValidationResult.ValidationIssue.builder()
+                .parameter(parameter)
+                .message(message)
+                .severity(severity)
+                .build();
+    }
+
+    /**
+     * The parts of a parameter definition that validation depends on
+     */
+    record Definition(String name, ParameterType type, boolean required, String defaultValue,
+                      String validationPattern) {
+    }
+
+    /**
+     * Compiled rule of one parameter
+     */
+    private static final class Rule {
+        private final Definition definition;
+        private final Function<String, Object> coercer;
+        private final String typeError;
+        private final Pattern pattern;
+        private final String patternError;
+        private final Object defaultValue;
+
+        private Rule(Definition definition) {
+            this.definition = definition;
+            this.coercer = coercer(definition.type());
+            this.typeError = typeError(definition.type());
+
+            Pattern compiled = null;
+            String error = null;
+            if (definition.validationPattern() != null && !definition.validationPattern().isEmpty()) {
+                try {
+                    compiled = Pattern.compile(definition.validationPattern());
+                } catch (PatternSyntaxException e) {
+                    error = "Validation error: " + e.getMessage();
+                }
+            }
+            this.pattern = compiled;
+            this.patternError = error;
+            this.defaultValue = typedDefault(definition);
+        }
+
+        private void apply(Object paramValue, List<ParameterValidationResult.ValidationIssue> issues,
+                           List<String> missingRequired, Map<String, Object> validatedValues) {
+            String paramName = definition.name();
+
+            if (definition.required() && (paramValue == null || paramValue.toString().trim().isEmpty())) {
+                missingRequired.add(paramName);
+                issues.add(issue(paramName, "Required parameter is missing",
+                        ParameterValidationResult.ValidationSeverity.ERROR));
+                return;
+            }
+
+            if (paramValue == null) {
+                putDefault(validatedValues);
+                return;
+            }
+
+            String strValue = paramValue.toString();
+            Object converted;
+            try {
+                converted = coercer.apply(strValue);
+            } catch (RuntimeException e) {
+                issues.add(issue(paramName, typeError, ParameterValidationResult.ValidationSeverity.ERROR));
+                putDefault(validatedValues);
+                return;
+            }
+
+            if (patternError != null) {
+                issues.add(issue(paramName, patternError, ParameterValidationResult.ValidationSeverity.ERROR));
+                putDefault(validatedValues);
+                return;
+            }
+            if (pattern != null && !pattern.matcher(strValue).matches()) {
+                issues.add(issue(paramName, "Value does not match required pattern: " + definition.validationPattern(),
+                        ParameterValidationResult.ValidationSeverity.ERROR));
+                putDefault(validatedValues);
+                return;
+            }
+
+            validatedValues.put(paramName, converted);
+        }
+
+        private void putDefault(Map<String, Object> validatedValues) {
+            if (defaultValue != null) {
+                validatedValues.put(definition.name(), defaultValue);
+            }
+        }
+
+        /**
+         * Convert the default value once; a default that does not convert is ignored
+         */
+        private Object typedDefault(Definition definition) {
+            if (definition.defaultValue() == null || definition.defaultValue().isEmpty()) {
+                return null;
+            }
+            try {
+                return coercer.apply(definition.defaultValue());
+            } catch (RuntimeException e) {
+                log.warn("Ignoring default value of parameter {}, it is no valid {}",
+                        definition.name(), definition.type());
+                return null;
+            }
+        }
+
+        /**
+         * Check and convert a value of a type; throws if the value is not of the type
+         */
+        private static Function<String, Object> coercer(ParameterType type) {
+            if (type == null) {
+                return value -> {
+                    throw new IllegalArgumentException("Unknown parameter type");
+                };
+            }
+            return switch (type) {
+                case NUMBER -> Rule::toNumber;
+                case BOOLEAN -> Rule::toBoolean;
+                case DATE -> LocalDate::parse;
+                case DATETIME -> LocalDateTime::parse;
+                case ARRAY -> value -> enclosed(value, "[", "]");
+                case OBJECT -> value -> enclosed(value, "{", "}");
+                case STRING -> value -> value;
+            };
+        }
+
+        private static String typeError(ParameterType type) {
+            if (type == null) {
+                return "Unknown parameter type: null";
+            }
+            return switch (type) {
+                case NUMBER -> "Value is not a valid number";
+                case BOOLEAN -> "Value is not a valid boolean";
+                case DATE -> "Value is not a valid date (use ISO format YYYY-MM-DD)";
+                case DATETIME -> "Value is not a valid datetime (use ISO format YYYY-MM-DDTHH:MM:SS)";
+                case ARRAY -> "Value is not a valid array (must be JSON format)";
+                case OBJECT -> "Value is not a valid object (must be JSON format)";
+                case STRING -> "Value is not a valid string";
+            };
+        }
+
+        private static Object toNumber(String value) {
+            if (value.contains(".")) {
+                return Double.parseDouble(value);
+            }
+            long number = Long.parseLong(value);
+            if (number == (int) number) {
+                return (int) number;
+            }
+            return number;
+        }
+
+        private static Object toBoolean(String value) {
+            String lowerValue = value.toLowerCase(Locale.ROOT);
+            if (!BOOLEAN_VALUES.contains(lowerValue)) {
+                throw new IllegalArgumentException("Not a boolean: " + value);
+            }
+            return TRUE_VALUES.contains(lowerValue);
+        }
+
+        private static String enclosed(String value, String prefix, String suffix) {
+            if (!value.startsWith(prefix) || !value.endsWith(suffix)) {
+                throw new IllegalArgumentException("Not enclosed in " + prefix + suffix);
+            }
+            return value;
+        }
+    }
+}
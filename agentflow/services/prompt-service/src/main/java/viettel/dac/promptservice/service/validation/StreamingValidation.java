@@ -0,0 +1,239 @@
+package viettel.dac.promptservice.service.validation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.dto.validation.ValidationResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Validation of one streamed response, evaluated as the text arrives.
+ * <p>
+ * The rules that more text can no longer satisfy once they fail are checked on every delta:
+ * {@code max_length}, {@code not_contains}, {@code json_format} and {@code regex_match} with
+ * a pattern anchored at the start of the response. Once one of them fails, the generation can
+ * be stopped. These rules are compiled with the cached {@link CompiledCriteria}, and the final
+ * {@link ValidationResult} is that of the compiled criteria for the text received, so it is the
+ * same whether or not the stream was stopped early.
+ * <p>
+ * An instance keeps the state of a single stream and is not thread-safe; deltas arrive in
+ * order from one stream.
+ */
+@Slf4j
+public class StreamingValidation {
+
+    /**
+     * Metadata key of the rule that stopped a stream early
+     */
+    public static final String TERMINATED_BY_KEY = "validationTerminatedBy";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final CompiledCriteria criteria;
+    private final StringBuilder text = new StringBuilder();
+
+    private final Integer maxLength;
+    private final List<String> forbidden;
+    private final Pattern anchoredPattern;
+    private boolean patternDecided;
+    private final JsonParser jsonParser;
+    private int jsonFed;
+    private int jsonDepth;
+    private boolean jsonDecided;
+
+    private String violatedRule;
+
+    StreamingValidation(CompiledCriteria criteria) {
+        CompiledCriteria.StreamingRules rules = criteria.getStreamingRules();
+        this.criteria = criteria;
+        this.maxLength = rules.maxLength();
+        this.forbidden = rules.forbidden();
+        this.anchoredPattern = rules.anchoredPattern();
+        this.jsonParser = rules.json() ? jsonParser() : null;
+        this.jsonDecided = jsonParser == null;
+    }
+
+    /**
+     * Check whether any rule can fail before the stream ends
+     *
+     * @return true if some delta can stop the stream
+     */
+    public boolean canTerminateEarly() {
+        return maxLength != null || !forbidden.isEmpty() || anchoredPattern != null || jsonParser != null;
+    }
+
+    /**
+     * Add the next delta of the response
+     *
+     * @param delta Text generated since the previous delta
+     * @return true if a rule has failed and the generation should stop
+     */
+    public boolean accept(String delta) {
+        if (violatedRule != null) {
+            return true;
+        }
+        if (delta == null || delta.isEmpty()) {
+            return false;
+        }
+        int start = text.length();
+        text.append(delta);
+        violatedRule = firstViolation(start);
+        if (violatedRule != null) {
+            log.debug("Streamed response violates rule {} after {} characters", violatedRule, text.length());
+        }
+        return violatedRule != null;
+    }
+
+    /**
+     * Rule that failed while streaming, or null if none did
+     */
+    public String getViolatedRule() {
+        return violatedRule;
+    }
+
+    /**
+     * Text received so far
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Validate the text received so far against all criteria
+     *
+     * @return Validation result with details
+     */
+    public ValidationResult result() {
+        return criteria.validate(text.toString());
+    }
+
+    /**
+     * Validate a response stream as it arrives and cancel it once a rule has failed. The chunk
+     * with the failing delta is still emitted, followed by a final chunk with the response
+     * built from the text received.
+     *
+     * @param stream The response stream
+     * @param truncatedResponse Builds the final response from the text of a stopped stream
+     * @return The stream, ending early if a rule fails
+     */
+    public Flux<LlmStreamChunk> guard(Flux<LlmStreamChunk> stream, Function<String, LlmResponse> truncatedResponse) {
+        if (!canTerminateEarly()) {
+            return stream;
+        }
+        return stream
+                .takeUntil(chunk -> !chunk.isLast() && accept(chunk.getDelta()))
+                .concatWith(Mono.fromSupplier(() -> {
+                    if (violatedRule == null) {
+                        return null;
+                    }
+                    LlmResponse response = truncatedResponse.apply(text.toString());
+                    response.getMetadata().put(TERMINATED_BY_KEY, violatedRule);
+                    return LlmStreamChunk.completed(response);
+                }))
+                .doFinally(signal -> closeParser());
+    }
+
+    private String firstViolation(int start) {
+        if (maxLength != null && text.length() > maxLength) {
+            return "max_length";
+        }
+        for (String forbiddenText : forbidden) {
+            // Only a match that overlaps the new delta can be new
+            if (text.indexOf(forbiddenText, Math.max(0, start - forbiddenText.length() + 1)) >= 0) {
+                return "not_contains";
+            }
+        }
+        if (!patternDecided && violatesPattern()) {
+            return "regex_match";
+        }
+        if (!jsonDecided && violatesJson()) {
+            return "json_format";
+        }
+        return null;
+    }
+
+    /**
+     * An anchored pattern fails for good when it does not match and the matcher did not need
+     * the end of the input to decide, and passes for good when it matches without needing it
+     */
+    private boolean violatesPattern() {
+        if (anchoredPattern == null) {
+            patternDecided = true;
+            return false;
+        }
+        Matcher matcher = anchoredPattern.matcher(text);
+        boolean found = matcher.find();
+        if (found && !matcher.requireEnd()) {
+            patternDecided = true;
+        }
+        return !found && !matcher.hitEnd();
+    }
+
+    /**
+     * Feed the new text to the JSON parser; a syntax error cannot be repaired by more text and
+     * anything after the first complete value is ignored, as when reading the whole response
+     */
+    private boolean violatesJson() {
+        int end = text.length();
+        // Keep half of a surrogate pair back until the other half arrives
+        if (end > jsonFed && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end == jsonFed) {
+            return false;
+        }
+        byte[] bytes = text.substring(jsonFed, end).getBytes(StandardCharsets.UTF_8);
+        jsonFed = end;
+        try {
+            ((ByteArrayFeeder) jsonParser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while ((token = jsonParser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (token.isStructStart()) {
+                    jsonDepth++;
+                } else if (token.isStructEnd()) {
+                    jsonDepth--;
+                }
+                if (jsonDepth == 0 && token != JsonToken.FIELD_NAME) {
+                    jsonDecided = true;
+                    closeParser();
+                    return false;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            jsonDecided = true;
+            closeParser();
+            return true;
+        }
+    }
+
+    private void closeParser() {
+        if (jsonParser != null && !jsonParser.isClosed()) {
+            try {
+                jsonParser.close();
+            } catch (IOException e) {
+                log.debug("Failed to close JSON parser: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static JsonParser jsonParser() {
+        try {
+            return JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create JSON parser", e);
+        }
+    }
+}
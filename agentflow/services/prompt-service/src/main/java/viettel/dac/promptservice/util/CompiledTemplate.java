@@ -0,0 +1,211 @@
+package viettel.dac.promptservice.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prompt content parsed once into literal text and {@code {{name}}} placeholders.
+ * <p>
+ * Rendering looks up each distinct placeholder once and writes literals and values into a
+ * buffer sized up front, in a single pass over the segments. Instances are immutable apart
+ * from the memoized required parameter check and are shared between threads through
+ * {@link TemplateCompiler}.
+ */
+public final class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String content;
+    private final String[] literals;
+    private final int[] placeholderSlots;
+    private final String[] slotNames;
+    private final Map<String, Integer> slots;
+    private final int literalLength;
+    private volatile Requirements requirements;
+
+    private CompiledTemplate(String content, String[] literals, int[] placeholderSlots, String[] slotNames,
+                             Map<String, Integer> slots, int literalLength) {
+        this.content = content;
+        this.literals = literals;
+        this.placeholderSlots = placeholderSlots;
+        this.slotNames = slotNames;
+        this.slots = slots;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Parse content into segments. A placeholder is "{{", a name without braces and "}}";
+     * anything else is literal text.
+     *
+     * @param content The template content
+     * @return The compiled template
+     */
+    public static CompiledTemplate parse(String content) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> placeholderSlots = new ArrayList<>();
+        Map<String, Integer> slots = new HashMap<>();
+        List<String> slotNames = new ArrayList<>();
+        int literalLength = 0;
+
+        int literalStart = 0;
+        int open = content.indexOf(OPEN);
+        while (open >= 0) {
+            int nameStart = open + OPEN.length();
+            int nameEnd = nameStart;
+            while (nameEnd < content.length() && content.charAt(nameEnd) != '{' && content.charAt(nameEnd) != '}') {
+                nameEnd++;
+            }
+            if (nameEnd == nameStart || !content.startsWith(CLOSE, nameEnd)) {
+                open = content.indexOf(OPEN, open + 1);
+                continue;
+            }
+
+            String literal = content.substring(literalStart, open);
+            literals.add(literal);
+            literalLength += literal.length();
+            String name = content.substring(nameStart, nameEnd);
+            placeholderSlots.add(slots.computeIfAbsent(name, n -> {
+                slotNames.add(n);
+                return slotNames.size() - 1;
+            }));
+
+            literalStart = nameEnd + CLOSE.length();
+            open = content.indexOf(OPEN, literalStart);
+        }
+        String tail = content.substring(literalStart);
+        literals.add(tail);
+        literalLength += tail.length();
+
+        return new CompiledTemplate(content, literals.toArray(String[]::new),
+                placeholderSlots.stream().mapToInt(Integer::intValue).toArray(),
+                slotNames.toArray(String[]::new), Collections.unmodifiableMap(slots), literalLength);
+    }
+
+    /**
+     * Content the template was compiled from
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * Names of the placeholders, each once, in order of first occurrence
+     */
+    public Set<String> getParameterNames() {
+        return new LinkedHashSet<>(List.of(slotNames));
+    }
+
+    /**
+     * Substitute parameter values for the placeholders. Placeholders without a value keep
+     * their text; null values are written as "null".
+     *
+     * @param values Parameter values keyed by name, may be null
+     * @param requiredNames Parameters that must have a non-null value
+     * @return The rendered content
+     * @throws IllegalArgumentException if required parameters are missing
+     */
+    public String render(Map<String, ?> values, Set<String> requiredNames) {
+        String[] rendered = new String[slotNames.length];
+        long[] present = new long[(slotNames.length + 63) >>> 6];
+        if (values != null && !values.isEmpty()) {
+            for (int slot = 0; slot < slotNames.length; slot++) {
+                Object value = values.get(slotNames[slot]);
+                if (value != null) {
+                    rendered[slot] = value.toString();
+                    present[slot >>> 6] |= 1L << slot;
+                } else if (values.containsKey(slotNames[slot])) {
+                    rendered[slot] = "null";
+                }
+            }
+        }
+
+        requirements(requiredNames).check(present, values);
+
+        int length = literalLength;
+        for (int slot : placeholderSlots) {
+            length += rendered[slot] != null ? rendered[slot].length() : slotNames[slot].length() + 4;
+        }
+
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < placeholderSlots.length; i++) {
+            result.append(literals[i]);
+            int slot = placeholderSlots[i];
+            if (rendered[slot] != null) {
+                result.append(rendered[slot]);
+            } else {
+                result.append(OPEN).append(slotNames[slot]).append(CLOSE);
+            }
+        }
+        return result.append(literals[literals.length - 1]).toString();
+    }
+
+    /**
+     * Requirement check for a set of required names, memoized since a version's required
+     * parameters rarely change between renders
+     */
+    private Requirements requirements(Set<String> requiredNames) {
+        Requirements current = requirements;
+        if (current == null || !current.names.equals(requiredNames)) {
+            current = new Requirements(requiredNames);
+            requirements = current;
+        }
+        return current;
+    }
+
+    /**
+     * Required parameters as a bitmap over the placeholder slots, plus those the content does
+     * not use, which are looked up by name
+     */
+    private final class Requirements {
+        private final Set<String> names;
+        private final long[] mask;
+        private final String[] unplaced;
+
+        private Requirements(Set<String> requiredNames) {
+            this.names = Set.copyOf(requiredNames);
+            this.mask = new long[(slotNames.length + 63) >>> 6];
+            List<String> unplacedNames = new ArrayList<>();
+            for (String name : names) {
+                Integer slot = slots.get(name);
+                if (slot != null) {
+                    mask[slot >>> 6] |= 1L << slot;
+                } else {
+                    unplacedNames.add(name);
+                }
+            }
+            this.unplaced = unplacedNames.toArray(String[]::new);
+        }
+
+        private void check(long[] present, Map<String, ?> values) {
+            List<String> missing = null;
+            for (int word = 0; word < mask.length; word++) {
+                long absent = mask[word] & ~present[word];
+                while (absent != 0) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(absent);
+                    missing = add(missing, slotNames[slot]);
+                    absent &= absent - 1;
+                }
+            }
+            for (String name : unplaced) {
+                if (values == null || values.get(name) == null) {
+                    missing = add(missing, name);
+                }
+            }
+            if (missing != null) {
+                throw new IllegalArgumentException("Missing required parameters: " + String.join(", ", missing));
+            }
+        }
+
+        private static List<String> add(List<String> missing, String name) {
+            List<String> list = missing != null ? missing : new ArrayList<>();
+            list.add(name);
+            return list;
+        }
+    }
+}
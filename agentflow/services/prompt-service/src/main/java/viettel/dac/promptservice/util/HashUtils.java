@@ -0,0 +1,62 @@
+package viettel.dac.promptservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Utility methods for stable content hashes used as cache and lookup keys
+ */
+public final class HashUtils {
+
+    private static final char SEPARATOR = '\u001f';
+
+    private HashUtils() {
+    }
+
+    /**
+     * Hash a parameter map independently of its iteration order.
+     *
+     * @param parameters Parameter values, may be null
+     * @return Hex encoded SHA-256 of the sorted key/value pairs
+     */
+    public static String parametersHash(Map<String, ?> parameters) {
+        StringBuilder canonical = new StringBuilder();
+        if (parameters != null) {
+            new TreeMap<>(parameters).forEach((key, value) -> canonical
+                    .append(key).append('=').append(value).append(SEPARATOR));
+        }
+        return sha256Hex(canonical.toString());
+    }
+
+    /**
+     * Hash a sequence of values; null values and value boundaries are both significant.
+     *
+     * @param values Values to hash
+     * @return Hex encoded SHA-256
+     */
+    public static String sha256Hex(Object... values) {
+        MessageDigest digest = newSha256();
+        for (Object value : values) {
+            if (value != null) {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            } else {
+                digest.update((byte) 0);
+            }
+            digest.update((byte) SEPARATOR);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
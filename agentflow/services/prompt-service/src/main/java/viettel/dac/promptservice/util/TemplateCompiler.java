@@ -0,0 +1,42 @@
+package viettel.dac.promptservice.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Compiles prompt content into {@link CompiledTemplate}s and caches them by version ID and
+ * content hash, so each version is parsed once rather than on every render
+ */
+public final class TemplateCompiler {
+
+    private static final Cache<Key, CompiledTemplate> CACHE = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    private TemplateCompiler() {
+    }
+
+    /**
+     * Get the compiled template of a version's content, compiling it on first use
+     *
+     * @param versionId ID of the prompt version, may be null for unsaved versions
+     * @param content The template content
+     * @return The compiled template
+     */
+    public static CompiledTemplate compile(String versionId, String content) {
+        Key key = new Key(versionId, content.hashCode());
+        CompiledTemplate compiled = CACHE.getIfPresent(key);
+        // Equal hashes do not prove equal content; the check is cheap next to parsing
+        if (compiled == null || !compiled.getContent().equals(content)) {
+            compiled = CompiledTemplate.parse(content);
+            CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private record Key(String versionId, int contentHash) {
+    }
+}
@@ -0,0 +1,6 @@
+-- V7__Prompt_Cache_Tokens.sql
+-- Record prompt cache usage of executions
+
+ALTER TABLE prompt_executions
+    ADD COLUMN cache_read_tokens INT NULL AFTER output_tokens,
+    ADD COLUMN cache_write_tokens INT NULL AFTER cache_read_tokens;
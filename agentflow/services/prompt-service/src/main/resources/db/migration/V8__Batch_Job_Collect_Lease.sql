@@ -0,0 +1,5 @@
+-- V8__Batch_Job_Collect_Lease.sql
+-- Let one worker at a time check and collect the provider batch of a job
+
+ALTER TABLE batch_jobs
+    ADD COLUMN collect_lease_until TIMESTAMP NULL AFTER completion_percentage;
@@ -0,0 +1,111 @@
+package viettel.dac.promptservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.providers.SimulatedLlmProvider;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the throughput of the platform-thread llmExecutor with the virtual-thread one on
+ * blocking calls to the simulated provider, with callers allowed as many calls in flight as a
+ * provider limit would allow. Excluded from the default build; run with
+ * {@code mvn test -DexcludedGroups= -Dgroups=benchmark}.
+ */
+@Tag("benchmark")
+class ExecutorThroughputBenchmarkTest {
+
+    private static final int CALLS = 2_000;
+    private static final int MAX_IN_FLIGHT = 200;
+    private static final Duration CALL_LATENCY = Duration.ofMillis(50);
+
+    @Test
+    @DisplayName("Virtual threads should complete blocking calls faster than the platform pool")
+    void shouldCompareThroughput() throws Exception {
+        // Arrange
+        LlmProviderProperties properties = new LlmProviderProperties();
+        LlmProviderProperties.Simulated config = properties.getSimulated();
+        config.setFixedLatency(CALL_LATENCY);
+        config.setTokensPerSecond(10_000);
+        config.setOutputTokens(10);
+        config.setSeed(42L);
+        SimulatedLlmProvider provider = new SimulatedLlmProvider(config, Runnable::run,
+                new TokenizerRegistry(properties));
+        ThreadPoolTaskExecutor platform = AsyncConfig.platformExecutor("llmExecutor", "Benchmark-", 10, 20, 50,
+                new SimpleMeterRegistry());
+        AsyncTaskExecutor virtual = AsyncConfig.virtualExecutor("llmExecutor", "Benchmark-",
+                new SimpleMeterRegistry());
+
+        // Act
+        Result platformResult = run(platform, provider);
+        Result virtualResult = run(virtual, provider);
+        platform.shutdown();
+
+        // Assert
+        assertEquals(0, virtualResult.rejections);
+        // The platform pool runs at most 20 calls at a time against 200 for virtual threads
+        assertTrue(virtualResult.throughput > 2 * platformResult.throughput,
+                () -> "virtual " + virtualResult + " vs platform " + platformResult);
+    }
+
+    /**
+     * Submit blocking provider calls with up to MAX_IN_FLIGHT outstanding; a rejected call is
+     * retried after a short pause, as a caller backing off would
+     */
+    private static Result run(AsyncTaskExecutor executor, SimulatedLlmProvider provider) throws InterruptedException {
+        LlmRequest request = LlmRequest.builder()
+                .providerId("simulated")
+                .modelId("simulated")
+                .prompt("Summarise the release notes")
+                .build();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        CountDownLatch done = new CountDownLatch(CALLS);
+        AtomicInteger rejections = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            inFlight.acquire();
+            while (true) {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            provider.executePrompt(request);
+                        } finally {
+                            inFlight.release();
+                            done.countDown();
+                        }
+                    });
+                    break;
+                } catch (TaskRejectedException e) {
+                    rejections.incrementAndGet();
+                    Thread.sleep(1);
+                }
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Result(CALLS / seconds, rejections.get());
+    }
+
+    private record Result(double throughput, int rejections) {
+
+        @Override
+        public String toString() {
+            return String.format("%.0f calls/s, %d rejections", throughput, rejections);
+        }
+    }
+}
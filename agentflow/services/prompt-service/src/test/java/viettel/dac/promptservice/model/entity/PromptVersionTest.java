@@ -104,6 +104,23 @@ class PromptVersionTest {
             // Assert
             assertEquals("This is a test prompt with value1 and null", result);
         }
+
+        @Test
+        @DisplayName("Should report the content before the first placeholder as the static prefix")
+        void shouldReportStaticPrefixLength() {
+            // Arrange
+            Map<String, Object> params = new HashMap<>();
+            params.put("parameter1", "value1");
+            params.put("parameter2", "value2");
+            String rendered = promptVersion.applyParameters(params);
+
+            // Act
+            int prefixLength = promptVersion.getStaticPrefixLength(rendered);
+
+            // Assert
+            assertEquals("This is a test prompt with ", rendered.substring(0, prefixLength));
+            assertEquals(0, promptVersion.getStaticPrefixLength("Unrelated text"));
+        }
     }
 
     @Nested
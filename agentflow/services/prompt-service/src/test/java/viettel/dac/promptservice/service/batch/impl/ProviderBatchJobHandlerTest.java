@@ -0,0 +1,160 @@
+package viettel.dac.promptservice.service.batch.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.model.entity.BatchJob;
+import viettel.dac.promptservice.model.entity.PromptVersion;
+import viettel.dac.promptservice.model.enums.BatchJobStatus;
+import viettel.dac.promptservice.model.enums.BatchJobType;
+import viettel.dac.promptservice.model.enums.ExecutionStatus;
+import viettel.dac.promptservice.repository.jpa.BatchJobRepository;
+import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
+import viettel.dac.promptservice.service.impl.PromptTestingServiceImpl;
+import viettel.dac.promptservice.service.llm.LlmProviderFactory;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.batch.LlmBatch;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchClient;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchResult;
+import viettel.dac.promptservice.service.llm.batch.LlmBatchStatus;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProviderBatchJobHandlerTest {
+
+    private static final String JOB_ID = "job-1";
+    private static final String BATCH_ID = "batch-1";
+
+    @Mock
+    private LlmProviderFactory providerFactory;
+
+    @Spy
+    private LlmProviderProperties providerProperties = new LlmProviderProperties();
+
+    @Mock
+    private PromptTestingServiceImpl testingService;
+
+    @Mock
+    private PromptVersionRepository versionRepository;
+
+    @Mock
+    private BatchJobRepository jobRepository;
+
+    @Mock
+    private LlmBatchClient batchClient;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private ProviderBatchJobHandler handler;
+
+    private PromptVersion version;
+
+    @BeforeEach
+    void setUp() {
+        providerProperties.getBatch().setCollectChunkSize(1);
+        version = PromptVersion.builder().id("version-1").content("Say {{word}}").build();
+
+        LlmBatch batch = LlmBatch.builder()
+                .id(BATCH_ID)
+                .providerId("openai")
+                .status(LlmBatchStatus.COMPLETED)
+                .requestCount(2)
+                .succeededCount(2)
+                .build();
+
+        when(jobRepository.claimCollection(eq(JOB_ID), any(), any())).thenReturn(1);
+        when(jobRepository.findByIdWithExecutions(JOB_ID)).thenReturn(Optional.of(job(BatchJobStatus.RUNNING)));
+        when(versionRepository.findByIdWithParameters("version-1")).thenReturn(Optional.of(version));
+        when(providerFactory.getBatchClient("openai")).thenReturn(Optional.of(batchClient));
+        when(batchClient.getBatch(BATCH_ID)).thenReturn(Mono.just(batch));
+        when(batchClient.streamResults(any(), any())).thenReturn(Flux.just(
+                LlmBatchResult.success("0", LlmResponse.builder().text("hello").successful(true).build()),
+                LlmBatchResult.success("1", LlmResponse.builder().text("world").successful(true).build())));
+        when(testingService.completeBatchTest(any(), any(), any(), any())).thenReturn(PromptExecutionResult.builder()
+                .status(ExecutionStatus.SUCCESS)
+                .tokenCount(10)
+                .build());
+    }
+
+    @Test
+    @DisplayName("Should store every result and complete the job")
+    void shouldCollectResults() {
+        // Arrange
+        BatchJob current = job(BatchJobStatus.RUNNING);
+        when(jobRepository.findByIdForUpdate(JOB_ID)).thenReturn(Optional.of(current));
+
+        // Act
+        handler.poll(JOB_ID);
+
+        // Assert
+        verify(testingService, times(2)).completeBatchTest(any(), any(), any(), any());
+        assertEquals(BatchJobStatus.COMPLETED, current.getStatus());
+        assertEquals(2, current.getResult().get("successCount"));
+        assertNull(current.getCollectLeaseUntil());
+    }
+
+    @Test
+    @DisplayName("Should stop collecting and keep the job cancelled when it is cancelled during collection")
+    void shouldStopCollectingCancelledJob() {
+        // Arrange
+        BatchJob running = job(BatchJobStatus.RUNNING);
+        BatchJob cancelled = job(BatchJobStatus.CANCELLED);
+        when(jobRepository.findByIdForUpdate(JOB_ID)).thenReturn(Optional.of(running), Optional.of(cancelled));
+
+        // Act
+        handler.poll(JOB_ID);
+
+        // Assert
+        verify(testingService, times(1)).completeBatchTest(any(), any(), any(), any());
+        verify(jobRepository, times(1)).save(any(BatchJob.class));
+        verify(jobRepository, never()).save(cancelled);
+        assertEquals(BatchJobStatus.CANCELLED, cancelled.getStatus());
+    }
+
+    private BatchJob job(BatchJobStatus status) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("id", BATCH_ID);
+        state.put("providerId", "openai");
+        state.put("modelId", "gpt-4o-mini");
+
+        Map<String, Object> result = new HashMap<>();
+        result.put(ProviderBatchJobHandler.RESULT_KEY, state);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("parameterSets", List.of(Map.of("word", "hello"), Map.of("word", "world")));
+
+        return BatchJob.builder()
+                .id(JOB_ID)
+                .name("Provider batch")
+                .jobType(BatchJobType.BATCH_EXECUTION)
+                .status(status)
+                .version(version)
+                .parameters(parameters)
+                .result(result)
+                .build();
+    }
+}
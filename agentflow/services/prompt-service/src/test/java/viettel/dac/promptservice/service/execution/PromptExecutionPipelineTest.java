@@ -0,0 +1,154 @@
+package viettel.dac.promptservice.service.execution;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptExecutionPipelineTest {
+
+    private PromptExecutionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        LlmProviderProperties properties = new LlmProviderProperties();
+        properties.getPipeline().setMaxConcurrent(3);
+        properties.getPipeline().setMaxConcurrentPerBatch(2);
+        pipeline = new PromptExecutionPipeline(properties);
+    }
+
+    @Test
+    @DisplayName("Should keep all batches together within the global limit")
+    void shouldBoundItemsAcrossBatches() {
+        // Arrange
+        List<Integer> items = IntStream.range(0, 10).boxed().toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        // Act
+        List<List<Integer>> results = Flux.merge(
+                        pipeline.executeOrdered(items, 10, item -> tracked(item, inFlight, maxInFlight)).collectList(),
+                        pipeline.executeOrdered(items, 10, item -> tracked(item, inFlight, maxInFlight)).collectList())
+                .collectList()
+                .block();
+
+        // Assert
+        assertNotNull(results);
+        assertEquals(List.of(items, items), results);
+        assertTrue(maxInFlight.get() <= 3, "At most 3 items in flight, saw " + maxInFlight.get());
+        assertEquals(3, pipeline.availablePermits());
+    }
+
+    @Test
+    @DisplayName("Should cap the concurrency of a single batch")
+    void shouldCapBatchConcurrency() {
+        // Arrange
+        List<Integer> items = IntStream.range(0, 6).boxed().toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        // Act
+        List<Integer> results = pipeline.executeUnordered(items, 10,
+                        (item, index) -> tracked(index, inFlight, maxInFlight))
+                .collectList()
+                .block();
+
+        // Assert
+        assertNotNull(results);
+        assertEquals(items, results.stream().sorted().toList());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    @DisplayName("Should release permits of failed and cancelled items")
+    void shouldReleasePermitsOnErrorAndCancel() throws InterruptedException {
+        // Arrange
+        List<Integer> items = IntStream.range(0, 4).boxed().toList();
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> pipeline.executeOrdered(items, 2,
+                        item -> Mono.<Integer>error(new IllegalStateException("failed " + item)))
+                .blockLast());
+        Integer first = pipeline.executeOrdered(items, 2,
+                        item -> Mono.delay(Duration.ofMillis(item == 0 ? 5 : 500)).thenReturn(item))
+                .blockFirst();
+
+        // Assert
+        assertEquals(0, first);
+        // blockFirst returns while the cancelled item may still be cleaned up on the delay thread
+        awaitPermits(3);
+    }
+
+    @Test
+    @DisplayName("Should not leak permits granted to waiters that cancel at the same time")
+    void shouldReleasePermitsGrantedToCancelledWaiters() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            // Arrange
+            Sinks.Empty<Void> gate = Sinks.empty();
+            List<Disposable> holders = IntStream.range(0, 3)
+                    .mapToObj(i -> pipeline.withPermit(gate.asMono()).subscribe())
+                    .toList();
+            List<Disposable> waiters = IntStream.range(0, 3)
+                    .mapToObj(i -> pipeline.withPermit(Mono.never()).subscribe())
+                    .toList();
+            CountDownLatch start = new CountDownLatch(1);
+
+            // Act
+            CompletableFuture<Void> release = CompletableFuture.runAsync(() -> {
+                await(start);
+                gate.tryEmitEmpty();
+            });
+            CompletableFuture<Void> cancel = CompletableFuture.runAsync(() -> {
+                await(start);
+                waiters.forEach(Disposable::dispose);
+            });
+            start.countDown();
+            CompletableFuture.allOf(release, cancel).get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertTrue(holders.stream().allMatch(Disposable::isDisposed));
+            assertEquals(3, pipeline.availablePermits(), "Permits leaked in round " + round);
+        }
+    }
+
+    private void awaitPermits(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (pipeline.availablePermits() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, pipeline.availablePermits());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Mono<Integer> tracked(int value, AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        return Mono.defer(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return Mono.delay(Duration.ofMillis(10)).thenReturn(value);
+                })
+                // Before the signal reaches flatMap, which then subscribes the next item
+                .doOnSuccess(result -> inFlight.decrementAndGet())
+                .doOnError(e -> inFlight.decrementAndGet())
+                .doOnCancel(inFlight::decrementAndGet);
+    }
+}
@@ -7,17 +7,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.request.PromptBatchTestRequest;
 import viettel.dac.promptservice.dto.request.PromptTestRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.dto.response.PromptBatchItemResult;
 import viettel.dac.promptservice.dto.response.PromptExecutionResult;
+import viettel.dac.promptservice.dto.response.PromptStreamEvent;
 import viettel.dac.promptservice.dto.validation.ParameterValidationResult;
 import viettel.dac.promptservice.dto.validation.ValidationResult;
+import viettel.dac.promptservice.exception.LlmProviderException;
 import viettel.dac.promptservice.exception.ResourceNotFoundException;
 import viettel.dac.promptservice.model.entity.PromptExecution;
 import viettel.dac.promptservice.model.entity.PromptParameter;
@@ -29,6 +38,7 @@ import viettel.dac.promptservice.model.enums.VersionStatus;
 import viettel.dac.promptservice.repository.jpa.PromptExecutionRepository;
 import viettel.dac.promptservice.repository.jpa.PromptVersionRepository;
 import viettel.dac.promptservice.security.SecurityUtils;
+import viettel.dac.promptservice.service.execution.PromptExecutionPipeline;
 import viettel.dac.promptservice.service.llm.LlmProvider;
 import viettel.dac.promptservice.service.llm.LlmProviderFactory;
 import viettel.dac.promptservice.service.llm.LlmProviderProperties;
@@ -76,6 +86,12 @@ class PromptTestingServiceImplTest {
     @Mock
     private LlmProvider llmProvider;
 
+    @Spy
+    private PromptExecutionPipeline executionPipeline = new PromptExecutionPipeline(new LlmProviderProperties());
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private PromptTestingServiceImpl testingService;
 
@@ -177,6 +193,7 @@ class PromptTestingServiceImplTest {
         when(providerProperties.getDefaultMaxTokens()).thenReturn(1024);
         when(providerProperties.getDefaultTemperature()).thenReturn(0.7);
         when(providerProperties.getDefaultTimeoutMs()).thenReturn(30000);
+        when(providerProperties.getPromptCache()).thenReturn(new LlmProviderProperties.PromptCacheConfig());
     }
 
     @Test
@@ -210,6 +227,117 @@ class PromptTestingServiceImplTest {
         verify(executionRepository).save(any(PromptExecution.class));
     }
 
+    @Test
+    @DisplayName("Should stream deltas followed by a stored result")
+    void shouldStreamPromptTest() {
+        // Arrange
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenReturn(validParameterResult);
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptStream(any(LlmRequest.class))).thenReturn(Flux.just(
+                LlmStreamChunk.delta("This is a "),
+                LlmStreamChunk.delta("generated response"),
+                LlmStreamChunk.completed(llmResponse)));
+        when(executionRepository.save(any(PromptExecution.class))).thenReturn(savedExecution);
+
+        // Act
+        List<PromptStreamEvent> events = testingService.testPromptStream(testRequest).collectList().block();
+
+        // Assert
+        assertNotNull(events);
+        assertEquals(3, events.size());
+        assertEquals(PromptStreamEvent.EventType.DELTA, events.get(0).getType());
+        assertEquals("This is a ", events.get(0).getDelta());
+        assertEquals("generated response", events.get(1).getDelta());
+
+        PromptStreamEvent last = events.get(2);
+        assertEquals(PromptStreamEvent.EventType.RESULT, last.getType());
+        assertEquals(ExecutionStatus.SUCCESS, last.getResult().getStatus());
+        assertEquals(EXECUTION_ID, last.getResult().getExecutionId());
+        assertEquals(30, last.getResult().getTokenCount());
+
+        verify(llmProvider, never()).executePrompt(any(LlmRequest.class));
+        verify(executionRepository).save(any(PromptExecution.class));
+    }
+
+    @Test
+    @DisplayName("Should end stream with an error result when the provider fails mid-stream")
+    void shouldStreamErrorResultWhenProviderFails() {
+        // Arrange
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenReturn(validParameterResult);
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptStream(any(LlmRequest.class))).thenReturn(Flux.concat(
+                Flux.just(LlmStreamChunk.delta("partial")),
+                Flux.error(new LlmProviderException("Connection reset", PROVIDER_ID, MODEL_ID,
+                        LlmProviderException.ErrorType.SERVICE_UNAVAILABLE))));
+        when(executionRepository.save(any(PromptExecution.class))).thenReturn(savedExecution);
+
+        // Act
+        List<PromptStreamEvent> events = testingService.testPromptStream(testRequest).collectList().block();
+
+        // Assert
+        assertNotNull(events);
+        assertEquals(2, events.size());
+        assertEquals("partial", events.get(0).getDelta());
+        assertEquals(PromptStreamEvent.EventType.RESULT, events.get(1).getType());
+        assertEquals(ExecutionStatus.ERROR, events.get(1).getResult().getStatus());
+        assertTrue(events.get(1).getResult().getErrorMessage().contains("Connection reset"));
+    }
+
+    @Test
+    @DisplayName("Should attribute asynchronous tests to the calling user")
+    void shouldAttributeAsyncTestToCallingUser() throws Exception {
+        // Arrange
+        Thread caller = Thread.currentThread();
+        when(securityUtils.getCurrentUserId()).thenAnswer(invocation ->
+                Thread.currentThread() == caller ? Optional.of(USER_ID) : Optional.empty());
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenReturn(validParameterResult);
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptReactive(any(LlmRequest.class))).thenReturn(Mono.just(llmResponse));
+        when(executionRepository.save(any(PromptExecution.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        PromptExecutionResult result = testingService.testPromptAsync(testRequest).get();
+
+        // Assert
+        assertEquals(USER_ID, result.getExecutedBy());
+        ArgumentCaptor<PromptExecution> saved = ArgumentCaptor.forClass(PromptExecution.class);
+        verify(executionRepository).save(saved.capture());
+        assertEquals(USER_ID, saved.getValue().getExecutedBy());
+        verify(transactionTemplate).execute(any());
+    }
+
+    @Test
+    @DisplayName("Should stop an asynchronous test once its response can no longer pass validation")
+    void shouldStopAsyncTestOnValidationFailure() throws Exception {
+        // Arrange
+        Map<String, Object> validationCriteria = Map.of("max_length", 10);
+        testRequest.setValidationCriteria(validationCriteria);
+        ResponseValidator validator = new ResponseValidator();
+        when(responseValidator.startStreaming(validationCriteria))
+                .thenAnswer(invocation -> validator.startStreaming(validationCriteria));
+        when(responseValidator.validateResponse(anyString(), eq(validationCriteria)))
+                .thenAnswer(invocation -> validator.validateResponse(invocation.getArgument(0), validationCriteria));
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenReturn(validParameterResult);
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptStream(any(LlmRequest.class))).thenReturn(Flux.concat(
+                Flux.just(LlmStreamChunk.delta("This is a "), LlmStreamChunk.delta("generated response")),
+                Flux.error(new AssertionError("Stream should have been cancelled"))));
+        when(executionRepository.save(any(PromptExecution.class))).thenReturn(savedExecution);
+
+        // Act
+        PromptExecutionResult result = testingService.testPromptAsync(testRequest).get();
+
+        // Assert
+        assertEquals(ExecutionStatus.SUCCESS, result.getStatus());
+        assertEquals("This is a generated response", result.getResponse());
+        assertFalse(result.getValidationPassed());
+        verify(llmProvider, never()).executePromptReactive(any(LlmRequest.class));
+    }
+
     @Test
     @DisplayName("Should handle parameter validation failure")
     void shouldHandleParameterValidationFailure() {
@@ -353,8 +481,142 @@ class PromptTestingServiceImplTest {
         assertNotNull(results);
         assertEquals(2, results.size());
 
-        // Verify prompt was tested twice (once for each parameter set)
+        // Verify prompt was tested twice (once for each parameter set) with the version loaded once
         verify(llmProvider, times(2)).executePrompt(any(LlmRequest.class));
+        verify(versionRepository, times(1)).findByIdWithParameters(VERSION_ID);
+    }
+
+    @Test
+    @DisplayName("Should attribute sequential batch items to the calling user")
+    void shouldAttributeSequentialBatchToCallingUser() {
+        // Arrange
+        Thread caller = Thread.currentThread();
+        when(securityUtils.getCurrentUserId()).thenAnswer(invocation ->
+                Thread.currentThread() == caller ? Optional.of(USER_ID) : Optional.empty());
+
+        PromptBatchTestRequest batchRequest = PromptBatchTestRequest.builder()
+                .versionId(VERSION_ID)
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .parameterSets(List.of(Map.of("parameter", "value1"), Map.of("parameter", "value2")))
+                .parallelExecution(false)
+                .storeResults(true)
+                .build();
+
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenReturn(validParameterResult);
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePrompt(any(LlmRequest.class))).thenReturn(llmResponse);
+        when(executionRepository.save(any(PromptExecution.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        List<PromptExecutionResult> results = testingService.batchTestPrompt(batchRequest);
+
+        // Assert
+        assertEquals(2, results.size());
+        results.forEach(result -> assertEquals(USER_ID, result.getExecutedBy()));
+        ArgumentCaptor<PromptExecution> saved = ArgumentCaptor.forClass(PromptExecution.class);
+        verify(executionRepository, times(2)).save(saved.capture());
+        saved.getAllValues().forEach(execution -> assertEquals(USER_ID, execution.getExecutedBy()));
+    }
+
+    @Test
+    @DisplayName("Should execute parallel batch test on the non-blocking provider path in input order")
+    void shouldExecuteBatchTestInParallel() {
+        // Arrange
+        List<Map<String, Object>> parameterSets = Arrays.asList(
+                Collections.singletonMap("parameter", "value1"),
+                Collections.singletonMap("parameter", "value2"),
+                Collections.singletonMap("parameter", "value3")
+        );
+
+        PromptBatchTestRequest batchRequest = PromptBatchTestRequest.builder()
+                .versionId(VERSION_ID)
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .parameterSets(parameterSets)
+                .parallelExecution(true)
+                .maxConcurrent(2)
+                .storeResults(false)
+                .build();
+
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenAnswer(invocation ->
+                ParameterValidationResult.builder()
+                        .valid(true)
+                        .validatedValues(invocation.getArgument(1))
+                        .build());
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptReactive(any(LlmRequest.class))).thenAnswer(invocation -> {
+            LlmRequest llmRequest = invocation.getArgument(0);
+            return Mono.just(LlmResponse.builder()
+                    .text("Echo: " + llmRequest.getPrompt())
+                    .totalTokenCount(30)
+                    .successful(true)
+                    .build());
+        });
+
+        // Act
+        List<PromptExecutionResult> results = testingService.batchTestPrompt(batchRequest);
+
+        // Assert
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).getResponse().endsWith("value1"));
+        assertTrue(results.get(1).getResponse().endsWith("value2"));
+        assertTrue(results.get(2).getResponse().endsWith("value3"));
+
+        // Version is loaded once and the blocking provider call is never used
+        verify(versionRepository, times(1)).findByIdWithParameters(VERSION_ID);
+        verify(llmProvider, times(3)).executePromptReactive(any(LlmRequest.class));
+        verify(llmProvider, never()).executePrompt(any(LlmRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should stream batch test results with the index of their parameter set")
+    void shouldStreamBatchTestResults() {
+        // Arrange
+        List<Map<String, Object>> parameterSets = Arrays.asList(
+                Collections.singletonMap("parameter", "value1"),
+                Collections.singletonMap("parameter", "value2"),
+                Collections.singletonMap("parameter", "value3")
+        );
+
+        PromptBatchTestRequest batchRequest = PromptBatchTestRequest.builder()
+                .versionId(VERSION_ID)
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .parameterSets(parameterSets)
+                .parallelExecution(true)
+                .maxConcurrent(3)
+                .storeResults(false)
+                .build();
+
+        when(versionRepository.findByIdWithParameters(VERSION_ID)).thenReturn(Optional.of(testVersion));
+        when(parameterValidator.validateParameters(eq(testVersion), anyMap())).thenAnswer(invocation ->
+                ParameterValidationResult.builder()
+                        .valid(true)
+                        .validatedValues(invocation.getArgument(1))
+                        .build());
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptReactive(any(LlmRequest.class))).thenAnswer(invocation -> {
+            LlmRequest llmRequest = invocation.getArgument(0);
+            return Mono.just(LlmResponse.builder()
+                    .text("Echo: " + llmRequest.getPrompt())
+                    .totalTokenCount(30)
+                    .successful(true)
+                    .build());
+        });
+
+        // Act
+        List<PromptBatchItemResult> results = testingService.batchTestPromptStream(batchRequest).collectList().block();
+
+        // Assert
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        for (PromptBatchItemResult item : results) {
+            assertTrue(item.getResult().getResponse().endsWith("value" + (item.getIndex() + 1)));
+        }
+        verify(versionRepository, times(1)).findByIdWithParameters(VERSION_ID);
     }
 
     @Test
@@ -10,6 +10,7 @@ import org.mockito.quality.Strictness;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
 import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -42,7 +43,7 @@ class BaseLlmProviderTest {
 
         public TestLlmProvider(Executor executor, Map<String, String> models, boolean shouldThrowException,
                                LlmProviderException.ErrorType errorType, int maxContextLength) {
-            super(executor);
+            super(executor, new TokenizerRegistry(new LlmProviderProperties()));
             this.models = models;
             this.shouldThrowException = shouldThrowException;
             this.errorType = errorType;
@@ -48,6 +48,8 @@ class LlmProviderFactoryTest {
         lenient().when(webClientBuilder.baseUrl(any())).thenReturn(webClientBuilder);
         lenient().when(webClientBuilder.defaultHeader(any(), any())).thenReturn(webClientBuilder);
         lenient().when(webClientBuilder.build()).thenReturn(webClient);
+        lenient().when(webClientBuilder.clone()).thenReturn(webClientBuilder);
+        lenient().when(webClientBuilder.clientConnector(any())).thenReturn(webClientBuilder);
         
         // Create provider properties with test values
         properties = new LlmProviderProperties();
@@ -62,6 +64,9 @@ class LlmProviderFactoryTest {
         properties.getAnthropic().setApiKey("test-key");
         properties.getAnthropic().setApiUrl("http://localhost:8889");
 
+        // No connection warm-up against the test URLs
+        properties.getHttp().setWarmupConnections(0);
+
         // Mock providers with lenient stubbing
         lenient().when(openAiProvider.getProviderId()).thenReturn("openai");
         lenient().when(anthropicProvider.getProviderId()).thenReturn("anthropic");
@@ -190,4 +195,18 @@ class LlmProviderFactoryTest {
         // Then
         assertFalse(missingKeyFactory.hasProvider("openai"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testInitializeProviders_Simulated() {
+        // Given
+        LlmProviderProperties simulatedProperties = new LlmProviderProperties();
+        simulatedProperties.getSimulated().setEnabled(true);
+
+        // When
+        LlmProviderFactory simulatedFactory = new LlmProviderFactory(webClientBuilder, executor, simulatedProperties);
+
+        // Then
+        assertTrue(simulatedFactory.hasProvider("simulated"));
+        assertTrue(simulatedFactory.getProviderForModel("simulated").isPresent());
+    }
+}
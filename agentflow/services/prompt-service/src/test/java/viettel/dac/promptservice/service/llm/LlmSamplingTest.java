@@ -0,0 +1,104 @@
+package viettel.dac.promptservice.service.llm;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LlmSamplingTest {
+
+    @Mock
+    private LlmProvider provider;
+
+    private final LlmRequest request = LlmRequest.builder()
+            .modelId("gpt-4")
+            .prompt("Write a slogan")
+            .temperature(0.9)
+            .build();
+
+    @Test
+    @DisplayName("Should ask for several completions per call up to the provider limit")
+    void shouldPlanMultiCompletionCalls() {
+        // Arrange
+        when(provider.getMaxCompletionsPerRequest(anyString())).thenReturn(4);
+
+        // Act
+        List<LlmRequest> calls = LlmSampling.plan(provider, request, 10);
+
+        // Assert
+        assertEquals(List.of(4, 4, 2), calls.stream().map(LlmRequest::getN).toList());
+        assertTrue(calls.stream().allMatch(call -> "Write a slogan".equals(call.getPrompt())));
+    }
+
+    @Test
+    @DisplayName("Should plan one call per sample for providers without multiple completions")
+    void shouldPlanSingleCompletionCalls() {
+        // Arrange
+        when(provider.getMaxCompletionsPerRequest(anyString())).thenReturn(1);
+
+        // Act
+        List<LlmRequest> calls = LlmSampling.plan(provider, request, 3);
+
+        // Assert
+        assertEquals(3, calls.size());
+        assertTrue(calls.stream().allMatch(call -> call.getN() == null));
+    }
+
+    @Test
+    @DisplayName("Should split alternatives into samples whose usage and cost add up to the call")
+    void shouldSplitAlternatives() {
+        // Arrange
+        LlmResponse response = LlmResponse.builder()
+                .request(request)
+                .text("First")
+                .alternatives(List.of("Second", "Third"))
+                .inputTokenCount(10)
+                .outputTokenCount(31)
+                .totalTokenCount(41)
+                .cost(0.03)
+                .successful(true)
+                .metadata(Map.of("response_id", "chatcmpl-1"))
+                .build();
+
+        // Act
+        List<LlmResponse> samples = LlmSampling.split(response);
+
+        // Assert
+        assertEquals(List.of("First", "Second", "Third"), samples.stream().map(LlmResponse::getText).toList());
+        assertEquals(10, samples.stream().mapToInt(LlmResponse::getInputTokenCount).sum());
+        assertEquals(31, samples.stream().mapToInt(LlmResponse::getOutputTokenCount).sum());
+        assertEquals(41, samples.stream().mapToInt(LlmResponse::getTotalTokenCount).sum());
+        assertEquals(0.03, samples.stream().mapToDouble(LlmResponse::getCost).sum(), 1e-12);
+        assertTrue(samples.stream().allMatch(sample -> sample.getAlternatives().isEmpty()));
+        assertEquals(2, samples.get(2).getMetadata().get("sample_index"));
+        assertEquals("chatcmpl-1", samples.get(2).getMetadata().get("response_id"));
+    }
+
+    @Test
+    @DisplayName("Should return a single completion response unchanged")
+    void shouldKeepSingleCompletion() {
+        // Arrange
+        LlmResponse response = LlmResponse.builder().text("Only").successful(true).build();
+
+        // Act
+        List<LlmResponse> samples = LlmSampling.split(response);
+
+        // Assert
+        assertEquals(1, samples.size());
+        assertSame(response, samples.get(0));
+    }
+}
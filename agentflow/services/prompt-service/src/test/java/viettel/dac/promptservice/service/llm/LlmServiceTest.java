@@ -10,6 +10,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
 import viettel.dac.promptservice.dto.request.LlmRequest;
 import viettel.dac.promptservice.dto.response.LlmResponse;
 import viettel.dac.promptservice.exception.LlmProviderException;
@@ -103,6 +104,7 @@ class LlmServiceTest {
         when(providerProperties.getDefaultMaxTokens()).thenReturn(1024);
         when(providerProperties.getDefaultTemperature()).thenReturn(0.7);
         when(providerProperties.getDefaultTimeoutMs()).thenReturn(30000);
+        when(providerProperties.getPromptCache()).thenReturn(new LlmProviderProperties.PromptCacheConfig());
     }
 
     @Test
@@ -369,7 +371,7 @@ class LlmServiceTest {
     void shouldExecutePromptAsynchronously() throws Exception {
         // Arrange
         when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
-        when(llmProvider.executePrompt(any(LlmRequest.class))).thenReturn(successResponse);
+        when(llmProvider.executePromptReactive(any(LlmRequest.class))).thenReturn(Mono.just(successResponse));
         when(executionRepository.save(any(PromptExecution.class))).thenAnswer(i -> i.getArgument(0));
 
         // Act
@@ -383,6 +385,29 @@ class LlmServiceTest {
         assertNotNull(result);
         assertEquals(ExecutionStatus.SUCCESS, result.getStatus());
         assertEquals("This is a generated response", result.getRawResponse());
+
+        // The async path must not fall back to the blocking provider call
+        verify(llmProvider, never()).executePrompt(any(LlmRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should record provider errors from the asynchronous path")
+    void shouldRecordProviderErrorAsynchronously() throws Exception {
+        // Arrange
+        when(providerFactory.getProvider(PROVIDER_ID)).thenReturn(Optional.of(llmProvider));
+        when(llmProvider.executePromptReactive(any(LlmRequest.class))).thenReturn(Mono.error(
+                new LlmProviderException("Rate limit exceeded", PROVIDER_ID, MODEL_ID,
+                        LlmProviderException.ErrorType.RATE_LIMIT)));
+        when(executionRepository.save(any(PromptExecution.class))).thenAnswer(i -> i.getArgument(0));
+
+        // Act
+        PromptExecution result = llmService.executePromptAsync(
+                testVersion, PROVIDER_ID, MODEL_ID, parameters).get();
+
+        // Assert
+        assertEquals(ExecutionStatus.RATE_LIMITED, result.getStatus());
+        assertTrue(result.getRawResponse().contains("Rate limit exceeded"));
+        verify(executionRepository).save(any(PromptExecution.class));
     }
 
     @Test
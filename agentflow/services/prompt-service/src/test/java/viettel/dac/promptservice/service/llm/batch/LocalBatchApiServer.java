@@ -0,0 +1,273 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI Batch API and the Anthropic Message Batches API, for tests.
+ * <p>
+ * Every request is answered with "Echo: " and its user message; requests whose message
+ * contains "FAIL" fail with an invalid request error. A batch reports itself in progress for
+ * {@link #setPollsBeforeEnd(int)} status checks and has ended after that.
+ */
+public class LocalBatchApiServer implements AutoCloseable {
+
+    private static final Pattern OPENAI_BATCH = Pattern.compile("/v1/batches/([^/]+)(/cancel)?");
+    private static final Pattern OPENAI_FILE_CONTENT = Pattern.compile("/v1/files/([^/]+)/content");
+    private static final Pattern ANTHROPIC_BATCH = Pattern.compile("/v1/messages/batches/([^/]+)(/cancel|/results)?");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private volatile int pollsBeforeEnd;
+
+    public LocalBatchApiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1", this::handle);
+        server.start();
+    }
+
+    /**
+     * Base URL to configure as the provider API URL
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public void setPollsBeforeEnd(int pollsBeforeEnd) {
+        this.pollsBeforeEnd = pollsBeforeEnd;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Matcher matcher;
+
+            if ("POST".equals(method) && path.equals("/v1/files")) {
+                respond(exchange, 200, "application/json", uploadFile(exchange));
+            } else if ("POST".equals(method) && path.equals("/v1/batches")) {
+                respond(exchange, 200, "application/json", createOpenAiBatch(exchange));
+            } else if ((matcher = OPENAI_BATCH.matcher(path)).matches()) {
+                Batch batch = batches.get(matcher.group(1));
+                if (matcher.group(2) != null) {
+                    batch.cancelled = true;
+                } else {
+                    batch.polls++;
+                }
+                respond(exchange, 200, "application/json", openAiBatch(batch));
+            } else if ((matcher = OPENAI_FILE_CONTENT.matcher(path)).matches()) {
+                respond(exchange, 200, "application/octet-stream", files.get(matcher.group(1)));
+            } else if ("POST".equals(method) && path.equals("/v1/messages/batches")) {
+                respond(exchange, 200, "application/json", createAnthropicBatch(exchange));
+            } else if ((matcher = ANTHROPIC_BATCH.matcher(path)).matches()) {
+                Batch batch = batches.get(matcher.group(1));
+                if ("/results".equals(matcher.group(2))) {
+                    respond(exchange, 200, "application/octet-stream", batch.output.toString());
+                    return;
+                }
+                if ("/cancel".equals(matcher.group(2))) {
+                    batch.cancelled = true;
+                } else {
+                    batch.polls++;
+                }
+                respond(exchange, 200, "application/json", anthropicBatch(batch));
+            } else {
+                respond(exchange, 404, "application/json", "{\"error\":{\"message\":\"Not found\"}}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Store the file part of a multipart upload
+     */
+    private String uploadFile(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String boundary = "--" + contentType.substring(contentType.indexOf("boundary=") + "boundary=".length())
+                .split(";")[0].replace("\"", "");
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+        String content = "";
+        for (String part : body.split(Pattern.quote(boundary))) {
+            if (part.contains("name=\"file\"")) {
+                content = part.substring(part.indexOf("\r\n\r\n") + 4);
+                content = content.substring(0, content.lastIndexOf("\r\n"));
+            }
+        }
+
+        String id = "file-" + ids.incrementAndGet();
+        files.put(id, content);
+        return objectMapper.createObjectNode().put("id", id).put("purpose", "batch").toString();
+    }
+
+    private String createOpenAiBatch(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        Batch batch = new Batch("batch_" + ids.incrementAndGet());
+        StringBuilder errors = new StringBuilder();
+
+        for (String line : files.get(request.path("input_file_id").asText()).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode item = objectMapper.readTree(line);
+            String message = lastUserMessage(item.path("body"));
+            ObjectNode result = objectMapper.createObjectNode().put("custom_id", item.path("custom_id").asText());
+            batch.total++;
+
+            if (message.contains("FAIL")) {
+                result.putObject("response").put("status_code", 400)
+                        .putObject("body").putObject("error").put("message", "Invalid prompt");
+                result.putNull("error");
+                errors.append(result).append('\n');
+                batch.failed++;
+            } else {
+                ObjectNode body = result.putObject("response").put("status_code", 200).putObject("body");
+                body.put("id", "chatcmpl-" + ids.incrementAndGet());
+                body.putArray("choices").addObject().put("index", 0)
+                        .putObject("message").put("role", "assistant").put("content", "Echo: " + message);
+                body.putObject("usage").put("prompt_tokens", 10).put("completion_tokens", 5).put("total_tokens", 15);
+                result.putNull("error");
+                batch.output.append(result).append('\n');
+                batch.succeeded++;
+            }
+        }
+
+        files.put(batch.id + "-output", batch.output.toString());
+        files.put(batch.id + "-errors", errors.toString());
+        batches.put(batch.id, batch);
+        return openAiBatch(batch);
+    }
+
+    private String openAiBatch(Batch batch) {
+        boolean ended = batch.isEnded(pollsBeforeEnd);
+        ObjectNode node = objectMapper.createObjectNode()
+                .put("id", batch.id)
+                .put("object", "batch")
+                .put("status", batch.cancelled ? "cancelled" : ended ? "completed" : "in_progress")
+                .put("created_at", batch.createdAt.toEpochSecond());
+        node.putObject("request_counts")
+                .put("total", batch.total)
+                .put("completed", ended ? batch.succeeded : 0)
+                .put("failed", ended ? batch.failed : 0);
+        if (ended) {
+            node.put("output_file_id", batch.id + "-output");
+            node.put("error_file_id", batch.id + "-errors");
+        } else {
+            node.putNull("output_file_id");
+        }
+        return node.toString();
+    }
+
+    private String createAnthropicBatch(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        Batch batch = new Batch("msgbatch_" + ids.incrementAndGet());
+
+        for (JsonNode item : request.path("requests")) {
+            String message = lastUserMessage(item.path("params"));
+            ObjectNode result = objectMapper.createObjectNode().put("custom_id", item.path("custom_id").asText());
+            batch.total++;
+
+            if (message.contains("FAIL")) {
+                result.putObject("result").put("type", "errored")
+                        .putObject("error").put("type", "error")
+                        .putObject("error").put("type", "invalid_request_error").put("message", "Invalid prompt");
+                batch.failed++;
+            } else {
+                ObjectNode reply = result.putObject("result").put("type", "succeeded").putObject("message")
+                        .put("id", "msg_" + ids.incrementAndGet())
+                        .put("model", item.path("params").path("model").asText())
+                        .put("stop_reason", "end_turn");
+                reply.putArray("content").addObject().put("type", "text").put("text", "Echo: " + message);
+                reply.putObject("usage").put("input_tokens", 10).put("output_tokens", 5);
+                batch.succeeded++;
+            }
+            batch.output.append(result).append('\n');
+        }
+
+        batches.put(batch.id, batch);
+        return anthropicBatch(batch);
+    }
+
+    private String anthropicBatch(Batch batch) {
+        boolean ended = batch.isEnded(pollsBeforeEnd);
+        ObjectNode node = objectMapper.createObjectNode()
+                .put("id", batch.id)
+                .put("type", "message_batch")
+                .put("processing_status", ended ? "ended" : batch.cancelled ? "canceling" : "in_progress")
+                .put("created_at", batch.createdAt.toString());
+        node.putObject("request_counts")
+                .put("processing", ended ? 0 : batch.total)
+                .put("succeeded", ended ? batch.succeeded : 0)
+                .put("errored", ended ? batch.failed : 0)
+                .put("canceled", 0)
+                .put("expired", 0);
+        if (ended) {
+            node.put("results_url", baseUrl() + "/messages/batches/" + batch.id + "/results");
+        } else {
+            node.putNull("results_url");
+        }
+        return node.toString();
+    }
+
+    private static String lastUserMessage(JsonNode body) {
+        String message = "";
+        for (JsonNode item : body.path("messages")) {
+            if ("user".equals(item.path("role").asText())) {
+                message = item.path("content").asText();
+            }
+        }
+        return message;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Batch {
+        private final String id;
+        private final OffsetDateTime createdAt = OffsetDateTime.now();
+        private final StringBuilder output = new StringBuilder();
+        private int total;
+        private int succeeded;
+        private int failed;
+        private int polls;
+        private boolean cancelled;
+
+        private Batch(String id) {
+            this.id = id;
+        }
+
+        private boolean isEnded(int pollsBeforeEnd) {
+            return polls > pollsBeforeEnd;
+        }
+    }
+}
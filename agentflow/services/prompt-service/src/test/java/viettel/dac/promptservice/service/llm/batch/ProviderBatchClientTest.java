@@ -0,0 +1,156 @@
+package viettel.dac.promptservice.service.llm.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.providers.AnthropicBatchClient;
+import viettel.dac.promptservice.service.llm.providers.AnthropicProvider;
+import viettel.dac.promptservice.service.llm.providers.OpenAiBatchClient;
+import viettel.dac.promptservice.service.llm.providers.OpenAiProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderBatchClientTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final String OPENAI_MODEL = "gpt-4";
+    private static final String ANTHROPIC_MODEL = "claude-3-haiku-20240307";
+
+    private LocalBatchApiServer server;
+    private OpenAiBatchClient openAiClient;
+    private AnthropicBatchClient anthropicClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalBatchApiServer();
+        TokenizerRegistry tokenizers = new TokenizerRegistry(new LlmProviderProperties());
+        openAiClient = new OpenAiBatchClient(WebClient.builder(), server.baseUrl(), "test-key",
+                new OpenAiProvider(WebClient.builder(), "test-key", Runnable::run, tokenizers), "24h");
+        anthropicClient = new AnthropicBatchClient(WebClient.builder(), server.baseUrl(), "test-key",
+                "2023-06-01", new AnthropicProvider(WebClient.builder(), "test-key", Runnable::run, tokenizers));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should run an OpenAI batch until it ends and stream back successes and failures")
+    void shouldRunOpenAiBatch() {
+        // Arrange
+        server.setPollsBeforeEnd(1);
+        Map<String, LlmRequest> requests = requests("openai", OPENAI_MODEL);
+
+        // Act
+        LlmBatch submitted = openAiClient.submit(items(requests)).block(TIMEOUT);
+        LlmBatch running = openAiClient.getBatch(submitted.getId()).block(TIMEOUT);
+        LlmBatch ended = openAiClient.getBatch(submitted.getId()).block(TIMEOUT);
+        List<LlmBatchResult> results = results(openAiClient, ended, requests::get);
+
+        // Assert
+        assertEquals(LlmBatchStatus.IN_PROGRESS, submitted.getStatus());
+        assertEquals(2, submitted.getRequestCount());
+        assertEquals(LlmBatchStatus.IN_PROGRESS, running.getStatus());
+        assertEquals(LlmBatchStatus.COMPLETED, ended.getStatus());
+        assertEquals(1, ended.getSucceededCount());
+        assertEquals(1, ended.getFailedCount());
+        assertResults(results, requests);
+    }
+
+    @Test
+    @DisplayName("Should run an Anthropic message batch until it ends and stream back successes and failures")
+    void shouldRunAnthropicBatch() {
+        // Arrange
+        server.setPollsBeforeEnd(1);
+        Map<String, LlmRequest> requests = requests("anthropic", ANTHROPIC_MODEL);
+
+        // Act
+        LlmBatch submitted = anthropicClient.submit(items(requests)).block(TIMEOUT);
+        LlmBatch running = anthropicClient.getBatch(submitted.getId()).block(TIMEOUT);
+        LlmBatch ended = anthropicClient.getBatch(submitted.getId()).block(TIMEOUT);
+        List<LlmBatchResult> results = results(anthropicClient, ended, requests::get);
+
+        // Assert
+        assertEquals(LlmBatchStatus.IN_PROGRESS, submitted.getStatus());
+        assertEquals(2, submitted.getRequestCount());
+        assertEquals(LlmBatchStatus.IN_PROGRESS, running.getStatus());
+        assertEquals(LlmBatchStatus.COMPLETED, ended.getStatus());
+        assertNotNull(ended.getOutputLocation());
+        assertResults(results, requests);
+    }
+
+    @Test
+    @DisplayName("Should cancel a running batch")
+    void shouldCancelBatch() {
+        // Arrange
+        server.setPollsBeforeEnd(5);
+        LlmBatch submitted = openAiClient.submit(items(requests("openai", OPENAI_MODEL))).block(TIMEOUT);
+
+        // Act
+        LlmBatch cancelled = openAiClient.cancel(submitted.getId()).block(TIMEOUT);
+
+        // Assert
+        assertEquals(LlmBatchStatus.CANCELLED, cancelled.getStatus());
+        assertTrue(cancelled.getStatus().isEnded());
+    }
+
+    private static void assertResults(List<LlmBatchResult> results, Map<String, LlmRequest> requests) {
+        assertEquals(2, results.size());
+
+        LlmBatchResult success = results.get(0);
+        assertEquals("0", success.getCustomId());
+        assertTrue(success.isSuccessful());
+        assertEquals("Echo: Say hello", success.getResponse().getText());
+        assertEquals(10, success.getResponse().getInputTokenCount());
+        assertEquals(5, success.getResponse().getOutputTokenCount());
+        assertSame(requests.get("0"), success.getResponse().getRequest());
+
+        LlmBatchResult failure = results.get(1);
+        assertEquals("1", failure.getCustomId());
+        assertFalse(failure.isSuccessful());
+        assertEquals(LlmProviderException.ErrorType.INVALID_REQUEST, failure.getError().getErrorType());
+    }
+
+    private static List<LlmBatchResult> results(LlmBatchClient client, LlmBatch batch,
+                                                Function<String, LlmRequest> requests) {
+        List<LlmBatchResult> results = client.streamResults(batch, requests).collectList().block(TIMEOUT);
+        assertNotNull(results);
+        return results.stream()
+                .sorted(Comparator.comparing(LlmBatchResult::getCustomId))
+                .toList();
+    }
+
+    private static Map<String, LlmRequest> requests(String providerId, String modelId) {
+        return Map.of(
+                "0", request(providerId, modelId, "Say hello"),
+                "1", request(providerId, modelId, "Please FAIL"));
+    }
+
+    private static List<LlmBatchItem> items(Map<String, LlmRequest> requests) {
+        return requests.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new LlmBatchItem(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static LlmRequest request(String providerId, String modelId, String prompt) {
+        return LlmRequest.builder()
+                .providerId(providerId)
+                .modelId(modelId)
+                .prompt(prompt)
+                .build();
+    }
+}
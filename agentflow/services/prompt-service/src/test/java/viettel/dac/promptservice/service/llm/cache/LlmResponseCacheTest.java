@@ -0,0 +1,155 @@
+package viettel.dac.promptservice.service.llm.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LlmResponseCacheTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private LlmProvider delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrentMapCacheManager cacheManager;
+    private LlmProviderProperties properties;
+    private LlmResponseCache cache;
+    private LlmProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new ConcurrentMapCacheManager();
+        properties = new LlmProviderProperties();
+        cache = new LlmResponseCache(properties, meterRegistry, cacheManager);
+
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+        when(delegate.executePrompt(any())).thenAnswer(invocation -> response(invocation.getArgument(0)));
+        when(delegate.executePromptReactive(any()))
+                .thenAnswer(invocation -> Mono.just(response(invocation.getArgument(0))));
+
+        provider = cache.decorate(delegate);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated deterministic requests from cache")
+    void shouldServeDeterministicRequestFromCache() {
+        // Act
+        LlmResponse first = provider.executePrompt(request(0.0, false));
+        LlmResponse second = provider.executePrompt(request(0.0, false));
+
+        // Assert
+        verify(delegate, times(1)).executePrompt(any());
+        assertEquals(first.getText(), second.getText());
+        assertEquals(Boolean.TRUE, second.getMetadata().get(LlmResponseCache.CACHE_HIT_METADATA_KEY));
+        assertEquals(0.0, second.getCost());
+        assertEquals(0.02, meterRegistry.counter("llm.cache.saved.cost", "provider", PROVIDER_ID,
+                "model", MODEL_ID).count(), 1e-9);
+        assertEquals(1, meterRegistry.counter("llm.cache.requests", "result", "hit", "tier", "local",
+                "provider", PROVIDER_ID, "model", MODEL_ID).count());
+        assertEquals(1, meterRegistry.counter("llm.cache.requests", "result", "miss", "tier", "all",
+                "provider", PROVIDER_ID, "model", MODEL_ID).count());
+    }
+
+    @Test
+    @DisplayName("Should not cache sampled requests unless flagged")
+    void shouldBypassCacheForSampledRequests() {
+        // Act
+        provider.executePrompt(request(0.7, false));
+        provider.executePrompt(request(0.7, false));
+        provider.executePrompt(request(0.7, true));
+        provider.executePrompt(request(0.7, true));
+
+        // Assert
+        verify(delegate, times(3)).executePrompt(any());
+    }
+
+    @Test
+    @DisplayName("Should key entries on the rendered prompt")
+    void shouldMissForDifferentPrompt() {
+        // Arrange
+        LlmRequest other = request(0.0, false);
+        other.setPrompt("Say goodbye");
+
+        // Act
+        provider.executePrompt(request(0.0, false));
+        provider.executePrompt(other);
+
+        // Assert
+        verify(delegate, times(2)).executePrompt(any());
+        assertNotEquals(cache.key(PROVIDER_ID, request(0.0, false)), cache.key(PROVIDER_ID, other));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the shared tier when the local tier misses")
+    void shouldReadThroughSharedTier() {
+        // Arrange
+        provider.executePrompt(request(0.0, false));
+        LlmResponseCache otherNode = new LlmResponseCache(properties, meterRegistry, cacheManager);
+
+        // Act
+        LlmResponse response = otherNode.decorate(delegate).executePromptReactive(request(0.0, false)).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("Hello!", response.getText());
+        verify(delegate, never()).executePromptReactive(any());
+        assertEquals(1, meterRegistry.counter("llm.cache.requests", "result", "hit", "tier", "redis",
+                "provider", PROVIDER_ID, "model", MODEL_ID).count());
+    }
+
+    @Test
+    @DisplayName("Should not store failed responses")
+    void shouldNotCacheFailures() {
+        // Arrange
+        when(delegate.executePrompt(any())).thenReturn(LlmResponse.builder().successful(false).build());
+
+        // Act
+        provider.executePrompt(request(0.0, false));
+        provider.executePrompt(request(0.0, false));
+
+        // Assert
+        verify(delegate, times(2)).executePrompt(any());
+    }
+
+    private LlmRequest request(double temperature, boolean cacheable) {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello")
+                .temperature(temperature)
+                .cacheable(cacheable)
+                .build();
+    }
+
+    private LlmResponse response(LlmRequest request) {
+        return LlmResponse.builder()
+                .request(request)
+                .text("Hello!")
+                .totalTokenCount(12)
+                .cost(0.02)
+                .responseTimeMs(800L)
+                .successful(true)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package viettel.dac.promptservice.service.llm.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.providers.OpenAiProvider;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCatalogRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    private LlmProviderProperties properties;
+    private ModelCatalogRegistry registry;
+    private OpenAiProvider openAi;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProviderProperties();
+        properties.getCatalog().setReloadInterval(Duration.ZERO);
+        registry = new ModelCatalogRegistry(properties, new ObjectMapper());
+        openAi = new OpenAiProvider(WebClient.builder(), "test-key", Runnable::run,
+                new TokenizerRegistry(properties));
+    }
+
+    @Test
+    @DisplayName("Should index the built-in models of registered providers")
+    void shouldIndexBuiltinModels() {
+        // Act
+        openAi.useCatalog(registry);
+        ModelCatalog catalog = registry.current();
+
+        // Assert
+        assertEquals("openai", catalog.providerFor("gpt-4"));
+        assertNull(catalog.providerFor("unknown-model"));
+        assertEquals("GPT-4", catalog.models("openai").get("gpt-4"));
+        assertEquals(8192, openAi.getMaxContextLength("gpt-4"));
+        assertEquals(30.0, catalog.find("openai", "gpt-4").getInputCostPerMillionTokens());
+    }
+
+    @Test
+    @DisplayName("Should apply configured prices, added and removed models and aliases")
+    void shouldApplyConfiguredChanges() {
+        // Arrange
+        properties.getCatalog().setModels(List.of(
+                model("openai", "gpt-4", 20.0, null),
+                model("openai", "gpt-4o", 2.5, 128000),
+                disabled("openai", "gpt-3.5-turbo-16k")));
+        properties.getCatalog().getAliases().put("smart", "gpt-4o");
+        registry = new ModelCatalogRegistry(properties, new ObjectMapper());
+
+        // Act
+        openAi.useCatalog(registry);
+
+        // Assert
+        assertEquals(20.0, registry.current().find("openai", "gpt-4").getInputCostPerMillionTokens());
+        assertEquals(60.0, registry.current().find("openai", "gpt-4").getOutputCostPerMillionTokens());
+        assertTrue(openAi.supportsModel("gpt-4o"));
+        assertEquals(128000, openAi.getMaxContextLength("gpt-4o"));
+        assertFalse(openAi.supportsModel("gpt-3.5-turbo-16k"));
+        assertTrue(openAi.supportsModel("smart"));
+        assertEquals("openai", registry.current().providerFor("smart"));
+        assertEquals("gpt-4o", registry.current().resolve("smart"));
+    }
+
+    @Test
+    @DisplayName("Should swap in the catalog file when it changes and keep it when it is invalid")
+    void shouldReloadCatalogFile() throws Exception {
+        // Arrange
+        Path file = directory.resolve("model-catalog.json");
+        write(file, """
+                {"models":[{"provider":"openai","model":"gpt-4","inputCostPerMillionTokens":10.0}]}""", 1);
+        properties.getCatalog().setLocation(file.toUri().toString());
+        registry.start();
+        openAi.useCatalog(registry);
+        double before = openAi.calculateCost(1_000_000, 0, "gpt-4");
+        long version = registry.current().getVersion();
+
+        // Act
+        write(file, """
+                {"models":[{"provider":"openai","model":"gpt-4","inputCostPerMillionTokens":5.0}],
+                 "aliases":{"default":"gpt-4"}}""", 2);
+        boolean reloaded = registry.reload();
+        boolean unchanged = registry.reload();
+        write(file, "{\"models\":", 3);
+        boolean invalid = registry.reload();
+
+        // Assert
+        assertEquals(10.0, before, 1e-9);
+        assertTrue(reloaded);
+        assertFalse(unchanged);
+        assertFalse(invalid);
+        assertTrue(registry.current().getVersion() > version);
+        assertEquals(5.0, openAi.calculateCost(1_000_000, 0, "gpt-4"), 1e-9);
+        assertEquals("openai", registry.current().providerFor("default"));
+    }
+
+    @Test
+    @DisplayName("Should not change a snapshot already handed out")
+    void shouldKeepSnapshotsImmutable() {
+        // Arrange
+        openAi.useCatalog(registry);
+        ModelCatalog snapshot = registry.current();
+
+        // Act
+        registry.registerProvider("openai", List.of());
+
+        // Assert
+        assertTrue(snapshot.models("openai").containsKey("gpt-4"));
+        assertFalse(registry.current().models("openai").containsKey("gpt-4"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.models("openai").put("x", "y"));
+    }
+
+    private static LlmProviderProperties.CatalogModel model(String provider, String model, Double inputCost,
+                                                            Integer contextLength) {
+        LlmProviderProperties.CatalogModel entry = new LlmProviderProperties.CatalogModel();
+        entry.setProvider(provider);
+        entry.setModel(model);
+        entry.setInputCostPerMillionTokens(inputCost);
+        entry.setContextLength(contextLength);
+        return entry;
+    }
+
+    private static LlmProviderProperties.CatalogModel disabled(String provider, String model) {
+        LlmProviderProperties.CatalogModel entry = model(provider, model, null, null);
+        entry.setEnabled(false);
+        return entry;
+    }
+
+    /**
+     * Write the file with a distinct modification time, so the change is seen on coarse file systems
+     */
+    private static void write(Path file, String content, int revision) throws Exception {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2024-01-01T00:00:00Z").plusSeconds(revision)));
+    }
+}
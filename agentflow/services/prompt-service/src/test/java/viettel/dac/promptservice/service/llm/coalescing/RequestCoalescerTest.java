@@ -0,0 +1,152 @@
+package viettel.dac.promptservice.service.llm.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RequestCoalescerTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private LlmProvider delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private LlmProvider provider;
+    private Sinks.One<LlmResponse> upstream;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(new LlmProviderProperties(), meterRegistry);
+        upstream = Sinks.one();
+
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+        when(delegate.executePromptReactive(any())).thenAnswer(invocation -> upstream.asMono());
+
+        provider = coalescer.decorate(delegate);
+    }
+
+    @Test
+    @DisplayName("Should share one provider call between identical in-flight requests")
+    void shouldCoalesceIdenticalRequests() {
+        // Arrange
+        LlmRequest first = request(0.0);
+        LlmRequest second = request(0.0);
+
+        // Act
+        CompletableFuture<LlmResponse> firstResult = provider.executePromptAsync(first);
+        CompletableFuture<LlmResponse> secondResult = provider.executePromptAsync(second);
+        upstream.tryEmitValue(LlmResponse.builder().request(first).text("Hello!").successful(true).build());
+
+        // Assert
+        verify(delegate, times(1)).executePromptReactive(any());
+        assertEquals("Hello!", firstResult.join().getText());
+        assertEquals("Hello!", secondResult.join().getText());
+        assertSame(second, secondResult.join().getRequest());
+        assertEquals(1, meterRegistry.counter("llm.requests.coalesced",
+                "provider", PROVIDER_ID, "model", MODEL_ID).count());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should start a new call once the previous one has finished")
+    void shouldNotReuseFinishedCalls() {
+        // Arrange
+        when(delegate.executePromptReactive(any()))
+                .thenAnswer(invocation -> Mono.just(LlmResponse.builder().text("Hello!").build()));
+
+        // Act
+        provider.executePrompt(request(0.0));
+        provider.executePrompt(request(0.0));
+
+        // Assert
+        verify(delegate, times(2)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should keep independent samples for non-deterministic requests")
+    void shouldNotCoalesceSampledRequests() {
+        // Act
+        provider.executePromptReactive(request(0.7)).subscribe();
+        provider.executePromptReactive(request(0.7)).subscribe();
+
+        // Assert
+        verify(delegate, times(2)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should cancel the provider call only when every waiter has cancelled")
+    void shouldCancelWhenLastWaiterLeaves() {
+        // Arrange
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(delegate.executePromptReactive(any()))
+                .thenAnswer(invocation -> Mono.<LlmResponse>never().doOnCancel(() -> cancelled.set(true)));
+
+        Disposable first = provider.executePromptReactive(request(0.0)).subscribe();
+        Disposable second = provider.executePromptReactive(request(0.0)).subscribe();
+
+        // Act & Assert
+        first.dispose();
+        assertFalse(cancelled.get());
+        assertEquals(1, coalescer.inFlightCount());
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should deliver a provider error to every waiter")
+    void shouldShareErrors() {
+        // Arrange
+        CompletableFuture<LlmResponse> firstResult = provider.executePromptAsync(request(0.0));
+        CompletableFuture<LlmResponse> secondResult = provider.executePromptAsync(request(0.0));
+
+        // Act
+        upstream.tryEmitError(new LlmProviderException("Service unavailable", PROVIDER_ID, MODEL_ID,
+                LlmProviderException.ErrorType.SERVICE_UNAVAILABLE));
+
+        // Assert
+        CompletionException first = assertThrows(CompletionException.class, firstResult::join);
+        CompletionException second = assertThrows(CompletionException.class, secondResult::join);
+        assertInstanceOf(LlmProviderException.class, first.getCause());
+        assertInstanceOf(LlmProviderException.class, second.getCause());
+        verify(delegate, times(1)).executePromptReactive(any());
+    }
+
+    private LlmRequest request(double temperature) {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello")
+                .temperature(temperature)
+                .build();
+    }
+}
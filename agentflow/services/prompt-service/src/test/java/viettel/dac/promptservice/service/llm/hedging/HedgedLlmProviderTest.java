@@ -0,0 +1,185 @@
+package viettel.dac.promptservice.service.llm.hedging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HedgedLlmProviderTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private LlmProvider delegate;
+
+    private LlmProviderProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private LatencyTracker tracker;
+    private LlmProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProviderProperties();
+        properties.getHedging().setMinSamples(5);
+        properties.getHedging().setMinHedgeDelay(Duration.ofMillis(20));
+        properties.getHedging().setMinTimeout(Duration.ofSeconds(1));
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new LatencyTracker(properties, meterRegistry);
+
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+
+        provider = tracker.decorate(delegate);
+    }
+
+    @Test
+    @DisplayName("Should keep the request timeout and not hedge until enough latencies are known")
+    void shouldWaitForSamples() {
+        // Arrange
+        LlmRequest request = request(true);
+        seed(4, Duration.ofMillis(10));
+
+        // Act & Assert
+        assertEquals(Duration.ofSeconds(30), tracker.timeout(PROVIDER_ID, request));
+        assertNull(tracker.hedgeDelay(PROVIDER_ID, request));
+    }
+
+    @Test
+    @DisplayName("Should derive the timeout from the observed tail latency")
+    void shouldAdaptTimeout() {
+        // Arrange
+        seed(5, Duration.ofSeconds(2));
+
+        // Act
+        Duration timeout = tracker.timeout(PROVIDER_ID, request(false));
+
+        // Assert
+        assertEquals(Duration.ofSeconds(6), timeout);
+    }
+
+    @Test
+    @DisplayName("Should send the hedge to the configured equivalent model")
+    void shouldUseEquivalentModel() {
+        // Arrange
+        properties.getHedging().getEquivalentModels().put(PROVIDER_ID + ":" + MODEL_ID, "gpt-4o");
+
+        // Act
+        LlmRequest hedge = tracker.hedgeRequest(PROVIDER_ID, request(true));
+
+        // Assert
+        assertEquals("gpt-4o", hedge.getModelId());
+        assertEquals("Say hello", hedge.getPrompt());
+    }
+
+    @Test
+    @DisplayName("Should hedge a slow call, return the first response and cancel the other attempt")
+    void shouldHedgeSlowCall() {
+        // Arrange
+        seed(5, Duration.ofMillis(10));
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        when(delegate.executePromptReactive(any())).thenReturn(
+                Mono.<LlmResponse>never().doOnCancel(() -> primaryCancelled.set(true)),
+                Mono.just(LlmResponse.builder().text("Hello!").successful(true).build()));
+        LlmRequest request = request(true);
+
+        // Act
+        LlmResponse response = provider.executePromptReactive(request).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("Hello!", response.getText());
+        assertSame(request, response.getRequest());
+        assertTrue(response.getMetadata().containsKey(HedgedLlmProvider.HEDGE_METADATA_KEY));
+        assertTrue(primaryCancelled.get());
+        verify(delegate, times(2)).executePromptReactive(any());
+        assertEquals(1, meterRegistry.counter("llm.hedge.requests",
+                "provider", PROVIDER_ID, "model", MODEL_ID, "outcome", "hedge").count());
+    }
+
+    @Test
+    @DisplayName("Should not hedge a call that finishes before the hedge delay")
+    void shouldNotHedgeFastCall() {
+        // Arrange
+        seed(5, Duration.ofMillis(10));
+        when(delegate.executePromptReactive(any()))
+                .thenReturn(Mono.just(LlmResponse.builder().text("Hello!").build()));
+
+        // Act
+        LlmResponse response = provider.executePrompt(request(true));
+
+        // Assert
+        assertEquals("Hello!", response.getText());
+        verify(delegate, times(1)).executePromptReactive(any());
+        assertEquals(1, meterRegistry.counter("llm.hedge.requests",
+                "provider", PROVIDER_ID, "model", MODEL_ID, "outcome", "not_needed").count());
+    }
+
+    @Test
+    @DisplayName("Should fail at once when the first attempt fails before the hedge is sent")
+    void shouldFailFastBeforeHedge() throws InterruptedException {
+        // Arrange
+        seed(5, Duration.ofMillis(10));
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Invalid API key", PROVIDER_ID, MODEL_ID, LlmProviderException.ErrorType.AUTHENTICATION)));
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider.executePrompt(request(true)));
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.AUTHENTICATION, exception.getErrorType());
+        verify(delegate, times(1)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should time out a stuck call after the adaptive timeout")
+    void shouldTimeOutStuckCall() {
+        // Arrange
+        properties.getHedging().setMinTimeout(Duration.ofMillis(50));
+        seed(5, Duration.ofMillis(10));
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.never());
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider.executePrompt(request(false)));
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.TIMEOUT, exception.getErrorType());
+    }
+
+    private void seed(int count, Duration latency) {
+        for (int i = 0; i < count; i++) {
+            tracker.recordAttempt(PROVIDER_ID, MODEL_ID, latency);
+        }
+    }
+
+    private LlmRequest request(boolean hedge) {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello")
+                .hedge(hedge)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package viettel.dac.promptservice.service.llm.hedging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyWindowTest {
+
+    @Test
+    @DisplayName("Should report nearest-rank percentiles of the recorded latencies")
+    void shouldReportPercentiles() {
+        LatencyWindow window = new LatencyWindow(10);
+        assertEquals(-1, window.percentile(0.5));
+
+        for (long latency : new long[]{50, 10, 40, 20, 30}) {
+            window.record(latency);
+        }
+
+        assertEquals(5, window.size());
+        assertEquals(10, window.percentile(0.0));
+        assertEquals(30, window.percentile(0.5));
+        assertEquals(50, window.percentile(0.95));
+        assertEquals(50, window.percentile(1.0));
+    }
+
+    @Test
+    @DisplayName("Should forget the oldest latencies, including duplicates, once the window is full")
+    void shouldEvictOldest() {
+        LatencyWindow window = new LatencyWindow(50);
+        Deque<Long> recent = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(7);
+
+        for (int i = 0; i < 1000; i++) {
+            long latency = random.nextLong(20);
+            window.record(latency);
+            recent.addLast(latency);
+            if (recent.size() > 50) {
+                recent.removeFirst();
+            }
+
+            long[] expected = recent.stream().mapToLong(Long::longValue).sorted().toArray();
+            assertEquals(expected.length, window.size());
+            for (double percentile : new double[]{0.0, 0.5, 0.95, 1.0}) {
+                int rank = (int) Math.ceil(percentile * expected.length);
+                assertEquals(expected[Math.min(expected.length - 1, Math.max(0, rank - 1))],
+                        window.percentile(percentile));
+            }
+        }
+    }
+}
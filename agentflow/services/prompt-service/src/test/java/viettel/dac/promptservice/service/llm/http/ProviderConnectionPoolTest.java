@@ -0,0 +1,61 @@
+package viettel.dac.promptservice.service.llm.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+class ProviderConnectionPoolTest {
+
+    private LlmProviderProperties.HttpConfig config;
+    private ProviderConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        config = new LlmProviderProperties().getHttp();
+        config.getProviderMaxConnections().put("openai", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+
+    @Test
+    @DisplayName("Should back the provider WebClient with a Reactor Netty connector")
+    void shouldConfigureBuilder() {
+        // Arrange
+        pool = ProviderConnectionPool.create("openai", "https://api.openai.com/v1", config);
+        WebClient.Builder builder = mock(WebClient.Builder.class);
+        when(builder.clientConnector(any())).thenReturn(builder);
+
+        // Act
+        WebClient.Builder configured = pool.configure(builder);
+
+        // Assert
+        assertSame(builder, configured);
+        verify(builder).clientConnector(isA(ReactorClientHttpConnector.class));
+    }
+
+    @Test
+    @DisplayName("Should not fail when warm-up cannot reach the provider")
+    void shouldIgnoreWarmUpFailures() {
+        // Arrange
+        config.setHttp2(false);
+        pool = ProviderConnectionPool.create("local", "http://localhost:1", config);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> pool.warmUp(2));
+        assertDoesNotThrow(() -> pool.warmUp(0));
+    }
+}
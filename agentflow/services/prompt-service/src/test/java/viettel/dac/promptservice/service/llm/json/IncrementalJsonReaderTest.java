@@ -0,0 +1,119 @@
+package viettel.dac.promptservice.service.llm.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalJsonReaderTest {
+
+    private static final String BODY = """
+            {"id":"chatcmpl-1","object":"chat.completion",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"Xin ch\u00e0o, th\u1ebf gi\u1edbi"}},
+                        {"index":1,"message":{"role":"assistant","content":null}}],
+             "usage":{"prompt_tokens":12,"completion_tokens":7,"prompt_tokens_details":{"cached_tokens":0}},
+             "tags":[["a","b"],[]]}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should report every scalar with its path when the body arrives in small chunks")
+    void shouldReadChunkedBody() {
+        // Arrange
+        RecordingHandler handler = new RecordingHandler();
+
+        // Act
+        RecordingHandler result = IncrementalJsonReader.read(chunks(BODY, 3), objectMapper.getFactory(), handler, false)
+                .block();
+
+        // Assert
+        assertSame(handler, result);
+        assertEquals("chatcmpl-1", handler.values.get("id"));
+        assertEquals("Xin ch\u00e0o, th\u1ebf gi\u1edbi", handler.values.get("choices.0.message.content"));
+        assertEquals("null", handler.values.get("choices.1.message.content"));
+        assertEquals("12", handler.values.get("usage.prompt_tokens"));
+        assertEquals("0", handler.values.get("usage.prompt_tokens_details.cached_tokens"));
+        assertEquals("b", handler.values.get("tags.0.1"));
+        assertNull(handler.raw);
+    }
+
+    @Test
+    @DisplayName("Should pass the complete body to the handler only when asked to")
+    void shouldRetainRawBodyOnRequest() {
+        // Arrange
+        RecordingHandler handler = new RecordingHandler();
+
+        // Act
+        RecordingHandler result = IncrementalJsonReader.read(chunks(BODY, 5), objectMapper.getFactory(), handler, true)
+                .block();
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(BODY, result.raw);
+    }
+
+    @Test
+    @DisplayName("Should fail on a truncated body")
+    void shouldFailOnTruncatedBody() {
+        // Arrange
+        String truncated = BODY.substring(0, BODY.indexOf("\"usage\""));
+
+        // Act & Assert
+        Exception exception = assertThrows(Exception.class, () -> IncrementalJsonReader.read(
+                chunks(truncated, 8), objectMapper.getFactory(), new RecordingHandler(), false).block());
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    @DisplayName("Should read the same paths from a tree")
+    void shouldReadTree() throws Exception {
+        // Act
+        RecordingHandler handler = IncrementalJsonReader.read(
+                objectMapper.treeAsTokens(objectMapper.readTree(BODY)), new RecordingHandler());
+
+        // Assert
+        assertEquals("Xin ch\u00e0o, th\u1ebf gi\u1edbi", handler.values.get("choices.0.message.content"));
+        assertEquals("7", handler.values.get("usage.completion_tokens"));
+    }
+
+    /**
+     * Split a body into buffers of a fixed number of bytes, cutting through multi-byte characters
+     */
+    private static Flux<DataBuffer> chunks(String body, int size) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, i, Math.min(i + size, bytes.length))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private static final class RecordingHandler implements JsonValueHandler {
+        private final Map<String, String> values = new LinkedHashMap<>();
+        private String raw;
+
+        @Override
+        public void onValue(String path, JsonParser parser) throws IOException {
+            values.put(path, parser.getText());
+        }
+
+        @Override
+        public void onRaw(String raw) {
+            this.raw = raw;
+        }
+    }
+}
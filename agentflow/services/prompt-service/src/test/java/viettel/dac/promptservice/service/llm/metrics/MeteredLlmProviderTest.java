@@ -0,0 +1,163 @@
+package viettel.dac.promptservice.service.llm.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MeteredLlmProviderTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private LlmProvider delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        provider = new LlmCallMetrics(new LlmProviderProperties(), meterRegistry).decorate(delegate);
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+    }
+
+    @Test
+    @DisplayName("Should record latency, time to first byte, tokens and cost of a successful call")
+    void shouldRecordSuccessfulCall() {
+        // Arrange
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(MeteredLlmProvider.TIME_TO_FIRST_BYTE_METADATA_KEY, 120L);
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.just(LlmResponse.builder()
+                .text("Hello")
+                .inputTokenCount(40)
+                .outputTokenCount(10)
+                .cost(0.002)
+                .successful(true)
+                .metadata(metadata)
+                .build()));
+
+        // Act
+        provider.executePrompt(request());
+
+        // Assert
+        Timer latency = meterRegistry.find("llm.provider.latency")
+                .tags("provider", PROVIDER_ID, "model", MODEL_ID, "outcome", "success").timer();
+        assertNotNull(latency);
+        assertEquals(1, latency.count());
+        Timer ttfb = meterRegistry.find("llm.provider.ttfb").tag("stream", "false").timer();
+        assertNotNull(ttfb);
+        assertEquals(120, ttfb.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        DistributionSummary output = meterRegistry.find("llm.provider.tokens").tag("type", "output").summary();
+        assertNotNull(output);
+        assertEquals(10, output.totalAmount(), 0.001);
+        assertEquals(0.002, meterRegistry.find("llm.provider.cost").summary().totalAmount(), 1e-9);
+        assertEquals(1, meterRegistry.find("llm.provider.tokens.per.second").summary().count());
+    }
+
+    @Test
+    @DisplayName("Should tag failed calls with the error type")
+    void shouldRecordErrorType() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Rate limited", PROVIDER_ID, MODEL_ID, LlmProviderException.ErrorType.RATE_LIMIT)));
+
+        // Act
+        assertThrows(LlmProviderException.class, () -> provider.executePrompt(request()));
+
+        // Assert
+        Timer latency = meterRegistry.find("llm.provider.latency").tag("outcome", "rate_limit").timer();
+        assertNotNull(latency);
+        assertEquals(1, latency.count());
+        assertNull(meterRegistry.find("llm.provider.tokens").summary());
+    }
+
+    @Test
+    @DisplayName("Should measure the first chunk of a stream as its time to first byte")
+    void shouldRecordStream() {
+        // Arrange
+        LlmResponse completed = LlmResponse.builder().text("Hi there").outputTokenCount(3).successful(true).build();
+        when(delegate.executePromptStream(any())).thenReturn(Flux.just(
+                LlmStreamChunk.delta("Hi"), LlmStreamChunk.delta(" there"), LlmStreamChunk.completed(completed)));
+
+        // Act
+        provider.executePromptStream(request()).blockLast();
+
+        // Assert
+        assertEquals(1, meterRegistry.find("llm.provider.latency").tag("stream", "true").timer().count());
+        assertEquals(1, meterRegistry.find("llm.provider.ttfb").tag("stream", "true").timer().count());
+        assertEquals(3, meterRegistry.find("llm.provider.tokens").tag("type", "output").summary().totalAmount(),
+                0.001);
+    }
+
+    @Test
+    @DisplayName("Should record calls and streams cancelled before they completed")
+    void shouldRecordCancellation() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.never());
+        when(delegate.executePromptStream(any())).thenReturn(Flux.just(
+                LlmStreamChunk.delta("Hi"), LlmStreamChunk.delta(" there")).concatWith(Flux.never()));
+
+        // Act
+        provider.executePromptReactive(request()).subscribe().dispose();
+        provider.executePromptStream(request()).take(1).blockLast();
+        provider.executePromptReactive(request()).timeout(Duration.ofMillis(10), Mono.empty()).block();
+
+        // Assert
+        assertEquals(2, meterRegistry.find("llm.provider.latency")
+                .tags("stream", "false", "outcome", "cancelled").timer().count());
+        assertEquals(1, meterRegistry.find("llm.provider.latency")
+                .tags("stream", "true", "outcome", "cancelled").timer().count());
+        assertNull(meterRegistry.find("llm.provider.latency").tag("outcome", "success").timer());
+    }
+
+    @Test
+    @DisplayName("Should not count a call cancelled after its response arrived as cancelled")
+    void shouldIgnoreCancelAfterResponse() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.just(
+                LlmResponse.builder().text("Hello").successful(true).build()));
+
+        // Act
+        Mono.zip(provider.executePromptReactive(request()), Mono.just(1)).block();
+
+        // Assert
+        assertEquals(1, meterRegistry.find("llm.provider.latency").tag("outcome", "success").timer().count());
+        assertNull(meterRegistry.find("llm.provider.latency").tag("outcome", "cancelled").timer());
+    }
+
+    private static LlmRequest request() {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello")
+                .build();
+    }
+}
@@ -0,0 +1,215 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiCompatibleProviderTest {
+
+    private static final String MODELS = """
+            {"object":"list","data":[
+              {"id":"llama-3-8b","object":"model","owned_by":"vllm","max_model_len":8192},
+              {"id":"qwen2-7b","object":"model","owned_by":"vllm"}]}""";
+
+    private static final String COMPLETION = """
+            {"id":"cmpl-1","created":1700000000,
+             "choices":[{"index":0,"message":{"role":"assistant","content":"Xin chao"}}],
+             "usage":{"prompt_tokens":12,"completion_tokens":3,"total_tokens":15}}""";
+
+    private static final String STREAM = """
+            data: {"id":"cmpl-2","choices":[{"index":0,"delta":{"content":"Xin"}}]}
+
+            data: {"id":"cmpl-2","choices":[{"index":0,"delta":{"content":" chao"}}]}
+
+            data: {"id":"cmpl-2","choices":[],"usage":{"prompt_tokens":12,"completion_tokens":2,"total_tokens":14}}
+
+            data: [DONE]
+
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private volatile String lastAuthorization;
+    private volatile JsonNode lastRequestBody;
+    private LlmProviderProperties.OpenAiCompatible config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1", this::handle);
+        server.start();
+
+        config = new LlmProviderProperties.OpenAiCompatible();
+        config.setId("vllm-lan");
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should take the model catalog and context lengths from the server")
+    void shouldDiscoverModels() {
+        // Arrange
+        OpenAiCompatibleProvider provider = provider(config);
+
+        // Act
+        Map<String, String> models = provider.refreshModels().block();
+
+        // Assert
+        assertNotNull(models);
+        assertEquals(List.of("llama-3-8b", "qwen2-7b"), List.copyOf(models.keySet()));
+        assertTrue(provider.supportsModel("qwen2-7b"));
+        assertFalse(provider.supportsModel("gpt-4"));
+        assertEquals(8192, provider.getMaxContextLength("llama-3-8b"));
+        assertEquals(4096, provider.getMaxContextLength("qwen2-7b"));
+        assertEquals("vllm-lan", provider.getProviderId());
+    }
+
+    @Test
+    @DisplayName("Should keep the configured models when the server cannot be reached")
+    void shouldKeepConfiguredModelsWhenServerIsDown() {
+        // Arrange
+        config.setModels(List.of("llama-3-8b"));
+        config.setDiscoveryTimeout(Duration.ofSeconds(1));
+        OpenAiCompatibleProvider provider = provider(config);
+        server.stop(0);
+
+        // Act
+        Map<String, String> models = provider.refreshModels().block();
+
+        // Assert
+        assertNotNull(models);
+        assertEquals(List.of("llama-3-8b"), List.copyOf(models.keySet()));
+    }
+
+    @Test
+    @DisplayName("Should execute a prompt at zero cost without an API key or prompt cache key")
+    void shouldExecutePrompt() {
+        // Arrange
+        OpenAiCompatibleProvider provider = provider(config);
+        provider.refreshModels().block();
+
+        // Act
+        LlmResponse response = provider.executePromptReactive(request()).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("Xin chao", response.getText());
+        assertEquals(12, response.getInputTokenCount());
+        assertEquals(3, response.getOutputTokenCount());
+        assertEquals(0.0, response.getCost());
+        assertNull(lastAuthorization);
+        assertEquals("llama-3-8b", lastRequestBody.path("model").asText());
+        assertFalse(lastRequestBody.has("prompt_cache_key"));
+    }
+
+    @Test
+    @DisplayName("Should send the API key and price calls when the endpoint is configured to")
+    void shouldUseConfiguredApiKeyAndPrices() {
+        // Arrange
+        config.setApiKey("local-key");
+        config.setInputCostPerMillionTokens(1.0);
+        config.setOutputCostPerMillionTokens(2.0);
+        OpenAiCompatibleProvider provider = provider(config);
+        provider.refreshModels().block();
+
+        // Act
+        LlmResponse response = provider.executePromptReactive(request()).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("Bearer local-key", lastAuthorization);
+        assertEquals((12 * 1.0 + 3 * 2.0) / 1_000_000.0, response.getCost(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should stream deltas and finish with the server reported usage")
+    void shouldStreamPrompt() {
+        // Arrange
+        OpenAiCompatibleProvider provider = provider(config);
+        provider.refreshModels().block();
+
+        // Act
+        List<LlmStreamChunk> chunks = provider.executePromptStream(request()).collectList().block();
+
+        // Assert
+        assertNotNull(chunks);
+        String text = chunks.stream()
+                .filter(chunk -> !chunk.isLast())
+                .map(LlmStreamChunk::getDelta)
+                .collect(Collectors.joining());
+        assertEquals("Xin chao", text);
+        LlmStreamChunk last = chunks.get(chunks.size() - 1);
+        assertTrue(last.isLast());
+        assertEquals(2, last.getResponse().getOutputTokenCount());
+        assertTrue(lastRequestBody.path("stream").asBoolean());
+    }
+
+    private OpenAiCompatibleProvider provider(LlmProviderProperties.OpenAiCompatible endpoint) {
+        return new OpenAiCompatibleProvider(endpoint, WebClient.builder(), Runnable::run,
+                new TokenizerRegistry(new LlmProviderProperties()), objectMapper, false);
+    }
+
+    private static LlmRequest request() {
+        return LlmRequest.builder()
+                .modelId("llama-3-8b")
+                .prompt("Say hello")
+                .versionId("version-1")
+                .promptPrefixLength(4)
+                .maxTokens(10)
+                .temperature(0.0)
+                .build();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if ("GET".equals(exchange.getRequestMethod()) && path.equals("/v1/models")) {
+            respond(exchange, "application/json", MODELS);
+        } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/v1/chat/completions")) {
+            lastRequestBody = objectMapper.readTree(exchange.getRequestBody());
+            if (lastRequestBody.path("stream").asBoolean()) {
+                respond(exchange, "text/event-stream", STREAM);
+            } else {
+                respond(exchange, "application/json", COMPLETION);
+            }
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptCachingTest {
+
+    private static final String PREFIX = "Summarize the following support ticket. Ticket: ";
+    private static final String SUFFIX = "My order never arrived";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TokenizerRegistry tokenizers = new TokenizerRegistry(new LlmProviderProperties());
+    private final AnthropicProvider anthropic = new AnthropicProvider(WebClient.builder(), "test-key", Runnable::run,
+            tokenizers);
+    private final OpenAiProvider openAi = new OpenAiProvider(WebClient.builder(), "test-key", Runnable::run,
+            tokenizers);
+
+    @Test
+    @DisplayName("Should mark the system prompt and the static prefix as Anthropic cache breakpoints")
+    void shouldMarkAnthropicCacheBreakpoints() {
+        // Arrange
+        LlmRequest request = request("claude-3-haiku-20240307", PREFIX.length());
+
+        // Act
+        JsonNode body = anthropic.createRequestBody(request);
+
+        // Assert
+        JsonNode system = body.path("system").get(0);
+        assertEquals("You are a support agent.", system.path("text").asText());
+        assertEquals("ephemeral", system.path("cache_control").path("type").asText());
+
+        JsonNode content = body.path("messages").get(0).path("content");
+        assertEquals(2, content.size());
+        assertEquals(PREFIX, content.get(0).path("text").asText());
+        assertEquals("ephemeral", content.get(0).path("cache_control").path("type").asText());
+        assertEquals(SUFFIX, content.get(1).path("text").asText());
+        assertFalse(content.get(1).has("cache_control"));
+    }
+
+    @Test
+    @DisplayName("Should send plain string content when prompt caching is off")
+    void shouldSendPlainContentWithoutPrefix() {
+        // Arrange
+        LlmRequest request = request("claude-3-haiku-20240307", null);
+
+        // Act
+        JsonNode body = anthropic.createRequestBody(request);
+
+        // Assert
+        assertTrue(body.path("system").isTextual());
+        assertEquals(PREFIX + SUFFIX, body.path("messages").get(0).path("content").asText());
+    }
+
+    @Test
+    @DisplayName("Should count Anthropic cache reads and writes as input tokens and discount them")
+    void shouldPriceAnthropicCacheUsage() throws Exception {
+        // Arrange
+        LlmRequest request = request("claude-3-haiku-20240307", PREFIX.length());
+        JsonNode node = objectMapper.readTree("""
+                {"id":"msg_1","content":[{"type":"text","text":"Refund issued"}],
+                 "usage":{"input_tokens":100,"cache_read_input_tokens":2000,
+                          "cache_creation_input_tokens":0,"output_tokens":50}}""");
+
+        // Act
+        LlmResponse response = anthropic.parseResponse(node, request, LocalDateTime.now(), 0);
+
+        // Assert
+        assertEquals(2100, response.getInputTokenCount());
+        assertEquals(2000, response.getCacheReadTokenCount());
+        assertEquals(0, response.getCacheWriteTokenCount());
+        double expected = (100 + 2000 * 0.1) / 1_000_000.0 * 0.25 + 50 / 1_000_000.0 * 1.25;
+        assertEquals(expected, response.getCost(), 1e-12);
+        assertTrue(response.getCost() < anthropic.calculateCost(2100, 50, "claude-3-haiku-20240307"));
+    }
+
+    @Test
+    @DisplayName("Should charge a premium for Anthropic cache writes")
+    void shouldPriceAnthropicCacheWrites() {
+        // Act
+        double cost = anthropic.calculateCost(2100, 0, 0, 2000, "claude-3-sonnet-20240229");
+
+        // Assert
+        assertEquals((100 + 2000 * 1.25) / 1_000_000.0 * 3.0, cost, 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should send a prompt cache key and bill OpenAI cached tokens at half price")
+    void shouldUseOpenAiPromptCache() throws Exception {
+        // Arrange
+        LlmRequest request = request("gpt-4", PREFIX.length());
+        JsonNode node = objectMapper.readTree("""
+                {"id":"chatcmpl-1","choices":[{"index":0,"message":{"content":"Refund issued"}}],
+                 "usage":{"prompt_tokens":2048,"completion_tokens":10,"total_tokens":2058,
+                          "prompt_tokens_details":{"cached_tokens":1024}}}""");
+
+        // Act
+        JsonNode body = openAi.createRequestBody(request);
+        LlmResponse response = openAi.parseResponse(node, request, LocalDateTime.now(), 0);
+
+        // Assert
+        assertEquals("version-1", body.path("prompt_cache_key").asText());
+        assertEquals(PREFIX + SUFFIX, body.path("messages").get(1).path("content").asText());
+        assertEquals(2048, response.getInputTokenCount());
+        assertEquals(1024, response.getCacheReadTokenCount());
+        assertEquals((1024 + 1024 * 0.5) / 1000.0 * 0.03 + 10 / 1000.0 * 0.06, response.getCost(), 1e-12);
+    }
+
+    private static LlmRequest request(String modelId, Integer prefixLength) {
+        return LlmRequest.builder()
+                .modelId(modelId)
+                .prompt(PREFIX + SUFFIX)
+                .systemPrompt("You are a support agent.")
+                .maxTokens(100)
+                .temperature(0.0)
+                .versionId("version-1")
+                .promptPrefixLength(prefixLength)
+                .build();
+    }
+}
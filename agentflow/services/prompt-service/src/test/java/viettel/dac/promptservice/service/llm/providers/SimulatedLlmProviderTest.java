@@ -0,0 +1,180 @@
+package viettel.dac.promptservice.service.llm.providers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatedLlmProviderTest {
+
+    private LlmProviderProperties properties;
+    private LlmProviderProperties.Simulated config;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProviderProperties();
+        config = properties.getSimulated();
+        config.setFixedLatency(Duration.ofMillis(20));
+        config.setTokensPerSecond(1000);
+        config.setOutputTokens(5);
+    }
+
+    @Test
+    @DisplayName("Should produce a synthetic completion after the configured latency")
+    void shouldProduceCompletion() {
+        // Arrange
+        SimulatedLlmProvider provider = provider();
+
+        // Act
+        LlmResponse response = provider.executePrompt(request(1024));
+
+        // Assert
+        assertTrue(response.isSuccessful());
+        assertEquals(5, response.getText().split(" ").length);
+        assertEquals(5, response.getOutputTokenCount());
+        assertEquals(response.getInputTokenCount() + 5, response.getTotalTokenCount());
+        assertTrue(response.getResponseTimeMs() >= 20);
+        assertEquals(true, response.getMetadata().get("simulated"));
+    }
+
+    @Test
+    @DisplayName("Should cap the output at the request's max tokens")
+    void shouldRespectMaxTokens() {
+        // Act
+        LlmResponse response = provider().executePrompt(request(2));
+
+        // Assert
+        assertEquals(2, response.getOutputTokenCount());
+    }
+
+    @Test
+    @DisplayName("Should stream one delta per token followed by the assembled response")
+    void shouldStreamTokens() {
+        // Act
+        List<LlmStreamChunk> chunks = provider().executePromptStream(request(3)).collectList().block();
+
+        // Assert
+        assertNotNull(chunks);
+        assertEquals(4, chunks.size());
+        LlmStreamChunk last = chunks.get(3);
+        assertTrue(last.isLast());
+        String streamed = chunks.subList(0, 3).stream().map(LlmStreamChunk::getDelta).collect(Collectors.joining());
+        assertEquals(last.getResponse().getText(), streamed);
+    }
+
+    @Test
+    @DisplayName("Should stream every token after the first-token latency when throughput is unthrottled")
+    void shouldStreamUnthrottled() {
+        // Arrange
+        config.setTokensPerSecond(0);
+        config.setOutputTokens(100);
+
+        // Act
+        List<LlmStreamChunk> chunks = provider().executePromptStream(request(1024))
+                .delayElements(Duration.ofMillis(1))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        LlmResponse response = provider().executePrompt(request(1024));
+
+        // Assert
+        assertNotNull(chunks);
+        assertEquals(101, chunks.size());
+        assertTrue(chunks.get(100).isLast());
+        assertEquals(100, response.getOutputTokenCount());
+        assertTrue(response.getResponseTimeMs() >= 20);
+    }
+
+    @Test
+    @DisplayName("Should inject errors of the configured type")
+    void shouldInjectErrors() {
+        // Arrange
+        config.getErrorRates().put(LlmProviderException.ErrorType.RATE_LIMIT, 1.0);
+        SimulatedLlmProvider provider = provider();
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider.executePrompt(request(1024)));
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.RATE_LIMIT, exception.getErrorType());
+        assertEquals("simulated", exception.getProviderId());
+    }
+
+    @Test
+    @DisplayName("Should repeat the same latencies for the same seed")
+    void shouldBeDeterministicWithSeed() {
+        // Arrange
+        config.setLatencyDistribution(LlmProviderProperties.Simulated.LatencyDistribution.LOG_NORMAL);
+        config.setLogNormalMedian(Duration.ofMillis(2));
+        config.setSeed(42L);
+
+        // Act
+        List<Object> first = firstTokenLatencies(provider(), 5);
+        List<Object> second = firstTokenLatencies(provider(), 5);
+
+        // Assert
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Should draw latencies from the configured histogram buckets")
+    void shouldReplayHistogram() {
+        // Arrange
+        LlmProviderProperties.Simulated.HistogramBucket bucket = new LlmProviderProperties.Simulated.HistogramBucket();
+        bucket.setUpTo(Duration.ofMillis(10));
+        bucket.setCount(100);
+        config.getLatencyHistogram().add(bucket);
+        config.setLatencyDistribution(LlmProviderProperties.Simulated.LatencyDistribution.HISTOGRAM);
+
+        // Act
+        List<Object> latencies = firstTokenLatencies(provider(), 10);
+
+        // Assert
+        assertTrue(latencies.stream().allMatch(latency -> (Long) latency <= 10));
+    }
+
+    @Test
+    @DisplayName("Should reject models it does not simulate")
+    void shouldRejectUnknownModel() {
+        // Arrange
+        LlmRequest request = LlmRequest.builder().modelId("gpt-4").prompt("Say hello").build();
+
+        // Act & Assert
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider().executePrompt(request));
+        assertEquals(LlmProviderException.ErrorType.INVALID_REQUEST, exception.getErrorType());
+    }
+
+    private List<Object> firstTokenLatencies(SimulatedLlmProvider provider, int calls) {
+        List<Object> latencies = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            latencies.add(provider.executePrompt(request(1)).getMetadata().get("time_to_first_token_ms"));
+        }
+        return latencies;
+    }
+
+    private SimulatedLlmProvider provider() {
+        return new SimulatedLlmProvider(config, Runnable::run, new TokenizerRegistry(properties));
+    }
+
+    private LlmRequest request(int maxTokens) {
+        return LlmRequest.builder()
+                .providerId("simulated")
+                .modelId("simulated")
+                .prompt("Say hello")
+                .maxTokens(maxTokens)
+                .build();
+    }
+}
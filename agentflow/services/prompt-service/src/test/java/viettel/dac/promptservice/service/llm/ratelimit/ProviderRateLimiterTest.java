@@ -0,0 +1,217 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProviderRateLimiterTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private TokenizerRegistry tokenizers;
+
+    @Mock
+    private LlmProvider delegate;
+
+    private final AtomicLong clock = new AtomicLong();
+    private LlmProviderProperties properties;
+    private ProviderRateLimiter rateLimiter;
+    private LlmRequest request;
+
+    @BeforeEach
+    void setUp() {
+        // 2 requests per minute, prompts count 10 tokens plus 90 output tokens
+        properties = new LlmProviderProperties();
+        properties.getRateLimit().setRequestsPerMinute(2);
+        properties.getRateLimit().setTokensPerMinute(10_000);
+        when(tokenizers.countPromptTokens(any(), any())).thenReturn(10);
+
+        rateLimiter = new ProviderRateLimiter(properties, tokenizers, clock::get);
+        request = LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Hello")
+                .maxTokens(90)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should grant permits within limits and delay calls beyond them")
+    void shouldDelayCallsBeyondLimit() {
+        assertEquals(Duration.ZERO, rateLimiter.reserve(PROVIDER_ID, request).getWait());
+        assertEquals(Duration.ZERO, rateLimiter.reserve(PROVIDER_ID, request).getWait());
+
+        ProviderRateLimiter.Permit third = rateLimiter.reserve(PROVIDER_ID, request);
+
+        assertEquals(Duration.ofSeconds(30), third.getWait());
+        assertEquals(100, third.getEstimatedTokens());
+    }
+
+    @Test
+    @DisplayName("Should keep separate limits per model")
+    void shouldLimitPerModel() {
+        rateLimiter.reserve(PROVIDER_ID, request);
+        rateLimiter.reserve(PROVIDER_ID, request);
+
+        request.setModelId("gpt-3.5-turbo");
+
+        assertEquals(Duration.ZERO, rateLimiter.reserve(PROVIDER_ID, request).getWait());
+    }
+
+    @Test
+    @DisplayName("Should fail fast with RATE_LIMIT when the wait exceeds the maximum")
+    void shouldFailFastBeyondMaxWait() {
+        properties.getRateLimit().setMaxWait(Duration.ofSeconds(10));
+        rateLimiter.reserve(PROVIDER_ID, request);
+        rateLimiter.reserve(PROVIDER_ID, request);
+
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> rateLimiter.reserve(PROVIDER_ID, request));
+
+        assertEquals(LlmProviderException.ErrorType.RATE_LIMIT, exception.getErrorType());
+    }
+
+    @Test
+    @DisplayName("Should return unused tokens once actual usage is known")
+    void shouldRefundUnusedTokens() {
+        properties.getRateLimit().setRequestsPerMinute(100);
+        properties.getRateLimit().setTokensPerMinute(150);
+        request.setMaxTokens(140);
+
+        ProviderRateLimiter.Permit permit = rateLimiter.reserve(PROVIDER_ID, request);
+        rateLimiter.onSuccess(permit, LlmResponse.builder().totalTokenCount(20).build());
+
+        // Only the 20 tokens actually used are still outstanding, instead of the full 150
+        assertEquals(Duration.ofSeconds(8), rateLimiter.reserve(PROVIDER_ID, request).getWait());
+    }
+
+    @Test
+    @DisplayName("Should return the whole reservation of a call cancelled while waiting for permits")
+    void shouldRefundCallCancelledWhileWaiting() {
+        // Arrange
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+        RateLimitedLlmProvider provider = new RateLimitedLlmProvider(delegate, rateLimiter);
+        rateLimiter.reserve(PROVIDER_ID, request);
+        rateLimiter.reserve(PROVIDER_ID, request);
+
+        // Act
+        Disposable call = provider.executePromptReactive(request).subscribe();
+        call.dispose();
+
+        // Assert
+        // The next call waits for the third slot, as if the cancelled call had never been made
+        assertEquals(Duration.ofSeconds(30), rateLimiter.reserve(PROVIDER_ID, request).getWait());
+        verify(delegate, never()).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should return the tokens of a call cancelled in flight")
+    void shouldRefundTokensOfCallCancelledInFlight() {
+        // Arrange
+        properties.getRateLimit().setRequestsPerMinute(100);
+        properties.getRateLimit().setTokensPerMinute(150);
+        request.setMaxTokens(140);
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.never());
+        RateLimitedLlmProvider provider = new RateLimitedLlmProvider(delegate, rateLimiter);
+
+        // Act
+        Disposable call = provider.executePromptReactive(request).subscribe();
+        call.dispose();
+
+        // Assert
+        // Without the refund the full 150 tokens would be held for another minute
+        assertEquals(Duration.ZERO, rateLimiter.reserve(PROVIDER_ID, request).getWait());
+        verify(delegate).executePromptReactive(request);
+    }
+
+    @Test
+    @DisplayName("Should follow the limits reported in provider headers")
+    void shouldAdoptReportedLimits() {
+        ProviderRateLimiter.Permit permit = rateLimiter.reserve(PROVIDER_ID, request);
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(RateLimitStatus.METADATA_KEY, RateLimitStatus.builder().requestLimit(4L).build());
+
+        rateLimiter.onSuccess(permit, LlmResponse.builder().totalTokenCount(100).metadata(metadata).build());
+        rateLimiter.reserve(PROVIDER_ID, request);
+
+        // One request every 15 seconds at 4 RPM instead of every 30 seconds at 2 RPM
+        assertEquals(Duration.ofSeconds(15), rateLimiter.reserve(PROVIDER_ID, request).getWait());
+    }
+
+    @Test
+    @DisplayName("Should pause and lower limits after a rate limit error")
+    void shouldBackOffOnRateLimitError() {
+        properties.getRateLimit().setRequestsPerMinute(60);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "2");
+        WebClientResponseException cause = new WebClientResponseException(429, "Too Many Requests",
+                headers, new byte[0], null);
+        LlmProviderException error = new LlmProviderException("Rate limited", cause, PROVIDER_ID, MODEL_ID,
+                LlmProviderException.ErrorType.RATE_LIMIT);
+
+        ProviderRateLimiter.Permit permit = rateLimiter.reserve(PROVIDER_ID, request);
+        rateLimiter.onError(permit, error);
+
+        assertTrue(rateLimiter.reserve(PROVIDER_ID, request).getWait().compareTo(Duration.ofSeconds(2)) >= 0);
+
+        // After the pause the halved limit of 30 RPM applies
+        clock.set(Duration.ofSeconds(60).toNanos());
+        for (int i = 0; i < 29; i++) {
+            rateLimiter.reserve(PROVIDER_ID, request);
+        }
+        assertEquals(Duration.ofSeconds(2), rateLimiter.reserve(PROVIDER_ID, request).getWait());
+    }
+
+    @Test
+    @DisplayName("Should parse OpenAI and Anthropic rate limit headers")
+    void shouldParseRateLimitHeaders() {
+        HttpHeaders openAi = new HttpHeaders();
+        openAi.set("x-ratelimit-limit-requests", "500");
+        openAi.set("x-ratelimit-remaining-tokens", "149984");
+        openAi.set("x-ratelimit-reset-requests", "1m0.5s");
+        openAi.set("x-ratelimit-reset-tokens", "6ms");
+
+        HttpHeaders anthropic = new HttpHeaders();
+        anthropic.set("anthropic-ratelimit-tokens-limit", "80000");
+        anthropic.set("retry-after", "3");
+
+        RateLimitStatus openAiStatus = RateLimitStatus.fromHeaders(openAi);
+        RateLimitStatus anthropicStatus = RateLimitStatus.fromHeaders(anthropic);
+
+        assertEquals(Long.valueOf(500), openAiStatus.getRequestLimit());
+        assertEquals(Long.valueOf(149984), openAiStatus.getRemainingTokens());
+        assertEquals(Duration.ofMillis(60_500), openAiStatus.getRetryAfter());
+        assertEquals(Long.valueOf(80000), anthropicStatus.getTokenLimit());
+        assertEquals(Duration.ofSeconds(3), anthropicStatus.getRetryAfter());
+        assertNull(RateLimitStatus.fromHeaders(new HttpHeaders()));
+    }
+}
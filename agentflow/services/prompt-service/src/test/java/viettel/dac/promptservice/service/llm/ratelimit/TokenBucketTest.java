@@ -0,0 +1,89 @@
+package viettel.dac.promptservice.service.llm.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Should hand out a full minute of permits without waiting")
+    void shouldAllowBurstUpToLimit() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, bucket.reserve(1, 0));
+        }
+
+        // The next permit refills one second later
+        assertEquals(SECOND, bucket.reserve(1, 0));
+    }
+
+    @Test
+    @DisplayName("Should queue concurrent reservations behind each other")
+    void shouldQueueReservations() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.reserve(60, 0);
+
+        assertEquals(SECOND, bucket.reserve(1, 0));
+        assertEquals(2 * SECOND, bucket.reserve(1, 0));
+        assertEquals(SECOND, bucket.reserve(1, 2 * SECOND));
+    }
+
+    @Test
+    @DisplayName("Should refill continuously up to the limit")
+    void shouldRefill() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.reserve(60, 0);
+
+        assertEquals(30, bucket.getAvailable(30 * SECOND), 1e-9);
+        assertEquals(60, bucket.getAvailable(600 * SECOND), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should charge oversized requests a full bucket")
+    void shouldCapOversizedRequests() {
+        TokenBucket bucket = new TokenBucket(100, 0);
+
+        assertEquals(0, bucket.reserve(500, 0));
+        assertEquals(0, bucket.getAvailable(0), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should return unused permits")
+    void shouldRefundPermits() {
+        TokenBucket bucket = new TokenBucket(1000, 0);
+        bucket.reserve(1000, 0);
+
+        bucket.refund(400, 0);
+
+        assertEquals(0, bucket.reserve(400, 0));
+    }
+
+    @Test
+    @DisplayName("Should withhold permits while paused")
+    void shouldPause() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+
+        bucket.pauseUntil(5 * SECOND);
+
+        assertTrue(bucket.reserve(1, 0) >= 5 * SECOND);
+    }
+
+    @Test
+    @DisplayName("Should slow the refill when the limit is lowered")
+    void shouldApplyNewLimit() {
+        TokenBucket bucket = new TokenBucket(60, 0);
+        bucket.reserve(60, 0);
+
+        bucket.setLimit(30, 0);
+
+        assertEquals(30, bucket.getLimit(), 1e-9);
+        assertEquals(2 * SECOND, bucket.reserve(1, 0));
+    }
+}
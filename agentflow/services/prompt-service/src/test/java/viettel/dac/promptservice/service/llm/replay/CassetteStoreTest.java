@@ -0,0 +1,197 @@
+package viettel.dac.promptservice.service.llm.replay;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.model.entity.PromptExecution;
+import viettel.dac.promptservice.model.enums.ExecutionStatus;
+import viettel.dac.promptservice.repository.jpa.PromptExecutionRepository;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.util.HashUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CassetteStoreTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+    private static final String VERSION_ID = "version-1";
+    private static final Map<String, Object> PARAMETERS = Map.of("name", "Ada");
+
+    @Mock
+    private LlmProvider delegate;
+
+    @Mock
+    private PromptExecutionRepository executionRepository;
+
+    @TempDir
+    Path cassetteDir;
+
+    private LlmProviderProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProviderProperties();
+        properties.getReplay().setCassetteDir(cassetteDir.toString());
+        properties.getReplay().setSimulateLatency(false);
+
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+        when(executionRepository.findByVersionIdAndProviderIdAndModelIdAndStatus(any(), any(), any(), any()))
+                .thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("Should replay a response recorded to a cassette file")
+    void shouldReplayRecordedCassette() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.just(LlmResponse.builder()
+                .text("Hello Ada!").inputTokenCount(12).outputTokenCount(3).cost(0.002)
+                .responseTimeMs(850L).successful(true).build()));
+        properties.getReplay().setMode(LlmProviderProperties.ReplayConfig.Mode.RECORD);
+        CassetteStore recording = new CassetteStore(properties, executionRepository);
+        recording.decorate(delegate).executePromptReactive(request()).block();
+        // Wait for the writer to append the recording
+        recording.stop();
+
+        properties.getReplay().setMode(LlmProviderProperties.ReplayConfig.Mode.REPLAY);
+        LlmProvider replay = new CassetteStore(properties, executionRepository).decorate(delegate);
+
+        // Act
+        LlmResponse response = replay.executePrompt(request());
+
+        // Assert
+        assertTrue(Files.exists(cassetteDir.resolve(PROVIDER_ID + ".ndjson")));
+        assertEquals("Hello Ada!", response.getText());
+        assertEquals(12, response.getInputTokenCount());
+        assertEquals(3, response.getOutputTokenCount());
+        assertEquals(Long.valueOf(850L), response.getResponseTimeMs());
+        assertEquals(true, response.getMetadata().get(ReplayLlmProvider.REPLAYED_METADATA_KEY));
+        verify(delegate, times(1)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should replay a stored execution matched by version, parameters and model")
+    void shouldReplayStoredExecution() {
+        // Arrange
+        PromptExecution execution = PromptExecution.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .inputParameters(PARAMETERS)
+                .rawResponse("Hi Ada\n\n--- Validation: PASSED ---\nValidation passed")
+                .inputTokens(10)
+                .outputTokens(2)
+                .cost(BigDecimal.valueOf(0.001))
+                .responseTimeMs(1200L)
+                .status(ExecutionStatus.SUCCESS)
+                .build();
+        when(executionRepository.findByVersionIdAndProviderIdAndModelIdAndStatus(
+                VERSION_ID, PROVIDER_ID, MODEL_ID, ExecutionStatus.SUCCESS)).thenReturn(List.of(execution));
+        properties.getReplay().setMode(LlmProviderProperties.ReplayConfig.Mode.REPLAY);
+        LlmProvider replay = new CassetteStore(properties, executionRepository).decorate(delegate);
+
+        // Act
+        LlmResponse response = replay.executePrompt(request());
+
+        // Assert
+        assertEquals("Hi Ada", response.getText());
+        assertEquals(12, response.getTotalTokenCount());
+        assertEquals(Long.valueOf(1200L), response.getResponseTimeMs());
+        verify(delegate, never()).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should reload stored executions once the cached ones expire")
+    void shouldReloadExpiredExecutions() {
+        // Arrange
+        AtomicLong nanos = new AtomicLong();
+        properties.getReplay().setCacheExpireAfterWrite(Duration.ofMinutes(1));
+        CassetteStore store = new CassetteStore(properties, executionRepository, nanos::get);
+        assertTrue(store.find(PROVIDER_ID, request()).isEmpty());
+
+        PromptExecution execution = PromptExecution.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .inputParameters(PARAMETERS)
+                .rawResponse("Hi Ada")
+                .status(ExecutionStatus.SUCCESS)
+                .build();
+        when(executionRepository.findByVersionIdAndProviderIdAndModelIdAndStatus(
+                VERSION_ID, PROVIDER_ID, MODEL_ID, ExecutionStatus.SUCCESS)).thenReturn(List.of(execution));
+
+        // Act
+        boolean beforeExpiry = store.find(PROVIDER_ID, request()).isPresent();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        Optional<CassetteEntry> afterExpiry = store.find(PROVIDER_ID, request());
+
+        // Assert
+        assertFalse(beforeExpiry);
+        assertTrue(afterExpiry.isPresent());
+        assertEquals("Hi Ada", afterExpiry.get().getText());
+        verify(executionRepository, times(2)).findByVersionIdAndProviderIdAndModelIdAndStatus(
+                VERSION_ID, PROVIDER_ID, MODEL_ID, ExecutionStatus.SUCCESS);
+    }
+
+    @Test
+    @DisplayName("Should fail requests that have no recording")
+    void shouldFailWithoutRecording() {
+        // Arrange
+        properties.getReplay().setMode(LlmProviderProperties.ReplayConfig.Mode.REPLAY);
+        LlmProvider replay = new CassetteStore(properties, executionRepository).decorate(delegate);
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> replay.executePrompt(request()));
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.INVALID_REQUEST, exception.getErrorType());
+        verify(delegate, never()).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should leave providers that are not selected untouched")
+    void shouldOnlyWrapSelectedProviders() {
+        // Arrange
+        properties.getReplay().setMode(LlmProviderProperties.ReplayConfig.Mode.REPLAY);
+        properties.getReplay().setProviders(List.of("anthropic"));
+
+        // Act
+        LlmProvider provider = new CassetteStore(properties, executionRepository).decorate(delegate);
+
+        // Assert
+        assertSame(delegate, provider);
+    }
+
+    private LlmRequest request() {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello to Ada")
+                .versionId(VERSION_ID)
+                .parametersHash(HashUtils.parametersHash(PARAMETERS))
+                .build();
+    }
+}
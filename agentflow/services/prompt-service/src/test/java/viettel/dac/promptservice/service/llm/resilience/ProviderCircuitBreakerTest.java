@@ -0,0 +1,118 @@
+package viettel.dac.promptservice.service.llm.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProviderCircuitBreakerTest {
+
+    private static final String PROVIDER_ID = "openai";
+    private static final String MODEL_ID = "gpt-4";
+
+    @Mock
+    private LlmProvider delegate;
+
+    private LlmProviderProperties properties;
+    private ProviderCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new LlmProviderProperties();
+        properties.getResilience().setSlidingWindowSize(2);
+        properties.getResilience().setMinimumNumberOfCalls(2);
+        properties.getResilience().setMaxConcurrentCalls(1);
+        circuitBreaker = new ProviderCircuitBreaker(properties,
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults());
+
+        when(delegate.getProviderId()).thenReturn(PROVIDER_ID);
+    }
+
+    @Test
+    @DisplayName("Should open the circuit after provider failures and then fail fast")
+    void shouldFailFastWhenOpen() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Service unavailable", PROVIDER_ID, MODEL_ID, LlmProviderException.ErrorType.SERVICE_UNAVAILABLE)));
+        LlmProvider provider = circuitBreaker.decorate(delegate);
+        assertThrows(LlmProviderException.class, () -> provider.executePrompt(request()));
+        assertThrows(LlmProviderException.class, () -> provider.executePrompt(request()));
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider.executePrompt(request()));
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.circuitBreaker(PROVIDER_ID).getState());
+        assertEquals(LlmProviderException.ErrorType.SERVICE_UNAVAILABLE, exception.getErrorType());
+        assertTrue(exception.getMessage().contains("circuit breaker"));
+        verify(delegate, times(2)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should not open the circuit for errors caused by the request")
+    void shouldIgnoreClientErrors() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Invalid request", PROVIDER_ID, MODEL_ID, LlmProviderException.ErrorType.INVALID_REQUEST)));
+        LlmProvider provider = circuitBreaker.decorate(delegate);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(LlmProviderException.class, () -> provider.executePrompt(request()));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.circuitBreaker(PROVIDER_ID).getState());
+        verify(delegate, times(3)).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should reject calls beyond the bulkhead limit and admit them once a call finishes")
+    void shouldRejectWhenBulkheadFull() {
+        // Arrange
+        when(delegate.executePromptReactive(any())).thenReturn(Mono.never());
+        LlmProvider provider = circuitBreaker.decorate(delegate);
+        Disposable inFlight = provider.executePromptReactive(request()).subscribe();
+
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> provider.executePrompt(request()));
+        inFlight.dispose();
+        when(delegate.executePromptReactive(any()))
+                .thenReturn(Mono.just(LlmResponse.builder().text("Hello!").build()));
+        LlmResponse response = provider.executePrompt(request());
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.SERVICE_UNAVAILABLE, exception.getErrorType());
+        assertEquals("Hello!", response.getText());
+    }
+
+    private LlmRequest request() {
+        return LlmRequest.builder()
+                .providerId(PROVIDER_ID)
+                .modelId(MODEL_ID)
+                .prompt("Say hello")
+                .build();
+    }
+}
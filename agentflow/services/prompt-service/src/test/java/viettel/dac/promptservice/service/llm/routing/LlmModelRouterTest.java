@@ -0,0 +1,228 @@
+package viettel.dac.promptservice.service.llm.routing;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import reactor.core.publisher.Mono;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.dto.request.RoutingPolicy;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.exception.LlmProviderException;
+import viettel.dac.promptservice.model.enums.RoutingObjective;
+import viettel.dac.promptservice.service.llm.LlmProvider;
+import viettel.dac.promptservice.service.llm.LlmProviderFactory;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+import viettel.dac.promptservice.service.llm.ratelimit.ProviderRateLimiter;
+import viettel.dac.promptservice.service.llm.resilience.ProviderCircuitBreaker;
+import viettel.dac.promptservice.service.llm.tokenizer.TokenizerRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LlmModelRouterTest {
+
+    @Mock
+    private LlmProviderFactory providerFactory;
+
+    @Mock
+    private LlmProvider openAi;
+
+    @Mock
+    private LlmProvider anthropic;
+
+    private RouteStatistics statistics;
+    private LlmModelRouter router;
+
+    @BeforeEach
+    void setUp() {
+        LlmProviderProperties properties = new LlmProviderProperties();
+        statistics = new RouteStatistics(properties);
+        TokenizerRegistry tokenizers = new TokenizerRegistry(properties);
+        router = new LlmModelRouter(providerFactory, statistics,
+                new ProviderRateLimiter(properties, tokenizers),
+                new ProviderCircuitBreaker(properties, CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()),
+                tokenizers, properties);
+
+        mockProvider(openAi, "openai", "gpt-4", 0.05);
+        mockProvider(anthropic, "anthropic", "claude-3-haiku", 0.01);
+        when(providerFactory.getAllProviders()).thenAnswer(invocation -> new HashMap<>(Map.of(
+                "openai", openAi, "anthropic", anthropic, LlmModelRouter.AUTO, new RoutedLlmProvider(router))));
+    }
+
+    @Test
+    @DisplayName("Should send the request to the cheapest route and name it in the response")
+    void shouldRouteToCheapest() {
+        // Act
+        LlmResponse response = router.execute(request(null)).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("anthropic", response.getMetadata().get(LlmModelRouter.ROUTED_PROVIDER_METADATA_KEY));
+        assertEquals("claude-3-haiku", response.getMetadata().get(LlmModelRouter.ROUTED_MODEL_METADATA_KEY));
+        verify(anthropic).executePromptReactive(argThat(request -> "claude-3-haiku".equals(request.getModelId())
+                && "anthropic".equals(request.getProviderId()) && request.getRouting() == null));
+        verify(openAi, never()).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should prefer the fastest route when the policy asks for it")
+    void shouldRouteToFastest() {
+        // Arrange
+        recordLatencies("openai", "gpt-4", Duration.ofMillis(300));
+        recordLatencies("anthropic", "claude-3-haiku", Duration.ofSeconds(3));
+
+        // Act
+        List<Route> routes = router.rank(request(RoutingPolicy.builder().objective(RoutingObjective.FASTEST).build()));
+
+        // Assert
+        assertEquals(List.of("openai", "anthropic"), routes.stream().map(Route::getProviderId).toList());
+    }
+
+    @Test
+    @DisplayName("Should pick the cheapest route that meets the p95 latency limit")
+    void shouldRespectLatencyLimit() {
+        // Arrange
+        recordLatencies("openai", "gpt-4", Duration.ofMillis(800));
+        recordLatencies("anthropic", "claude-3-haiku", Duration.ofSeconds(3));
+
+        // Act
+        List<Route> routes = router.rank(request(RoutingPolicy.builder().maxP95LatencyMs(2000L).build()));
+
+        // Assert
+        assertEquals("openai", routes.get(0).getProviderId());
+        assertFalse(routes.get(1).isWithinLatency());
+    }
+
+    @Test
+    @DisplayName("Should rank a route with a high error rate last")
+    void shouldDemoteDegradedRoute() {
+        // Arrange
+        LlmProviderException error = new LlmProviderException("Unavailable", "anthropic", "claude-3-haiku",
+                LlmProviderException.ErrorType.SERVICE_UNAVAILABLE);
+        for (int i = 0; i < 10; i++) {
+            statistics.recordFailure("anthropic", "claude-3-haiku", error);
+        }
+
+        // Act
+        List<Route> routes = router.rank(request(null));
+
+        // Assert
+        assertEquals("openai", routes.get(0).getProviderId());
+        assertTrue(routes.get(1).isDegraded());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the next route when the chosen one fails")
+    void shouldFallBack() {
+        // Arrange
+        when(anthropic.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Overloaded", "anthropic", "claude-3-haiku", LlmProviderException.ErrorType.SERVICE_UNAVAILABLE)));
+
+        // Act
+        LlmResponse response = router.execute(request(null)).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("gpt-4", response.getText());
+        verify(anthropic).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should not fall back for errors caused by the request")
+    void shouldNotFallBackOnInvalidRequest() {
+        // Arrange
+        when(anthropic.executePromptReactive(any())).thenReturn(Mono.error(new LlmProviderException(
+                "Bad request", "anthropic", "claude-3-haiku", LlmProviderException.ErrorType.INVALID_REQUEST)));
+
+        // Act & Assert
+        assertThrows(LlmProviderException.class, () -> router.execute(request(null)).block());
+        verify(openAi, never()).executePromptReactive(any());
+    }
+
+    @Test
+    @DisplayName("Should refuse a request no route can serve within the budget")
+    void shouldRejectOverBudget() {
+        // Act
+        LlmProviderException exception = assertThrows(LlmProviderException.class,
+                () -> router.rank(request(RoutingPolicy.builder().maxCost(0.001).build())));
+
+        // Assert
+        assertEquals(LlmProviderException.ErrorType.INVALID_REQUEST, exception.getErrorType());
+    }
+
+    @Test
+    @DisplayName("Should only consider providers of the requested model")
+    void shouldRestrictToRequestedModel() {
+        // Arrange
+        LlmRequest request = request(null).toBuilder().modelId("gpt-4").build();
+
+        // Act
+        List<Route> routes = router.rank(request);
+
+        // Assert
+        assertEquals(1, routes.size());
+        assertEquals("openai", routes.get(0).getProviderId());
+    }
+
+    @Test
+    @DisplayName("Should tokenize the prompt once per encoding when ranking routes")
+    void shouldCountTokensOncePerEncoding() {
+        // Arrange
+        when(openAi.getAvailableModels()).thenReturn(Map.of("gpt-4", "gpt-4", "gpt-3.5-turbo", "gpt-3.5-turbo"));
+        when(openAi.supportsModel(anyString())).thenReturn(true);
+        when(openAi.calculateCost(anyInt(), anyInt(), anyString())).thenReturn(0.05);
+
+        // Act
+        List<Route> routes = router.rank(request(null));
+
+        // Assert
+        assertEquals(3, routes.size());
+        verify(openAi, times(1)).countTokens(anyString(), anyString());
+        verify(anthropic, times(1)).countTokens(anyString(), anyString());
+    }
+
+    private void mockProvider(LlmProvider provider, String providerId, String modelId, double cost) {
+        when(provider.getProviderId()).thenReturn(providerId);
+        when(provider.getAvailableModels()).thenReturn(Map.of(modelId, modelId));
+        when(provider.supportsModel(anyString())).thenAnswer(invocation -> modelId.equals(invocation.getArgument(0)));
+        when(provider.countTokens(anyString(), anyString())).thenReturn(100);
+        when(provider.calculateCost(anyInt(), anyInt(), eq(modelId))).thenReturn(cost);
+        when(provider.executePromptReactive(any())).thenAnswer(invocation -> Mono.just(LlmResponse.builder()
+                .request(invocation.getArgument(0))
+                .text(modelId)
+                .successful(true)
+                .metadata(Map.of())
+                .build()));
+    }
+
+    private void recordLatencies(String providerId, String modelId, Duration latency) {
+        for (int i = 0; i < 10; i++) {
+            statistics.recordSuccess(providerId, modelId, latency);
+        }
+    }
+
+    private static LlmRequest request(RoutingPolicy routing) {
+        return LlmRequest.builder()
+                .providerId(LlmModelRouter.AUTO)
+                .modelId(LlmModelRouter.AUTO)
+                .prompt("Summarise the release notes")
+                .maxTokens(256)
+                .routing(routing)
+                .build();
+    }
+}
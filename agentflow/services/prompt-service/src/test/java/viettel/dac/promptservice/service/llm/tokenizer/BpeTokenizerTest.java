@@ -0,0 +1,92 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BpeTokenizerTest {
+
+    private BpeVocabulary vocabulary;
+    private BpeTokenizer tokenizer;
+
+    /**
+     * Build a tiny tiktoken-format vocabulary: every single byte plus a few merges
+     */
+    static String toyVocabulary() {
+        StringBuilder sb = new StringBuilder();
+        Base64.Encoder encoder = Base64.getEncoder();
+        int rank = 0;
+        for (int b = 0; b < 256; b++) {
+            sb.append(encoder.encodeToString(new byte[]{(byte) b})).append(' ').append(rank++).append('\n');
+        }
+        for (String merge : new String[]{"he", "ll", "llo", "hello", " w", "or", " wor"}) {
+            sb.append(encoder.encodeToString(merge.getBytes(StandardCharsets.UTF_8)))
+                    .append(' ').append(rank++).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vocabulary = BpeVocabulary.load(new ByteArrayInputStream(toyVocabulary().getBytes(StandardCharsets.US_ASCII)));
+        tokenizer = new BpeTokenizer(TokenizerRegistry.CL100K_BASE, BpeTokenizer.CL100K_PATTERN, vocabulary);
+    }
+
+    @Test
+    @DisplayName("Should load every vocabulary entry into the lookup table")
+    void shouldLoadVocabulary() {
+        byte[] hello = "hello".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(263, vocabulary.size());
+        assertEquals(259, vocabulary.rank(hello, 0, 5));
+        assertEquals(256, vocabulary.rank(hello, 0, 2));
+        assertEquals('h', vocabulary.rank(hello, 0, 1));
+        assertEquals(BpeVocabulary.NOT_FOUND, vocabulary.rank(hello, 0, 3));
+    }
+
+    @Test
+    @DisplayName("Should count a piece that is a whole token as one")
+    void shouldCountWholeTokenPiece() {
+        assertEquals(1, tokenizer.countTokens("hello"));
+    }
+
+    @Test
+    @DisplayName("Should apply merges in rank order")
+    void shouldMergeByRank() {
+        // he + ll + x, "hell" is not a token
+        assertEquals(3, tokenizer.countTokens("hellx"));
+        // " w" -> "or" -> " wor", then l and d stay single bytes
+        assertEquals(3, tokenizer.countTokens(" world"));
+        assertEquals(4, tokenizer.countTokens("hello world"));
+    }
+
+    @Test
+    @DisplayName("Should count unmerged multi-byte characters per UTF-8 byte")
+    void shouldCountUtf8Bytes() {
+        assertEquals(2, tokenizer.countTokens("\u00e9"));
+        assertEquals(4, tokenizer.countTokens("\uD83D\uDE00"));
+    }
+
+    @Test
+    @DisplayName("Should return zero for empty text")
+    void shouldReturnZeroForEmptyText() {
+        assertEquals(0, tokenizer.countTokens(""));
+        assertEquals(0, tokenizer.countTokens(null));
+    }
+
+    @Test
+    @DisplayName("Should estimate without a vocabulary using word pieces")
+    void shouldEstimateWithHeuristic() {
+        HeuristicTokenizer heuristic = new HeuristicTokenizer();
+
+        assertEquals(2, heuristic.countTokens("hello world"));
+        assertEquals(3, heuristic.countTokens("12345678"));
+        assertEquals(0, heuristic.countTokens(""));
+    }
+}
@@ -0,0 +1,98 @@
+package viettel.dac.promptservice.service.llm.tokenizer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import viettel.dac.promptservice.dto.request.LlmRequest;
+import viettel.dac.promptservice.service.llm.LlmProviderProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenizerRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TokenizerRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path vocabulary = tempDir.resolve("cl100k_base.tiktoken");
+        Files.writeString(vocabulary, BpeTokenizerTest.toyVocabulary(), StandardCharsets.US_ASCII);
+
+        LlmProviderProperties properties = new LlmProviderProperties();
+        properties.getTokenizer().setCl100kVocabulary(vocabulary.toUri().toString());
+        properties.getTokenizer().setO200kVocabulary(tempDir.resolve("missing.tiktoken").toUri().toString());
+        registry = new TokenizerRegistry(properties);
+    }
+
+    @Test
+    @DisplayName("Should map model IDs to their encodings")
+    void shouldResolveEncodingForModel() {
+        assertEquals(TokenizerRegistry.O200K_BASE, TokenizerRegistry.encodingForModel("gpt-4o-mini"));
+        assertEquals(TokenizerRegistry.O200K_BASE, TokenizerRegistry.encodingForModel("o3-mini"));
+        assertEquals(TokenizerRegistry.CL100K_BASE, TokenizerRegistry.encodingForModel("gpt-4-turbo"));
+        assertEquals(TokenizerRegistry.CL100K_BASE, TokenizerRegistry.encodingForModel("gpt-3.5-turbo"));
+        assertEquals(ClaudeTokenizer.ENCODING, TokenizerRegistry.encodingForModel("claude-3-opus-20240229"));
+        assertEquals(TokenizerRegistry.CL100K_BASE, TokenizerRegistry.encodingForModel("unknown-model"));
+        assertEquals(TokenizerRegistry.CL100K_BASE, TokenizerRegistry.encodingForModel(null));
+    }
+
+    @Test
+    @DisplayName("Should count with the loaded vocabulary and calibrate Claude counts")
+    void shouldCountWithLoadedVocabulary() {
+        assertInstanceOf(BpeTokenizer.class, registry.forModel("gpt-4"));
+        assertEquals(4, registry.countTokens("hello world", "gpt-4"));
+        // ceil(4 * 1.1)
+        assertEquals(5, registry.countTokens("hello world", "claude-3-haiku-20240307"));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the heuristic when a vocabulary is missing")
+    void shouldFallBackToHeuristic() {
+        Tokenizer tokenizer = registry.forModel("gpt-4o");
+
+        assertEquals(HeuristicTokenizer.ENCODING, tokenizer.getEncoding());
+        assertSame(tokenizer, registry.forModel("gpt-4o"));
+        assertTrue(tokenizer.countTokens("hello world") > 0);
+    }
+
+    @Test
+    @DisplayName("Should memoize prompt counts per version and parameters")
+    void shouldMemoizePromptCounts() {
+        AtomicInteger calls = new AtomicInteger();
+        LlmRequest request = LlmRequest.builder()
+                .prompt("hello world")
+                .modelId("gpt-4")
+                .versionId("version-1")
+                .parametersHash("hash-1")
+                .build();
+
+        int first = registry.countPromptTokens(request, () -> {
+            calls.incrementAndGet();
+            return 4;
+        });
+        int second = registry.countPromptTokens(request, () -> {
+            calls.incrementAndGet();
+            return 4;
+        });
+
+        assertEquals(4, first);
+        assertEquals(4, second);
+        assertEquals(1, calls.get());
+
+        // An edited draft with the same key must be recounted
+        request.setPrompt("hello there world");
+        assertEquals(6, registry.countPromptTokens(request, () -> {
+            calls.incrementAndGet();
+            return 6;
+        }));
+        assertEquals(2, calls.get());
+    }
+}
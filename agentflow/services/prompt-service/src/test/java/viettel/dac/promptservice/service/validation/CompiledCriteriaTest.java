@@ -0,0 +1,117 @@
+package viettel.dac.promptservice.service.validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import viettel.dac.promptservice.dto.validation.ValidationResult;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledCriteriaTest {
+
+    private ResponseValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new ResponseValidator();
+    }
+
+    @Test
+    @DisplayName("Should reuse compiled criteria for equal criteria maps")
+    void shouldCacheCompiledCriteria() {
+        // Arrange
+        Map<String, Object> criteria = new HashMap<>();
+        criteria.put("regex_match", "\\d+");
+        criteria.put("max_length", 100);
+
+        // Act
+        CompiledCriteria first = validator.compile(criteria);
+        CompiledCriteria second = validator.compile(new HashMap<>(criteria));
+        criteria.put("max_length", 5);
+        CompiledCriteria changed = validator.compile(criteria);
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, changed);
+        assertTrue(first.validate("value 123").isPassed());
+        assertFalse(changed.validate("value 123").isPassed());
+        assertSame(CompiledCriteria.NONE, validator.compile(Map.of()));
+    }
+
+    @Test
+    @DisplayName("Should compile the streaming rules once with the criteria")
+    void shouldCompileStreamingRulesOnce() {
+        // Arrange
+        Map<String, Object> criteria = Map.of("regex_match", "^Answer: \\d+", "not_contains", "secret");
+
+        // Act
+        CompiledCriteria.StreamingRules first = validator.compile(criteria).getStreamingRules();
+        CompiledCriteria.StreamingRules second = validator.compile(new HashMap<>(criteria)).getStreamingRules();
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(first.canTerminateEarly());
+        assertEquals(List.of("secret"), first.forbidden());
+        assertNotNull(first.anchoredPattern());
+        assertFalse(CompiledCriteria.NONE.getStreamingRules().canTerminateEarly());
+    }
+
+    @Test
+    @DisplayName("Should check the first JSON value and ignore what follows it")
+    void shouldValidateJsonFormat() {
+        // Arrange
+        CompiledCriteria criteria = validator.compile(Map.of("json_format", true));
+
+        // Act
+        ValidationResult valid = criteria.validate("{\"a\": [1, {\"b\": \"c\"}]} trailing text");
+        ValidationResult badEscape = criteria.validate("{\"a\": \"\\q\"}");
+        ValidationResult truncated = criteria.validate("{\"a\": [1, 2");
+
+        // Assert
+        assertTrue(valid.isPassed());
+        assertFalse(badEscape.isPassed());
+        assertFalse(truncated.isPassed());
+        assertTrue(truncated.getIssues().get(0).getMessage().startsWith("Response is not valid JSON: "));
+    }
+
+    @Test
+    @DisplayName("Should report every schema violation with its path")
+    void shouldValidateJsonSchema() {
+        // Arrange
+        Map<String, Object> schema = Map.of(
+                "type", "object",
+                "required", List.of("name", "tags"),
+                "properties", Map.of(
+                        "name", Map.of("type", "string"),
+                        "score", Map.of("type", "number"),
+                        "tags", Map.of("type", "array", "items", Map.of("type", "string"))));
+        CompiledCriteria criteria = validator.compile(Map.of("json_schema", schema));
+
+        // Act
+        ValidationResult valid = criteria.validate("{\"name\": \"a\", \"score\": 3, \"tags\": [\"x\"], \"extra\": {}}");
+        ValidationResult invalid = criteria.validate("{\"name\": 1, \"tags\": [\"x\", 2]}");
+        ValidationResult notJson = criteria.validate("name: a");
+
+        // Assert
+        assertTrue(valid.isPassed());
+        assertFalse(invalid.isPassed());
+        assertEquals(List.of("$.name should be string but is integer", "$.tags[1] should be string but is integer"),
+                invalid.getIssues().stream().map(ValidationResult.ValidationIssue::getMessage).toList());
+        assertFalse(notJson.isPassed());
+    }
+
+    @Test
+    @DisplayName("Should fail a malformed schema with the invalid format message")
+    void shouldRejectMalformedSchema() {
+        // Act
+        ValidationResult result = validator.validateResponse("{}", Map.of("json_schema", Map.of("type", "date")));
+
+        // Assert
+        assertFalse(result.isPassed());
+        assertEquals("Invalid criterion format for 'json_schema' rule", result.getIssues().get(0).getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package viettel.dac.promptservice.service.validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import viettel.dac.promptservice.dto.validation.ParameterValidationResult;
+import viettel.dac.promptservice.model.entity.PromptParameter;
+import viettel.dac.promptservice.model.entity.PromptVersion;
+import viettel.dac.promptservice.model.enums.ParameterType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterValidationPlanTest {
+
+    private ParameterValidator validator;
+    private PromptVersion version;
+    private PromptParameter code;
+
+    @BeforeEach
+    void setUp() {
+        validator = new ParameterValidator();
+        version = new PromptVersion();
+        version.setId("version-plan-1");
+        code = parameter("code", ParameterType.STRING, true, null, "^[A-Z]{3}$");
+        version.addParameter(code);
+        version.addParameter(parameter("count", ParameterType.NUMBER, false, "10", null));
+        version.addParameter(parameter("flag", ParameterType.BOOLEAN, false, null, null));
+    }
+
+    @Test
+    @DisplayName("Should reuse the plan of a version until its parameters change")
+    void shouldCachePlanPerVersion() {
+        // Act
+        ParameterValidationPlan first = validator.planFor(version);
+        ParameterValidationPlan second = validator.planFor(version);
+        code.setValidationPattern("^[a-z]+$");
+        ParameterValidationPlan changed = validator.planFor(version);
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, changed);
+        assertTrue(changed.validate(Map.of("code", "abc")).isValid());
+        assertFalse(changed.validate(Map.of("code", "ABC")).isValid());
+    }
+
+    @Test
+    @DisplayName("Should validate a batch of parameter sets with one result per set")
+    void shouldValidateBatch() {
+        // Arrange
+        List<Map<String, Object>> parameterSets = Arrays.asList(
+                Map.of("code", "ABC", "count", "5", "flag", "YES"),
+                Map.of("code", "abc"),
+                Map.of("count", "3000000000"),
+                null,
+                Map.of("code", "XYZ", "flag", "maybe", "extra", 1));
+
+        // Act
+        List<ParameterValidationResult> results = validator.validateBatch(version, parameterSets);
+
+        // Assert
+        assertEquals(5, results.size());
+
+        assertTrue(results.get(0).isValid());
+        assertEquals(5, results.get(0).getValidatedValues().get("count"));
+        assertEquals(true, results.get(0).getValidatedValues().get("flag"));
+
+        assertFalse(results.get(1).isValid());
+        assertEquals("Value does not match required pattern: ^[A-Z]{3}$",
+                results.get(1).getIssues().get(0).getMessage());
+        assertEquals(10, results.get(1).getValidatedValues().get("count"));
+
+        assertEquals(List.of("code"), results.get(2).getMissingRequired());
+        assertEquals(3_000_000_000L, results.get(2).getValidatedValues().get("count"));
+
+        assertEquals(List.of("code"), results.get(3).getMissingRequired());
+
+        assertFalse(results.get(4).isValid());
+        assertEquals(List.of("extra"), results.get(4).getUnknownParameters());
+        assertTrue(results.get(4).getIssues().stream()
+                .anyMatch(issue -> issue.getMessage().equals("Value is not a valid boolean")));
+    }
+
+    @Test
+    @DisplayName("Should report an invalid validation pattern as an error")
+    void shouldReportInvalidPattern() {
+        // Arrange
+        code.setValidationPattern("[unclosed");
+
+        // Act
+        ParameterValidationResult result = validator.validateParameters(version, Map.of("code", "ABC"));
+
+        // Assert
+        assertFalse(result.isValid());
+        assertTrue(result.getIssues().get(0).getMessage().startsWith("Validation error: "));
+    }
+
+    private static PromptParameter parameter(String name, ParameterType type, boolean required,
+                                             String defaultValue, String validationPattern) {
+        PromptParameter parameter = new PromptParameter();
+        parameter.setName(name);
+        parameter.setParameterType(type);
+        parameter.setRequired(required);
+        parameter.setDefaultValue(defaultValue);
+        parameter.setValidationPattern(validationPattern);
+        return parameter;
+    }
+}
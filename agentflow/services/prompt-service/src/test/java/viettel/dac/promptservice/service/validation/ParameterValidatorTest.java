@@ -610,6 +610,26 @@ public class ParameterValidatorTest {
         assertEquals("param1", result.getMissingRequired().get(0));
     }
 
+    @Test
+    public void testPlanFor_ReusesPlanWhenParametersReloadInAnotherOrder() {
+        // Setup a saved version whose parameters come back in a different order on reload
+        when(mockVersion.getId()).thenReturn("version-1");
+        Set<PromptParameter> loaded = new LinkedHashSet<>();
+        loaded.add(createParameter("alpha", "Alpha", ParameterType.STRING, true, null, null));
+        loaded.add(createParameter("beta", "Beta", ParameterType.NUMBER, false, "1", null));
+        loaded.add(createParameter("gamma", "Gamma", ParameterType.BOOLEAN, false, null, null));
+
+        Set<PromptParameter> reloaded = new LinkedHashSet<>();
+        reloaded.add(createParameter("gamma", "Gamma", ParameterType.BOOLEAN, false, null, null));
+        reloaded.add(createParameter("alpha", "Alpha", ParameterType.STRING, true, null, null));
+        reloaded.add(createParameter("beta", "Beta", ParameterType.NUMBER, false, "1", null));
+
+        when(mockVersion.getParameters()).thenReturn(loaded, reloaded);
+
+        // The reloaded definitions are the same, so the cached plan should be reused
+        assertSame(validator.planFor(mockVersion), validator.planFor(mockVersion));
+    }
+
     /**
      * Helper method to create a parameter for testing
      */
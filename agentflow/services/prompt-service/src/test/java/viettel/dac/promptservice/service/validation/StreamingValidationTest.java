@@ -0,0 +1,149 @@
+package viettel.dac.promptservice.service.validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import viettel.dac.promptservice.dto.response.LlmResponse;
+import viettel.dac.promptservice.dto.response.LlmStreamChunk;
+import viettel.dac.promptservice.dto.validation.ValidationResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingValidationTest {
+
+    private ResponseValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new ResponseValidator();
+    }
+
+    @Test
+    @DisplayName("Should stop on forbidden text split across deltas")
+    void shouldDetectForbiddenTextAcrossDeltas() {
+        // Arrange
+        StreamingValidation validation = validator.startStreaming(Map.of("not_contains", List.of("secret")));
+
+        // Act
+        boolean afterFirst = validation.accept("the sec");
+        boolean afterSecond = validation.accept("ret is out");
+
+        // Assert
+        assertFalse(afterFirst);
+        assertTrue(afterSecond);
+        assertEquals("not_contains", validation.getViolatedRule());
+    }
+
+    @Test
+    @DisplayName("Should stop once the maximum length is exceeded")
+    void shouldDetectMaxLength() {
+        // Arrange
+        StreamingValidation validation = validator.startStreaming(Map.of("max_length", 5, "min_length", 2));
+
+        // Act
+        boolean withinLimit = validation.accept("12345");
+        boolean overLimit = validation.accept("6");
+
+        // Assert
+        assertFalse(withinLimit);
+        assertTrue(overLimit);
+        assertEquals("max_length", validation.getViolatedRule());
+    }
+
+    @Test
+    @DisplayName("Should stop on malformed JSON and ignore text after a complete value")
+    void shouldValidateJsonIncrementally() {
+        // Arrange
+        StreamingValidation valid = validator.startStreaming(Map.of("json_format", true));
+        StreamingValidation invalid = validator.startStreaming(Map.of("json_format", true));
+
+        // Act
+        boolean validStopped = valid.accept(" {\"a\": [1, ") || valid.accept("2]}") || valid.accept(" done");
+        boolean invalidBeforeError = invalid.accept("{\"a\": tru");
+        boolean invalidStopped = invalid.accept("x}");
+
+        // Assert
+        assertFalse(validStopped);
+        assertFalse(invalidBeforeError);
+        assertTrue(invalidStopped);
+        assertEquals("json_format", invalid.getViolatedRule());
+    }
+
+    @Test
+    @DisplayName("Should stop on an anchored pattern only when no more text can match it")
+    void shouldValidateAnchoredPattern() {
+        // Arrange
+        StreamingValidation anchored = validator.startStreaming(Map.of("regex_match", "^Answer: \\d+"));
+        StreamingValidation unanchored = validator.startStreaming(Map.of("regex_match", "Answer: \\d+"));
+
+        // Act
+        boolean prefix = anchored.accept("Ans");
+        boolean mismatch = anchored.accept("wer? 42");
+        boolean unanchoredStopped = unanchored.accept("Nothing yet");
+
+        // Assert
+        assertFalse(prefix);
+        assertTrue(mismatch);
+        assertFalse(unanchoredStopped);
+        assertFalse(unanchored.canTerminateEarly());
+    }
+
+    @Test
+    @DisplayName("Should cancel the upstream stream and end with the truncated response")
+    void shouldCancelUpstream() {
+        // Arrange
+        AtomicInteger emitted = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<LlmStreamChunk> upstream = Flux.just("fine ", "then BAD ", "more ", "text")
+                .map(LlmStreamChunk::delta)
+                .concatWithValues(LlmStreamChunk.completed(LlmResponse.builder().text("unused").build()))
+                .doOnNext(chunk -> emitted.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true));
+        StreamingValidation validation = validator.startStreaming(Map.of("not_contains", "BAD"));
+
+        // Act
+        List<LlmStreamChunk> chunks = validation
+                .guard(upstream, text -> LlmResponse.builder().text(text).successful(true).build())
+                .collectList()
+                .block();
+        ValidationResult result = validation.result();
+
+        // Assert
+        assertNotNull(chunks);
+        assertTrue(cancelled.get());
+        assertEquals(2, emitted.get());
+        assertEquals(3, chunks.size());
+        LlmStreamChunk last = chunks.get(2);
+        assertTrue(last.isLast());
+        assertEquals("fine then BAD ", last.getResponse().getText());
+        assertEquals("not_contains", last.getResponse().getMetadata().get(StreamingValidation.TERMINATED_BY_KEY));
+        assertFalse(result.isPassed());
+        assertEquals(validator.validateResponse("fine then BAD ", Map.of("not_contains", "BAD")), result);
+    }
+
+    @Test
+    @DisplayName("Should pass a stream through unchanged when no rule fails")
+    void shouldPassValidStream() {
+        // Arrange
+        Flux<LlmStreamChunk> upstream = Flux.just(LlmStreamChunk.delta("short"),
+                LlmStreamChunk.completed(LlmResponse.builder().text("short").build()));
+        StreamingValidation validation = validator.startStreaming(Map.of("max_length", 100));
+
+        // Act
+        List<LlmStreamChunk> chunks = validation.guard(upstream, text -> {
+            throw new AssertionError("Stream should not be truncated");
+        }).collectList().block();
+
+        // Assert
+        assertNotNull(chunks);
+        assertEquals(2, chunks.size());
+        assertNull(validation.getViolatedRule());
+        assertTrue(validation.result().isPassed());
+    }
+}
@@ -0,0 +1,100 @@
+package viettel.dac.promptservice.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateCompilerTest {
+
+    @Test
+    @DisplayName("Should render literals and repeated placeholders in one pass")
+    void shouldRenderTemplate() {
+        // Arrange
+        CompiledTemplate template = CompiledTemplate.parse("Hi {{name}}, {{name}} owes {{amount}} {{unknown}}.");
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "Ann");
+        values.put("amount", 5);
+        values.put("extra", "ignored");
+
+        // Act
+        String result = template.render(values, Set.of());
+
+        // Assert
+        assertEquals("Hi Ann, Ann owes 5 {{unknown}}.", result);
+        assertEquals(List.of("name", "amount", "unknown"), List.copyOf(template.getParameterNames()));
+    }
+
+    @Test
+    @DisplayName("Should treat braces that do not form a placeholder as literal text")
+    void shouldKeepMalformedPlaceholders() {
+        // Arrange
+        CompiledTemplate template = CompiledTemplate.parse("{{}} {{a} {{{b}}} {c} {{d}}");
+
+        // Act
+        String result = template.render(Map.of("b", "B", "d", "D"), Set.of());
+
+        // Assert
+        assertEquals("{{}} {{a} {B} {c} D", result);
+        assertEquals(Set.of("b", "d"), template.getParameterNames());
+    }
+
+    @Test
+    @DisplayName("Should not substitute placeholders inside substituted values")
+    void shouldNotRescanValues() {
+        // Arrange
+        CompiledTemplate template = CompiledTemplate.parse("{{a}} {{b}}");
+
+        // Act
+        String result = template.render(Map.of("a", "{{b}}", "b", "x"), Set.of());
+
+        // Assert
+        assertEquals("{{b}} x", result);
+    }
+
+    @Test
+    @DisplayName("Should report missing and null required parameters across bitmap words")
+    void shouldReportMissingRequiredParameters() {
+        // Arrange
+        String content = IntStream.range(0, 70).mapToObj(i -> "{{p" + i + "}}").collect(Collectors.joining(" "));
+        CompiledTemplate template = CompiledTemplate.parse(content);
+        Map<String, Object> values = new HashMap<>();
+        IntStream.range(0, 70).forEach(i -> values.put("p" + i, i));
+        values.put("p66", null);
+        values.remove("p3");
+
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> template.render(values, Set.of("p3", "p66", "p10", "notInContent")));
+
+        // Assert
+        assertTrue(exception.getMessage().startsWith("Missing required parameters: "));
+        assertTrue(exception.getMessage().contains("p3"));
+        assertTrue(exception.getMessage().contains("p66"));
+        assertTrue(exception.getMessage().contains("notInContent"));
+        assertFalse(exception.getMessage().contains("p10"));
+    }
+
+    @Test
+    @DisplayName("Should reuse the compiled template until the content changes")
+    void shouldCacheByVersionAndContent() {
+        // Act
+        CompiledTemplate first = TemplateCompiler.compile("version-1", "Hello {{name}}");
+        CompiledTemplate second = TemplateCompiler.compile("version-1", "Hello {{name}}");
+        CompiledTemplate changed = TemplateCompiler.compile("version-1", "Bye {{name}}");
+        CompiledTemplate unsaved = TemplateCompiler.compile(null, "Hello {{name}}");
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, changed);
+        assertEquals("Bye Ann", changed.render(Map.of("name", "Ann"), Set.of("name")));
+        assertEquals("Hello Ann", unsaved.render(Map.of("name", "Ann"), Set.of()));
+    }
+}